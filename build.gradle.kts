@@ -2,6 +2,7 @@ plugins {
     id("java-library")
     id("com.gradleup.shadow") version "9.3.1"
     id("run-hytale")
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = findProperty("pluginGroup") as String? ?: "com.example"
@@ -20,10 +21,13 @@ dependencies {
     // Common dependencies (will be bundled in JAR)
     implementation("com.google.code.gson:gson:2.10.1")
     implementation("org.jetbrains:annotations:24.1.0")
+    implementation("com.github.luben:zstd-jni:1.5.6-6")
     
     // Test dependencies
     testImplementation("org.junit.jupiter:junit-jupiter:5.10.0")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    // Classes under test log through the server's HytaleLogger
+    testImplementation(files("./libs/HytaleServer.jar"))
 }
 
 // Configure server testing
@@ -66,6 +70,11 @@ tasks {
         
         // Minimize JAR size (removes unused classes)
         minimize()
+
+        // Offline replay of snapshot recordings: java -jar <plugin jar> <recordings-dir> <command>
+        manifest {
+            attributes("Main-Class" to "org.alias.rpgPlugin.recorder.SnapshotReplay")
+        }
     }
     
     // Configure tests
@@ -79,6 +88,16 @@ tasks {
     }
 }
 
+// Configure JMH benchmarks (src/jmh/java, no HytaleServer.jar needed at runtime)
+// Run all with ./gradlew jmh, or a subset with ./gradlew jmh -PjmhIncludes=Serialization
+jmh {
+    jmhVersion = "1.37"
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+    profilers = listOf("gc")
+    (findProperty("jmhIncludes") as String?)?.let { includes = listOf(it) }
+}
+
 // Configure Java toolchain
 java {
     toolchain {
@@ -0,0 +1,34 @@
+package org.alias.rpgPlugin.benchmark;
+
+import org.alias.rpgPlugin.hooks.player.PlayerSnapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-player object holding boxed maps, the shape the old PlayerComponentContainer path
+ * produced every tick. Kept only as the baseline the columnar table is measured against.
+ */
+public class BoxedPlayerState {
+
+    public final Map<String, Double> position = new HashMap<>();
+    public final Map<String, Float> rotation = new HashMap<>();
+    public final Map<String, Integer> movementStates = new HashMap<>();
+    public final Map<String, Float> stats = new HashMap<>();
+
+    public void update(PlayerSnapshot snapshot) {
+        position.put("x", snapshot.getX());
+        position.put("y", snapshot.getY());
+        position.put("z", snapshot.getZ());
+        rotation.put("pitch", snapshot.getPitch());
+        rotation.put("yaw", snapshot.getYaw());
+        rotation.put("roll", snapshot.getRoll());
+        for (int bit = 0; bit < PlayerSnapshot.MOVEMENT_STATE_NAMES.length; bit++) {
+            movementStates.put(PlayerSnapshot.MOVEMENT_STATE_NAMES[bit], snapshot.getMovementState(bit) ? 1 : 0);
+        }
+        for (int i = 0; i < PlayerSnapshot.STAT_COUNT; i++) {
+            stats.put(PlayerSnapshot.STAT_NAMES[i], snapshot.getStat(i));
+            stats.put(PlayerSnapshot.MAX_STAT_NAMES[i], snapshot.getMaxStat(i));
+        }
+    }
+}
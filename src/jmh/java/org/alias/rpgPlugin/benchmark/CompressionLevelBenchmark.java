@@ -0,0 +1,111 @@
+package org.alias.rpgPlugin.benchmark;
+
+import com.github.luben.zstd.Zstd;
+import org.alias.rpgPlugin.hooks.player.PlayerSnapshot;
+import org.alias.rpgPlugin.hooks.player.PlayerStateTable;
+import org.alias.rpgPlugin.hooks.player.codec.PlayerSnapshotCodec;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotCompressor;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotFormat;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotJsonEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Zstd level sweep over pre-serialized payloads of consecutive ticks. The aux counters report
+ * compressed and uncompressed bytes, so the ratio of each level sits next to its cost.
+ * {@code oneShot} is the original per-tick Zstd.compress call; {@code reusedContext} is the
+ * long-lived context used by PlayerHook.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionLevelBenchmark {
+
+    private static final int PAYLOADS = 64;
+
+    @Param({"50", "500", "5000"})
+    public int players;
+
+    @Param({"1", "3", "6", "9", "15", "19"})
+    public int level;
+
+    @Param({"JSON", "BINARY"})
+    public SnapshotFormat format;
+
+    private byte[][] payloads;
+    private SnapshotCompressor compressor;
+    private int next;
+
+    /**
+     * Bytes in and out per iteration, reported next to the timing
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Sizes {
+        public long compressedBytes;
+        public long uncompressedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            compressedBytes = 0;
+            uncompressedBytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SyntheticPlayers fixture = new SyntheticPlayers(players, 42L);
+        PlayerStateTable table = new PlayerStateTable();
+        SnapshotJsonEncoder jsonEncoder = new SnapshotJsonEncoder();
+        PlayerSnapshotCodec codec = new PlayerSnapshotCodec(300);
+
+        payloads = new byte[PAYLOADS][];
+        for (int i = 0; i < PAYLOADS; i++) {
+            fixture.advance();
+            table.beginTick(fixture.tick());
+            for (PlayerSnapshot snapshot : fixture.snapshots()) {
+                table.put(snapshot);
+            }
+            table.endTick();
+
+            if (format == SnapshotFormat.JSON) {
+                payloads[i] = jsonEncoder.encode(table).getBytes(StandardCharsets.UTF_8);
+            } else {
+                ByteBuffer buffer = ByteBuffer.allocate(PlayerSnapshotCodec.maxFrameSize(table));
+                int size = codec.encode(table, buffer);
+                payloads[i] = new byte[size];
+                buffer.get(0, payloads[i], 0, size);
+            }
+        }
+        compressor = new SnapshotCompressor(level, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        compressor.close();
+    }
+
+    @Benchmark
+    public int oneShot(Sizes sizes) {
+        byte[] payload = payloads[next++ & (PAYLOADS - 1)];
+        int compressed = Zstd.compress(payload, level).length;
+        sizes.uncompressedBytes += payload.length;
+        sizes.compressedBytes += compressed;
+        return compressed;
+    }
+
+    @Benchmark
+    public int reusedContext(Sizes sizes) {
+        byte[] payload = payloads[next++ & (PAYLOADS - 1)];
+        int compressed = compressor.compress(payload).length;
+        sizes.uncompressedBytes += payload.length;
+        sizes.compressedBytes += compressed;
+        return compressed;
+    }
+}
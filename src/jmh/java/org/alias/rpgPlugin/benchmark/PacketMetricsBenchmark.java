@@ -0,0 +1,53 @@
+package org.alias.rpgPlugin.benchmark;
+
+import org.alias.rpgPlugin.hooks.player.PacketMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording a packet and of computing the windowed report, with the history
+ * pre-filled to one minute and ten minutes of 30 Hz ticks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class PacketMetricsBenchmark {
+
+    @Param({"1800", "18000"})
+    public int history;
+
+    private PacketMetrics metrics;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        metrics = new PacketMetrics();
+        for (int i = 0; i < history; i++) {
+            metrics.recordPacket(1_200 + (i & 255), 6_000 + (i & 1023));
+        }
+    }
+
+    @Benchmark
+    public void recordPacket() {
+        metrics.recordPacket(1_234, 6_789);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordPacketContended() {
+        metrics.recordPacket(1_234, 6_789);
+    }
+
+    @Benchmark
+    public PacketMetrics.AllMetrics getAllMetrics() {
+        return metrics.getAllMetrics();
+    }
+
+    @Benchmark
+    public PacketMetrics.MetricsSnapshot getOneMinuteMetrics() {
+        return metrics.getOneMinuteMetrics();
+    }
+}
@@ -0,0 +1,102 @@
+package org.alias.rpgPlugin.benchmark;
+
+import org.alias.rpgPlugin.hooks.player.PlayerSnapshot;
+import org.alias.rpgPlugin.hooks.player.PlayerStateTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Columnar PlayerStateTable against a ConcurrentHashMap of boxed per-player objects:
+ * cost of writing one tick of state and of scanning it (proximity query plus a stat aggregate).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerStateTableBenchmark {
+
+    private static final double RADIUS = 64.0;
+
+    @Param({"50", "500", "5000"})
+    public int players;
+
+    private SyntheticPlayers fixture;
+    private PlayerStateTable table;
+    private ConcurrentHashMap<UUID, BoxedPlayerState> containers;
+    private long tick;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fixture = new SyntheticPlayers(players, 42L);
+        table = new PlayerStateTable();
+        containers = new ConcurrentHashMap<>();
+        tableUpdate();
+        mapUpdate();
+    }
+
+    @Setup(Level.Iteration)
+    public void advance() {
+        fixture.advance();
+    }
+
+    @Benchmark
+    public int tableUpdate() {
+        table.beginTick(++tick);
+        for (PlayerSnapshot snapshot : fixture.snapshots()) {
+            table.put(snapshot);
+        }
+        table.endTick();
+        return table.size();
+    }
+
+    @Benchmark
+    public int mapUpdate() {
+        for (PlayerSnapshot snapshot : fixture.snapshots()) {
+            containers.computeIfAbsent(snapshot.getUuid(), uuid -> new BoxedPlayerState()).update(snapshot);
+        }
+        return containers.size();
+    }
+
+    @Benchmark
+    public double tableScan() {
+        double[] x = table.getX();
+        double[] z = table.getZ();
+        float[] health = table.getStat(0);
+        double radiusSquared = RADIUS * RADIUS;
+        double healthSum = 0;
+        int nearby = 0;
+        for (int slot = 0, slots = table.slotCount(); slot < slots; slot++) {
+            if (!table.isPresent(slot)) {
+                continue;
+            }
+            double dx = x[slot];
+            double dz = z[slot];
+            if (dx * dx + dz * dz <= radiusSquared) {
+                nearby++;
+            }
+            healthSum += health[slot];
+        }
+        return healthSum + nearby;
+    }
+
+    @Benchmark
+    public double mapScan() {
+        double radiusSquared = RADIUS * RADIUS;
+        double healthSum = 0;
+        int nearby = 0;
+        for (BoxedPlayerState state : containers.values()) {
+            double dx = state.position.get("x");
+            double dz = state.position.get("z");
+            if (dx * dx + dz * dz <= radiusSquared) {
+                nearby++;
+            }
+            healthSum += state.stats.get("health");
+        }
+        return healthSum + nearby;
+    }
+}
@@ -0,0 +1,101 @@
+package org.alias.rpgPlugin.benchmark;
+
+import org.alias.rpgPlugin.hooks.player.PlayerSnapshot;
+import org.alias.rpgPlugin.hooks.player.PlayerStateTable;
+import org.alias.rpgPlugin.hooks.player.codec.DirectBufferPool;
+import org.alias.rpgPlugin.hooks.player.codec.PlayerSnapshotCodec;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotCompressor;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotJsonEncoder;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotSerializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One network tick of serialization per invocation, JSON against the binary delta codec.
+ *
+ * Every benchmark advances the synthetic players and ingests them first, so the delta encoder
+ * sees realistic movement; {@link #tickOnly()} measures that shared part so it can be subtracted.
+ * Run with the gc profiler (the default for the jmh task) to compare allocation per tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final int KEYFRAME_INTERVAL = 300;
+    private static final int COMPRESSION_LEVEL = 6;
+
+    @Param({"50", "500", "5000"})
+    public int players;
+
+    private SyntheticPlayers fixture;
+    private PlayerStateTable table;
+    private SnapshotJsonEncoder jsonEncoder;
+    private SnapshotCompressor jsonCompressor;
+    private PlayerSnapshotCodec codec;
+    private ByteBuffer encodeBuffer;
+    private DirectBufferPool bufferPool;
+    private SnapshotSerializer serializer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fixture = new SyntheticPlayers(players, 42L);
+        table = new PlayerStateTable();
+        jsonEncoder = new SnapshotJsonEncoder();
+        jsonCompressor = new SnapshotCompressor(COMPRESSION_LEVEL, null);
+        codec = new PlayerSnapshotCodec(KEYFRAME_INTERVAL);
+        bufferPool = new DirectBufferPool(4);
+        serializer = new SnapshotSerializer(bufferPool, KEYFRAME_INTERVAL, new SnapshotCompressor(COMPRESSION_LEVEL, null));
+        tickOnly();
+        encodeBuffer = ByteBuffer.allocateDirect(PlayerSnapshotCodec.maxFrameSize(table) * 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        serializer.close();
+        serializer.getCompressor().close();
+        jsonCompressor.close();
+    }
+
+    @Benchmark
+    public int tickOnly() {
+        fixture.advance();
+        table.beginTick(fixture.tick());
+        for (PlayerSnapshot snapshot : fixture.snapshots()) {
+            table.put(snapshot);
+        }
+        table.endTick();
+        return table.size();
+    }
+
+    @Benchmark
+    public int jsonEncode() {
+        tickOnly();
+        return jsonEncoder.encode(table).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Benchmark
+    public int jsonEncodeCompress() {
+        tickOnly();
+        return jsonCompressor.compress(jsonEncoder.encode(table).getBytes(StandardCharsets.UTF_8)).length;
+    }
+
+    @Benchmark
+    public int binaryEncode() {
+        tickOnly();
+        encodeBuffer.clear();
+        return codec.encode(table, encodeBuffer);
+    }
+
+    @Benchmark
+    public int binaryEncodeCompress() {
+        tickOnly();
+        return serializer.serialize(table).remaining();
+    }
+}
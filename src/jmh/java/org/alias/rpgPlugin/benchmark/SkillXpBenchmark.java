@@ -0,0 +1,121 @@
+package org.alias.rpgPlugin.benchmark;
+
+import org.alias.rpgPlugin.skilltable.SkillXpEngine;
+import org.alias.rpgPlugin.skilltable.Types;
+import org.alias.rpgPlugin.skilltable.XpCurve;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of SkillXpEngine grants (by slot and by UUID, single-threaded and from four threads
+ * hitting the same players) and of level lookups through the XP curve table against evaluating the
+ * curve with Math.pow on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SkillXpBenchmark {
+
+    private static final Types[] SKILLS = Types.values();
+    private static final int OPERATION_COUNT = 4_096;
+
+    @Param({"100", "2000"})
+    public int players;
+
+    private SkillXpEngine engine;
+    private final XpCurve curve = XpCurve.DEFAULT;
+    private UUID[] uuids;
+    private int[] slots;
+    private long[] amounts;
+    private long[] totals;
+
+    /**
+     * Per-thread cursor so concurrent benchmark threads walk the operations independently
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int advance() {
+            int i = next;
+            next = (i + 1) & (OPERATION_COUNT - 1);
+            return i;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42L);
+        engine = new SkillXpEngine(curve);
+        uuids = new UUID[OPERATION_COUNT];
+        slots = new int[OPERATION_COUNT];
+        UUID[] attached = new UUID[players];
+        for (int i = 0; i < players; i++) {
+            attached[i] = new UUID(random.nextLong(), random.nextLong());
+            engine.attach(attached[i]);
+        }
+        amounts = new long[OPERATION_COUNT];
+        totals = new long[OPERATION_COUNT];
+        for (int i = 0; i < OPERATION_COUNT; i++) {
+            uuids[i] = attached[random.nextInt(players)];
+            slots[i] = engine.slotOf(uuids[i]);
+            // Hits of a few to a few dozen XP, like combat
+            amounts[i] = 1 + random.nextInt(40);
+            totals[i] = random.nextLong(curve.xpForLevel(curve.getMaxLevel()) + 1);
+        }
+    }
+
+    @Benchmark
+    public int grantBySlot(Cursor cursor) {
+        int i = cursor.advance();
+        return engine.grant(slots[i], SKILLS[i % SKILLS.length], amounts[i]);
+    }
+
+    @Benchmark
+    public int grantByUuid(Cursor cursor) {
+        int i = cursor.advance();
+        return engine.grant(uuids[i], SKILLS[i % SKILLS.length], amounts[i]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int grantBySlotContended(Cursor cursor) {
+        int i = cursor.advance();
+        return engine.grant(slots[i], SKILLS[i % SKILLS.length], amounts[i]);
+    }
+
+    @Benchmark
+    public int cachedLevel(Cursor cursor) {
+        int i = cursor.advance();
+        return engine.getLevel(slots[i], SKILLS[i % SKILLS.length]);
+    }
+
+    @Benchmark
+    public int curveLevelFor(Cursor cursor) {
+        return curve.levelFor(totals[cursor.advance()]);
+    }
+
+    /**
+     * Baseline: walk the levels evaluating the curve formula with Math.pow until the total is passed
+     */
+    @Benchmark
+    public int powLevelFor(Cursor cursor) {
+        long total = totals[cursor.advance()];
+        double points = 0.0;
+        int level = 1;
+        while (level < curve.getMaxLevel()) {
+            points += Math.floor(level + 300.0 * Math.pow(2.0, level / 7.0));
+            if ((long) Math.floor(points / 4.0) > total) {
+                break;
+            }
+            level++;
+        }
+        return level;
+    }
+}
@@ -0,0 +1,137 @@
+package org.alias.rpgPlugin.benchmark;
+
+import org.alias.rpgPlugin.spatial.SpatialGrid;
+import org.alias.rpgPlugin.spatial.SpatialVisitor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SpatialGrid against a linear scan over position columns: radius and box queries around random
+ * entities, and the incremental update of one tick of movement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialGridBenchmark {
+
+    private static final double RADIUS = 48.0;
+    private static final double WORLD_SIZE = 4_096.0;
+    private static final int QUERY_COUNT = 1_024;
+
+    @Param({"1000", "10000"})
+    public int entities;
+
+    private double[] x;
+    private double[] y;
+    private double[] z;
+    private int[] queryIds;
+    private SpatialGrid grid;
+    private int nextQuery;
+    private long sum;
+
+    // Reused visitor so the grid side stays allocation-free
+    private final SpatialVisitor summingVisitor = (id, px, py, pz) -> {
+        sum += id;
+        return true;
+    };
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42L);
+        x = new double[entities];
+        y = new double[entities];
+        z = new double[entities];
+        grid = new SpatialGrid();
+        for (int i = 0; i < entities; i++) {
+            // Clustered like a real server: most players around a handful of towns
+            double centerX = (random.nextInt(8) + 0.5) * WORLD_SIZE / 8;
+            double centerZ = (random.nextInt(8) + 0.5) * WORLD_SIZE / 8;
+            x[i] = centerX + random.nextDouble(-256, 256);
+            y[i] = 64 + random.nextDouble(0, 32);
+            z[i] = centerZ + random.nextDouble(-256, 256);
+            grid.update(i, x[i], y[i], z[i]);
+        }
+        queryIds = new int[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queryIds[i] = random.nextInt(entities);
+        }
+    }
+
+    private int nextQueryId() {
+        int id = queryIds[nextQuery];
+        nextQuery = (nextQuery + 1) & (QUERY_COUNT - 1);
+        return id;
+    }
+
+    @Benchmark
+    public long gridRadius() {
+        int id = nextQueryId();
+        sum = 0;
+        grid.forEachInRadius(x[id], y[id], z[id], RADIUS, summingVisitor);
+        return sum;
+    }
+
+    @Benchmark
+    public long linearRadius() {
+        int id = nextQueryId();
+        double cx = x[id];
+        double cy = y[id];
+        double cz = z[id];
+        double radiusSquared = RADIUS * RADIUS;
+        long result = 0;
+        for (int i = 0; i < entities; i++) {
+            double dx = x[i] - cx;
+            double dy = y[i] - cy;
+            double dz = z[i] - cz;
+            if (dx * dx + dy * dy + dz * dz <= radiusSquared) {
+                result += i;
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public long gridBox() {
+        int id = nextQueryId();
+        sum = 0;
+        grid.forEachInBox(x[id] - RADIUS, y[id] - 8, z[id] - RADIUS, x[id] + RADIUS, y[id] + 8, z[id] + RADIUS,
+                summingVisitor);
+        return sum;
+    }
+
+    @Benchmark
+    public long linearBox() {
+        int id = nextQueryId();
+        double minX = x[id] - RADIUS;
+        double maxX = x[id] + RADIUS;
+        double minY = y[id] - 8;
+        double maxY = y[id] + 8;
+        double minZ = z[id] - RADIUS;
+        double maxZ = z[id] + RADIUS;
+        long result = 0;
+        for (int i = 0; i < entities; i++) {
+            if (x[i] >= minX && x[i] <= maxX && y[i] >= minY && y[i] <= maxY && z[i] >= minZ && z[i] <= maxZ) {
+                result += i;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * One tick of movement (a tenth of a block per entity) applied to the grid
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int gridUpdateTick() {
+        for (int i = 0; i < entities; i++) {
+            x[i] += (i & 1) == 0 ? 0.1 : -0.1;
+            grid.update(i, x[i], y[i], z[i]);
+        }
+        return grid.getCellCount();
+    }
+}
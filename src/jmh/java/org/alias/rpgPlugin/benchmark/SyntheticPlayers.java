@@ -0,0 +1,81 @@
+package org.alias.rpgPlugin.benchmark;
+
+import org.alias.rpgPlugin.hooks.player.PlayerSnapshot;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic stand-in for a server full of players, built from PlayerSnapshot only
+ * so benchmarks run without HytaleServer.jar. Each {@link #advance()} moves every player
+ * a little, like one gather tick would.
+ */
+public class SyntheticPlayers {
+
+    private static final String[] WORLDS = {"default", "dungeon_01", "arena"};
+    private static final String[] GAME_MODES = {"Adventure", "Creative"};
+
+    private final PlayerSnapshot[] snapshots;
+    private final SplittableRandom random;
+    private long tick;
+
+    public SyntheticPlayers(int count, long seed) {
+        this.snapshots = new PlayerSnapshot[count];
+        this.random = new SplittableRandom(seed);
+        for (int i = 0; i < count; i++) {
+            PlayerSnapshot snapshot = new PlayerSnapshot();
+            snapshot.setUuid(random.nextLong(), random.nextLong());
+            snapshot.setPlayerInfo(WORLDS[i % WORLDS.length], GAME_MODES[(i / 7) % GAME_MODES.length]);
+            snapshot.setTransform(
+                    random.nextDouble(-2000, 2000), random.nextDouble(60, 120), random.nextDouble(-2000, 2000),
+                    (float) random.nextDouble(-90, 90), (float) random.nextDouble(0, 360), 0f);
+            snapshot.setVelocity(0, 0, 0);
+            snapshot.setMovementBits(1 << 15 | 1 << 10);
+            for (int stat = 0; stat < PlayerSnapshot.STAT_COUNT; stat++) {
+                snapshot.setStat(stat, 100f, 100f);
+            }
+            snapshot.setDamageData(-1L, -1L, -1L);
+            snapshots[i] = snapshot;
+        }
+    }
+
+    /**
+     * Move every player one tick: most walk, some stand still, a few fight
+     */
+    public void advance() {
+        tick++;
+        long now = 1_700_000_000_000L + tick * 33L;
+        for (PlayerSnapshot snapshot : snapshots) {
+            int activity = random.nextInt(10);
+            if (activity < 3) {
+                // Idle: only the idle/onGround flags
+                snapshot.setVelocity(0, 0, 0);
+                snapshot.setMovementBits(1 << 15 | 1 << 10);
+                continue;
+            }
+            double vx = random.nextDouble(-0.2, 0.2);
+            double vz = random.nextDouble(-0.2, 0.2);
+            snapshot.setTransform(snapshot.getX() + vx, snapshot.getY(), snapshot.getZ() + vz,
+                    snapshot.getPitch(), (snapshot.getYaw() + (float) random.nextDouble(-4, 4)) % 360f, 0f);
+            snapshot.setVelocity(vx, 0, vz);
+            snapshot.setMovementBits(1 << 15 | 1 | (activity == 9 ? 1 << 17 : 0));
+            if (activity == 9) {
+                float health = Math.max(0f, snapshot.getStat(0) - (float) random.nextDouble(0, 5));
+                snapshot.setStat(0, health, 100f);
+                snapshot.setStat(1, Math.max(0f, snapshot.getStat(1) - 1f), 100f);
+                snapshot.setDamageData(now, snapshot.getLastChargeTime(), now);
+            }
+        }
+    }
+
+    public PlayerSnapshot[] snapshots() {
+        return snapshots;
+    }
+
+    public int size() {
+        return snapshots.length;
+    }
+
+    public long tick() {
+        return tick;
+    }
+}
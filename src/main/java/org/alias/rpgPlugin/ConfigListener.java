@@ -0,0 +1,12 @@
+package org.alias.rpgPlugin;
+
+/**
+ * Notified when a new configuration is published (file reload or setter). Runs on the thread that
+ * published it, usually the configuration watcher, so implementations should only hand the change
+ * over to their own threads.
+ */
+@FunctionalInterface
+public interface ConfigListener {
+
+    void onConfigurationChanged(ConfigSnapshot previous, ConfigSnapshot current);
+}
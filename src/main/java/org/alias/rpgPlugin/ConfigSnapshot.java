@@ -0,0 +1,228 @@
+package org.alias.rpgPlugin;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.alias.rpgPlugin.hooks.player.CatchUpPolicy;
+import org.alias.rpgPlugin.hooks.player.codec.CompressionMode;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotFormat;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * One immutable version of the plugin configuration. {@link Configuration} publishes the current
+ * version through a volatile reference, so reading a value is a single field load, and a reader that
+ * needs several values takes one snapshot to see them consistently.
+ */
+public record ConfigSnapshot(
+        boolean runNetworkPacketDebugger,
+        long playerHookFrequency,
+        SnapshotFormat snapshotFormat,
+        boolean trainCompressionDictionary,
+        long metricsHttpPort,
+        boolean metricsJsonFile,
+        long metricsJsonIntervalSeconds,
+        long snapshotPublishFrequency,
+        CatchUpPolicy tickCatchUpPolicy,
+        long playerHookMinFrequency,
+        long playerHookMaxFrequency,
+        long tickLatencyBudgetMillis,
+        boolean tieredUpdates,
+        boolean snapshotRecorder,
+        long recorderSegmentMegabytes,
+        long recorderSegmentSeconds,
+        long recorderMaxSegments,
+        CompressionMode snapshotCompressionMode,
+        long skillFlushIntervalSeconds,
+        long skillMaxDirtyPlayers,
+        long playerCacheSize) {
+
+    public static final ConfigSnapshot DEFAULTS = new Builder().build();
+
+    /**
+     * Mutable copy used to derive the next snapshot; fields start at their defaults
+     */
+    public static final class Builder {
+        public boolean runNetworkPacketDebugger = false;
+        public long playerHookFrequency = 30L;
+        public SnapshotFormat snapshotFormat = SnapshotFormat.JSON;
+        public boolean trainCompressionDictionary = false;
+        public long metricsHttpPort = 0L;
+        public boolean metricsJsonFile = false;
+        public long metricsJsonIntervalSeconds = 10L;
+        public long snapshotPublishFrequency = 30L;
+        public CatchUpPolicy tickCatchUpPolicy = CatchUpPolicy.SKIP;
+        public long playerHookMinFrequency = 10L;
+        public long playerHookMaxFrequency = 30L;
+        public long tickLatencyBudgetMillis = 10L;
+        public boolean tieredUpdates = true;
+        public boolean snapshotRecorder = false;
+        public long recorderSegmentMegabytes = 64L;
+        public long recorderSegmentSeconds = 300L;
+        public long recorderMaxSegments = 24L;
+        public CompressionMode snapshotCompressionMode = CompressionMode.BLOCK;
+        public long skillFlushIntervalSeconds = 5L;
+        public long skillMaxDirtyPlayers = 256L;
+        public long playerCacheSize = 1_024L;
+
+        public ConfigSnapshot build() {
+            return new ConfigSnapshot(runNetworkPacketDebugger, playerHookFrequency,
+                    snapshotFormat != null ? snapshotFormat : SnapshotFormat.JSON,
+                    trainCompressionDictionary, metricsHttpPort, metricsJsonFile, metricsJsonIntervalSeconds,
+                    snapshotPublishFrequency, tickCatchUpPolicy != null ? tickCatchUpPolicy : CatchUpPolicy.SKIP,
+                    playerHookMinFrequency, playerHookMaxFrequency, tickLatencyBudgetMillis, tieredUpdates,
+                    snapshotRecorder, recorderSegmentMegabytes, recorderSegmentSeconds, recorderMaxSegments,
+                    snapshotCompressionMode != null ? snapshotCompressionMode : CompressionMode.BLOCK,
+                    skillFlushIntervalSeconds, skillMaxDirtyPlayers, playerCacheSize);
+        }
+    }
+
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.runNetworkPacketDebugger = runNetworkPacketDebugger;
+        builder.playerHookFrequency = playerHookFrequency;
+        builder.snapshotFormat = snapshotFormat;
+        builder.trainCompressionDictionary = trainCompressionDictionary;
+        builder.metricsHttpPort = metricsHttpPort;
+        builder.metricsJsonFile = metricsJsonFile;
+        builder.metricsJsonIntervalSeconds = metricsJsonIntervalSeconds;
+        builder.snapshotPublishFrequency = snapshotPublishFrequency;
+        builder.tickCatchUpPolicy = tickCatchUpPolicy;
+        builder.playerHookMinFrequency = playerHookMinFrequency;
+        builder.playerHookMaxFrequency = playerHookMaxFrequency;
+        builder.tickLatencyBudgetMillis = tickLatencyBudgetMillis;
+        builder.tieredUpdates = tieredUpdates;
+        builder.snapshotRecorder = snapshotRecorder;
+        builder.recorderSegmentMegabytes = recorderSegmentMegabytes;
+        builder.recorderSegmentSeconds = recorderSegmentSeconds;
+        builder.recorderMaxSegments = recorderMaxSegments;
+        builder.snapshotCompressionMode = snapshotCompressionMode;
+        builder.skillFlushIntervalSeconds = skillFlushIntervalSeconds;
+        builder.skillMaxDirtyPlayers = skillMaxDirtyPlayers;
+        builder.playerCacheSize = playerCacheSize;
+        return builder;
+    }
+
+    /**
+     * Copy with some values changed
+     */
+    public ConfigSnapshot with(Consumer<Builder> change) {
+        Builder builder = toBuilder();
+        change.accept(builder);
+        return builder.build();
+    }
+
+    public JsonObject toJson() {
+        JsonObject root = new JsonObject();
+        root.addProperty("runNetworkPacketDebugger", runNetworkPacketDebugger);
+        root.addProperty("playerHookFrequency", playerHookFrequency);
+        root.addProperty("snapshotFormat", snapshotFormat.name());
+        root.addProperty("trainCompressionDictionary", trainCompressionDictionary);
+        root.addProperty("metricsHttpPort", metricsHttpPort);
+        root.addProperty("metricsJsonFile", metricsJsonFile);
+        root.addProperty("metricsJsonIntervalSeconds", metricsJsonIntervalSeconds);
+        root.addProperty("snapshotPublishFrequency", snapshotPublishFrequency);
+        root.addProperty("tickCatchUpPolicy", tickCatchUpPolicy.name());
+        root.addProperty("playerHookMinFrequency", playerHookMinFrequency);
+        root.addProperty("playerHookMaxFrequency", playerHookMaxFrequency);
+        root.addProperty("tickLatencyBudgetMillis", tickLatencyBudgetMillis);
+        root.addProperty("tieredUpdates", tieredUpdates);
+        root.addProperty("snapshotRecorder", snapshotRecorder);
+        root.addProperty("recorderSegmentMegabytes", recorderSegmentMegabytes);
+        root.addProperty("recorderSegmentSeconds", recorderSegmentSeconds);
+        root.addProperty("recorderMaxSegments", recorderMaxSegments);
+        root.addProperty("snapshotCompressionMode", snapshotCompressionMode.name());
+        root.addProperty("skillFlushIntervalSeconds", skillFlushIntervalSeconds);
+        root.addProperty("skillMaxDirtyPlayers", skillMaxDirtyPlayers);
+        root.addProperty("playerCacheSize", playerCacheSize);
+        return root;
+    }
+
+    /**
+     * Parse and validate a configuration file. Missing keys take their default; values that cannot
+     * be read or are out of range are replaced by their default and reported.
+     * @param problems Receives one message per rejected value
+     */
+    public static ConfigSnapshot fromJson(JsonObject root, List<String> problems) {
+        Builder b = new Builder();
+        Builder defaults = new Builder();
+        readBoolean(root, "runNetworkPacketDebugger", problems, v -> b.runNetworkPacketDebugger = v);
+        readLong(root, "playerHookFrequency", 1L, 1_000L, problems, v -> b.playerHookFrequency = v);
+        readString(root, "snapshotFormat", problems, v -> b.snapshotFormat = SnapshotFormat.fromString(v));
+        readBoolean(root, "trainCompressionDictionary", problems, v -> b.trainCompressionDictionary = v);
+        readLong(root, "metricsHttpPort", 0L, 65_535L, problems, v -> b.metricsHttpPort = v);
+        readBoolean(root, "metricsJsonFile", problems, v -> b.metricsJsonFile = v);
+        readLong(root, "metricsJsonIntervalSeconds", 1L, Long.MAX_VALUE, problems, v -> b.metricsJsonIntervalSeconds = v);
+        readLong(root, "snapshotPublishFrequency", 1L, 1_000L, problems, v -> b.snapshotPublishFrequency = v);
+        readString(root, "tickCatchUpPolicy", problems, v -> b.tickCatchUpPolicy = CatchUpPolicy.fromString(v));
+        readLong(root, "playerHookMinFrequency", 1L, 1_000L, problems, v -> b.playerHookMinFrequency = v);
+        readLong(root, "playerHookMaxFrequency", 1L, 1_000L, problems, v -> b.playerHookMaxFrequency = v);
+        readLong(root, "tickLatencyBudgetMillis", 1L, 60_000L, problems, v -> b.tickLatencyBudgetMillis = v);
+        readBoolean(root, "tieredUpdates", problems, v -> b.tieredUpdates = v);
+        readBoolean(root, "snapshotRecorder", problems, v -> b.snapshotRecorder = v);
+        readLong(root, "recorderSegmentMegabytes", 1L, 1_024L, problems, v -> b.recorderSegmentMegabytes = v);
+        readLong(root, "recorderSegmentSeconds", 1L, Long.MAX_VALUE / 1_000L, problems, v -> b.recorderSegmentSeconds = v);
+        readLong(root, "recorderMaxSegments", 1L, Integer.MAX_VALUE, problems, v -> b.recorderMaxSegments = v);
+        readString(root, "snapshotCompressionMode", problems, v -> b.snapshotCompressionMode = CompressionMode.fromString(v));
+        readLong(root, "skillFlushIntervalSeconds", 1L, 3_600L, problems, v -> b.skillFlushIntervalSeconds = v);
+        readLong(root, "skillMaxDirtyPlayers", 1L, Integer.MAX_VALUE, problems, v -> b.skillMaxDirtyPlayers = v);
+        readLong(root, "playerCacheSize", 0L, 1_000_000L, problems, v -> b.playerCacheSize = v);
+
+        if (b.playerHookMinFrequency > b.playerHookMaxFrequency) {
+            problems.add("playerHookMinFrequency (" + b.playerHookMinFrequency + ") is above playerHookMaxFrequency ("
+                    + b.playerHookMaxFrequency + "), using the defaults");
+            b.playerHookMinFrequency = defaults.playerHookMinFrequency;
+            b.playerHookMaxFrequency = defaults.playerHookMaxFrequency;
+        }
+        return b.build();
+    }
+
+    private interface LongTarget {
+        void set(long value);
+    }
+
+    private interface BooleanTarget {
+        void set(boolean value);
+    }
+
+    private static void readLong(JsonObject root, String key, long min, long max, List<String> problems, LongTarget target) {
+        JsonElement element = root.get(key);
+        if (element == null) {
+            return;
+        }
+        try {
+            long value = element.getAsLong();
+            if (value < min || value > max) {
+                problems.add(key + " = " + value + " is outside [" + min + ", " + max + "], using the default");
+                return;
+            }
+            target.set(value);
+        } catch (Exception e) {
+            problems.add(key + " is not a number: " + element);
+        }
+    }
+
+    private static void readBoolean(JsonObject root, String key, List<String> problems, BooleanTarget target) {
+        JsonElement element = root.get(key);
+        if (element == null) {
+            return;
+        }
+        try {
+            target.set(element.getAsBoolean());
+        } catch (Exception e) {
+            problems.add(key + " is not a boolean: " + element);
+        }
+    }
+
+    private static void readString(JsonObject root, String key, List<String> problems, Consumer<String> target) {
+        JsonElement element = root.get(key);
+        if (element == null) {
+            return;
+        }
+        try {
+            target.accept(element.getAsString());
+        } catch (Exception e) {
+            problems.add(key + " is not a string: " + element);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.alias.rpgPlugin;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads the configuration when its file changes. Events for the file are debounced: the reload
+ * runs once no further event arrived for {@link #DEBOUNCE_MILLIS}, so an editor writing in several
+ * steps (truncate, write, rename) triggers one reload of the finished file.
+ */
+class ConfigWatcher extends Thread {
+
+    static final long DEBOUNCE_MILLIS = 250L;
+    // Wait before registering again when the directory disappeared
+    private static final long RETRY_MILLIS = 1_000L;
+
+    private final Path file;
+    private final Runnable reload;
+    private volatile WatchService watchService;
+
+    ConfigWatcher(Path file, Runnable reload) {
+        super("RPG-ConfigWatcher");
+        setDaemon(true);
+        this.file = file;
+        this.reload = reload;
+    }
+
+    @Override
+    public void run() {
+        Path directory = file.getParent();
+        Path name = file.getFileName();
+        try (WatchService service = FileSystems.getDefault().newWatchService()) {
+            watchService = service;
+            while (!isInterrupted()) {
+                WatchKey key = register(service, directory);
+                if (key == null) {
+                    return;
+                }
+                while (key.isValid()) {
+                    WatchKey signalled = service.take();
+                    if (!affects(signalled, name)) {
+                        continue;
+                    }
+                    // Debounce: keep draining until the file stays quiet
+                    while ((signalled = service.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                        affects(signalled, name);
+                    }
+                    reload.run();
+                }
+                // The directory was deleted or moved; the file may come back
+                reload.run();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        } catch (IOException e) {
+            System.err.println("Configuration watcher failed: " + e.getMessage());
+        } finally {
+            watchService = null;
+        }
+    }
+
+    /**
+     * Register the directory, waiting for it to exist
+     * @return null when interrupted
+     */
+    private WatchKey register(WatchService service, Path directory) throws IOException, InterruptedException {
+        while (!isInterrupted()) {
+            if (Files.isDirectory(directory)) {
+                try {
+                    return directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                } catch (IOException e) {
+                    // Removed between the check and the registration
+                }
+            }
+            Thread.sleep(RETRY_MILLIS);
+        }
+        return null;
+    }
+
+    /**
+     * Consume the events of a key and re-arm it
+     * @return true if one of them concerns the configuration file (or events were lost)
+     */
+    private static boolean affects(WatchKey key, Path name) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context())) {
+                relevant = true;
+            }
+        }
+        key.reset();
+        return relevant;
+    }
+
+    /**
+     * Stop watching; closing the service wakes the thread up from take()
+     */
+    void shutdown() {
+        interrupt();
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException ignored) {}
+        }
+    }
+}
@@ -3,66 +3,243 @@ package org.alias.rpgPlugin;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import org.alias.rpgPlugin.hooks.player.CatchUpPolicy;
+import org.alias.rpgPlugin.hooks.player.codec.CompressionMode;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotFormat;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
-import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 public class Configuration {
-    public static Boolean runNetworkPacketDebugger = false;
-    public static Long playerHookFrequency = 30L;
 
-    // Cached last-modified time for the config file (milliseconds since epoch).
-    // Volatile so reads don't need synchronization.
-    private static volatile long configLastModified = 0L;
+    private static final Path CONFIG_PATH = resolveConfigPath();
+
+    // Current configuration; replaced as a whole, never modified
+    private static volatile ConfigSnapshot current = ConfigSnapshot.DEFAULTS;
+    // Serializes replacing the snapshot so listeners see the changes in order
     private static final Object CONFIG_LOCK = new Object();
+    private static final List<ConfigListener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static ConfigWatcher watcher;
+
+    /**
+     * Current configuration. Take one snapshot when several values have to agree with each other.
+     */
+    public static ConfigSnapshot get() {
+        return current;
+    }
+
+    public static boolean getRunNetworkPacketDebugger() {
+        return current.runNetworkPacketDebugger();
+    }
 
-    public static Boolean getRunNetworkPacketDebugger() {
-        // Only reload from disk if the file changed to avoid a disk read on every call.
-        reloadIfChanged(false);
-        return runNetworkPacketDebugger;
+    public static long getPlayerHookFrequency() {
+        return current.playerHookFrequency();
     }
 
-    public static Long getPlayerHookFrequency() {
-        // Only reload from disk if the file changed to avoid a disk read on every call.
-        reloadIfChanged(false);
-        return playerHookFrequency;
+    public static SnapshotFormat getSnapshotFormat() {
+        return current.snapshotFormat();
     }
 
-    public static void setRunNetworkPacketDebugger(Boolean _runNetworkPacketDebugger) {
-        runNetworkPacketDebugger = _runNetworkPacketDebugger;
+    public static boolean getTrainCompressionDictionary() {
+        return current.trainCompressionDictionary();
     }
-    public static void setPlayerHookFrequency(Long _playerHookFrequency) {
-        playerHookFrequency = _playerHookFrequency;
+
+    public static long getMetricsHttpPort() {
+        return current.metricsHttpPort();
+    }
+
+    public static boolean getMetricsJsonFile() {
+        return current.metricsJsonFile();
+    }
+
+    public static long getMetricsJsonIntervalSeconds() {
+        return current.metricsJsonIntervalSeconds();
+    }
+
+    public static long getSnapshotPublishFrequency() {
+        return current.snapshotPublishFrequency();
+    }
+
+    public static CatchUpPolicy getTickCatchUpPolicy() {
+        return current.tickCatchUpPolicy();
+    }
+
+    public static long getPlayerHookMinFrequency() {
+        return current.playerHookMinFrequency();
+    }
+
+    public static long getPlayerHookMaxFrequency() {
+        return current.playerHookMaxFrequency();
+    }
+
+    public static long getTickLatencyBudgetMillis() {
+        return current.tickLatencyBudgetMillis();
+    }
+
+    public static boolean getTieredUpdates() {
+        return current.tieredUpdates();
+    }
+
+    public static boolean getSnapshotRecorder() {
+        return current.snapshotRecorder();
+    }
+
+    public static long getRecorderSegmentMegabytes() {
+        return current.recorderSegmentMegabytes();
+    }
+
+    public static long getRecorderSegmentSeconds() {
+        return current.recorderSegmentSeconds();
+    }
+
+    public static long getRecorderMaxSegments() {
+        return current.recorderMaxSegments();
+    }
+
+    public static CompressionMode getSnapshotCompressionMode() {
+        return current.snapshotCompressionMode();
+    }
+
+    public static long getSkillFlushIntervalSeconds() {
+        return current.skillFlushIntervalSeconds();
+    }
+
+    public static long getSkillMaxDirtyPlayers() {
+        return current.skillMaxDirtyPlayers();
+    }
+
+    public static long getPlayerCacheSize() {
+        return current.playerCacheSize();
+    }
+
+    public static void setRunNetworkPacketDebugger(boolean _runNetworkPacketDebugger) {
+        update(builder -> builder.runNetworkPacketDebugger = _runNetworkPacketDebugger);
+    }
+    public static void setPlayerHookFrequency(long _playerHookFrequency) {
+        update(builder -> builder.playerHookFrequency = _playerHookFrequency);
+    }
+    public static void setSnapshotFormat(SnapshotFormat _snapshotFormat) {
+        update(builder -> builder.snapshotFormat = _snapshotFormat);
+    }
+    public static void setTrainCompressionDictionary(boolean _trainCompressionDictionary) {
+        update(builder -> builder.trainCompressionDictionary = _trainCompressionDictionary);
+    }
+    public static void setMetricsHttpPort(long _metricsHttpPort) {
+        update(builder -> builder.metricsHttpPort = _metricsHttpPort);
+    }
+    public static void setMetricsJsonFile(boolean _metricsJsonFile) {
+        update(builder -> builder.metricsJsonFile = _metricsJsonFile);
+    }
+    public static void setMetricsJsonIntervalSeconds(long _metricsJsonIntervalSeconds) {
+        update(builder -> builder.metricsJsonIntervalSeconds = _metricsJsonIntervalSeconds);
+    }
+    public static void setSnapshotPublishFrequency(long _snapshotPublishFrequency) {
+        update(builder -> builder.snapshotPublishFrequency = _snapshotPublishFrequency);
+    }
+    public static void setTickCatchUpPolicy(CatchUpPolicy _tickCatchUpPolicy) {
+        update(builder -> builder.tickCatchUpPolicy = _tickCatchUpPolicy);
+    }
+    public static void setPlayerHookMinFrequency(long _playerHookMinFrequency) {
+        update(builder -> builder.playerHookMinFrequency = _playerHookMinFrequency);
+    }
+    public static void setPlayerHookMaxFrequency(long _playerHookMaxFrequency) {
+        update(builder -> builder.playerHookMaxFrequency = _playerHookMaxFrequency);
+    }
+    public static void setTickLatencyBudgetMillis(long _tickLatencyBudgetMillis) {
+        update(builder -> builder.tickLatencyBudgetMillis = _tickLatencyBudgetMillis);
+    }
+    public static void setTieredUpdates(boolean _tieredUpdates) {
+        update(builder -> builder.tieredUpdates = _tieredUpdates);
+    }
+    public static void setSnapshotRecorder(boolean _snapshotRecorder) {
+        update(builder -> builder.snapshotRecorder = _snapshotRecorder);
+    }
+    public static void setRecorderSegmentMegabytes(long _recorderSegmentMegabytes) {
+        update(builder -> builder.recorderSegmentMegabytes = _recorderSegmentMegabytes);
+    }
+    public static void setRecorderSegmentSeconds(long _recorderSegmentSeconds) {
+        update(builder -> builder.recorderSegmentSeconds = _recorderSegmentSeconds);
+    }
+    public static void setRecorderMaxSegments(long _recorderMaxSegments) {
+        update(builder -> builder.recorderMaxSegments = _recorderMaxSegments);
+    }
+    public static void setSnapshotCompressionMode(CompressionMode _snapshotCompressionMode) {
+        update(builder -> builder.snapshotCompressionMode = _snapshotCompressionMode);
+    }
+    public static void setSkillFlushIntervalSeconds(long _skillFlushIntervalSeconds) {
+        update(builder -> builder.skillFlushIntervalSeconds = _skillFlushIntervalSeconds);
+    }
+    public static void setSkillMaxDirtyPlayers(long _skillMaxDirtyPlayers) {
+        update(builder -> builder.skillMaxDirtyPlayers = _skillMaxDirtyPlayers);
+    }
+    public static void setPlayerCacheSize(long _playerCacheSize) {
+        update(builder -> builder.playerCacheSize = _playerCacheSize);
+    }
+
+    /**
+     * Derive a new configuration from the current one and publish it (in memory only, see {@link #save()})
+     */
+    public static void update(Consumer<ConfigSnapshot.Builder> change) {
+        synchronized (CONFIG_LOCK) {
+            publish(current.with(change));
+        }
+    }
+
+    public static void addListener(ConfigListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(ConfigListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Swap in a new snapshot and notify the listeners if anything changed. Caller holds CONFIG_LOCK.
+     */
+    private static void publish(ConfigSnapshot next) {
+        ConfigSnapshot previous = current;
+        if (next.equals(previous)) {
+            return;
+        }
+        current = next;
+        for (ConfigListener listener : LISTENERS) {
+            try {
+                listener.onConfigurationChanged(previous, next);
+            } catch (RuntimeException e) {
+                System.err.println("Configuration listener failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
     }
 
     public static void save() {
 
-        synchronized (Configuration.class) {
+        synchronized (CONFIG_LOCK) {
             try {
-                Path configPath = getConfigPath();
-                Files.createDirectories(configPath.getParent());
+                Files.createDirectories(CONFIG_PATH.getParent());
 
                 Gson gson = new GsonBuilder().setPrettyPrinting().create();
-                JsonObject root = new JsonObject();
-                root.addProperty("runNetworkPacketDebugger", runNetworkPacketDebugger != null && runNetworkPacketDebugger);
-                root.addProperty("playerHookFrequency", playerHookFrequency != null ? playerHookFrequency : 30L);
-
-                String json = gson.toJson(root);
-                // Write string (modern API) and update cached last-modified timestamp
-                Files.writeString(configPath, json, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                String json = gson.toJson(current.toJson());
+                // Write next to the file and move it over, so the watcher never reads a half-written file
+                Path temp = CONFIG_PATH.resolveSibling(CONFIG_PATH.getFileName() + ".tmp");
+                Files.writeString(temp, json, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
                 try {
-                    FileTime ft = Files.getLastModifiedTime(configPath);
-                    configLastModified = ft.toMillis();
-                } catch (IOException ignored) {
-                    configLastModified = System.currentTimeMillis();
+                    Files.move(temp, CONFIG_PATH, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, CONFIG_PATH, StandardCopyOption.REPLACE_EXISTING);
                 }
             } catch (IOException e) {
                 System.err.println("Failed to save configuration: " + e.getMessage());
@@ -72,82 +249,83 @@ public class Configuration {
 
     }
 
+    /**
+     * Read the configuration file now. Getters never touch the disk; changes made to the file
+     * later are only picked up while {@link #startWatching()} is active.
+     */
     public static void load() {
-
-        // For backward-compatibility, provide a full forced load API that ignores caching.
-        reloadIfChanged(true);
-
+        reload(true);
     }
 
     /**
-     * Reload config only if file changed or if forced.
-     * This avoids disk I/O on every getter call while still allowing hot-reload when the file changes.
+     * Parse the file and publish it. A file that is not valid JSON is ignored and the current
+     * configuration stays in place. A missing file means defaults on the initial load only; while
+     * watching it is usually being replaced (editors, atomic moves), so the current one stays too.
      */
-    private static void reloadIfChanged(boolean force) {
+    private static void reload(boolean initial) {
         synchronized (CONFIG_LOCK) {
             try {
-                Path configPath = getConfigPath();
-                if (!Files.exists(configPath)) {
-                    if (force) {
-                        // nothing to load; keep defaults
-                        configLastModified = 0L;
+                if (!Files.exists(CONFIG_PATH)) {
+                    if (initial) {
+                        publish(ConfigSnapshot.DEFAULTS);
                     }
                     return;
                 }
 
-                long lastModified;
-                try {
-                    FileTime ft = Files.getLastModifiedTime(configPath);
-                    lastModified = ft.toMillis();
-                } catch (IOException ex) {
-                    // If we can't read the timestamp, fallback to forcing a read only if requested
-                    lastModified = 0L;
-                }
-
-                if (!force && lastModified != 0L && lastModified == configLastModified) {
-                    return; // no change
+                String json = Files.readString(CONFIG_PATH, StandardCharsets.UTF_8);
+                JsonElement parsed = new Gson().fromJson(json, JsonElement.class);
+                if (parsed == null || !parsed.isJsonObject()) {
+                    System.err.println("Ignoring configuration " + CONFIG_PATH + ": not a JSON object");
+                    return;
                 }
-
-                // Read file content
-                String json = Files.readString(configPath, StandardCharsets.UTF_8);
-                Gson gson = new Gson();
-                JsonElement parsed = gson.fromJson(json, JsonElement.class);
-                if (parsed != null && parsed.isJsonObject()) {
-                    JsonObject root = parsed.getAsJsonObject();
-                    if (root.has("runNetworkPacketDebugger")) {
-                        try {
-                            runNetworkPacketDebugger = root.get("runNetworkPacketDebugger").getAsBoolean();
-                        } catch (Exception ignored) {}
-                    }
-                    if (root.has("playerHookFrequency")) {
-                        try {
-                            playerHookFrequency = root.get("playerHookFrequency").getAsLong();
-                        } catch (Exception ignored) {}
-                    }
+                List<String> problems = new ArrayList<>();
+                ConfigSnapshot next = ConfigSnapshot.fromJson(parsed.getAsJsonObject(), problems);
+                for (String problem : problems) {
+                    System.err.println("Configuration " + CONFIG_PATH.getFileName() + ": " + problem);
                 }
+                publish(next);
+            } catch (IOException | JsonParseException e) {
+                System.err.println("Failed to reload configuration, keeping the current one: " + e.getMessage());
+            }
+        }
+    }
 
-                // Update last modified cache (best effort)
-                if (lastModified != 0L) {
-                    configLastModified = lastModified;
-                } else {
-                    try {
-                        configLastModified = Files.getLastModifiedTime(configPath).toMillis();
-                    } catch (IOException ignored) {
-                        configLastModified = System.currentTimeMillis();
-                    }
-                }
-            } catch (IOException e) {
-                System.err.println("Failed to reload configuration: " + e.getMessage());
-                e.printStackTrace();
+    /**
+     * Watch the configuration file and reload it whenever it changes. Idempotent.
+     */
+    public static void startWatching() {
+        synchronized (CONFIG_LOCK) {
+            if (watcher != null && watcher.isAlive()) {
+                return;
             }
+            watcher = new ConfigWatcher(CONFIG_PATH, () -> reload(false));
+            watcher.start();
+        }
+    }
+
+    public static void stopWatching() {
+        ConfigWatcher stopping;
+        synchronized (CONFIG_LOCK) {
+            stopping = watcher;
+            watcher = null;
         }
+        if (stopping != null) {
+            stopping.shutdown();
+        }
+    }
+
+    /**
+     * Directory holding configuration-server.json and the plugin's other data files
+     */
+    public static Path getConfigDirectory() {
+        return CONFIG_PATH.getParent();
     }
 
     /**
      * Resolve the configuration file path relative to the JAR (or classes) location.
      * Result: {path-to-jar-or-classes}/config/rpg/configuration-server.json
      */
-    private static Path getConfigPath() {
+    private static Path resolveConfigPath() {
         try {
             URL location = Configuration.class.getProtectionDomain().getCodeSource().getLocation();
             Path base = Paths.get(location.toURI());
@@ -0,0 +1,134 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import org.alias.rpgPlugin.ConfigSnapshot;
+import org.alias.rpgPlugin.Configuration;
+
+import java.util.UUID;
+
+/**
+ * Scales the gather rate with load. Once per control interval the p99 of the recent tick phases
+ * is compared with the latency budget: over budget the rate drops multiplicatively towards the
+ * minimum, and at the minimum only a rotating subset of players is gathered per tick; well under
+ * budget the subset grows back first and the rate then ramps up additively towards the maximum.
+ *
+ * The load signal is the largest of the world-thread cost of a batch (queue delay plus collect),
+ * the gather itself and the network tick. Only the gather loop thread calls {@link #update(long)};
+ * the getters may be read from any thread.
+ */
+public class AdaptiveRateController {
+
+    private static final long CONTROL_INTERVAL_NANOS = 1_000_000_000L;
+    private static final long CONTROL_INTERVAL_MS = CONTROL_INTERVAL_NANOS / 1_000_000L;
+    // Multiplicative decrease (numerator / 4) and additive increase per interval
+    private static final long DECREASE_QUARTERS = 3L;
+    private static final long INCREASE_HZ = 2L;
+    // Under this share of the budget the load counts as low enough to ramp back up
+    private static final double RAMP_UP_SHARE = 0.5;
+    // Largest subset divisor: every player is still gathered at least every 8 ticks
+    private static final int MAX_SAMPLE_DIVISOR = 8;
+
+    private final TickMetrics tickMetrics;
+
+    private volatile long effectiveHz;
+    private volatile int sampleDivisor = 1;
+    private volatile long lastLoadNanos;
+    // Owner thread only
+    private long lastUpdateNanos = System.nanoTime();
+
+    public AdaptiveRateController(TickMetrics tickMetrics) {
+        this.tickMetrics = tickMetrics;
+        ConfigSnapshot config = Configuration.get();
+        this.effectiveHz = clamp(config.playerHookFrequency(), config.playerHookMinFrequency(), config.playerHookMaxFrequency());
+    }
+
+    /**
+     * Start from the configured rate, clamped to the configured bounds
+     */
+    public void reset() {
+        ConfigSnapshot config = Configuration.get();
+        effectiveHz = clamp(config.playerHookFrequency(), config.playerHookMinFrequency(), config.playerHookMaxFrequency());
+        sampleDivisor = 1;
+        lastUpdateNanos = System.nanoTime();
+    }
+
+    /**
+     * Re-evaluate the rate if a control interval has passed
+     * @return true when the effective rate changed
+     */
+    public boolean update(long nowNanos) {
+        if (nowNanos - lastUpdateNanos < CONTROL_INTERVAL_NANOS) {
+            return false;
+        }
+        lastUpdateNanos = nowNanos;
+
+        ConfigSnapshot config = Configuration.get();
+        long minHz = Math.max(1L, config.playerHookMinFrequency());
+        long maxHz = Math.max(minHz, config.playerHookMaxFrequency());
+        long budgetNanos = Math.max(1L, config.tickLatencyBudgetMillis()) * 1_000_000L;
+
+        long load = Math.max(
+                drainP99(TickMetrics.Phase.QUEUE_DELAY) + drainP99(TickMetrics.Phase.COLLECT),
+                Math.max(drainP99(TickMetrics.Phase.GATHER), drainP99(TickMetrics.Phase.NETWORK_TICK)));
+        lastLoadNanos = load;
+
+        long previousHz = effectiveHz;
+        long hz = clamp(previousHz, minHz, maxHz);
+        int divisor = sampleDivisor;
+        if (load > budgetNanos) {
+            if (hz > minHz) {
+                hz = Math.max(minHz, hz * DECREASE_QUARTERS / 4);
+            } else if (divisor < MAX_SAMPLE_DIVISOR) {
+                divisor *= 2;
+            }
+        } else if (load < budgetNanos * RAMP_UP_SHARE) {
+            if (divisor > 1) {
+                divisor /= 2;
+            } else if (hz < maxHz) {
+                hz = Math.min(maxHz, hz + INCREASE_HZ);
+            }
+        }
+        sampleDivisor = divisor;
+        effectiveHz = hz;
+        return hz != previousHz;
+    }
+
+    private long drainP99(TickMetrics.Phase phase) {
+        return tickMetrics.drainRecent(phase, CONTROL_INTERVAL_MS).p99;
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(Math.max(min, max), value));
+    }
+
+    /**
+     * Whether a player is gathered this tick; with a divisor of n each player is picked every n ticks
+     */
+    public boolean isSampled(UUID uuid, long tick) {
+        int divisor = sampleDivisor;
+        return divisor <= 1 || Math.floorMod(uuid.hashCode() + tick, divisor) == 0;
+    }
+
+    public long getEffectiveHz() {
+        return effectiveHz;
+    }
+
+    /**
+     * 1 when every player is gathered every tick, n when each player is gathered every n ticks
+     */
+    public int getSampleDivisor() {
+        return sampleDivisor;
+    }
+
+    /**
+     * Load signal of the last control interval in nanoseconds
+     */
+    public long getLastLoadNanos() {
+        return lastLoadNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d Hz | 1/%d players per tick | load %.3f ms",
+                effectiveHz, sampleDivisor, lastLoadNanos / 1e6);
+    }
+}
@@ -0,0 +1,28 @@
+package org.alias.rpgPlugin.hooks.player;
+
+/**
+ * What a {@link TickScheduler} does when a tick starts after its deadline
+ */
+public enum CatchUpPolicy {
+    // Drop the missed deadlines and stay on the original tick grid
+    SKIP,
+    // Run the missed ticks back to back (bounded) so the tick count keeps up with wall time
+    BURST,
+    // Shift the grid so the next tick is one full period after the late one
+    STRETCH;
+
+    /**
+     * Parse a configuration value, falling back to SKIP for unknown input
+     */
+    public static CatchUpPolicy fromString(String value) {
+        if (value == null) {
+            return SKIP;
+        }
+        for (CatchUpPolicy policy : values()) {
+            if (policy.name().equalsIgnoreCase(value.trim())) {
+                return policy;
+            }
+        }
+        return SKIP;
+    }
+}
@@ -0,0 +1,103 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded single-producer / single-consumer ring that hands published frames from the gather
+ * stage to the publish stage. Each queued frame holds its own reference.
+ *
+ * The producer side is whichever thread publishes a frame (the world thread finishing the last
+ * batch of a tick), so offers are serialized by a lock that is only contended when two ticks
+ * complete at the same instant; the consumer side is lock-free. {@link #offer} never blocks:
+ * when the publish stage falls behind the ring fills up and new frames are dropped, while
+ * {@link #pollLatest} coalesces whatever is queued down to the newest frame.
+ */
+class FrameQueue {
+
+    private final AtomicReferenceArray<SnapshotFrame> slots;
+    private final int mask;
+    // Next slot to read (consumer) and to write (producer); only ever increase
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final Object producerLock = new Object();
+    // Consumer thread only
+    private int lastCoalesced;
+
+    /**
+     * @param capacity Rounded up to a power of two
+     */
+    FrameQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Queue a frame the caller holds a reference for; the reference moves to the queue.
+     * @return false when the ring is full (the caller keeps the reference)
+     */
+    boolean offer(SnapshotFrame frame) {
+        synchronized (producerLock) {
+            long t = tail.get();
+            if (t - head.get() > mask) {
+                return false;
+            }
+            slots.lazySet((int) (t & mask), frame);
+            tail.lazySet(t + 1);
+            return true;
+        }
+    }
+
+    /**
+     * Take the newest queued frame, releasing the older ones (consumer thread only).
+     * {@link #getLastCoalesced()} tells how many frames were skipped.
+     * @return The newest frame (caller must release it), or null when nothing was queued
+     */
+    SnapshotFrame pollLatest() {
+        long h = head.get();
+        long t = tail.get();
+        lastCoalesced = 0;
+        if (h == t) {
+            return null;
+        }
+        SnapshotFrame latest = null;
+        for (long i = h; i < t; i++) {
+            int index = (int) (i & mask);
+            SnapshotFrame frame = slots.get(index);
+            slots.lazySet(index, null);
+            if (latest == null || frame.getTick() > latest.getTick()) {
+                if (latest != null) {
+                    latest.release();
+                }
+                latest = frame;
+            } else {
+                frame.release();
+            }
+        }
+        head.lazySet(t);
+        lastCoalesced = (int) (t - h - 1);
+        return latest;
+    }
+
+    /**
+     * Frames skipped by the last {@link #pollLatest()} because a newer one was queued
+     */
+    int getLastCoalesced() {
+        return lastCoalesced;
+    }
+
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * Release everything still queued (consumer thread, on shutdown)
+     */
+    void clear() {
+        SnapshotFrame frame = pollLatest();
+        if (frame != null) {
+            frame.release();
+        }
+    }
+}
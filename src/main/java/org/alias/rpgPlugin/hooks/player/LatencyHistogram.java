@@ -0,0 +1,152 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear latency histogram in nanoseconds (HdrHistogram-style layout).
+ * Every power of two is split into 16 linear sub-buckets, so a recorded value is off by at
+ * most ~6% while the whole range up to ~18 minutes fits in 592 counters.
+ * Recording is lock-free and allocation-free and may happen from any thread.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final long MAX_VALUE = (1L << 40) - 1;
+    static final int BUCKET_COUNT = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Percentiles of a histogram (or of several merged), all values in nanoseconds
+     */
+    public static class Snapshot {
+        public final long count;
+        public final double mean;
+        public final long p50;
+        public final long p99;
+        public final long p999;
+        public final long max;
+        public final long periodMs;
+
+        Snapshot(long count, double mean, long p50, long p99, long p999, long max, long periodMs) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+            this.periodMs = periodMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%,d | p50 %.3f ms | p99 %.3f ms | p999 %.3f ms | max %.3f ms",
+                    count, p50 / 1e6, p99 / 1e6, p999 / 1e6, max / 1e6);
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0L, Math.min(nanos, MAX_VALUE));
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long currentMax;
+        while (value > (currentMax = max.get())) {
+            if (max.compareAndSet(currentMax, value)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Add this histogram's counters into an accumulator (see {@link #newAccumulator()})
+     */
+    void addTo(long[] accumulator) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long bucketCount = counts.get(i);
+            if (bucketCount != 0) {
+                accumulator[i] += bucketCount;
+            }
+        }
+        accumulator[BUCKET_COUNT] += count.get();
+        accumulator[BUCKET_COUNT + 1] += sum.get();
+        accumulator[BUCKET_COUNT + 2] = Math.max(accumulator[BUCKET_COUNT + 2], max.get());
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0L);
+        }
+        count.set(0L);
+        sum.set(0L);
+        max.set(0L);
+    }
+
+    public Snapshot snapshot(long periodMs) {
+        long[] accumulator = newAccumulator();
+        addTo(accumulator);
+        return toSnapshot(accumulator, periodMs);
+    }
+
+    /**
+     * Bucket counters followed by total count, sum and max
+     */
+    static long[] newAccumulator() {
+        return new long[BUCKET_COUNT + 3];
+    }
+
+    static Snapshot toSnapshot(long[] accumulator, long periodMs) {
+        long total = accumulator[BUCKET_COUNT];
+        long max = accumulator[BUCKET_COUNT + 2];
+        if (total == 0) {
+            return new Snapshot(0L, 0.0, 0L, 0L, 0L, 0L, periodMs);
+        }
+        double mean = (double) accumulator[BUCKET_COUNT + 1] / total;
+        return new Snapshot(total, mean,
+                percentile(accumulator, total, max, 0.50),
+                percentile(accumulator, total, max, 0.99),
+                percentile(accumulator, total, max, 0.999),
+                max, periodMs);
+    }
+
+    /**
+     * Upper bound of the bucket holding the requested rank, capped at the exact maximum
+     */
+    private static long percentile(long[] accumulator, long total, long max, double quantile) {
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += accumulator[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return SUB_COUNT + shift * SUB_COUNT + (int) ((value >>> shift) - SUB_COUNT);
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_COUNT) / SUB_COUNT;
+        long sub = (index - SUB_COUNT) % SUB_COUNT;
+        return ((SUB_COUNT + sub + 1) << shift) - 1;
+    }
+}
@@ -1,12 +1,12 @@
 package org.alias.rpgPlugin.hooks.player;
 
-import java.time.Instant;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Tracks packet counts and sizes over rolling time windows (1, 5, 10 minutes)
- * Thread-safe implementation using concurrent data structures
+ * Thread-safe; packets are counted into a fixed ring of time buckets, so recording is O(1)
+ * without allocation, window queries are O(buckets) and memory does not grow with packet rate
  */
 public class PacketMetrics {
 
@@ -15,27 +15,29 @@ public class PacketMetrics {
     private static final long FIVE_MINUTES_MS = 300_000L;
     private static final long TEN_MINUTES_MS = 600_000L;
 
-    // Store packet records with timestamps
-    private final ConcurrentLinkedDeque<PacketRecord> packetHistory;
+    public static final long DEFAULT_BUCKET_MS = 1_000L;
+
+    // Ring of buckets covering the longest window plus the bucket currently being filled
+    private final long bucketMillis;
+    private final Bucket[] buckets;
 
     // Running totals for quick access
-    private final AtomicLong totalPackets;
-    private final AtomicLong totalBytes;
+    private final LongAdder totalPackets;
+    private final LongAdder totalBytes;
+    private final LongAdder totalUncompressedBytes;
 
-    // Last cleanup time
-    private volatile long lastCleanupTime;
+    // Time of the first packet since creation / reset (0 = none yet)
+    private final AtomicLong firstPacketTime;
 
     /**
-     * Individual packet record with timestamp and size
+     * Counters of one bucketMillis slice of time. {@code epoch} is the slice number
+     * (time / bucketMillis) the counters belong to; a bucket is reused once the ring wraps.
      */
-    private static class PacketRecord {
-        final long timestamp;
-        final long bytes;
-
-        PacketRecord(long timestamp, long bytes) {
-            this.timestamp = timestamp;
-            this.bytes = bytes;
-        }
+    private static class Bucket {
+        volatile long epoch = -1L;
+        final LongAdder packets = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder uncompressedBytes = new LongAdder();
     }
 
     /**
@@ -48,12 +50,21 @@ public class PacketMetrics {
         public final double packetsPerSecond;
         public final double bytesPerSecond;
         public final long periodMs;
+        // Payload size before compression (0 when not reported) and uncompressed / compressed
+        public final long uncompressedBytes;
+        public final double compressionRatio;
 
         MetricsSnapshot(long packetCount, long totalBytes, long periodMs) {
+            this(packetCount, totalBytes, 0L, periodMs);
+        }
+
+        MetricsSnapshot(long packetCount, long totalBytes, long uncompressedBytes, long periodMs) {
             this.packetCount = packetCount;
             this.totalBytes = totalBytes;
+            this.uncompressedBytes = uncompressedBytes;
             this.periodMs = periodMs;
             this.averagePacketSize = packetCount > 0 ? (double) totalBytes / packetCount : 0.0;
+            this.compressionRatio = totalBytes > 0 && uncompressedBytes > 0 ? (double) uncompressedBytes / totalBytes : 0.0;
 
             double periodSeconds = periodMs / 1000.0;
             this.packetsPerSecond = periodSeconds > 0 ? packetCount / periodSeconds : 0.0;
@@ -62,7 +73,7 @@ public class PacketMetrics {
 
         @Override
         public String toString() {
-            return String.format(
+            String summary = String.format(
                     "Packets: %,d | Bytes: %,d (%s) | Avg Size: %.1f bytes | Rate: %.2f pkt/s, %s/s",
                     packetCount,
                     totalBytes,
@@ -71,6 +82,10 @@ public class PacketMetrics {
                     packetsPerSecond,
                     formatBytes((long) bytesPerSecond)
             );
+            if (compressionRatio > 0) {
+                summary += String.format(" | Ratio: %.2fx", compressionRatio);
+            }
+            return summary;
         }
 
         private static String formatBytes(long bytes) {
@@ -115,10 +130,25 @@ public class PacketMetrics {
     }
 
     public PacketMetrics() {
-        this.packetHistory = new ConcurrentLinkedDeque<>();
-        this.totalPackets = new AtomicLong(0);
-        this.totalBytes = new AtomicLong(0);
-        this.lastCleanupTime = System.currentTimeMillis();
+        this(DEFAULT_BUCKET_MS);
+    }
+
+    /**
+     * @param bucketMillis Granularity of the rolling windows; windows are rounded up to whole buckets
+     */
+    public PacketMetrics(long bucketMillis) {
+        if (bucketMillis <= 0 || bucketMillis > ONE_MINUTE_MS) {
+            throw new IllegalArgumentException("Bucket size must be between 1 ms and 1 minute, got " + bucketMillis);
+        }
+        this.bucketMillis = bucketMillis;
+        this.buckets = new Bucket[bucketsFor(TEN_MINUTES_MS) + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.totalPackets = new LongAdder();
+        this.totalBytes = new LongAdder();
+        this.totalUncompressedBytes = new LongAdder();
+        this.firstPacketTime = new AtomicLong();
     }
 
     /**
@@ -126,58 +156,76 @@ public class PacketMetrics {
      * @param bytes Size of the packet in bytes
      */
     public void recordPacket(long bytes) {
+        recordPacket(bytes, 0L);
+    }
+
+    /**
+     * Record a compressed packet transmission
+     * @param bytes Size of the packet in bytes
+     * @param uncompressedBytes Size of the payload before compression
+     */
+    public void recordPacket(long bytes, long uncompressedBytes) {
         long now = System.currentTimeMillis();
+        if (firstPacketTime.get() == 0L) {
+            firstPacketTime.compareAndSet(0L, now);
+        }
 
-        // Add new record
-        packetHistory.add(new PacketRecord(now, bytes));
+        Bucket bucket = bucketFor(now / bucketMillis);
+        bucket.packets.increment();
+        bucket.bytes.add(bytes);
+        bucket.uncompressedBytes.add(uncompressedBytes);
 
         // Update totals
-        totalPackets.incrementAndGet();
-        totalBytes.addAndGet(bytes);
-
-        // Periodic cleanup (every 30 seconds)
-        if (now - lastCleanupTime > 30_000) {
-            cleanup(now);
-            lastCleanupTime = now;
-        }
+        totalPackets.increment();
+        totalBytes.add(bytes);
+        totalUncompressedBytes.add(uncompressedBytes);
     }
 
     /**
-     * Remove records older than 10 minutes
+     * Bucket of the given epoch, recycling it if it still holds counts from a previous lap of the ring
      */
-    private void cleanup(long currentTime) {
-        long cutoffTime = currentTime - TEN_MINUTES_MS;
-
-        // Remove old records from the front of the deque
-        while (!packetHistory.isEmpty()) {
-            PacketRecord oldest = packetHistory.peekFirst();
-            if (oldest != null && oldest.timestamp < cutoffTime) {
-                packetHistory.pollFirst();
-            } else {
-                break;
+    private Bucket bucketFor(long epoch) {
+        Bucket bucket = buckets[(int) (epoch % buckets.length)];
+        if (bucket.epoch != epoch) {
+            // Only taken once per bucket per lap; the epoch is published after the reset,
+            // so recorders that see the new epoch never add into stale counts
+            synchronized (bucket) {
+                if (bucket.epoch != epoch) {
+                    bucket.packets.reset();
+                    bucket.bytes.reset();
+                    bucket.uncompressedBytes.reset();
+                    bucket.epoch = epoch;
+                }
             }
         }
+        return bucket;
+    }
+
+    private int bucketsFor(long windowMs) {
+        return (int) ((windowMs + bucketMillis - 1) / bucketMillis);
     }
 
     /**
      * Calculate metrics for a specific time window
      */
     private MetricsSnapshot calculateMetrics(long windowMs) {
-        long now = System.currentTimeMillis();
-        long cutoffTime = now - windowMs;
+        long currentEpoch = System.currentTimeMillis() / bucketMillis;
+        long oldestEpoch = currentEpoch - bucketsFor(windowMs) + 1;
 
         long count = 0;
         long bytes = 0;
-
-        // Iterate through records in reverse (newest first)
-        for (PacketRecord record : packetHistory) {
-            if (record.timestamp >= cutoffTime) {
-                count++;
-                bytes += record.bytes;
+        long uncompressed = 0;
+
+        for (Bucket bucket : buckets) {
+            long epoch = bucket.epoch;
+            if (epoch >= oldestEpoch && epoch <= currentEpoch) {
+                count += bucket.packets.sum();
+                bytes += bucket.bytes.sum();
+                uncompressed += bucket.uncompressedBytes.sum();
             }
         }
 
-        return new MetricsSnapshot(count, bytes, windowMs);
+        return new MetricsSnapshot(count, bytes, uncompressed, windowMs);
     }
 
     /**
@@ -206,12 +254,13 @@ public class PacketMetrics {
      */
     public MetricsSnapshot getLifetimeMetrics() {
         long now = System.currentTimeMillis();
-        long oldestTime = packetHistory.isEmpty() ? now : packetHistory.peekFirst().timestamp;
-        long period = now - oldestTime;
+        long first = firstPacketTime.get();
+        long period = first == 0L ? 0L : now - first;
 
         return new MetricsSnapshot(
-                totalPackets.get(),
-                totalBytes.get(),
+                totalPackets.sum(),
+                totalBytes.sum(),
+                totalUncompressedBytes.sum(),
                 Math.max(period, 1000) // Minimum 1 second to avoid division issues
         );
     }
@@ -220,35 +269,43 @@ public class PacketMetrics {
      * Get all metrics at once (more efficient than calling individually)
      */
     public AllMetrics getAllMetrics() {
-        long now = System.currentTimeMillis();
+        long currentEpoch = System.currentTimeMillis() / bucketMillis;
 
-        long oneMinCutoff = now - ONE_MINUTE_MS;
-        long fiveMinCutoff = now - FIVE_MINUTES_MS;
-        long tenMinCutoff = now - TEN_MINUTES_MS;
+        long oneMinOldest = currentEpoch - bucketsFor(ONE_MINUTE_MS) + 1;
+        long fiveMinOldest = currentEpoch - bucketsFor(FIVE_MINUTES_MS) + 1;
+        long tenMinOldest = currentEpoch - bucketsFor(TEN_MINUTES_MS) + 1;
 
-        long oneMinCount = 0, oneMinBytes = 0;
-        long fiveMinCount = 0, fiveMinBytes = 0;
-        long tenMinCount = 0, tenMinBytes = 0;
+        long oneMinCount = 0, oneMinBytes = 0, oneMinRaw = 0;
+        long fiveMinCount = 0, fiveMinBytes = 0, fiveMinRaw = 0;
+        long tenMinCount = 0, tenMinBytes = 0, tenMinRaw = 0;
 
-        // Single pass through all records
-        for (PacketRecord record : packetHistory) {
-            if (record.timestamp >= oneMinCutoff) {
-                oneMinCount++;
-                oneMinBytes += record.bytes;
+        // Single pass through the ring
+        for (Bucket bucket : buckets) {
+            long epoch = bucket.epoch;
+            if (epoch < tenMinOldest || epoch > currentEpoch) {
+                continue;
             }
-            if (record.timestamp >= fiveMinCutoff) {
-                fiveMinCount++;
-                fiveMinBytes += record.bytes;
+            long count = bucket.packets.sum();
+            long bytes = bucket.bytes.sum();
+            long raw = bucket.uncompressedBytes.sum();
+            if (epoch >= oneMinOldest) {
+                oneMinCount += count;
+                oneMinBytes += bytes;
+                oneMinRaw += raw;
             }
-            if (record.timestamp >= tenMinCutoff) {
-                tenMinCount++;
-                tenMinBytes += record.bytes;
+            if (epoch >= fiveMinOldest) {
+                fiveMinCount += count;
+                fiveMinBytes += bytes;
+                fiveMinRaw += raw;
             }
+            tenMinCount += count;
+            tenMinBytes += bytes;
+            tenMinRaw += raw;
         }
 
-        MetricsSnapshot oneMin = new MetricsSnapshot(oneMinCount, oneMinBytes, ONE_MINUTE_MS);
-        MetricsSnapshot fiveMin = new MetricsSnapshot(fiveMinCount, fiveMinBytes, FIVE_MINUTES_MS);
-        MetricsSnapshot tenMin = new MetricsSnapshot(tenMinCount, tenMinBytes, TEN_MINUTES_MS);
+        MetricsSnapshot oneMin = new MetricsSnapshot(oneMinCount, oneMinBytes, oneMinRaw, ONE_MINUTE_MS);
+        MetricsSnapshot fiveMin = new MetricsSnapshot(fiveMinCount, fiveMinBytes, fiveMinRaw, FIVE_MINUTES_MS);
+        MetricsSnapshot tenMin = new MetricsSnapshot(tenMinCount, tenMinBytes, tenMinRaw, TEN_MINUTES_MS);
         MetricsSnapshot lifetime = getLifetimeMetrics();
 
         return new AllMetrics(oneMin, fiveMin, tenMin, lifetime);
@@ -258,16 +315,38 @@ public class PacketMetrics {
      * Reset all metrics
      */
     public void reset() {
-        packetHistory.clear();
-        totalPackets.set(0);
-        totalBytes.set(0);
-        lastCleanupTime = System.currentTimeMillis();
+        for (Bucket bucket : buckets) {
+            synchronized (bucket) {
+                bucket.epoch = -1L;
+                bucket.packets.reset();
+                bucket.bytes.reset();
+                bucket.uncompressedBytes.reset();
+            }
+        }
+        totalPackets.reset();
+        totalBytes.reset();
+        totalUncompressedBytes.reset();
+        firstPacketTime.set(0L);
+    }
+
+    /**
+     * Get the number of packets in the 10-minute history (for debugging)
+     */
+    public long getHistorySize() {
+        return getTenMinuteMetrics().packetCount;
+    }
+
+    /**
+     * Number of buckets in the ring; memory use is fixed by this, not by the packet rate
+     */
+    public int getBucketCount() {
+        return buckets.length;
     }
 
     /**
-     * Get current queue size (for debugging)
+     * Width of one bucket in milliseconds
      */
-    public int getHistorySize() {
-        return packetHistory.size();
+    public long getBucketMillis() {
+        return bucketMillis;
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,5 @@
 package org.alias.rpgPlugin.hooks.player;
 
-import com.github.luben.zstd.Zstd;
 import com.google.gson.JsonObject;
 import com.google.protobuf.Any;
 import com.hypixel.hytale.logger.HytaleLogger;
@@ -28,26 +27,140 @@ import com.hypixel.hytale.server.core.modules.physics.component.Velocity;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.Universe;
 import com.hypixel.hytale.server.core.universe.world.World;
+import org.alias.rpgPlugin.ConfigListener;
+import org.alias.rpgPlugin.ConfigSnapshot;
 import org.alias.rpgPlugin.Configuration;
 import org.alias.rpgPlugin.RPGPluginEntry;
+import org.alias.rpgPlugin.hooks.player.codec.CompressionMode;
+import org.alias.rpgPlugin.hooks.player.codec.DirectBufferPool;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotCompressor;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotDictionaryTrainer;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotFormat;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotJsonEncoder;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotSerializer;
+import org.alias.rpgPlugin.metrics.JsonFileMetricsSink;
+import org.alias.rpgPlugin.metrics.MetricsRegistry;
+import org.alias.rpgPlugin.metrics.MetricsSink;
+import org.alias.rpgPlugin.metrics.PrometheusExporter;
+import org.alias.rpgPlugin.recorder.RecordingFormat;
+import org.alias.rpgPlugin.recorder.SnapshotRecorder;
+import org.alias.rpgPlugin.skilltable.PlayerDataCache;
+import org.alias.rpgPlugin.skilltable.SkillStore;
+import org.alias.rpgPlugin.skilltable.SkillXpEngine;
+import org.alias.rpgPlugin.skilltable.XpAttribution;
+import org.alias.rpgPlugin.skilltable.XpCurve;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.TemporalField;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 public class PlayerHook extends Thread
 {
 
     private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
     private static RPGPluginEntry PLUGIN_INSTANCE;
-    // Player component containers
-    public static final ConcurrentHashMap<UUID, PlayerComponentContainer> playerComponentContainers = new ConcurrentHashMap<>();
-    public static final List<byte[]> compressedPayloads = new ArrayList<>();
+    // Latest complete tick of player snapshots, published atomically by the gather batches
+    private final SnapshotStore snapshotStore = new SnapshotStore();
+    // Columnar copy of the latest frame, owned by the network tick thread
+    private final PlayerStateTable stateTable = new PlayerStateTable();
+    // Combat / moving / idle tiers deciding which rows each network tick re-emits
+    private final UpdateTiers updateTiers = new UpdateTiers();
+    // Per-world grids over the state table's positions, refreshed with it
+    private final PlayerSpatialIndex spatialIndex = new PlayerSpatialIndex();
+    // Per-world / per-radius streams, built from per-player segments shared across subscribers
+    private final SnapshotSubscriptions subscriptions = new SnapshotSubscriptions();
+    // Skill progress of every player; XP from telemetry is attributed per changed row on the network tick
+    private final SkillXpEngine skillXpEngine = new SkillXpEngine(XpCurve.DEFAULT);
+    private final XpAttribution xpAttribution = new XpAttribution(skillXpEngine);
+    // Write-behind persistence of the skill engine, from run() until shutdown
+    private volatile SkillStore skillStore;
+    // Off-thread loading and recently departed players in front of the skill store
+    private volatile PlayerDataCache playerDataCache;
+
+    // Hand-off from the gather stage to the publish stage, which runs the network tick
+    private static final int FRAME_QUEUE_CAPACITY = 4;
+    private final FrameQueue frameQueue = new FrameQueue(FRAME_QUEUE_CAPACITY);
+    private final StageMetrics gatherStageMetrics = new StageMetrics("gather");
+    private final StageMetrics publishStageMetrics = new StageMetrics("publish");
+    private SnapshotPublisher publisher;
+    // Deadline-based pacing of both stage loops
+    private final TickScheduler gatherScheduler;
+    private final TickScheduler publishScheduler;
+    // Lowers the gather rate (then gathers a rotating subset of players) when ticks exceed the latency budget
+    private final AdaptiveRateController rateController;
+    // Set by the configuration listener, applied by the gather loop (which owns the rate controller)
+    private volatile boolean gatherConfigChanged;
+    private final ConfigListener configListener = this::onConfigurationChanged;
+    // Flight recorder of the published frames, only while snapshotRecorder is enabled (publish stage thread)
+    private volatile SnapshotRecorder recorder;
+    private static final long MEGABYTE = 1L << 20;
+    // Extra time given to a publisher that outlived stopPublisher before what it writes to is closed on another thread
+    private static final long PUBLISHER_EXIT_WAIT_MILLIS = 5_000L;
 
     // Packet metrics tracker
     private final PacketMetrics packetMetrics;
+    // Per-format metrics, filled for every format while the packet debugger is on so sizes can be compared
+    private final EnumMap<SnapshotFormat, PacketMetrics> formatMetrics = new EnumMap<>(SnapshotFormat.class);
+    private static final SnapshotFormat[] FORMATS = SnapshotFormat.values();
+    // Same packets compressed without the trained dictionary (only filled while the packet debugger is on)
+    private final PacketMetrics noDictionaryMetrics = new PacketMetrics();
+    // Same packets with every section written, i.e. without change detection (only filled while the packet debugger is on)
+    private final PacketMetrics allSectionsMetrics = new PacketMetrics();
+    // Packets per compression mode: the active mode always, the other one only while the packet debugger is on
+    private final EnumMap<CompressionMode, PacketMetrics> compressionModeMetrics = new EnumMap<>(CompressionMode.class);
+    // Latency of every tick phase (gather, world-thread queue delay, serialize, compress, overruns)
+    private final TickMetrics tickMetrics = new TickMetrics();
+
+    // Scrapeable view of the metrics above; exporters are started by the hook thread from the configuration
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry("rpg_");
+    private final List<MetricsSink> metricsSinks = new ArrayList<>();
+    private static final String METRICS_BIND_ADDRESS = "127.0.0.1";
+
+    // Binary snapshot encoding state
+    private static final int KEYFRAME_INTERVAL = 300; // 10 seconds at 30 Hz
+    private static final int COMPRESSION_LEVEL = 6;
+    private static final DirectBufferPool BUFFER_POOL = new DirectBufferPool(4);
+    private final SnapshotSerializer snapshotSerializer;
+    // Long-lived compression context for the JSON path; like the serializer, owned by the network tick thread
+    private final SnapshotCompressor jsonCompressor;
+    private CompressionMode jsonCompressionMode = CompressionMode.BLOCK;
+
+    // Dictionary training (only while trainCompressionDictionary is enabled)
+    private static final int DICTIONARY_SAMPLES = 2_000;
+    private SnapshotDictionaryTrainer dictionaryTrainer;
+    // Trains collected samples and saves the configuration, keeping both off the publish stage thread
+    private final ExecutorService dictionaryExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "RPG-DictionaryTrainer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final SnapshotJsonEncoder jsonEncoder = new SnapshotJsonEncoder(KEYFRAME_INTERVAL);
+    // Encoders writing every section, created on demand while the packet debugger is on
+    private SnapshotJsonEncoder allSectionsJsonEncoder;
+    private SnapshotSerializer allSectionsSerializer;
+
+    // One reusable gather batch per world, only touched by the hook thread (and the batch's world thread while in flight)
+    private final Map<UUID, WorldGatherBatch> worldBatches = new HashMap<>();
+    // Batches submitted in the current tick (reused)
+    private WorldGatherBatch[] submitBatches = new WorldGatherBatch[8];
+    private World[] submitWorlds = new World[8];
+    // Names of the worlds skipped in the current tick because their batch is still in flight (reused)
+    private String[] heldWorlds = new String[8];
+    // Batches of worlds without players for this many ticks are dropped
+    private static final long BATCH_IDLE_TICKS = 300L;
+    // A batch in flight this long is assumed lost (its task never ran) and cancelled
+    private static final long BATCH_TIMEOUT_NANOS = 2_000_000_000L;
+    private long gatherTick;
 
     // Metrics logging interval (in milliseconds)
     private static final long METRICS_LOG_INTERVAL = 60_000L; // Log every 60 seconds
@@ -56,266 +169,414 @@ public class PlayerHook extends Thread
     public PlayerHook(RPGPluginEntry pluginEntry) {
         PLUGIN_INSTANCE = pluginEntry;
         this.packetMetrics = new PacketMetrics();
+        for (SnapshotFormat format : FORMATS) {
+            formatMetrics.put(format, new PacketMetrics());
+        }
+        for (CompressionMode mode : CompressionMode.values()) {
+            compressionModeMetrics.put(mode, new PacketMetrics());
+        }
+        this.jsonCompressor = new SnapshotCompressor(COMPRESSION_LEVEL, loadDictionary(SnapshotFormat.JSON));
+        this.snapshotSerializer = new SnapshotSerializer(BUFFER_POOL, KEYFRAME_INTERVAL,
+                new SnapshotCompressor(COMPRESSION_LEVEL, loadDictionary(SnapshotFormat.BINARY)));
         this.lastMetricsLogTime = System.currentTimeMillis();
+        ConfigSnapshot config = Configuration.get();
+        this.gatherScheduler = new TickScheduler("gather", config.playerHookFrequency(), config.tickCatchUpPolicy(), tickMetrics);
+        this.publishScheduler = new TickScheduler("publish", config.snapshotPublishFrequency(), config.tickCatchUpPolicy(), null);
+        this.rateController = new AdaptiveRateController(tickMetrics);
+        snapshotStore.setHandoff(frameQueue, gatherStageMetrics);
+        registerMetrics();
         start();
     }
 
-    private com.google.gson.JsonObject stringMapToJson(Map<String, String> map) {
-        com.google.gson.JsonObject obj = new com.google.gson.JsonObject();
-        if (map == null) return obj;
-        for (Map.Entry<String, String> e : map.entrySet()) {
-            String k = e.getKey();
-            String v = e.getValue();
-            if (v == null) obj.add(k, com.google.gson.JsonNull.INSTANCE);
-            else obj.addProperty(k, v);
-        }
-        return obj;
-    }
-
-    private com.google.gson.JsonObject numberMapToJson(Map<String, ? extends Number> map) {
-        com.google.gson.JsonObject obj = new com.google.gson.JsonObject();
-        if (map == null) return obj;
-        for (Map.Entry<String, ? extends Number> e : map.entrySet()) {
-            String k = e.getKey();
-            Number v = e.getValue();
-            if (v == null) {
-                obj.add(k, com.google.gson.JsonNull.INSTANCE);
-            } else if (v instanceof Integer || v instanceof Long) {
-                obj.addProperty(k, v.longValue());
-            } else {
-                obj.addProperty(k, v.doubleValue());
-            }
+    /**
+     * Runs on the player's world thread: copy the values of the player's components into a snapshot.
+     * Only the components that end up in a snapshot are looked up.
+     */
+    public static void captureSnapshot(PlayerRef playerRef, PlayerSnapshot snapshot) {
+        snapshot.clear();
+        snapshot.setUuid(playerRef.getUuid());
+
+        Player player = playerRef.getComponent(Player.getComponentType());
+        if (player != null) {
+            snapshot.setPlayerInfo(
+                    player.getWorld() != null ? player.getWorld().getName() : "null",
+                    player.getGameMode() != null ? player.getGameMode().toString() : "null");
         }
-        return obj;
-    }
 
-    public Map<String, Integer> subSerializeMovementStates(MovementStates movementStatesObject) {
-        Map<String, Integer> movementStates = new HashMap<>();
+        TransformComponent transformComponent = playerRef.getComponent(TransformComponent.getComponentType());
+        if (transformComponent != null) {
+            Vector3d position = transformComponent.getPosition();
+            Vector3f rotation = transformComponent.getRotation();
+            snapshot.setTransform(position.getX(), position.getY(), position.getZ(),
+                    rotation.getPitch(), rotation.getYaw(), rotation.getRoll());
+        }
 
-        movementStates.put("walking", movementStatesObject.walking ? 1 : 0);
-        movementStates.put("flying", movementStatesObject.flying ? 1 : 0);
-        movementStates.put("swimJumping", movementStatesObject.swimJumping ? 1 : 0);
-        movementStates.put("swimming", movementStatesObject.swimming ? 1 : 0);
-        movementStates.put("climbing", movementStatesObject.climbing ? 1 : 0);
-        movementStates.put("crouching", movementStatesObject.crouching ? 1 : 0);
-        movementStates.put("falling", movementStatesObject.falling ? 1 : 0);
-        movementStates.put("forcedCrouching", movementStatesObject.forcedCrouching ? 1 : 0);
-        movementStates.put("gliding", movementStatesObject.gliding ? 1 : 0);
-        movementStates.put("horizontalIdle", movementStatesObject.horizontalIdle ? 1 : 0);
-        movementStates.put("idle", movementStatesObject.idle ? 1 : 0);
-        movementStates.put("inFluid", movementStatesObject.inFluid ? 1 : 0);
-        movementStates.put("jumping", movementStatesObject.jumping ? 1 : 0);
-        movementStates.put("mantling", movementStatesObject.mantling ? 1 : 0);
-        movementStates.put("mounting", movementStatesObject.mounting ? 1 : 0);
-        movementStates.put("onGround", movementStatesObject.onGround ? 1 : 0);
-        movementStates.put("rolling", movementStatesObject.rolling ? 1 : 0);
-        movementStates.put("running", movementStatesObject.running ? 1 : 0);
-        movementStates.put("sitting", movementStatesObject.sitting ? 1 : 0);
-        movementStates.put("sleeping", movementStatesObject.sleeping ? 1 : 0);
-        movementStates.put("sliding", movementStatesObject.sliding ? 1 : 0);
-        movementStates.put("sprinting", movementStatesObject.sprinting ? 1 : 0);
+        Velocity velocity = playerRef.getComponent(Velocity.getComponentType());
+        if (velocity != null) {
+            Vector3d velocityVector = velocity.getVelocity();
+            snapshot.setVelocity(velocityVector.getX(), velocityVector.getY(), velocityVector.getZ());
+        }
 
-        return movementStates;
-    }
+        MovementStatesComponent movementStatesComponent = playerRef.getComponent(MovementStatesComponent.getComponentType());
+        if (movementStatesComponent != null && movementStatesComponent.getMovementStates() != null) {
+            snapshot.setMovementBits(movementBits(movementStatesComponent.getMovementStates()));
+        }
 
-    public Map<String, Double> subSerializeTransformPosition(TransformComponent transformObject) {
-        Map<String, Double> transformPosition = new HashMap<>();
-        Vector3d telemetryVector3d =  transformObject.getPosition();
-        transformPosition.put("x", telemetryVector3d.getX());
-        transformPosition.put("y", telemetryVector3d.getY());
-        transformPosition.put("z", telemetryVector3d.getZ());
+        EntityStatMap entityStatMap = playerRef.getComponent(EntityStatMap.getComponentType());
+        if (entityStatMap != null) {
+            captureStat(snapshot, 0, entityStatMap.get(DefaultEntityStatTypes.getHealth()));
+            captureStat(snapshot, 1, entityStatMap.get(DefaultEntityStatTypes.getStamina()));
+            captureStat(snapshot, 2, entityStatMap.get(DefaultEntityStatTypes.getMana()));
+            captureStat(snapshot, 3, entityStatMap.get(DefaultEntityStatTypes.getAmmo()));
+            captureStat(snapshot, 4, entityStatMap.get(DefaultEntityStatTypes.getOxygen()));
+            captureStat(snapshot, 5, entityStatMap.get(DefaultEntityStatTypes.getSignatureEnergy()));
+        }
 
-        return transformPosition;
+        DamageDataComponent damageDataComponent = playerRef.getComponent(DamageDataComponent.getComponentType());
+        if (damageDataComponent != null) {
+            snapshot.setDamageData(
+                    epochMilli(damageDataComponent.getLastDamageTime()),
+                    epochMilli(damageDataComponent.getLastChargeTime()),
+                    epochMilli(damageDataComponent.getLastCombatAction()));
+        }
     }
 
-    public Map<String, Float> subSerializeRotation(TransformComponent transformObject) {
-        Map<String, Float> rotationMap = new HashMap<>();
-        Vector3f rotationVector3f = transformObject.getRotation();
-
-        rotationMap.put("x", rotationVector3f.getX());
-        rotationMap.put("y", rotationVector3f.getY());
-        rotationMap.put("z", rotationVector3f.getZ());
-        rotationMap.put("yaw", rotationVector3f.getYaw());
-        rotationMap.put("pitch", rotationVector3f.getPitch());
-        rotationMap.put("roll", rotationVector3f.getRoll());
-
-        return rotationMap;
+    private static void captureStat(PlayerSnapshot snapshot, int index, EntityStatValue value) {
+        if (value != null) {
+            snapshot.setStat(index, value.get(), value.getMax());
+        }
     }
 
-    public Map<String, Double> subSerializeVelocity(Velocity velocityObject) {
-        Map<String, Double> velocityMap = new HashMap<>();
-        Vector3d velocityVector3f = velocityObject.getVelocity();
+    private static long epochMilli(Instant instant) {
+        return instant != null ? instant.toEpochMilli() : -1L;
+    }
 
-        velocityMap.put("x", velocityVector3f.getX());
-        velocityMap.put("y", velocityVector3f.getY());
-        velocityMap.put("z", velocityVector3f.getZ());
+    /**
+     * Pack the 22 MovementStates flags into a bitfield (bit order matches PlayerSnapshot.MOVEMENT_STATE_NAMES)
+     */
+    public static int movementBits(MovementStates states) {
+        int bits = 0;
+        if (states.walking) bits |= 1;
+        if (states.flying) bits |= 1 << 1;
+        if (states.swimJumping) bits |= 1 << 2;
+        if (states.swimming) bits |= 1 << 3;
+        if (states.climbing) bits |= 1 << 4;
+        if (states.crouching) bits |= 1 << 5;
+        if (states.falling) bits |= 1 << 6;
+        if (states.forcedCrouching) bits |= 1 << 7;
+        if (states.gliding) bits |= 1 << 8;
+        if (states.horizontalIdle) bits |= 1 << 9;
+        if (states.idle) bits |= 1 << 10;
+        if (states.inFluid) bits |= 1 << 11;
+        if (states.jumping) bits |= 1 << 12;
+        if (states.mantling) bits |= 1 << 13;
+        if (states.mounting) bits |= 1 << 14;
+        if (states.onGround) bits |= 1 << 15;
+        if (states.rolling) bits |= 1 << 16;
+        if (states.running) bits |= 1 << 17;
+        if (states.sitting) bits |= 1 << 18;
+        if (states.sleeping) bits |= 1 << 19;
+        if (states.sliding) bits |= 1 << 20;
+        if (states.sprinting) bits |= 1 << 21;
+        return bits;
+    }
 
-        return velocityMap;
+    /**
+     * JSON encoding of the latest published frame
+     */
+    public String serializedPlayerInformation() {
+        SnapshotFrame frame = snapshotStore.acquire();
+        try {
+            return serializedPlayerInformation(frame);
+        } finally {
+            frame.release();
+        }
     }
 
-    public Map<String, Float> subSerializeStatMap(EntityStatMap statMap) {
-        EntityStatValue health = statMap.get(DefaultEntityStatTypes.getHealth());
-        EntityStatValue stamina = statMap.get(DefaultEntityStatTypes.getStamina());
-        EntityStatValue mana = statMap.get(DefaultEntityStatTypes.getMana());
-        EntityStatValue ammo = statMap.get(DefaultEntityStatTypes.getAmmo());
-        EntityStatValue oxygen = statMap.get(DefaultEntityStatTypes.getOxygen());
-        EntityStatValue signatureEnergy = statMap.get(DefaultEntityStatTypes.getSignatureEnergy());
+    public String serializedPlayerInformation(SnapshotFrame frame) {
+        return jsonEncoder.encode(frame.getSnapshots(), frame.size());
+    }
 
-        Map<String, Float> statsMap = new HashMap<>();
-        statsMap.put("health", health.get());
-        statsMap.put("stamina", stamina.get());
-        statsMap.put("mana", mana.get());
-        statsMap.put("ammo", ammo.get());
-        statsMap.put("oxygen", oxygen.get());
-        statsMap.put("signatureEnergy", signatureEnergy.get());
+    /**
+     * JSON encoding of the state table (network tick thread only)
+     */
+    public String serializedPlayerInformation(PlayerStateTable table) {
+        return jsonEncoder.encode(table);
+    }
 
-        statsMap.put("maxHealth", health.getMax());
-        statsMap.put("maxStamina", stamina.getMax());
-        statsMap.put("maxMana", mana.getMax());
-        statsMap.put("maxAmmo", ammo.getMax());
-        statsMap.put("maxOxygen", oxygen.getMax());
-        statsMap.put("maxSignatureEnergy", signatureEnergy.getMax());
+    /**
+     * JSON encoding of the state table, re-encoding only the rows that are due (network tick thread only)
+     */
+    public String serializedPlayerInformation(PlayerStateTable table, boolean[] due) {
+        return jsonEncoder.encode(table, due);
+    }
 
-        return statsMap;
+    /**
+     * Encode and compress the state table into a binary delta frame (see PlayerSnapshotCodec).
+     * @return The compressed frame, only valid until the next call
+     */
+    public ByteBuffer serializedPlayerInformationBinary(PlayerStateTable table) {
+        return snapshotSerializer.serialize(table);
+    }
 
+    /**
+     * Encode and compress the rows of the state table that are due into a binary delta frame.
+     * @return The compressed frame, only valid until the next call
+     */
+    public ByteBuffer serializedPlayerInformationBinary(PlayerStateTable table, boolean[] due) {
+        return snapshotSerializer.serialize(table, due);
     }
 
-    public Map<String, Integer> subSerializeDamageData(DamageDataComponent damageDataComponent) {
-        Map<String, Integer> damageData = new HashMap<>();
+    /**
+     * Group the players by world and submit one collection task per world, so the number of
+     * world-thread tasks per tick scales with the number of worlds rather than players.
+     */
+    public void gatherPlayerInformation(Universe universe, Collection<PlayerRef> players) {
+        long tick = ++gatherTick;
+        long gatherStart = System.nanoTime();
+        int sampleDivisor = rateController.getSampleDivisor();
 
-        Instant lastDamageTime = damageDataComponent.getLastDamageTime();
-        Instant lastChargeTime = damageDataComponent.getLastChargeTime();
-        Instant lastCombatAction = damageDataComponent.getLastCombatAction();
+        for (WorldGatherBatch batch : worldBatches.values()) {
+            if (batch.isInFlight() && (universe.getWorld(batch.getWorldUuid()) == null
+                    || gatherStart - batch.getSubmitNanos() > BATCH_TIMEOUT_NANOS)) {
+                // Unloaded with the task still queued, or the task was lost: no frame waits for it forever
+                if (batch.cancel()) {
+                    LOGGER.atWarning().log("Cancelled player gather on world " + batch.getWorldUuid() + " that never ran");
+                }
+            }
+            if (!batch.isInFlight()) {
+                batch.reset();
+            }
+        }
 
-        if(lastDamageTime == null) {
-            damageData.put("lastDamageTimeEpochMilli", -1);
-        } else {
-            damageData.put("lastDamageTimeEpochMilli", lastDamageTime.getNano());
+        for (PlayerRef playerRef : players) {
+            if (playerRef == null) {
+                continue;
+            }
+            UUID worldUuid = playerRef.getWorldUuid();
+            if (worldUuid == null) {
+                continue;
+            }
+            if (sampleDivisor > 1 && !rateController.isSampled(playerRef.getUuid(), tick)) {
+                continue;
+            }
+            WorldGatherBatch batch = worldBatches.get(worldUuid);
+            if (batch == null) {
+                batch = new WorldGatherBatch(worldUuid, snapshotStore, PlayerHook::captureSnapshot, tickMetrics);
+                worldBatches.put(worldUuid, batch);
+            }
+            // Still collecting the previous tick on that world: skip it rather than queueing more work
+            if (!batch.isInFlight()) {
+                batch.add(playerRef, tick);
+            }
         }
-        if(lastChargeTime == null) {
-            damageData.put("lastChargeTimeEpochMilli", -1);
-        } else {
-            damageData.put("lastChargeTimeEpochMilli", lastChargeTime.getNano());
+
+        // Pick the batches to submit first so the tick's frame can be sized up front
+        int submitCount = 0;
+        int heldCount = 0;
+        int totalPlayers = 0;
+        Iterator<WorldGatherBatch> iterator = worldBatches.values().iterator();
+        while (iterator.hasNext()) {
+            WorldGatherBatch batch = iterator.next();
+            if (batch.isInFlight()) {
+                // Its players stay in this tick's frame with the values of the tick still being collected
+                if (heldCount == heldWorlds.length) {
+                    heldWorlds = Arrays.copyOf(heldWorlds, heldCount * 2);
+                }
+                heldWorlds[heldCount++] = batch.getWorldName();
+                continue;
+            }
+            if (batch.size() == 0) {
+                if (tick - batch.getLastUsedTick() > BATCH_IDLE_TICKS) {
+                    iterator.remove();
+                }
+                continue;
+            }
+            World world = universe.getWorld(batch.getWorldUuid());
+            if (world == null) {
+                continue;
+            }
+            if (submitCount == submitBatches.length) {
+                submitBatches = Arrays.copyOf(submitBatches, submitCount * 2);
+                submitWorlds = Arrays.copyOf(submitWorlds, submitCount * 2);
+            }
+            submitBatches[submitCount] = batch;
+            submitWorlds[submitCount] = world;
+            submitCount++;
+            totalPlayers += batch.size();
         }
-        if(lastCombatAction == null) {
-            damageData.put("lastCombatActionEpochMilli", -1);
-        } else {
-            damageData.put("lastCombatActionEpochMilli", lastCombatAction.getNano());
-            return damageData;
 
+        if (submitCount == 0 && heldCount > 0) {
+            // Every world is still collecting: that tick's frame follows, an empty one would only remove everybody
+            Arrays.fill(heldWorlds, 0, heldCount, null);
+            tickMetrics.record(TickMetrics.Phase.GATHER, System.nanoTime() - gatherStart);
+            return;
+        }
+        SnapshotFrame frame = snapshotStore.beginFrame(tick, gatherStart,
+                // Players outside this tick's subset stay present; twice the divisor covers one coalesced frame
+                sampleDivisor > 1 ? sampleDivisor * 2 : 1, totalPlayers, submitCount, heldWorlds, heldCount);
+        Arrays.fill(heldWorlds, 0, heldCount, null);
+        int offset = 0;
+        for (int i = 0; i < submitCount; i++) {
+            WorldGatherBatch batch = submitBatches[i];
+            batch.prepare(frame, offset, submitWorlds[i].getName());
+            offset += batch.size();
+            try {
+                submitWorlds[i].execute(batch);
+            } catch (RuntimeException e) {
+                batch.cancel();
+                LOGGER.atWarning().log("Failed to schedule player gather on world " + batch.getWorldUuid() + ": " + e.getMessage());
+            }
+            submitBatches[i] = null;
+            submitWorlds[i] = null;
         }
 
-        return damageData;
+        tickMetrics.record(TickMetrics.Phase.GATHER, System.nanoTime() - gatherStart);
     }
 
+    /**
+     * Store holding the latest complete frame of player snapshots
+     */
+    public SnapshotStore getSnapshotStore() {
+        return snapshotStore;
+    }
 
-    public String serializedPlayerInformation() {
-        com.google.gson.JsonArray playersArray = new com.google.gson.JsonArray();
-
-        for(PlayerComponentContainer playerComponentContainer : playerComponentContainers.values()) {
-            Player player = playerComponentContainer.getPlayer();
-            MovementStatesComponent movementStatesComponent = playerComponentContainer.getMovementStatesComponent();
-            TransformComponent transformComponent = playerComponentContainer.getTransformComponent();
-            EntityStatMap entityStatMap = playerComponentContainer.getEntityStatMap();
-            Velocity velocityMap = playerComponentContainer.getVelocity();
-            DamageDataComponent damageDataComponent = playerComponentContainer.getDamageDataComponent();
-
-            //store
-            String currentWorldName = "null";
-            if(player.getWorld() != null) {
-                currentWorldName = player.getWorld().getName();
-            }
-            String currentGameMode = "null";
-            if(player.getGameMode() != null) {
-                currentGameMode = player.getGameMode().toString();
+    /**
+     * Columnar player state, refreshed by every network tick. Only safe to read on the publish stage thread.
+     */
+    public PlayerStateTable getStateTable() {
+        return stateTable;
+    }
+
+    private static byte[] loadDictionary(SnapshotFormat format) {
+        Path path = SnapshotDictionaryTrainer.dictionaryPath(Configuration.getConfigDirectory(), format);
+        try {
+            byte[] dictionary = SnapshotDictionaryTrainer.load(path);
+            if (dictionary != null) {
+                LOGGER.atInfo().log("Loaded " + format + " compression dictionary (" + dictionary.length + " bytes)");
             }
-            Map<String, String> playerInfo = new HashMap<>();
-            playerInfo.put("currentWorldName", currentWorldName);
-            playerInfo.put("currentGameMode", currentGameMode);
+            return dictionary;
+        } catch (IOException e) {
+            LOGGER.atWarning().log("Failed to load compression dictionary " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
 
-            Map<String, Integer> movementStates = movementStatesComponent != null && movementStatesComponent.getMovementStates() != null
-                    ? subSerializeMovementStates(movementStatesComponent.getMovementStates())
-                    : null;
-            Map<String, Double> transformPosition = transformComponent != null ? subSerializeTransformPosition(transformComponent) : null;
-            Map<String, Float> transformRotation = transformComponent != null ? subSerializeRotation(transformComponent) : null;
-            Map<String, Float> statMap = entityStatMap != null ? subSerializeStatMap(entityStatMap) : null;
-            Map<String, Double> velocity = velocityMap != null ? subSerializeVelocity(velocityMap) : null;
-            Map<String, Integer> damageData = damageDataComponent != null ? subSerializeDamageData(damageDataComponent) : null;
+    /**
+     * Collect an uncompressed payload for dictionary training and train once enough were seen
+     */
+    private void sampleForDictionary(SnapshotFormat format, byte[] payload) {
+        if (dictionaryTrainer == null) {
+            dictionaryTrainer = new SnapshotDictionaryTrainer(DICTIONARY_SAMPLES);
+            LOGGER.atInfo().log("Collecting " + DICTIONARY_SAMPLES + " " + format + " snapshots for dictionary training");
+        }
+        dictionaryTrainer.addSample(payload);
+        if (!dictionaryTrainer.isReady()) {
+            return;
+        }
 
-            com.google.gson.JsonObject playerJson = new com.google.gson.JsonObject();
-            playerJson.add("playerInfo", stringMapToJson(playerInfo));
-            playerJson.add("movementStates", numberMapToJson(movementStates));
-            playerJson.add("transformPosition", numberMapToJson(transformPosition));
-            playerJson.add("transformRotation", numberMapToJson(transformRotation));
-            playerJson.add("statMap", numberMapToJson(statMap));
-            playerJson.add("velocity", numberMapToJson(velocity));
-            playerJson.add("damageData", numberMapToJson(damageData));
+        SnapshotDictionaryTrainer trainer = dictionaryTrainer;
+        dictionaryTrainer = null;
+        // Stops sampling right away; training and saving run in the background
+        Configuration.setTrainCompressionDictionary(false);
+        Path path = SnapshotDictionaryTrainer.dictionaryPath(Configuration.getConfigDirectory(), format);
+        try {
+            dictionaryExecutor.execute(() -> trainDictionary(trainer, format, path));
+        } catch (RejectedExecutionException e) {
+            // Shutting down: the samples are dropped and training starts over on next startup
+            Configuration.setTrainCompressionDictionary(true);
+        }
+    }
 
-            playersArray.add(playerJson);
+    /**
+     * Train a dictionary from the collected samples, write it and save the configuration (dictionary trainer thread)
+     */
+    private static void trainDictionary(SnapshotDictionaryTrainer trainer, SnapshotFormat format, Path path) {
+        try {
+            byte[] dictionary = trainer.trainAndWrite(path);
+            LOGGER.atInfo().log("Wrote " + dictionary.length + " byte " + format + " dictionary to " + path
+                    + " from " + trainer.getSampleCount() + " samples; it is loaded on next startup");
+        } catch (Exception e) {
+            LOGGER.atWarning().log("Dictionary training failed: " + e.getMessage());
         }
+        Configuration.save();
+    }
 
-        // Return the JSON string for the array of players
-        return playersArray.toString();
+    private void registerMetrics() {
+        metricsRegistry.registerPacketMetrics("snapshot", packetMetrics);
+        for (Map.Entry<CompressionMode, PacketMetrics> entry : compressionModeMetrics.entrySet()) {
+            metricsRegistry.registerPacketMetrics("compression_" + entry.getKey().name().toLowerCase(Locale.ROOT), entry.getValue());
+        }
+        metricsRegistry.registerTickMetrics("tick", tickMetrics);
+        metricsRegistry.registerStageMetrics("stage", gatherStageMetrics, publishStageMetrics);
+        metricsRegistry.registerTickSchedulers("scheduler", gatherScheduler, publishScheduler);
+        metricsRegistry.gauge("snapshot_players", "Players in the latest published frame",
+                () -> snapshotStore.getPublishedPlayerCount());
+        metricsRegistry.gauge("gather_tick", "Last gather tick number", () -> gatherTick);
+        metricsRegistry.gauge("gather_effective_hz", "Gather rate chosen by the adaptive controller",
+                () -> rateController.getEffectiveHz());
+        metricsRegistry.gauge("gather_sample_divisor", "Each player is gathered every n ticks",
+                () -> rateController.getSampleDivisor());
+        metricsRegistry.registerUpdateTiers("update_tier", updateTiers);
+        metricsRegistry.gauge("gather_load_seconds", "p99 load signal of the last control interval",
+                () -> rateController.getLastLoadNanos() / 1e9);
+        metricsRegistry.gauge("subscription_count", "Interest-managed snapshot subscribers",
+                () -> subscriptions.getSubscriberCount());
+        metricsRegistry.counter("subscription_segments_encoded_total", "Player segments encoded for subscribers",
+                () -> subscriptions.getSegmentsEncoded());
+        metricsRegistry.counter("subscription_segments_reused_total", "Player segments served from the shared cache",
+                () -> subscriptions.getSegmentsReused());
+        metricsRegistry.counter("subscription_chars_total", "Characters delivered to subscribers",
+                () -> subscriptions.getCharsDelivered());
+        metricsRegistry.gauge("skill_players", "Players attached to the skill XP engine",
+                () -> skillXpEngine.size());
+        metricsRegistry.counter("skill_grants_total", "Skill XP grants", () -> skillXpEngine.getGrants());
+        metricsRegistry.counter("skill_level_ups_total", "Skill level-ups", () -> skillXpEngine.getLevelUps());
+        metricsRegistry.counter("skill_attribution_rows_total", "Changed rows visited by the XP attribution",
+                () -> xpAttribution.getVisitedRows());
+        metricsRegistry.counter("skill_attribution_xp_total", "XP attributed from player telemetry",
+                () -> xpAttribution.getXpAwarded());
     }
 
-    public void gatherPlayerInformation(Universe universe, PlayerRef playerRef) {
-        if (playerRef == null) {
-            return;
+    /**
+     * Start the exporters enabled in the configuration
+     */
+    private void startMetricsSinks() {
+        long port = Configuration.getMetricsHttpPort();
+        if (port > 0 && port <= 65535) {
+            startMetricsSink(new PrometheusExporter(metricsRegistry, METRICS_BIND_ADDRESS, (int) port),
+                    "Prometheus metrics on http://" + METRICS_BIND_ADDRESS + ":" + port + "/metrics");
+        }
+        if (Configuration.getMetricsJsonFile()) {
+            Path path = Configuration.getConfigDirectory().resolve("metrics.json");
+            startMetricsSink(new JsonFileMetricsSink(metricsRegistry, path, Configuration.getMetricsJsonIntervalSeconds()),
+                    "Writing metrics to " + path);
         }
-        UUID worldUuid = playerRef.getWorldUuid();
+    }
 
-        if (worldUuid == null) {
-            return;
+    private void startMetricsSink(MetricsSink sink, String description) {
+        try {
+            sink.start();
+            metricsSinks.add(sink);
+            LOGGER.atInfo().log(description);
+        } catch (Exception e) {
+            sink.close();
+            LOGGER.atWarning().log("Failed to start metrics export (" + description + "): " + e.getMessage());
         }
-        World currentPlayerWorld = universe.getWorld(worldUuid);
+    }
 
-        if (currentPlayerWorld == null) {
-            return;
+    private void stopMetricsSinks() {
+        for (MetricsSink sink : metricsSinks) {
+            sink.close();
         }
-        currentPlayerWorld.execute(() -> {
-            UUIDComponent uuidComponent =
-                    playerRef.getComponent(UUIDComponent.getComponentType());
-            TransformComponent transformComponent =
-                    playerRef.getComponent(TransformComponent.getComponentType());
-            Nameplate nameplate =
-                    playerRef.getComponent(Nameplate.getComponentType());
-            DisplayNameComponent displayNameComponent =
-                    playerRef.getComponent(DisplayNameComponent.getComponentType());
-            PositionDataComponent positionDataComponent =
-                    playerRef.getComponent(PositionDataComponent.getComponentType());
-            Velocity velocity =
-                    playerRef.getComponent(Velocity.getComponentType());
-            CollisionResultComponent collisionResultComponent =
-                    playerRef.getComponent(CollisionResultComponent.getComponentType());
-            MovementStatesComponent movementStatesComponent =
-                    playerRef.getComponent(MovementStatesComponent.getComponentType());
-            Player player =
-                    playerRef.getComponent(Player.getComponentType());
-            DamageDataComponent damageDataComponent =
-                    playerRef.getComponent(DamageDataComponent.getComponentType());
-            KnockbackComponent knockbackComponent =
-                    playerRef.getComponent(KnockbackComponent.getComponentType());
-            EntityStatMap entityStatMap =
-                    playerRef.getComponent(EntityStatMap.getComponentType());
-
-            PlayerComponentContainer container = playerComponentContainers.computeIfAbsent(
-                    playerRef.getUuid(),
-                    k -> new PlayerComponentContainer()
-            );
-
-            container.setUuidComponent(uuidComponent);
-            container.setTransformComponent(transformComponent);
-            container.setNameplate(nameplate);
-            container.setDisplayNameComponent(displayNameComponent);
-            container.setPositionDataComponent(positionDataComponent);
-            container.setVelocity(velocity);
-            container.setCollisionResultComponent(collisionResultComponent);
-            container.setMovementStatesComponent(movementStatesComponent);
-            container.setPlayer(player);
-            container.setDamageDataComponent(damageDataComponent);
-            container.setKnockbackComponent(knockbackComponent);
-            container.setEntityStatMap(entityStatMap);
-        });
+        metricsSinks.clear();
+    }
+
+    /**
+     * Registry of the hook's metrics, for additional exporters
+     */
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
     }
 
     /**
@@ -350,8 +611,122 @@ public class PlayerHook extends Thread
         LOGGER.atInfo().log("Lifetime Stats:");
         LOGGER.atInfo().log("   " + metrics.lifetime.toString());
         LOGGER.atInfo().log("=================================================");
-        LOGGER.atInfo().log("History Queue Size: " + packetMetrics.getHistorySize() + " records");
+        LOGGER.atInfo().log("History: " + packetMetrics.getHistorySize() + " packets in "
+                + packetMetrics.getBucketCount() + " x " + packetMetrics.getBucketMillis() + " ms buckets");
+        LOGGER.atInfo().log("=================================================");
+        LOGGER.atInfo().log("TICK LATENCY (1 Minute Window | 10 Minute Window)");
+        for (TickMetrics.Phase phase : TickMetrics.Phase.values()) {
+            WindowedLatency latency = tickMetrics.get(phase);
+            LatencyHistogram.Snapshot tenMinutes = latency.getTenMinutes();
+            LOGGER.atInfo().log(String.format("   %-13s %s | p99 %.3f ms, max %.3f ms",
+                    phase, latency.getOneMinute(), tenMinutes.p99 / 1e6, tenMinutes.max / 1e6));
+        }
+        LOGGER.atInfo().log("Missed Ticks: " + tickMetrics.getMissedTicks());
+        LOGGER.atInfo().log("   " + gatherScheduler);
+        LOGGER.atInfo().log("   " + publishScheduler);
+        LOGGER.atInfo().log("   Adaptive rate: " + rateController);
+        LOGGER.atInfo().log("   Update tiers: " + updateTiers);
+        LOGGER.atInfo().log("=================================================");
+        LOGGER.atInfo().log("PIPELINE (queued " + frameQueue.size() + ")");
+        LOGGER.atInfo().log("   " + gatherStageMetrics.describeRates());
+        LOGGER.atInfo().log("   " + publishStageMetrics.describeRates());
+        LOGGER.atInfo().log("   Subscriptions: " + subscriptions);
+        LOGGER.atInfo().log("   Skills: " + skillXpEngine);
+        LOGGER.atInfo().log("   XP attribution: " + xpAttribution);
+        PlayerDataCache activeCache = playerDataCache;
+        if (activeCache != null) {
+            LOGGER.atInfo().log("   Player cache: " + activeCache);
+        }
+        SkillStore activeSkillStore = skillStore;
+        if (activeSkillStore != null) {
+            LOGGER.atInfo().log("   Skill store: " + activeSkillStore);
+            if (activeSkillStore.getLastError() != null) {
+                LOGGER.atWarning().log("   Skill store error: " + activeSkillStore.getLastError());
+            }
+        }
+        SnapshotRecorder activeRecorder = recorder;
+        if (activeRecorder != null) {
+            LOGGER.atInfo().log("   Recorder: " + activeRecorder);
+            if (activeRecorder.getLastError() != null) {
+                LOGGER.atWarning().log("   Recorder error: " + activeRecorder.getLastError());
+            }
+        }
         LOGGER.atInfo().log("=================================================");
+
+        if (Configuration.getRunNetworkPacketDebugger()) {
+            LOGGER.atInfo().log("FORMAT COMPARISON (1 Minute Window)");
+            for (Map.Entry<SnapshotFormat, PacketMetrics> entry : formatMetrics.entrySet()) {
+                LOGGER.atInfo().log("   " + entry.getKey() + ": " + entry.getValue().getOneMinuteMetrics());
+            }
+            LOGGER.atInfo().log("DICTIONARY COMPARISON (1 Minute Window)");
+            LOGGER.atInfo().log(String.format("   Ratio with dictionary: %.2fx | without: %.2fx",
+                    metrics.oneMinute.compressionRatio, noDictionaryMetrics.getOneMinuteMetrics().compressionRatio));
+            LOGGER.atInfo().log("SECTION CHANGE DETECTION (1 Minute Window)");
+            PacketMetrics.MetricsSnapshot allSections = allSectionsMetrics.getOneMinuteMetrics();
+            LOGGER.atInfo().log(String.format("   Changed sections only: %.1f bytes/s | every section: %.1f bytes/s | saved %.1f%%",
+                    metrics.oneMinute.bytesPerSecond, allSections.bytesPerSecond,
+                    allSections.bytesPerSecond > 0 ? 100.0 * (1.0 - metrics.oneMinute.bytesPerSecond / allSections.bytesPerSecond) : 0.0));
+            LOGGER.atInfo().log("COMPRESSION MODE COMPARISON (1 Minute Window)");
+            for (Map.Entry<CompressionMode, PacketMetrics> entry : compressionModeMetrics.entrySet()) {
+                PacketMetrics.MetricsSnapshot mode = entry.getValue().getOneMinuteMetrics();
+                LOGGER.atInfo().log(String.format("   %s: %.1f bytes/tick, %.2fx",
+                        entry.getKey(), mode.packetCount > 0 ? (double) mode.totalBytes / mode.packetCount : 0.0, mode.compressionRatio));
+            }
+            LOGGER.atInfo().log("=================================================");
+        }
+    }
+
+    /**
+     * Get tick phase latencies (for external access)
+     */
+    public TickMetrics getTickMetrics() {
+        return tickMetrics;
+    }
+
+    /**
+     * Get target and measured rates of the gather and publish loops (for external access)
+     */
+    public TickScheduler getGatherScheduler() {
+        return gatherScheduler;
+    }
+
+    public TickScheduler getPublishScheduler() {
+        return publishScheduler;
+    }
+
+    /**
+     * Per-world spatial index of the players in the state table (publish stage thread only)
+     */
+    public PlayerSpatialIndex getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    /**
+     * Skill XP and levels of every player; grants are safe from any thread
+     */
+    public SkillXpEngine getSkillXpEngine() {
+        return skillXpEngine;
+    }
+
+    /**
+     * Interest-managed snapshot streams; subscribe from any thread, payloads arrive on the publish stage thread
+     */
+    public SnapshotSubscriptions getSubscriptions() {
+        return subscriptions;
+    }
+
+    /**
+     * Get the update tier counts of the last network tick (for external access)
+     */
+    public UpdateTiers getUpdateTiers() {
+        return updateTiers;
+    }
+
+    /**
+     * Get the adaptive gather rate (for external access)
+     */
+    public AdaptiveRateController getRateController() {
+        return rateController;
     }
 
     /**
@@ -361,53 +736,410 @@ public class PlayerHook extends Thread
         return packetMetrics;
     }
 
+    /**
+     * Get metrics of the active format compressed without the dictionary (only filled while the packet debugger is on)
+     */
+    public PacketMetrics getNoDictionaryMetrics() {
+        return noDictionaryMetrics;
+    }
+
+    /**
+     * Get metrics of the active format with every section written (only filled while the packet debugger is on)
+     */
+    public PacketMetrics getAllSectionsMetrics() {
+        return allSectionsMetrics;
+    }
+
+    /**
+     * Get per-format packet metrics (only filled while the packet debugger is on)
+     */
+    public PacketMetrics getFormatMetrics(SnapshotFormat format) {
+        return formatMetrics.get(format);
+    }
+
+    /**
+     * Get throughput of the gather and publish stages (for external access)
+     */
+    public StageMetrics getGatherStageMetrics() {
+        return gatherStageMetrics;
+    }
+
+    public StageMetrics getPublishStageMetrics() {
+        return publishStageMetrics;
+    }
+
+    /**
+     * Run a network tick on the latest published frame. While the hook is running the publish
+     * stage owns the state table, so this is only meant for use before start or after shutdown.
+     */
     public void runNetworkTick() {
-        // Serialize player data
-        String json_data = serializedPlayerInformation();
-        byte[] compressed = Zstd.compress(json_data.getBytes(), 6);
+        runNetworkTick(snapshotStore.acquire());
+    }
 
-        // Record packet in metrics
-        packetMetrics.recordPacket(compressed.length);
+    /**
+     * Ingest a frame into the state table, then serialize it (publish stage thread)
+     * @param frame A retained frame; it is released here
+     */
+    void runNetworkTick(SnapshotFrame frame) {
+        long start = System.nanoTime();
+
+        // Copy the frame into the columns and hand it back right away
+        try {
+            stateTable.ingest(frame);
+        } finally {
+            frame.release();
+        }
+        spatialIndex.update(stateTable);
+        xpAttribution.update(stateTable);
+        long ingestNanos = System.nanoTime() - start;
+
+        // Rows due this tick by update tier; null re-emits every row
+        boolean[] due = null;
+        if (Configuration.getTieredUpdates()) {
+            updateTiers.evaluate(stateTable, System.currentTimeMillis(), publishScheduler.getTargetHz());
+            due = updateTiers.getDue();
+        }
+        serializeState(stateTable, due, ingestNanos);
+        subscriptions.publish(stateTable, spatialIndex, due);
+
+        tickMetrics.record(TickMetrics.Phase.NETWORK_TICK, System.nanoTime() - start);
 
         // Log detailed metrics (periodically)
         logPacketMetrics();
+    }
+
+    /**
+     * Serialize and compress the state table in the active format (and every other format while debugging)
+     */
+    private void serializeState(PlayerStateTable table, boolean[] due, long ingestNanos) {
+        SnapshotFormat activeFormat = Configuration.getSnapshotFormat();
+        boolean compareFormats = Configuration.getRunNetworkPacketDebugger();
+        boolean trainDictionary = Configuration.getTrainCompressionDictionary();
+        CompressionMode compressionMode = Configuration.getSnapshotCompressionMode();
+        CompressionMode otherMode = compressionMode == CompressionMode.STREAM ? CompressionMode.BLOCK : CompressionMode.STREAM;
+
+        SnapshotRecorder activeRecorder = recorder;
+        long compressedSize = 0;
+        long uncompressedSize = 0;
+        for (SnapshotFormat format : FORMATS) {
+            boolean active = format == activeFormat;
+            if (!active && !compareFormats) {
+                continue;
+            }
+
+            // Serialize and compress player data. The binary path stays in pooled direct buffers.
+            long formatCompressedSize;
+            long formatUncompressedSize;
+            long sizeWithoutDictionary = -1;
+            long sizeInOtherMode = -1;
+            long encodeNanos;
+            long compressNanos;
+            if (format == SnapshotFormat.BINARY) {
+                snapshotSerializer.setCompressionMode(compressionMode);
+                ByteBuffer frame = serializedPlayerInformationBinary(table, due);
+                formatCompressedSize = frame.remaining();
+                if (active && activeRecorder != null && !activeRecorder.record(table.getTick(), System.currentTimeMillis(), frame,
+                        recordFlags(snapshotSerializer.isLastKeyframe(), snapshotSerializer.getCompressor(), compressionMode))) {
+                    // Dropped: the next recorded frame must not depend on it
+                    snapshotSerializer.getCodec().requestKeyframe();
+                }
+                formatUncompressedSize = snapshotSerializer.getLastUncompressedSize();
+                encodeNanos = snapshotSerializer.getLastEncodeNanos();
+                compressNanos = snapshotSerializer.getLastCompressNanos();
+                if (active && compareFormats && snapshotSerializer.getCompressor().hasDictionary()) {
+                    sizeWithoutDictionary = snapshotSerializer.compressLastWithoutDictionary();
+                }
+                if (active && compareFormats) {
+                    sizeInOtherMode = snapshotSerializer.compressLastInMode(otherMode);
+                }
+                if (active && compareFormats) {
+                    if (allSectionsSerializer == null) {
+                        allSectionsSerializer = new SnapshotSerializer(BUFFER_POOL, KEYFRAME_INTERVAL,
+                                new SnapshotCompressor(COMPRESSION_LEVEL, loadDictionary(SnapshotFormat.BINARY)));
+                        allSectionsSerializer.getCodec().setSkipUnchangedSections(false);
+                    }
+                    long allSectionsSize = allSectionsSerializer.serialize(table, due).remaining();
+                    allSectionsMetrics.recordPacket(allSectionsSize, allSectionsSerializer.getLastUncompressedSize());
+                }
+                if (active && trainDictionary) {
+                    sampleForDictionary(format, snapshotSerializer.copyLastEncoded());
+                }
+            } else {
+                long encodeStart = System.nanoTime();
+                byte[] payload = serializedPlayerInformation(table, due).getBytes(StandardCharsets.UTF_8);
+                long encoded = System.nanoTime();
+                if (compressionMode != jsonCompressionMode && compressionMode == CompressionMode.STREAM) {
+                    jsonCompressor.restartStream();
+                }
+                jsonCompressionMode = compressionMode;
+                ByteBuffer streamed = null;
+                byte[] frame = null;
+                if (compressionMode == CompressionMode.STREAM) {
+                    // Sessions restart at keyframes so a consumer can join the stream there
+                    streamed = jsonCompressor.compressStream(payload, jsonEncoder.isLastKeyframe());
+                    formatCompressedSize = streamed.remaining();
+                } else {
+                    frame = jsonCompressor.compress(payload);
+                    formatCompressedSize = frame.length;
+                }
+                compressNanos = System.nanoTime() - encoded;
+                encodeNanos = encoded - encodeStart;
+                formatUncompressedSize = payload.length;
+                if (active && activeRecorder != null) {
+                    int flags = RecordingFormat.FLAG_JSON | recordFlags(jsonEncoder.isLastKeyframe(), jsonCompressor, compressionMode);
+                    boolean recorded = streamed != null
+                            ? activeRecorder.record(table.getTick(), System.currentTimeMillis(), streamed, flags)
+                            : activeRecorder.record(table.getTick(), System.currentTimeMillis(), frame, flags);
+                    if (!recorded) {
+                        // Dropped: the next recorded frame must not depend on it
+                        jsonEncoder.requestKeyframe();
+                    }
+                }
+                if (active && compareFormats && jsonCompressor.hasDictionary()) {
+                    sizeWithoutDictionary = jsonCompressor.compressWithoutDictionary(payload).length;
+                }
+                if (active && compareFormats) {
+                    sizeInOtherMode = otherMode == CompressionMode.STREAM
+                            ? jsonCompressor.compressStream(payload, jsonEncoder.isLastKeyframe()).remaining()
+                            : jsonCompressor.compress(payload).length;
+                }
+                if (active && compareFormats) {
+                    if (allSectionsJsonEncoder == null) {
+                        allSectionsJsonEncoder = new SnapshotJsonEncoder();
+                    }
+                    byte[] allSections = allSectionsJsonEncoder.encode(table, due).getBytes(StandardCharsets.UTF_8);
+                    allSectionsMetrics.recordPacket(jsonCompressor.compress(allSections).length, allSections.length);
+                }
+                if (active && trainDictionary) {
+                    sampleForDictionary(format, payload);
+                }
+            }
+
+            if (compareFormats) {
+                formatMetrics.get(format).recordPacket(formatCompressedSize, formatUncompressedSize);
+                if (active) {
+                    noDictionaryMetrics.recordPacket(
+                            sizeWithoutDictionary >= 0 ? sizeWithoutDictionary : formatCompressedSize,
+                            formatUncompressedSize);
+                    compressionModeMetrics.get(otherMode).recordPacket(sizeInOtherMode, formatUncompressedSize);
+                }
+            }
+            if (active) {
+                compressionModeMetrics.get(compressionMode).recordPacket(formatCompressedSize, formatUncompressedSize);
+                compressedSize = formatCompressedSize;
+                uncompressedSize = formatUncompressedSize;
+                tickMetrics.record(TickMetrics.Phase.SERIALIZE, ingestNanos + encodeNanos);
+                tickMetrics.record(TickMetrics.Phase.COMPRESS, compressNanos);
+            }
+        }
+
+        // Record packet in metrics
+        packetMetrics.recordPacket(compressedSize, uncompressedSize);
+    }
 
-        System.out.println(packetMetrics.getOneMinuteMetrics());
+    private static int recordFlags(boolean keyframe, SnapshotCompressor compressor, CompressionMode mode) {
+        return (keyframe ? RecordingFormat.FLAG_KEYFRAME : 0)
+                | (compressor.hasDictionary() ? RecordingFormat.FLAG_DICTIONARY : 0)
+                | (mode == CompressionMode.STREAM ? RecordingFormat.FLAG_STREAM : 0);
     }
 
     @Override
     public void run() {
         Configuration.load();
+        Configuration.addListener(configListener);
+        Configuration.startWatching();
+        startMetricsSinks();
+        startRecorder();
+        startSkillStore();
+        publisher = new SnapshotPublisher(this, frameQueue, publishStageMetrics, publishScheduler);
+        publisher.start();
+        try {
+            runGatherLoop();
+        } finally {
+            stopPublisher();
+            stopSkillStore();
+            stopRecorder();
+            stopMetricsSinks();
+            Configuration.removeListener(configListener);
+            Configuration.stopWatching();
+            // A training run in progress finishes on its own (daemon thread)
+            dictionaryExecutor.shutdown();
+        }
+    }
 
-        final long TICK_NANOS = 1_000_000_000L / Configuration.getPlayerHookFrequency();
-        Universe serverUniverse = Universe.get();
+    /**
+     * Runs on the configuration watcher thread. The schedulers take new rates from any thread; the
+     * rate controller is reset by the gather loop. Recorder, metrics exporters and skill store keep
+     * the settings they were started with.
+     */
+    private void onConfigurationChanged(ConfigSnapshot previous, ConfigSnapshot current) {
+        publishScheduler.setFrequency(current.snapshotPublishFrequency());
+        publishScheduler.setPolicy(current.tickCatchUpPolicy());
+        if (previous.playerHookFrequency() != current.playerHookFrequency()
+                || previous.playerHookMinFrequency() != current.playerHookMinFrequency()
+                || previous.playerHookMaxFrequency() != current.playerHookMaxFrequency()
+                || previous.tickCatchUpPolicy() != current.tickCatchUpPolicy()) {
+            gatherConfigChanged = true;
+        }
+        if (previous.snapshotRecorder() != current.snapshotRecorder()
+                || previous.metricsHttpPort() != current.metricsHttpPort()
+                || previous.metricsJsonFile() != current.metricsJsonFile()
+                || previous.skillFlushIntervalSeconds() != current.skillFlushIntervalSeconds()
+                || previous.skillMaxDirtyPlayers() != current.skillMaxDirtyPlayers()
+                || previous.playerCacheSize() != current.playerCacheSize()) {
+            LOGGER.atInfo().log("Recorder, metrics exporter and skill store settings apply after a restart");
+        }
+        LOGGER.atInfo().log("Configuration changed: gather " + current.playerHookFrequency() + " Hz ("
+                + current.playerHookMinFrequency() + "-" + current.playerHookMaxFrequency() + "), publish "
+                + current.snapshotPublishFrequency() + " Hz, " + current.tickCatchUpPolicy());
+    }
+
+    /**
+     * Start the flight recorder if enabled in the configuration (read once at startup)
+     */
+    private void startRecorder() {
+        if (!Configuration.getSnapshotRecorder()) {
+            return;
+        }
+        SnapshotRecorder created = new SnapshotRecorder(Configuration.getConfigDirectory().resolve("recordings"),
+                Configuration.getRecorderSegmentMegabytes() * MEGABYTE,
+                Configuration.getRecorderSegmentSeconds() * 1_000L,
+                (int) Configuration.getRecorderMaxSegments());
+        try {
+            created.start();
+        } catch (IOException e) {
+            created.close();
+            LOGGER.atWarning().log("Failed to start the snapshot recorder: " + e.getMessage());
+            return;
+        }
+        metricsRegistry.registerRecorder("recorder", created);
+        recorder = created;
+        LOGGER.atInfo().log("Recording snapshots to " + created.getDirectory());
+    }
 
-        while (!Thread.currentThread().isInterrupted()) {
-            long start = System.nanoTime();
+    private void stopRecorder() {
+        SnapshotRecorder current = recorder;
+        // The publisher may still be running if it did not stop in time; it skips recording once cleared
+        recorder = null;
+        if (current != null) {
+            // Closing while the publisher may still be in record() would unmap the segment under it
+            closeAfterPublisher("recorder", current::close);
+        }
+    }
 
-            // Gather player information
-            for (PlayerRef player : serverUniverse.getPlayers()) {
-                gatherPlayerInformation(serverUniverse, player);
+    /**
+     * Run {@code close} once the publisher has exited: right away if it stops within
+     * {@link #PUBLISHER_EXIT_WAIT_MILLIS}, otherwise on a daemon thread waiting for it
+     */
+    private void closeAfterPublisher(String what, Runnable close) {
+        try {
+            publisher.join(PUBLISHER_EXIT_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!publisher.isAlive()) {
+            close.run();
+            return;
+        }
+        LOGGER.atWarning().log("Snapshot publisher is still running; the " + what + " is closed once it exits");
+        SnapshotPublisher running = publisher;
+        Thread closer = new Thread(() -> {
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                return;
             }
+            close.run();
+        }, "RPG-PublisherExitClose");
+        closer.setDaemon(true);
+        closer.start();
+    }
 
-            long elapsed = System.nanoTime() - start;
-            long sleepNanos = TICK_NANOS - elapsed;
-
-            if (sleepNanos > 0) {
-                long sleepMillis = sleepNanos / 1_000_000L;
-                int sleepNanoPart = (int) (sleepNanos % 1_000_000L);
-                try {
-                    Thread.sleep(sleepMillis, sleepNanoPart);
-                } catch (InterruptedException e) {
-                    // restore interrupted status and exit loop
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            } else {
-                // We're behind schedule. Yield briefly to avoid burning CPU.
-                Thread.yield();
+    /**
+     * Start persisting skill progress (flush settings are read once at startup)
+     */
+    private void startSkillStore() {
+        SkillStore created = new SkillStore(Configuration.getConfigDirectory().resolve("skills"), skillXpEngine,
+                Configuration.getSkillFlushIntervalSeconds() * 1_000L,
+                (int) Configuration.getSkillMaxDirtyPlayers());
+        try {
+            created.start();
+        } catch (IOException e) {
+            created.close();
+            LOGGER.atWarning().log("Failed to start the skill store, progress will not be saved: " + e.getMessage());
+            return;
+        }
+        PlayerDataCache cache = new PlayerDataCache(skillXpEngine, created, (int) Configuration.getPlayerCacheSize());
+        created.setCache(cache);
+        metricsRegistry.registerSkillStore("skill_store", created);
+        metricsRegistry.registerPlayerDataCache("player_cache", cache);
+        xpAttribution.setCache(cache);
+        skillStore = created;
+        playerDataCache = cache;
+        LOGGER.atInfo().log("Saving skill progress to " + created.getDirectory());
+    }
+
+    /**
+     * Start loading a joining player's saved progress (PlayerReadyEvent, world thread)
+     */
+    public void onPlayerReady(UUID uuid) {
+        PlayerDataCache cache = playerDataCache;
+        if (cache != null && uuid != null) {
+            cache.prefetch(uuid);
+        }
+    }
+
+    /**
+     * Write everything still in memory once the publisher stopped granting XP; a publisher still
+     * running keeps attaching players through the cache until it exits
+     */
+    private void stopSkillStore() {
+        SkillStore current = skillStore;
+        PlayerDataCache cache = playerDataCache;
+        if (current == null) {
+            return;
+        }
+        closeAfterPublisher("skill store", () -> {
+            skillStore = null;
+            playerDataCache = null;
+            xpAttribution.setCache(null);
+            cache.close();
+            current.close();
+        });
+    }
+
+    private void stopPublisher() {
+        snapshotStore.setHandoff(null, null);
+        publisher.interrupt();
+        try {
+            publisher.join(1_000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Frames offered after the publisher exited (the queue has a single consumer)
+        if (!publisher.isAlive()) {
+            frameQueue.clear();
+        }
+    }
+
+    private void runGatherLoop() {
+        rateController.reset();
+        gatherScheduler.setFrequency(rateController.getEffectiveHz());
+        gatherScheduler.setPolicy(Configuration.getTickCatchUpPolicy());
+        Universe serverUniverse = Universe.get();
+
+        while (gatherScheduler.awaitNextTick()) {
+            if (gatherConfigChanged) {
+                gatherConfigChanged = false;
+                rateController.reset();
+                gatherScheduler.setFrequency(rateController.getEffectiveHz());
+                gatherScheduler.setPolicy(Configuration.getTickCatchUpPolicy());
+            } else if (rateController.update(System.nanoTime())) {
+                gatherScheduler.setFrequency(rateController.getEffectiveHz());
             }
+
+            // Gather player information
+            gatherPlayerInformation(serverUniverse, serverUniverse.getPlayers());
         }
     }
 }
-
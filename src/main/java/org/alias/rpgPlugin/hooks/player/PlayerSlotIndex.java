@@ -0,0 +1,185 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps player UUIDs to dense integer slots so per-player state can live in primitive arrays.
+ * Freed slots are reused (lowest first) to keep the used range compact.
+ *
+ * Slots are assigned and freed by a single owner thread (the one ingesting snapshot frames).
+ * {@link #slotOf(long, long)} is allocation-free but only safe on that thread;
+ * {@link #slotOf(UUID)} can be called from any thread.
+ */
+public class PlayerSlotIndex {
+
+    private static final int EMPTY = -1;
+
+    // Owner-thread open-addressing table keyed by the two UUID halves (value = slot, EMPTY when free)
+    private long[] keyMost = new long[128];
+    private long[] keyLeast = new long[128];
+    private int[] keySlot = filled(128);
+    private int size;
+
+    // Concurrent view for other threads
+    private final ConcurrentHashMap<UUID, Integer> concurrentSlots = new ConcurrentHashMap<>();
+
+    // Free slots below the high-water mark, kept sorted descending so the lowest is popped first
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private volatile int highWater;
+
+    /**
+     * Slot of a player from any thread
+     * @return The slot, or -1 if the player has none
+     */
+    public int slotOf(UUID uuid) {
+        Integer slot = concurrentSlots.get(uuid);
+        return slot != null ? slot : -1;
+    }
+
+    /**
+     * Allocation-free lookup, owner thread only
+     * @return The slot, or -1 if the player has none
+     */
+    public int slotOf(long most, long least) {
+        int mask = keySlot.length - 1;
+        for (int i = hash(most, least) & mask; keySlot[i] != EMPTY; i = (i + 1) & mask) {
+            if (keyMost[i] == most && keyLeast[i] == least) {
+                return keySlot[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the player's slot, assigning one if needed (owner thread only)
+     */
+    public int acquire(long most, long least) {
+        int existing = slotOf(most, least);
+        if (existing >= 0) {
+            return existing;
+        }
+
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = highWater;
+            highWater = slot + 1;
+        }
+
+        if ((size + 1) * 2 > keySlot.length) {
+            rehash(keySlot.length * 2);
+        }
+        insert(most, least, slot);
+        size++;
+        concurrentSlots.put(new UUID(most, least), slot);
+        return slot;
+    }
+
+    /**
+     * Free the player's slot (owner thread only)
+     * @return The freed slot, or -1 if the player had none
+     */
+    public int release(long most, long least) {
+        int mask = keySlot.length - 1;
+        int i = hash(most, least) & mask;
+        while (keySlot[i] != EMPTY) {
+            if (keyMost[i] == most && keyLeast[i] == least) {
+                int slot = keySlot[i];
+                removeAt(i);
+                size--;
+                concurrentSlots.remove(new UUID(most, least));
+                pushFree(slot);
+                return slot;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * One past the highest slot ever assigned; every slot is below this value
+     */
+    public int capacity() {
+        return highWater;
+    }
+
+    /**
+     * Number of players currently holding a slot
+     */
+    public int size() {
+        return concurrentSlots.size();
+    }
+
+    private void pushFree(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        // Insertion into a descending array keeps the lowest free slot at the end
+        int i = freeCount++;
+        while (i > 0 && freeSlots[i - 1] < slot) {
+            freeSlots[i] = freeSlots[i - 1];
+            i--;
+        }
+        freeSlots[i] = slot;
+    }
+
+    private void insert(long most, long least, int slot) {
+        int mask = keySlot.length - 1;
+        int i = hash(most, least) & mask;
+        while (keySlot[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        keyMost[i] = most;
+        keyLeast[i] = least;
+        keySlot[i] = slot;
+    }
+
+    /**
+     * Linear-probing delete: shift later entries of the probe chain back into the hole
+     */
+    private void removeAt(int hole) {
+        int mask = keySlot.length - 1;
+        int i = (hole + 1) & mask;
+        while (keySlot[i] != EMPTY) {
+            int home = hash(keyMost[i], keyLeast[i]) & mask;
+            boolean movable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (movable) {
+                keyMost[hole] = keyMost[i];
+                keyLeast[hole] = keyLeast[i];
+                keySlot[hole] = keySlot[i];
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keySlot[hole] = EMPTY;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldMost = keyMost;
+        long[] oldLeast = keyLeast;
+        int[] oldSlot = keySlot;
+        keyMost = new long[newCapacity];
+        keyLeast = new long[newCapacity];
+        keySlot = filled(newCapacity);
+        for (int i = 0; i < oldSlot.length; i++) {
+            if (oldSlot[i] != EMPTY) {
+                insert(oldMost[i], oldLeast[i], oldSlot[i]);
+            }
+        }
+    }
+
+    private static int[] filled(int capacity) {
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        return slots;
+    }
+
+    private static int hash(long most, long least) {
+        long h = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
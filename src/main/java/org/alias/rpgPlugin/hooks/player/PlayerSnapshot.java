@@ -0,0 +1,221 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import java.util.UUID;
+
+/**
+ * Plain value copy of the fields PlayerHook gathers for a single player.
+ * Holds no references to ECS components, so encoders can read it from any thread
+ * and it can be used without HytaleServer.jar on the classpath.
+ */
+public class PlayerSnapshot {
+
+    // Section presence bits (a section is absent when its component was missing)
+    public static final int SECTION_TRANSFORM = 1;
+    public static final int SECTION_VELOCITY = 1 << 1;
+    public static final int SECTION_MOVEMENT = 1 << 2;
+    public static final int SECTION_STATS = 1 << 3;
+    public static final int SECTION_DAMAGE = 1 << 4;
+
+    // Bit index of each MovementStates flag inside movementBits
+    public static final String[] MOVEMENT_STATE_NAMES = {
+            "walking", "flying", "swimJumping", "swimming", "climbing", "crouching",
+            "falling", "forcedCrouching", "gliding", "horizontalIdle", "idle", "inFluid",
+            "jumping", "mantling", "mounting", "onGround", "rolling", "running",
+            "sitting", "sleeping", "sliding", "sprinting"
+    };
+
+    // Index of each tracked stat inside stats / maxStats
+    public static final String[] STAT_NAMES = {
+            "health", "stamina", "mana", "ammo", "oxygen", "signatureEnergy"
+    };
+    public static final String[] MAX_STAT_NAMES = {
+            "maxHealth", "maxStamina", "maxMana", "maxAmmo", "maxOxygen", "maxSignatureEnergy"
+    };
+    public static final int STAT_COUNT = STAT_NAMES.length;
+
+    private long uuidMostSignificantBits;
+    private long uuidLeastSignificantBits;
+
+    private String worldName = "null";
+    private String gameMode = "null";
+
+    private int sections;
+
+    private double x;
+    private double y;
+    private double z;
+    private float pitch;
+    private float yaw;
+    private float roll;
+
+    private double velocityX;
+    private double velocityY;
+    private double velocityZ;
+
+    private int movementBits;
+
+    private final float[] stats = new float[STAT_COUNT];
+    private final float[] maxStats = new float[STAT_COUNT];
+
+    // Epoch milliseconds, -1 when the event never happened
+    private long lastDamageTime = -1L;
+    private long lastChargeTime = -1L;
+    private long lastCombatAction = -1L;
+
+    /**
+     * Reset every section so the instance can be refilled
+     */
+    public void clear() {
+        sections = 0;
+        worldName = "null";
+        gameMode = "null";
+        movementBits = 0;
+        lastDamageTime = -1L;
+        lastChargeTime = -1L;
+        lastCombatAction = -1L;
+    }
+
+    // Setters
+    public void setUuid(UUID uuid) {
+        this.uuidMostSignificantBits = uuid.getMostSignificantBits();
+        this.uuidLeastSignificantBits = uuid.getLeastSignificantBits();
+    }
+
+    public void setUuid(long mostSignificantBits, long leastSignificantBits) {
+        this.uuidMostSignificantBits = mostSignificantBits;
+        this.uuidLeastSignificantBits = leastSignificantBits;
+    }
+
+    public void setPlayerInfo(String worldName, String gameMode) {
+        this.worldName = worldName != null ? worldName : "null";
+        this.gameMode = gameMode != null ? gameMode : "null";
+    }
+
+    public void setTransform(double x, double y, double z, float pitch, float yaw, float roll) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.pitch = pitch;
+        this.yaw = yaw;
+        this.roll = roll;
+        sections |= SECTION_TRANSFORM;
+    }
+
+    public void setVelocity(double velocityX, double velocityY, double velocityZ) {
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        this.velocityZ = velocityZ;
+        sections |= SECTION_VELOCITY;
+    }
+
+    public void setMovementBits(int movementBits) {
+        this.movementBits = movementBits;
+        sections |= SECTION_MOVEMENT;
+    }
+
+    public void setStat(int index, float value, float max) {
+        stats[index] = value;
+        maxStats[index] = max;
+        sections |= SECTION_STATS;
+    }
+
+    public void setDamageData(long lastDamageTime, long lastChargeTime, long lastCombatAction) {
+        this.lastDamageTime = lastDamageTime;
+        this.lastChargeTime = lastChargeTime;
+        this.lastCombatAction = lastCombatAction;
+        sections |= SECTION_DAMAGE;
+    }
+
+    // Getters
+    public long getUuidMostSignificantBits() {
+        return uuidMostSignificantBits;
+    }
+
+    public long getUuidLeastSignificantBits() {
+        return uuidLeastSignificantBits;
+    }
+
+    public UUID getUuid() {
+        return new UUID(uuidMostSignificantBits, uuidLeastSignificantBits);
+    }
+
+    public String getWorldName() {
+        return worldName;
+    }
+
+    public String getGameMode() {
+        return gameMode;
+    }
+
+    public int getSections() {
+        return sections;
+    }
+
+    public boolean hasSection(int section) {
+        return (sections & section) != 0;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public float getPitch() {
+        return pitch;
+    }
+
+    public float getYaw() {
+        return yaw;
+    }
+
+    public float getRoll() {
+        return roll;
+    }
+
+    public double getVelocityX() {
+        return velocityX;
+    }
+
+    public double getVelocityY() {
+        return velocityY;
+    }
+
+    public double getVelocityZ() {
+        return velocityZ;
+    }
+
+    public int getMovementBits() {
+        return movementBits;
+    }
+
+    public boolean getMovementState(int bit) {
+        return (movementBits & (1 << bit)) != 0;
+    }
+
+    public float getStat(int index) {
+        return stats[index];
+    }
+
+    public float getMaxStat(int index) {
+        return maxStats[index];
+    }
+
+    public long getLastDamageTime() {
+        return lastDamageTime;
+    }
+
+    public long getLastChargeTime() {
+        return lastChargeTime;
+    }
+
+    public long getLastCombatAction() {
+        return lastCombatAction;
+    }
+}
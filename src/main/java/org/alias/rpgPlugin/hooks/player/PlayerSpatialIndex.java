@@ -0,0 +1,105 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import org.alias.rpgPlugin.spatial.SpatialGrid;
+import org.alias.rpgPlugin.spatial.SpatialVisitor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One {@link SpatialGrid} per world over the positions in a {@link PlayerStateTable}, keyed by
+ * world name and using table slots as entity ids. {@link #update} is incremental: only players
+ * that moved to another cell, changed world, joined or left touch the grid structure.
+ *
+ * Owned by the table's thread (the publish stage), like the table itself.
+ */
+public class PlayerSpatialIndex {
+
+    private final Map<String, SpatialGrid> grids = new HashMap<>();
+    // World grid each slot is indexed in, null when not indexed
+    private SpatialGrid[] slotGrid = new SpatialGrid[0];
+    private String[] slotWorld = new String[0];
+
+    /**
+     * Bring the grids in line with the table's present players
+     */
+    public void update(PlayerStateTable table) {
+        int slots = table.slotCount();
+        if (slotGrid.length < slots) {
+            slotGrid = Arrays.copyOf(slotGrid, Math.max(slots, slotGrid.length * 2));
+            slotWorld = Arrays.copyOf(slotWorld, slotGrid.length);
+        }
+        String[] worldNames = table.getWorldName();
+        int[] sections = table.getSections();
+        double[] x = table.getX();
+        double[] y = table.getY();
+        double[] z = table.getZ();
+
+        for (int slot = 0; slot < slotGrid.length; slot++) {
+            SpatialGrid current = slotGrid[slot];
+            boolean indexable = slot < slots && table.isPresent(slot)
+                    && (sections[slot] & PlayerSnapshot.SECTION_TRANSFORM) != 0;
+            if (!indexable) {
+                if (current != null) {
+                    removeFrom(current, slot);
+                }
+                continue;
+            }
+            SpatialGrid grid = current;
+            String world = worldNames[slot];
+            // The row usually holds the same String instance, so this is mostly a reference check
+            if (grid == null || !world.equals(slotWorld[slot])) {
+                if (current != null) {
+                    removeFrom(current, slot);
+                }
+                grid = grids.computeIfAbsent(world, name -> new SpatialGrid());
+                slotGrid[slot] = grid;
+                slotWorld[slot] = world;
+            }
+            grid.update(slot, x[slot], y[slot], z[slot]);
+        }
+    }
+
+    /**
+     * Take a slot out of its grid, dropping the grid once its world has no indexed players
+     */
+    private void removeFrom(SpatialGrid grid, int slot) {
+        grid.remove(slot);
+        if (grid.size() == 0) {
+            grids.remove(slotWorld[slot]);
+        }
+        slotGrid[slot] = null;
+        slotWorld[slot] = null;
+    }
+
+    /**
+     * Grid of a world, or null if no player is indexed there
+     */
+    public SpatialGrid getGrid(String worldName) {
+        return grids.get(worldName);
+    }
+
+    /**
+     * Visit the players (by table slot) within {@code radius} of a point in a world
+     * @return Number of players visited
+     */
+    public int forEachInRadius(String worldName, double x, double y, double z, double radius, SpatialVisitor visitor) {
+        SpatialGrid grid = grids.get(worldName);
+        return grid != null ? grid.forEachInRadius(x, y, z, radius, visitor) : 0;
+    }
+
+    /**
+     * Visit the players (by table slot) inside a box in a world
+     * @return Number of players visited
+     */
+    public int forEachInBox(String worldName, double minX, double minY, double minZ,
+                            double maxX, double maxY, double maxZ, SpatialVisitor visitor) {
+        SpatialGrid grid = grids.get(worldName);
+        return grid != null ? grid.forEachInBox(minX, minY, minZ, maxX, maxY, maxZ, visitor) : 0;
+    }
+
+    public int getWorldCount() {
+        return grids.size();
+    }
+}
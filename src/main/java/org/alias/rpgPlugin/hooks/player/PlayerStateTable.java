@@ -0,0 +1,440 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import java.util.Arrays;
+
+/**
+ * Columnar (structure-of-arrays) copy of the latest state of every tracked player.
+ *
+ * Each field lives in its own primitive array indexed by the player's dense slot from
+ * {@link PlayerSlotIndex}, so scans over one field (positions for serialization, stats for
+ * skill computations) walk contiguous memory without boxing or pointer chasing.
+ * Slot order is not join order; iterate {@code 0 .. slotCount()} and skip rows that are not present.
+ *
+ * Owned by a single thread (the network tick). Column arrays are replaced when the table grows,
+ * so fetch them again after every {@link #ingest} instead of caching them.
+ */
+public class PlayerStateTable {
+
+    // Players absent from this many consecutive ticks lose their slot; shorter gaps
+    // (a world skipped for a tick because its thread was busy) keep the slot stable
+    public static final int EVICT_AFTER_TICKS = 30;
+
+    private final PlayerSlotIndex index = new PlayerSlotIndex();
+    private long tick = -1L;
+    private int presentCount;
+    private int rows;
+    // Slots put this tick whose position, movement, stats or damage data changed (or that are new), in put order
+    private int[] changedSlots = new int[16];
+    private int changedCount;
+    // Players evicted by this tick's endTick (slot and UUID, as the row is cleared)
+    private int[] evictedSlots = new int[4];
+    private long[] evictedMost = new long[4];
+    private long[] evictedLeast = new long[4];
+    private int evictedCount;
+
+    // Identity and bookkeeping
+    private long[] uuidMost = new long[0];
+    private long[] uuidLeast = new long[0];
+    private long[] lastSeenTick = new long[0];
+    private boolean[] present = new boolean[0];
+    private int[] sections = new int[0];
+
+    // Player info (only changes on world or game mode switches)
+    private String[] worldName = new String[0];
+    private String[] gameMode = new String[0];
+
+    // Transform
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] z = new double[0];
+    private float[] pitch = new float[0];
+    private float[] yaw = new float[0];
+    private float[] roll = new float[0];
+
+    // Velocity
+    private double[] velocityX = new double[0];
+    private double[] velocityY = new double[0];
+    private double[] velocityZ = new double[0];
+
+    // MovementStates bitset (bit order of PlayerSnapshot.MOVEMENT_STATE_NAMES)
+    private long[] movementBits = new long[0];
+
+    // One column per stat: stats[stat][slot]
+    private final float[][] stats = new float[PlayerSnapshot.STAT_COUNT][0];
+    private final float[][] maxStats = new float[PlayerSnapshot.STAT_COUNT][0];
+
+    // Damage data (epoch millis, -1 when absent)
+    private long[] lastDamageTime = new long[0];
+    private long[] lastChargeTime = new long[0];
+    private long[] lastCombatAction = new long[0];
+
+    /**
+     * Copy every snapshot of a frame into the columns and evict players that have been gone too long.
+     * Frames older than the last ingested one are ignored.
+     */
+    public void ingest(SnapshotFrame frame) {
+        if (frame.getTick() <= tick) {
+            return;
+        }
+        beginTick(frame.getTick());
+        for (int i = 0; i < frame.size(); i++) {
+            put(frame.get(i));
+        }
+        if (frame.getHoldTicks() > 1) {
+            holdRecent(frame.getHoldTicks());
+        }
+        for (int i = 0; i < frame.getHeldWorldCount(); i++) {
+            holdWorld(frame.getHeldWorld(i));
+        }
+        endTick();
+    }
+
+    /**
+     * Start a tick; follow with {@link #put} for each player and {@link #endTick()}
+     */
+    public void beginTick(long tick) {
+        this.tick = tick;
+        Arrays.fill(present, 0, rows, false);
+        presentCount = 0;
+        changedCount = 0;
+        evictedCount = 0;
+    }
+
+    /**
+     * Copy one snapshot into its row, assigning a slot to new players
+     * @return The player's slot
+     */
+    public int put(PlayerSnapshot snapshot) {
+        long most = snapshot.getUuidMostSignificantBits();
+        long least = snapshot.getUuidLeastSignificantBits();
+        int slot = index.acquire(most, least);
+        if (slot >= rows) {
+            grow(Math.max(slot + 1, rows * 2));
+        }
+
+        if (!present[slot]) {
+            present[slot] = true;
+            presentCount++;
+        }
+        uuidMost[slot] = most;
+        uuidLeast[slot] = least;
+        lastSeenTick[slot] = tick;
+
+        // Sections missing from the snapshot keep their last known values
+        int mask = snapshot.getSections();
+        // worldName is only null for rows that held no player
+        boolean changed = worldName[slot] == null;
+        sections[slot] = mask;
+        worldName[slot] = snapshot.getWorldName();
+        gameMode[slot] = snapshot.getGameMode();
+        if ((mask & PlayerSnapshot.SECTION_TRANSFORM) != 0) {
+            changed |= x[slot] != snapshot.getX() || y[slot] != snapshot.getY() || z[slot] != snapshot.getZ();
+            x[slot] = snapshot.getX();
+            y[slot] = snapshot.getY();
+            z[slot] = snapshot.getZ();
+            pitch[slot] = snapshot.getPitch();
+            yaw[slot] = snapshot.getYaw();
+            roll[slot] = snapshot.getRoll();
+        }
+        if ((mask & PlayerSnapshot.SECTION_VELOCITY) != 0) {
+            velocityX[slot] = snapshot.getVelocityX();
+            velocityY[slot] = snapshot.getVelocityY();
+            velocityZ[slot] = snapshot.getVelocityZ();
+        }
+        if ((mask & PlayerSnapshot.SECTION_MOVEMENT) != 0) {
+            long bits = snapshot.getMovementBits() & 0xFFFFFFFFL;
+            changed |= movementBits[slot] != bits;
+            movementBits[slot] = bits;
+        }
+        if ((mask & PlayerSnapshot.SECTION_STATS) != 0) {
+            for (int i = 0; i < PlayerSnapshot.STAT_COUNT; i++) {
+                changed |= stats[i][slot] != snapshot.getStat(i);
+                stats[i][slot] = snapshot.getStat(i);
+                maxStats[i][slot] = snapshot.getMaxStat(i);
+            }
+        }
+        if ((mask & PlayerSnapshot.SECTION_DAMAGE) != 0) {
+            changed |= lastDamageTime[slot] != snapshot.getLastDamageTime()
+                    || lastChargeTime[slot] != snapshot.getLastChargeTime()
+                    || lastCombatAction[slot] != snapshot.getLastCombatAction();
+            lastDamageTime[slot] = snapshot.getLastDamageTime();
+            lastChargeTime[slot] = snapshot.getLastChargeTime();
+            lastCombatAction[slot] = snapshot.getLastCombatAction();
+        }
+        if (changed) {
+            if (changedCount == changedSlots.length) {
+                changedSlots = Arrays.copyOf(changedSlots, changedCount * 2);
+            }
+            changedSlots[changedCount++] = slot;
+        }
+        return slot;
+    }
+
+    /**
+     * Keep players seen within the last {@code holdTicks} ticks present with their last known
+     * values, for frames that only gathered a rotating subset of the players
+     */
+    public void holdRecent(int holdTicks) {
+        for (int slot = 0; slot < rows; slot++) {
+            if (!present[slot] && worldName[slot] != null && tick - lastSeenTick[slot] < holdTicks) {
+                present[slot] = true;
+                presentCount++;
+            }
+        }
+    }
+
+    /**
+     * Keep the players last seen in the given world present with their last known values, for
+     * frames that skipped the world because its thread was still collecting an earlier tick
+     */
+    public void holdWorld(String world) {
+        for (int slot = 0; slot < rows; slot++) {
+            if (!present[slot] && worldName[slot] != null && worldName[slot].equals(world)) {
+                present[slot] = true;
+                presentCount++;
+            }
+        }
+    }
+
+    /**
+     * Free the slots of players not seen for {@link #EVICT_AFTER_TICKS} ticks
+     */
+    public void endTick() {
+        for (int slot = 0; slot < rows; slot++) {
+            // worldName is only null for rows that hold no player
+            if (!present[slot] && worldName[slot] != null && tick - lastSeenTick[slot] > EVICT_AFTER_TICKS) {
+                index.release(uuidMost[slot], uuidLeast[slot]);
+                if (evictedCount == evictedSlots.length) {
+                    evictedSlots = Arrays.copyOf(evictedSlots, evictedCount * 2);
+                    evictedMost = Arrays.copyOf(evictedMost, evictedCount * 2);
+                    evictedLeast = Arrays.copyOf(evictedLeast, evictedCount * 2);
+                }
+                evictedSlots[evictedCount] = slot;
+                evictedMost[evictedCount] = uuidMost[slot];
+                evictedLeast[evictedCount] = uuidLeast[slot];
+                evictedCount++;
+                clearRow(slot);
+            }
+        }
+    }
+
+    private void clearRow(int slot) {
+        sections[slot] = 0;
+        worldName[slot] = null;
+        gameMode[slot] = null;
+        movementBits[slot] = 0L;
+        for (int i = 0; i < PlayerSnapshot.STAT_COUNT; i++) {
+            stats[i][slot] = 0f;
+            maxStats[i][slot] = 0f;
+        }
+        lastDamageTime[slot] = -1L;
+        lastChargeTime[slot] = -1L;
+        lastCombatAction[slot] = -1L;
+    }
+
+    private void grow(int newRows) {
+        uuidMost = Arrays.copyOf(uuidMost, newRows);
+        uuidLeast = Arrays.copyOf(uuidLeast, newRows);
+        lastSeenTick = Arrays.copyOf(lastSeenTick, newRows);
+        present = Arrays.copyOf(present, newRows);
+        sections = Arrays.copyOf(sections, newRows);
+        worldName = Arrays.copyOf(worldName, newRows);
+        gameMode = Arrays.copyOf(gameMode, newRows);
+        x = Arrays.copyOf(x, newRows);
+        y = Arrays.copyOf(y, newRows);
+        z = Arrays.copyOf(z, newRows);
+        pitch = Arrays.copyOf(pitch, newRows);
+        yaw = Arrays.copyOf(yaw, newRows);
+        roll = Arrays.copyOf(roll, newRows);
+        velocityX = Arrays.copyOf(velocityX, newRows);
+        velocityY = Arrays.copyOf(velocityY, newRows);
+        velocityZ = Arrays.copyOf(velocityZ, newRows);
+        movementBits = Arrays.copyOf(movementBits, newRows);
+        for (int i = 0; i < PlayerSnapshot.STAT_COUNT; i++) {
+            stats[i] = Arrays.copyOf(stats[i], newRows);
+            maxStats[i] = Arrays.copyOf(maxStats[i], newRows);
+        }
+        lastDamageTime = Arrays.copyOf(lastDamageTime, newRows);
+        lastChargeTime = Arrays.copyOf(lastChargeTime, newRows);
+        lastCombatAction = Arrays.copyOf(lastCombatAction, newRows);
+        Arrays.fill(lastDamageTime, rows, newRows, -1L);
+        Arrays.fill(lastChargeTime, rows, newRows, -1L);
+        Arrays.fill(lastCombatAction, rows, newRows, -1L);
+        rows = newRows;
+    }
+
+    /**
+     * Copy a row back into a snapshot (for encoders that work on snapshots)
+     */
+    public void copyRow(int slot, PlayerSnapshot out) {
+        out.clear();
+        out.setUuid(uuidMost[slot], uuidLeast[slot]);
+        out.setPlayerInfo(worldName[slot], gameMode[slot]);
+        int mask = sections[slot];
+        if ((mask & PlayerSnapshot.SECTION_TRANSFORM) != 0) {
+            out.setTransform(x[slot], y[slot], z[slot], pitch[slot], yaw[slot], roll[slot]);
+        }
+        if ((mask & PlayerSnapshot.SECTION_VELOCITY) != 0) {
+            out.setVelocity(velocityX[slot], velocityY[slot], velocityZ[slot]);
+        }
+        if ((mask & PlayerSnapshot.SECTION_MOVEMENT) != 0) {
+            out.setMovementBits((int) movementBits[slot]);
+        }
+        if ((mask & PlayerSnapshot.SECTION_STATS) != 0) {
+            for (int i = 0; i < PlayerSnapshot.STAT_COUNT; i++) {
+                out.setStat(i, stats[i][slot], maxStats[i][slot]);
+            }
+        }
+        if ((mask & PlayerSnapshot.SECTION_DAMAGE) != 0) {
+            out.setDamageData(lastDamageTime[slot], lastChargeTime[slot], lastCombatAction[slot]);
+        }
+    }
+
+    // Table state
+    public PlayerSlotIndex getSlotIndex() {
+        return index;
+    }
+
+    /**
+     * Tick of the last ingested frame
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Upper bound (exclusive) of the slots in use
+     */
+    public int slotCount() {
+        return index.capacity();
+    }
+
+    /**
+     * Number of players present in the last ingested frame
+     */
+    public int size() {
+        return presentCount;
+    }
+
+    /**
+     * Slots whose position, movement state, stats or damage data changed in the last ingested frame,
+     * including players that are new to the table; only the first {@link #getChangedCount()} entries
+     * are valid. Players held over from earlier ticks ({@link #holdRecent}, {@link #holdWorld}) are never listed.
+     */
+    public int[] getChangedSlots() {
+        return changedSlots;
+    }
+
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    /**
+     * Slots freed in the last ingested frame because their player was gone for
+     * {@link #EVICT_AFTER_TICKS} ticks; only the first {@link #getEvictedCount()} entries are valid,
+     * and {@link #getEvictedUuidMost()}/{@link #getEvictedUuidLeast()} hold the departed players
+     */
+    public int[] getEvictedSlots() {
+        return evictedSlots;
+    }
+
+    public long[] getEvictedUuidMost() {
+        return evictedMost;
+    }
+
+    public long[] getEvictedUuidLeast() {
+        return evictedLeast;
+    }
+
+    public int getEvictedCount() {
+        return evictedCount;
+    }
+
+    /**
+     * Whether the player in this slot was part of the last ingested frame
+     */
+    public boolean isPresent(int slot) {
+        return slot < rows && present[slot];
+    }
+
+    // Columns
+    public long[] getUuidMost() {
+        return uuidMost;
+    }
+
+    public long[] getUuidLeast() {
+        return uuidLeast;
+    }
+
+    public int[] getSections() {
+        return sections;
+    }
+
+    public String[] getWorldName() {
+        return worldName;
+    }
+
+    public String[] getGameMode() {
+        return gameMode;
+    }
+
+    public double[] getX() {
+        return x;
+    }
+
+    public double[] getY() {
+        return y;
+    }
+
+    public double[] getZ() {
+        return z;
+    }
+
+    public float[] getPitch() {
+        return pitch;
+    }
+
+    public float[] getYaw() {
+        return yaw;
+    }
+
+    public float[] getRoll() {
+        return roll;
+    }
+
+    public double[] getVelocityX() {
+        return velocityX;
+    }
+
+    public double[] getVelocityY() {
+        return velocityY;
+    }
+
+    public double[] getVelocityZ() {
+        return velocityZ;
+    }
+
+    public long[] getMovementBits() {
+        return movementBits;
+    }
+
+    public float[] getStat(int index) {
+        return stats[index];
+    }
+
+    public float[] getMaxStat(int index) {
+        return maxStats[index];
+    }
+
+    public long[] getLastDamageTime() {
+        return lastDamageTime;
+    }
+
+    public long[] getLastChargeTime() {
+        return lastChargeTime;
+    }
+
+    public long[] getLastCombatAction() {
+        return lastCombatAction;
+    }
+}
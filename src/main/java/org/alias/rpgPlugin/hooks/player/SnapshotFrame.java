@@ -0,0 +1,172 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The snapshots of every gathered player for one tick.
+ *
+ * A frame is filled by the world-thread batches of a tick (each batch owns a disjoint
+ * range of slots), published through {@link SnapshotStore} once the last batch finishes
+ * and is read-only afterwards. Readers hold a reference while they use it; when the last
+ * reference is released the frame and its snapshots go back to the store's pools.
+ */
+public class SnapshotFrame {
+
+    private final SnapshotStore store;
+    private final AtomicInteger refs = new AtomicInteger();
+    private final AtomicInteger pendingBatches = new AtomicInteger();
+
+    private long tick;
+    private long gatherStartNanos;
+    private int holdTicks;
+    private PlayerSnapshot[] snapshots = new PlayerSnapshot[64];
+    private int size;
+    // Worlds whose batch was still in flight from an earlier tick; their players are carried over
+    private String[] heldWorlds = new String[4];
+    private int heldWorldCount;
+    // Every batch finished and the snapshots are compacted
+    private volatile boolean complete;
+
+    SnapshotFrame(SnapshotStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Prepare a recycled frame for a new tick; the caller holds the only reference
+     */
+    void begin(long tick, long gatherStartNanos, int holdTicks, int capacity, int batches) {
+        this.tick = tick;
+        this.gatherStartNanos = gatherStartNanos;
+        this.holdTicks = holdTicks;
+        if (snapshots.length < capacity) {
+            snapshots = new PlayerSnapshot[Math.max(capacity, snapshots.length * 2)];
+        }
+        this.size = capacity;
+        Arrays.fill(heldWorlds, 0, heldWorldCount, null);
+        this.heldWorldCount = 0;
+        this.complete = batches == 0;
+        this.pendingBatches.set(batches);
+        this.refs.set(1);
+    }
+
+    /**
+     * Called by a world-thread batch for each slot it owns
+     */
+    void set(int slot, PlayerSnapshot snapshot) {
+        snapshots[slot] = snapshot;
+    }
+
+    /**
+     * Called once per batch (also for batches that could not be submitted).
+     * @return true when this was the last outstanding batch
+     */
+    boolean batchDone() {
+        return pendingBatches.decrementAndGet() == 0;
+    }
+
+    /**
+     * Close gaps left by batches that never ran so readers see a dense array
+     */
+    void compact() {
+        int write = 0;
+        for (int read = 0; read < size; read++) {
+            PlayerSnapshot snapshot = snapshots[read];
+            if (snapshot != null) {
+                snapshots[write++] = snapshot;
+            }
+        }
+        Arrays.fill(snapshots, write, size, null);
+        size = write;
+        complete = true;
+    }
+
+    boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Carry over the players of a world that was skipped this tick because it was still collecting
+     * an earlier one; only called while the frame is begun
+     */
+    void holdWorld(String worldName) {
+        if (heldWorldCount == heldWorlds.length) {
+            heldWorlds = Arrays.copyOf(heldWorlds, heldWorldCount * 2);
+        }
+        heldWorlds[heldWorldCount++] = worldName;
+    }
+
+    /**
+     * Take an additional reference if the frame is still live
+     */
+    boolean tryRetain() {
+        int current;
+        do {
+            current = refs.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!refs.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Drop a reference; the last one recycles the frame
+     */
+    public void release() {
+        if (refs.decrementAndGet() == 0) {
+            for (int i = 0; i < size; i++) {
+                store.recycleSnapshot(snapshots[i]);
+                snapshots[i] = null;
+            }
+            size = 0;
+            store.recycleFrame(this);
+        }
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * System.nanoTime() at which the gather of this tick started
+     */
+    public long getGatherStartNanos() {
+        return gatherStartNanos;
+    }
+
+    /**
+     * Ticks for which players missing from this frame still count as present.
+     * Greater than 1 when only a rotating subset of players was gathered.
+     */
+    public int getHoldTicks() {
+        return holdTicks;
+    }
+
+    /**
+     * Number of worlds whose players are missing from this frame only because their gather was
+     * still in flight; readers keep those players with their last known values
+     */
+    public int getHeldWorldCount() {
+        return heldWorldCount;
+    }
+
+    public String getHeldWorld(int index) {
+        return heldWorlds[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public PlayerSnapshot get(int index) {
+        return snapshots[index];
+    }
+
+    /**
+     * Backing array; only the first {@link #size()} entries are valid and it must not be modified
+     */
+    public PlayerSnapshot[] getSnapshots() {
+        return snapshots;
+    }
+}
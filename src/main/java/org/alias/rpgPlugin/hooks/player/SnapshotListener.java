@@ -0,0 +1,17 @@
+package org.alias.rpgPlugin.hooks.player;
+
+/**
+ * Receives the payloads of a {@link SnapshotSubscription}
+ */
+@FunctionalInterface
+public interface SnapshotListener {
+
+    /**
+     * Called on the publish stage thread once per network tick; hand the payload off rather than
+     * doing slow work here, every other subscriber waits meanwhile.
+     * @param tick Gather tick of the snapshot
+     * @param payload JSON array of the subscribed players, same objects as the global JSON format
+     *                with every section written
+     */
+    void onSnapshot(long tick, String payload);
+}
@@ -0,0 +1,58 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import org.alias.rpgPlugin.Configuration;
+
+/**
+ * Publish stage: takes the newest frame handed over by the gather stage and runs the network
+ * tick (ingest, encode, compress) on it at its own rate. The gather stage never waits on this
+ * thread; when it falls behind, frames are coalesced or dropped in the {@link FrameQueue}.
+ */
+class SnapshotPublisher extends Thread {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private final PlayerHook hook;
+    private final FrameQueue queue;
+    private final StageMetrics metrics;
+    private final TickScheduler scheduler;
+
+    SnapshotPublisher(PlayerHook hook, FrameQueue queue, StageMetrics metrics, TickScheduler scheduler) {
+        super("RPG-SnapshotPublisher");
+        setDaemon(true);
+        this.hook = hook;
+        this.queue = queue;
+        this.metrics = metrics;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void run() {
+        try {
+            runPublishLoop();
+        } finally {
+            queue.clear();
+        }
+    }
+
+    private void runPublishLoop() {
+        scheduler.setFrequency(Configuration.getSnapshotPublishFrequency());
+        scheduler.setPolicy(Configuration.getTickCatchUpPolicy());
+
+        while (scheduler.awaitNextTick()) {
+            // A late tick finds the frames that piled up meanwhile and coalesces them
+            SnapshotFrame frame = queue.pollLatest();
+            if (frame == null) {
+                metrics.recordIdle();
+                continue;
+            }
+            metrics.recordCoalesced(queue.getLastCoalesced());
+            metrics.recordFrame(frame.size());
+            try {
+                hook.runNetworkTick(frame);
+            } catch (RuntimeException e) {
+                LOGGER.atWarning().log("Network tick failed: " + e.getMessage());
+            }
+        }
+    }
+}
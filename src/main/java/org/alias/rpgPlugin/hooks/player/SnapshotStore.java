@@ -0,0 +1,210 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the most recent complete {@link SnapshotFrame} and swaps it atomically.
+ *
+ * Writers build the next frame off to the side and publish it with a single reference swap,
+ * so readers never see a half-written tick and never take a lock. Readers pin the frame they
+ * read with {@link #acquire()} / {@link SnapshotFrame#release()}; frames and snapshots are
+ * recycled once no reader holds them any more.
+ *
+ * Frames are published in tick order: a frame whose batches finish while an earlier tick is still
+ * being collected waits for it, so a slow world delays the ticks after it instead of having its
+ * tick dropped as stale.
+ */
+public class SnapshotStore {
+
+    private static final int MAX_POOLED_FRAMES = 8;
+    private static final int MAX_POOLED_SNAPSHOTS = 4096;
+
+    private final AtomicReference<SnapshotFrame> current = new AtomicReference<>();
+    // Frames begun but not published yet, oldest tick first (guarded by itself)
+    private final ArrayDeque<SnapshotFrame> building = new ArrayDeque<>();
+    // Optional hand-off to the publish stage; every published frame is also queued there
+    private volatile FrameQueue handoff;
+    private volatile StageMetrics handoffMetrics;
+
+    // Pools are small array stacks; world threads, the hook thread and readers all touch them briefly
+    private final SnapshotFrame[] framePool = new SnapshotFrame[MAX_POOLED_FRAMES];
+    private int pooledFrames;
+    private final PlayerSnapshot[] snapshotPool = new PlayerSnapshot[MAX_POOLED_SNAPSHOTS];
+    private int pooledSnapshots;
+
+    public SnapshotStore() {
+        SnapshotFrame empty = new SnapshotFrame(this);
+        empty.begin(-1L, System.nanoTime(), 1, 0, 0);
+        current.set(empty);
+    }
+
+    /**
+     * Pin the latest published frame. The caller must call {@link SnapshotFrame#release()}.
+     */
+    public SnapshotFrame acquire() {
+        while (true) {
+            SnapshotFrame frame = current.get();
+            if (frame.tryRetain()) {
+                if (current.get() == frame) {
+                    return frame;
+                }
+                // Swapped (and possibly recycled) between the read and the retain, try again
+                frame.release();
+            }
+        }
+    }
+
+    /**
+     * Tick of the latest published frame
+     */
+    public long getPublishedTick() {
+        return current.get().getTick();
+    }
+
+    /**
+     * Number of players in the latest published frame
+     */
+    public int getPublishedPlayerCount() {
+        return current.get().size();
+    }
+
+    /**
+     * Start building the frame of a tick. The returned frame is published automatically
+     * once {@code batches} calls to {@link #completeBatch} have been made and every earlier
+     * frame was published.
+     * @param heldWorlds Names of worlds skipped because their batch is still in flight (see {@link SnapshotFrame#getHeldWorldCount()})
+     */
+    SnapshotFrame beginFrame(long tick, long gatherStartNanos, int holdTicks, int capacity, int batches,
+                             String[] heldWorlds, int heldWorldCount) {
+        SnapshotFrame frame = pollFrame();
+        frame.begin(tick, gatherStartNanos, holdTicks, capacity, batches);
+        for (int i = 0; i < heldWorldCount; i++) {
+            frame.holdWorld(heldWorlds[i]);
+        }
+        synchronized (building) {
+            building.addLast(frame);
+        }
+        if (batches == 0) {
+            publishCompleted();
+        }
+        return frame;
+    }
+
+    /**
+     * Mark one batch of the frame as finished, publishing the frame after the last one
+     */
+    void completeBatch(SnapshotFrame frame) {
+        if (frame.batchDone()) {
+            frame.compact();
+            publishCompleted();
+        }
+    }
+
+    /**
+     * Publish the completed frames at the head of the building queue, in tick order
+     */
+    private void publishCompleted() {
+        // Publishing under the lock keeps two completing threads from swapping frames out of order
+        synchronized (building) {
+            SnapshotFrame next;
+            while ((next = building.peekFirst()) != null && next.isComplete()) {
+                building.pollFirst();
+                publish(next);
+            }
+        }
+    }
+
+    /**
+     * Also queue every published frame on the given hand-off (null to stop)
+     * @param metrics Counts queued and dropped frames, may be null
+     */
+    void setHandoff(FrameQueue queue, StageMetrics metrics) {
+        this.handoffMetrics = metrics;
+        this.handoff = queue;
+    }
+
+    /**
+     * Swap in a finished frame unless a newer tick was published first
+     */
+    private void publish(SnapshotFrame frame) {
+        FrameQueue queue = handoff;
+        // Take the hand-off's reference while the frame is certainly live
+        boolean queued = queue != null && frame.tryRetain();
+        while (true) {
+            SnapshotFrame previous = current.get();
+            if (previous.getTick() >= frame.getTick()) {
+                // A later tick finished first (slow world), this frame is stale
+                if (queued) {
+                    frame.release();
+                }
+                frame.release();
+                return;
+            }
+            if (current.compareAndSet(previous, frame)) {
+                previous.release();
+                break;
+            }
+        }
+
+        if (queued) {
+            StageMetrics metrics = handoffMetrics;
+            if (queue.offer(frame)) {
+                if (metrics != null) {
+                    metrics.recordFrame(frame.size());
+                }
+            } else {
+                // Publish stage is behind: drop instead of making the gather side wait
+                frame.release();
+                if (metrics != null) {
+                    metrics.recordDropped(1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get an empty snapshot from the pool
+     */
+    PlayerSnapshot acquireSnapshot() {
+        synchronized (snapshotPool) {
+            if (pooledSnapshots > 0) {
+                PlayerSnapshot snapshot = snapshotPool[--pooledSnapshots];
+                snapshotPool[pooledSnapshots] = null;
+                return snapshot;
+            }
+        }
+        return new PlayerSnapshot();
+    }
+
+    void recycleSnapshot(PlayerSnapshot snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        snapshot.clear();
+        synchronized (snapshotPool) {
+            if (pooledSnapshots < snapshotPool.length) {
+                snapshotPool[pooledSnapshots++] = snapshot;
+            }
+        }
+    }
+
+    private SnapshotFrame pollFrame() {
+        synchronized (framePool) {
+            if (pooledFrames > 0) {
+                SnapshotFrame frame = framePool[--pooledFrames];
+                framePool[pooledFrames] = null;
+                return frame;
+            }
+        }
+        return new SnapshotFrame(this);
+    }
+
+    void recycleFrame(SnapshotFrame frame) {
+        synchronized (framePool) {
+            if (pooledFrames < framePool.length) {
+                framePool[pooledFrames++] = frame;
+            }
+        }
+    }
+}
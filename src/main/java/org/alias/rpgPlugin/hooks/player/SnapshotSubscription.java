@@ -0,0 +1,86 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import org.alias.rpgPlugin.spatial.SpatialVisitor;
+
+/**
+ * Interest filter of one snapshot consumer: a world, optionally narrowed to the players within a
+ * radius of a point that the consumer can move. Created through {@link SnapshotSubscriptions}.
+ */
+public class SnapshotSubscription {
+
+    /**
+     * Immutable point of interest, swapped as a whole so readers never see a torn update
+     */
+    private static final class Area {
+        final double x;
+        final double y;
+        final double z;
+        final double radius;
+
+        Area(double x, double y, double z, double radius) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.radius = radius;
+        }
+    }
+
+    private final SnapshotSubscriptions owner;
+    private final String worldName;
+    private final SnapshotListener listener;
+    private volatile Area area;
+    private volatile boolean cancelled;
+
+    SnapshotSubscription(SnapshotSubscriptions owner, String worldName, SnapshotListener listener,
+                         double x, double y, double z, double radius) {
+        this.owner = owner;
+        this.worldName = worldName;
+        this.listener = listener;
+        this.area = radius > 0 ? new Area(x, y, z, radius) : null;
+    }
+
+    /**
+     * Move the point of interest (radius subscriptions only), effective from the next tick
+     */
+    public void moveTo(double x, double y, double z) {
+        Area current = area;
+        if (current != null) {
+            area = new Area(x, y, z, current.radius);
+        }
+    }
+
+    /**
+     * Stop receiving payloads
+     */
+    public void cancel() {
+        cancelled = true;
+        owner.remove(this);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * World of the subscription, null for every world
+     */
+    public String getWorldName() {
+        return worldName;
+    }
+
+    public boolean hasRadius() {
+        return area != null;
+    }
+
+    SnapshotListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Run a radius query for the current area (publish stage thread)
+     */
+    int visitArea(PlayerSpatialIndex index, SpatialVisitor visitor) {
+        Area current = area;
+        return index.forEachInRadius(worldName, current.x, current.y, current.z, current.radius, visitor);
+    }
+}
@@ -0,0 +1,243 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotJsonEncoder;
+import org.alias.rpgPlugin.spatial.SpatialVisitor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Interest-managed snapshot streams: every subscriber gets only the players of its world, or of a
+ * radius inside its world, instead of the global payload.
+ * <p>
+ * Work is shared across subscribers. Each player is encoded into a JSON segment at most once per tick
+ * (and only re-encoded when its update tier makes it due), payloads are concatenations of those
+ * segments, and subscribers of a whole world share a single payload. Segments are complete objects
+ * rather than change-detected ones so that any subscriber can use any segment.
+ * <p>
+ * {@link #subscribe} and {@link SnapshotSubscription#cancel()} may be called from any thread,
+ * {@link #publish} runs on the publish stage thread.
+ */
+public class SnapshotSubscriptions {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private final CopyOnWriteArrayList<SnapshotSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // Publish thread state: one encoded segment per table slot
+    private final SnapshotJsonEncoder encoder = new SnapshotJsonEncoder();
+    private String[] segments = new String[0];
+    private long[] segmentMost = new long[0];
+    private long[] segmentLeast = new long[0];
+    private long[] segmentTick = new long[0];
+    private final Map<String, String> worldPayloads = new HashMap<>();
+    private final StringBuilder payload = new StringBuilder();
+    private final SegmentAppender appender = new SegmentAppender();
+
+    private final LongAdder segmentsEncoded = new LongAdder();
+    private final LongAdder segmentsReused = new LongAdder();
+    private final LongAdder payloadsDelivered = new LongAdder();
+    private final LongAdder charsDelivered = new LongAdder();
+    private final LongAdder listenerFailures = new LongAdder();
+
+    /**
+     * Appends the segments of the visited slots to {@link #payload}; reused for every radius query
+     */
+    private final class SegmentAppender implements SpatialVisitor {
+        PlayerStateTable table;
+        boolean[] due;
+        boolean first;
+
+        @Override
+        public boolean visit(int id, double x, double y, double z) {
+            append(table, id, due, first);
+            first = false;
+            return true;
+        }
+    }
+
+    /**
+     * Subscribe to every player of a world
+     * @param worldName World name as reported by {@code player.getWorld().getName()}, null for every world
+     */
+    public SnapshotSubscription subscribe(String worldName, SnapshotListener listener) {
+        return add(new SnapshotSubscription(this, worldName, listener, 0.0, 0.0, 0.0, 0.0));
+    }
+
+    /**
+     * Subscribe to the players of a world within {@code radius} blocks of a point,
+     * movable later through {@link SnapshotSubscription#moveTo}
+     */
+    public SnapshotSubscription subscribe(String worldName, double x, double y, double z, double radius,
+                                          SnapshotListener listener) {
+        if (worldName == null) {
+            throw new IllegalArgumentException("A radius subscription needs a world");
+        }
+        if (!(radius > 0.0)) {
+            throw new IllegalArgumentException("Radius must be positive, got " + radius);
+        }
+        return add(new SnapshotSubscription(this, worldName, listener, x, y, z, radius));
+    }
+
+    private SnapshotSubscription add(SnapshotSubscription subscription) {
+        if (subscription.getListener() == null) {
+            throw new IllegalArgumentException("Listener must not be null");
+        }
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    void remove(SnapshotSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * Deliver the current state table to every subscriber (publish stage thread)
+     * @param due Rows due this tick by update tier, null when every row is re-encoded
+     */
+    public void publish(PlayerStateTable table, PlayerSpatialIndex index, boolean[] due) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        ensureCapacity(table.slotCount());
+        worldPayloads.clear();
+        long tick = table.getTick();
+
+        for (SnapshotSubscription subscription : subscriptions) {
+            if (subscription.isCancelled()) {
+                continue;
+            }
+            String data;
+            if (subscription.hasRadius()) {
+                payload.setLength(0);
+                payload.append('[');
+                appender.table = table;
+                appender.due = due;
+                appender.first = true;
+                subscription.visitArea(index, appender);
+                appender.table = null;
+                appender.due = null;
+                data = payload.append(']').toString();
+            } else {
+                // Whole-world (or every-world) subscribers share one payload per tick
+                String key = subscription.getWorldName() != null ? subscription.getWorldName() : "";
+                data = worldPayloads.get(key);
+                if (data == null) {
+                    data = buildWorldPayload(table, subscription.getWorldName(), due);
+                    worldPayloads.put(key, data);
+                }
+            }
+
+            try {
+                subscription.getListener().onSnapshot(tick, data);
+                payloadsDelivered.increment();
+                charsDelivered.add(data.length());
+            } catch (RuntimeException e) {
+                listenerFailures.increment();
+                LOGGER.atWarning().log("Snapshot subscriber failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private String buildWorldPayload(PlayerStateTable table, String worldName, boolean[] due) {
+        String[] worldNames = table.getWorldName();
+        payload.setLength(0);
+        payload.append('[');
+        boolean first = true;
+        for (int slot = 0, slots = table.slotCount(); slot < slots; slot++) {
+            if (!table.isPresent(slot) || (worldName != null && !worldName.equals(worldNames[slot]))) {
+                continue;
+            }
+            append(table, slot, due, first);
+            first = false;
+        }
+        return payload.append(']').toString();
+    }
+
+    private void append(PlayerStateTable table, int slot, boolean[] due, boolean first) {
+        if (!first) {
+            payload.append(',');
+        }
+        payload.append(segment(table, slot, due));
+    }
+
+    /**
+     * Encoded segment of a slot, re-encoded at most once per tick and only when the row is due
+     * or the slot now holds another player
+     */
+    private String segment(PlayerStateTable table, int slot, boolean[] due) {
+        long tick = table.getTick();
+        String segment = segments[slot];
+        long most = table.getUuidMost()[slot];
+        long least = table.getUuidLeast()[slot];
+        boolean current = segment != null && segmentMost[slot] == most && segmentLeast[slot] == least;
+        if (current && (segmentTick[slot] == tick || (due != null && !due[slot]))) {
+            segmentsReused.increment();
+            return segment;
+        }
+        segment = encoder.encodeRow(table, slot);
+        segments[slot] = segment;
+        segmentMost[slot] = most;
+        segmentLeast[slot] = least;
+        segmentTick[slot] = tick;
+        segmentsEncoded.increment();
+        return segment;
+    }
+
+    private void ensureCapacity(int slots) {
+        if (segments.length >= slots) {
+            return;
+        }
+        int newLength = Math.max(slots, segments.length * 2);
+        segments = Arrays.copyOf(segments, newLength);
+        segmentMost = Arrays.copyOf(segmentMost, newLength);
+        segmentLeast = Arrays.copyOf(segmentLeast, newLength);
+        segmentTick = Arrays.copyOf(segmentTick, newLength);
+    }
+
+    /**
+     * Cancel every subscription
+     */
+    public void clear() {
+        for (SnapshotSubscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    public long getSegmentsEncoded() {
+        return segmentsEncoded.sum();
+    }
+
+    public long getSegmentsReused() {
+        return segmentsReused.sum();
+    }
+
+    public long getPayloadsDelivered() {
+        return payloadsDelivered.sum();
+    }
+
+    public long getCharsDelivered() {
+        return charsDelivered.sum();
+    }
+
+    public long getListenerFailures() {
+        return listenerFailures.sum();
+    }
+
+    @Override
+    public String toString() {
+        long encoded = getSegmentsEncoded();
+        long reused = getSegmentsReused();
+        return String.format("%d subscribers, %d payloads, %d segments encoded, %.1f%% reused, %d failures",
+                getSubscriberCount(), getPayloadsDelivered(), encoded,
+                encoded + reused > 0 ? 100.0 * reused / (encoded + reused) : 0.0, getListenerFailures());
+    }
+}
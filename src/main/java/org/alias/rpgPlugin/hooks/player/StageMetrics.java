@@ -0,0 +1,89 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput counters of one pipeline stage (gather or publish).
+ * Counters are cumulative; rates are derived from the difference between two reads.
+ */
+public class StageMetrics {
+
+    private final String name;
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder players = new LongAdder();
+    // Frames skipped because a newer one was already waiting
+    private final LongAdder coalesced = new LongAdder();
+    // Frames discarded because the next stage was full
+    private final LongAdder dropped = new LongAdder();
+    // Ticks with nothing to do
+    private final LongAdder idle = new LongAdder();
+
+    // Last values seen by describeRates (reporting thread only)
+    private long lastReportNanos = System.nanoTime();
+    private long lastFrames;
+    private long lastPlayers;
+
+    public StageMetrics(String name) {
+        this.name = name;
+    }
+
+    public void recordFrame(int playerCount) {
+        frames.increment();
+        players.add(playerCount);
+    }
+
+    public void recordCoalesced(long count) {
+        coalesced.add(count);
+    }
+
+    public void recordDropped(long count) {
+        dropped.add(count);
+    }
+
+    public void recordIdle() {
+        idle.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getFrames() {
+        return frames.sum();
+    }
+
+    public long getPlayers() {
+        return players.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getIdle() {
+        return idle.sum();
+    }
+
+    /**
+     * Frames and players per second since the previous call, plus the cumulative loss counters
+     */
+    public String describeRates() {
+        long now = System.nanoTime();
+        long currentFrames = getFrames();
+        long currentPlayers = getPlayers();
+        double seconds = Math.max(1e-9, (now - lastReportNanos) / 1e9);
+        String description = String.format("%s: %.2f frames/s | %.1f players/s | coalesced %,d | dropped %,d | idle %,d",
+                name,
+                (currentFrames - lastFrames) / seconds,
+                (currentPlayers - lastPlayers) / seconds,
+                getCoalesced(), getDropped(), getIdle());
+        lastReportNanos = now;
+        lastFrames = currentFrames;
+        lastPlayers = currentPlayers;
+        return description;
+    }
+}
@@ -0,0 +1,99 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency of every PlayerHook tick phase, kept next to {@link PacketMetrics}.
+ * Phases are recorded from the hook thread, the network tick and the world threads.
+ */
+public class TickMetrics {
+
+    public enum Phase {
+        // Hook thread: grouping players and submitting the per-world batches
+        GATHER,
+        // Submission of a world batch until its world thread starts running it
+        QUEUE_DELAY,
+        // World thread: copying the components of one world's players
+        COLLECT,
+        // Network tick: ingest plus encoding of the active format
+        SERIALIZE,
+        // Network tick: zstd compression of the active format
+        COMPRESS,
+        // Whole network tick
+        NETWORK_TICK,
+        // How far a tick started past its deadline (only recorded for late ticks)
+        TICK_OVERRUN
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final EnumMap<Phase, WindowedLatency> latencies = new EnumMap<>(Phase.class);
+    // Samples since the last drainRecent, read by the rate controller
+    private final EnumMap<Phase, LatencyHistogram> recent = new EnumMap<>(Phase.class);
+    // Deadlines that passed without a tick starting
+    private final LongAdder missedTicks = new LongAdder();
+
+    public TickMetrics() {
+        for (Phase phase : PHASES) {
+            latencies.put(phase, new WindowedLatency());
+            recent.put(phase, new LatencyHistogram());
+        }
+    }
+
+    public void record(Phase phase, long nanos) {
+        latencies.get(phase).record(nanos);
+        recent.get(phase).record(nanos);
+    }
+
+    /**
+     * A tick started {@code overrunNanos} after its deadline, skipping {@code missed} later deadlines
+     */
+    public void recordOverrun(long overrunNanos, long missed) {
+        record(Phase.TICK_OVERRUN, overrunNanos);
+        if (missed > 0) {
+            missedTicks.add(missed);
+        }
+    }
+
+    public WindowedLatency get(Phase phase) {
+        return latencies.get(phase);
+    }
+
+    /**
+     * Percentiles of the samples recorded since the previous call for this phase.
+     * Samples recorded while draining may be lost, which is fine for a control signal.
+     */
+    public LatencyHistogram.Snapshot drainRecent(Phase phase, long periodMs) {
+        LatencyHistogram histogram = recent.get(phase);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot(periodMs);
+        histogram.reset();
+        return snapshot;
+    }
+
+    public long getMissedTicks() {
+        return missedTicks.sum();
+    }
+
+    /**
+     * 1-minute percentiles of every phase
+     */
+    public Map<Phase, LatencyHistogram.Snapshot> getOneMinute() {
+        EnumMap<Phase, LatencyHistogram.Snapshot> result = new EnumMap<>(Phase.class);
+        for (Phase phase : PHASES) {
+            result.put(phase, latencies.get(phase).getOneMinute());
+        }
+        return result;
+    }
+
+    public void reset() {
+        for (WindowedLatency latency : latencies.values()) {
+            latency.reset();
+        }
+        for (LatencyHistogram histogram : recent.values()) {
+            histogram.reset();
+        }
+        missedTicks.reset();
+    }
+}
@@ -0,0 +1,196 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-rate scheduler for a stage loop. Ticks are aligned to absolute deadlines
+ * ({@code start + n * period}) instead of sleeping for "period minus work", so sleep
+ * inaccuracy and work time do not accumulate into drift. Waiting parks the thread until
+ * shortly before the deadline and spins for the remainder, since parking alone oversleeps
+ * by up to a millisecond or more on most kernels.
+ *
+ * Only the owning loop thread calls {@link #awaitNextTick()}; the rate getters may be read
+ * from any thread.
+ */
+public class TickScheduler {
+
+    // Park until this close to the deadline, then spin
+    private static final long SPIN_NANOS = 200_000L;
+    // BURST never runs more than this many ticks late before falling back to SKIP
+    private static final long MAX_BURST_TICKS = 5L;
+    // Window of the measured rate
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+
+    private final String name;
+    // Optional sink for overruns and missed deadlines
+    private final TickMetrics tickMetrics;
+
+    private volatile long periodNanos;
+    private volatile long targetHz;
+    private volatile CatchUpPolicy policy;
+
+    // Owner thread only
+    private long nextDeadline;
+    private boolean started;
+    private long rateWindowStart;
+    private long rateWindowTicks;
+
+    private volatile double measuredHz;
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder lateTicks = new LongAdder();
+    private final LongAdder missedTicks = new LongAdder();
+
+    /**
+     * @param tickMetrics Receives overruns and missed deadlines, may be null
+     */
+    public TickScheduler(String name, long frequencyHz, CatchUpPolicy policy, TickMetrics tickMetrics) {
+        this.name = name;
+        this.tickMetrics = tickMetrics;
+        setFrequency(frequencyHz);
+        setPolicy(policy);
+    }
+
+    /**
+     * Change the target rate; takes effect after the next deadline
+     */
+    public void setFrequency(long frequencyHz) {
+        long hz = Math.max(1L, frequencyHz);
+        this.targetHz = hz;
+        this.periodNanos = 1_000_000_000L / hz;
+    }
+
+    public void setPolicy(CatchUpPolicy policy) {
+        this.policy = policy != null ? policy : CatchUpPolicy.SKIP;
+    }
+
+    /**
+     * Block until the next tick is due. The first call returns immediately and anchors the grid.
+     * @return false when the thread was interrupted while waiting
+     */
+    public boolean awaitNextTick() {
+        long period = periodNanos;
+        long now = System.nanoTime();
+        if (!started) {
+            started = true;
+            nextDeadline = now;
+            rateWindowStart = now;
+        }
+
+        long deadline = nextDeadline;
+        long late = now - deadline;
+        if (late < 0) {
+            if (!waitUntil(deadline)) {
+                return false;
+            }
+            nextDeadline = deadline + period;
+        } else {
+            // The previous tick ran past this deadline; every whole period beyond it is a missed tick
+            long missed = late / period;
+            if (late > 0) {
+                lateTicks.increment();
+            }
+            switch (policy) {
+                case BURST:
+                    if (missed <= MAX_BURST_TICKS) {
+                        // Keep the grid; the following ticks start immediately until caught up
+                        nextDeadline = deadline + period;
+                        missed = 0;
+                        break;
+                    }
+                    // Too far behind to catch up, fall through to SKIP
+                case SKIP:
+                    nextDeadline = deadline + (missed + 1) * period;
+                    break;
+                case STRETCH:
+                default:
+                    nextDeadline = now + period;
+                    break;
+            }
+            if (missed > 0) {
+                missedTicks.add(missed);
+            }
+            if (late > 0 && tickMetrics != null) {
+                tickMetrics.recordOverrun(late, missed);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+        }
+
+        countTick();
+        return true;
+    }
+
+    /**
+     * Park until shortly before the deadline, then spin
+     */
+    private static boolean waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > SPIN_NANOS) {
+            LockSupport.parkNanos(remaining - SPIN_NANOS);
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+        }
+        while (deadline - System.nanoTime() > 0) {
+            Thread.onSpinWait();
+        }
+        return true;
+    }
+
+    private void countTick() {
+        ticks.increment();
+        rateWindowTicks++;
+        long now = System.nanoTime();
+        long elapsed = now - rateWindowStart;
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            measuredHz = rateWindowTicks * 1e9 / elapsed;
+            rateWindowStart = now;
+            rateWindowTicks = 0;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getTargetHz() {
+        return targetHz;
+    }
+
+    /**
+     * Ticks per second over the last complete one second window
+     */
+    public double getMeasuredHz() {
+        return measuredHz;
+    }
+
+    public CatchUpPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getTicks() {
+        return ticks.sum();
+    }
+
+    /**
+     * Ticks that started after their deadline because the previous one overran
+     */
+    public long getLateTicks() {
+        return lateTicks.sum();
+    }
+
+    /**
+     * Deadlines dropped by SKIP or STRETCH (BURST runs them instead, up to its limit)
+     */
+    public long getMissedTicks() {
+        return missedTicks.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %.2f / %d Hz (%s) | late %,d | missed %,d",
+                name, measuredHz, targetHz, policy, getLateTicks(), getMissedTicks());
+    }
+}
@@ -0,0 +1,28 @@
+package org.alias.rpgPlugin.hooks.player;
+
+/**
+ * How often a player's row is re-emitted by the network tick
+ */
+public enum UpdateTier {
+    // Fought or took damage recently: every tick
+    COMBAT,
+    // Moving: every second tick
+    MOVING,
+    // Standing still: once per second
+    IDLE;
+
+    /**
+     * Ticks between two emissions at the given tick rate
+     */
+    public int interval(long ticksPerSecond) {
+        switch (this) {
+            case COMBAT:
+                return 1;
+            case MOVING:
+                return 2;
+            case IDLE:
+            default:
+                return (int) Math.max(1L, Math.min(ticksPerSecond, Integer.MAX_VALUE));
+        }
+    }
+}
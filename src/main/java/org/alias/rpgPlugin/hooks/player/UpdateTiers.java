@@ -0,0 +1,123 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Sorts the players of a {@link PlayerStateTable} into {@link UpdateTier}s every network tick and
+ * decides which rows are due. Each tier is emitted on its own cadence, with players spread over
+ * the ticks of the interval by slot so idle rows do not all land on the same tick. A player moving
+ * into a faster tier is due immediately.
+ *
+ * Owned by the network tick thread, like the table; the tier counts may be read from any thread.
+ */
+public class UpdateTiers {
+
+    // A combat action or damage within this window puts the player in the combat tier
+    private static final long COMBAT_WINDOW_MS = 5_000L;
+    // Below this speed (blocks per second) an idle-flagged player counts as standing still
+    private static final double IDLE_SPEED = 0.05;
+    private static final double IDLE_SPEED_SQUARED = IDLE_SPEED * IDLE_SPEED;
+    // MovementStates bits (see PlayerSnapshot.MOVEMENT_STATE_NAMES)
+    private static final long HORIZONTAL_IDLE_BIT = 1L << 9;
+    private static final long IDLE_BIT = 1L << 10;
+
+    private static final UpdateTier[] TIERS = UpdateTier.values();
+
+    private UpdateTier[] tiers = new UpdateTier[0];
+    private boolean[] due = new boolean[0];
+    private long tick;
+
+    private final int[] tierCounts = new int[TIERS.length];
+    // Copy of tierCounts for readers on other threads
+    private final AtomicIntegerArray publishedCounts = new AtomicIntegerArray(TIERS.length);
+    private volatile int lastDueCount;
+
+    /**
+     * Classify every present row and mark the rows due this tick
+     * @param nowMillis Wall clock (epoch millis), compared with the damage timestamps
+     * @param ticksPerSecond Rate of the network tick, used for the idle tier's 1 Hz cadence
+     */
+    public void evaluate(PlayerStateTable table, long nowMillis, long ticksPerSecond) {
+        int slots = table.slotCount();
+        if (tiers.length < slots) {
+            int size = Math.max(slots, tiers.length * 2);
+            tiers = Arrays.copyOf(tiers, size);
+            due = Arrays.copyOf(due, size);
+        }
+        long currentTick = tick++;
+        Arrays.fill(tierCounts, 0);
+        int dueCount = 0;
+
+        long[] movementBits = table.getMovementBits();
+        double[] velocityX = table.getVelocityX();
+        double[] velocityY = table.getVelocityY();
+        double[] velocityZ = table.getVelocityZ();
+        long[] lastDamageTime = table.getLastDamageTime();
+        long[] lastCombatAction = table.getLastCombatAction();
+
+        for (int slot = 0; slot < slots; slot++) {
+            if (!table.isPresent(slot)) {
+                tiers[slot] = null;
+                due[slot] = false;
+                continue;
+            }
+
+            UpdateTier tier;
+            long lastCombat = Math.max(lastDamageTime[slot], lastCombatAction[slot]);
+            if (lastCombat >= 0 && nowMillis - lastCombat < COMBAT_WINDOW_MS) {
+                tier = UpdateTier.COMBAT;
+            } else if ((movementBits[slot] & (IDLE_BIT | HORIZONTAL_IDLE_BIT)) != 0
+                    && velocityX[slot] * velocityX[slot] + velocityY[slot] * velocityY[slot]
+                    + velocityZ[slot] * velocityZ[slot] < IDLE_SPEED_SQUARED) {
+                tier = UpdateTier.IDLE;
+            } else {
+                tier = UpdateTier.MOVING;
+            }
+
+            UpdateTier previous = tiers[slot];
+            int interval = tier.interval(ticksPerSecond);
+            // New rows and promotions go out right away, the rest on their tier's cadence
+            boolean isDue = previous == null || tier.ordinal() < previous.ordinal()
+                    || (currentTick + slot) % interval == 0;
+            tiers[slot] = tier;
+            due[slot] = isDue;
+            tierCounts[tier.ordinal()]++;
+            if (isDue) {
+                dueCount++;
+            }
+        }
+
+        for (int i = 0; i < TIERS.length; i++) {
+            publishedCounts.set(i, tierCounts[i]);
+        }
+        lastDueCount = dueCount;
+    }
+
+    /**
+     * Rows due this tick, indexed by slot (valid until the next {@link #evaluate})
+     */
+    public boolean[] getDue() {
+        return due;
+    }
+
+    /**
+     * Players in the tier at the last evaluation
+     */
+    public int getCount(UpdateTier tier) {
+        return publishedCounts.get(tier.ordinal());
+    }
+
+    /**
+     * Rows emitted by the last evaluation
+     */
+    public int getLastDueCount() {
+        return lastDueCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("combat %d | moving %d | idle %d | due last tick %d",
+                getCount(UpdateTier.COMBAT), getCount(UpdateTier.MOVING), getCount(UpdateTier.IDLE), lastDueCount);
+    }
+}
@@ -0,0 +1,123 @@
+package org.alias.rpgPlugin.hooks.player;
+
+/**
+ * Latency percentiles over the same rolling windows as {@link PacketMetrics} (1, 5, 10 minutes)
+ * plus lifetime. Samples go into a ring of {@link LatencyHistogram}s, one per time slot,
+ * which are merged when a window is queried. Memory is fixed regardless of the sample rate.
+ */
+public class WindowedLatency {
+
+    private static final long ONE_MINUTE_MS = 60_000L;
+    private static final long FIVE_MINUTES_MS = 300_000L;
+    private static final long TEN_MINUTES_MS = 600_000L;
+
+    public static final long DEFAULT_SLOT_MS = 15_000L;
+
+    private final long slotMillis;
+    private final Slot[] slots;
+    private final LatencyHistogram lifetime = new LatencyHistogram();
+
+    private static class Slot {
+        volatile long epoch = -1L;
+        final LatencyHistogram histogram = new LatencyHistogram();
+    }
+
+    /**
+     * Percentiles of every window at once
+     */
+    public static class AllLatencies {
+        public final LatencyHistogram.Snapshot oneMinute;
+        public final LatencyHistogram.Snapshot fiveMinutes;
+        public final LatencyHistogram.Snapshot tenMinutes;
+        public final LatencyHistogram.Snapshot lifetime;
+
+        AllLatencies(LatencyHistogram.Snapshot oneMinute, LatencyHistogram.Snapshot fiveMinutes,
+                     LatencyHistogram.Snapshot tenMinutes, LatencyHistogram.Snapshot lifetime) {
+            this.oneMinute = oneMinute;
+            this.fiveMinutes = fiveMinutes;
+            this.tenMinutes = tenMinutes;
+            this.lifetime = lifetime;
+        }
+    }
+
+    public WindowedLatency() {
+        this(DEFAULT_SLOT_MS);
+    }
+
+    /**
+     * @param slotMillis Granularity of the rolling windows; windows are rounded up to whole slots
+     */
+    public WindowedLatency(long slotMillis) {
+        if (slotMillis <= 0 || slotMillis > ONE_MINUTE_MS) {
+            throw new IllegalArgumentException("Slot size must be between 1 ms and 1 minute, got " + slotMillis);
+        }
+        this.slotMillis = slotMillis;
+        this.slots = new Slot[slotsFor(TEN_MINUTES_MS) + 1];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    public void record(long nanos) {
+        long epoch = System.currentTimeMillis() / slotMillis;
+        Slot slot = slots[(int) (epoch % slots.length)];
+        if (slot.epoch != epoch) {
+            // Same rollover scheme as PacketMetrics: reset once per lap, then publish the epoch
+            synchronized (slot) {
+                if (slot.epoch != epoch) {
+                    slot.histogram.reset();
+                    slot.epoch = epoch;
+                }
+            }
+        }
+        slot.histogram.record(nanos);
+        lifetime.record(nanos);
+    }
+
+    public LatencyHistogram.Snapshot getOneMinute() {
+        return window(ONE_MINUTE_MS);
+    }
+
+    public LatencyHistogram.Snapshot getFiveMinutes() {
+        return window(FIVE_MINUTES_MS);
+    }
+
+    public LatencyHistogram.Snapshot getTenMinutes() {
+        return window(TEN_MINUTES_MS);
+    }
+
+    public LatencyHistogram.Snapshot getLifetime() {
+        return lifetime.snapshot(0L);
+    }
+
+    public AllLatencies getAll() {
+        return new AllLatencies(getOneMinute(), getFiveMinutes(), getTenMinutes(), getLifetime());
+    }
+
+    public void reset() {
+        for (Slot slot : slots) {
+            synchronized (slot) {
+                slot.epoch = -1L;
+                slot.histogram.reset();
+            }
+        }
+        lifetime.reset();
+    }
+
+    private LatencyHistogram.Snapshot window(long windowMs) {
+        long currentEpoch = System.currentTimeMillis() / slotMillis;
+        long oldestEpoch = currentEpoch - slotsFor(windowMs) + 1;
+        long[] accumulator = LatencyHistogram.newAccumulator();
+        for (Slot slot : slots) {
+            long epoch = slot.epoch;
+            if (epoch >= oldestEpoch && epoch <= currentEpoch) {
+                slot.histogram.addTo(accumulator);
+            }
+        }
+        return LatencyHistogram.toSnapshot(accumulator, windowMs);
+    }
+
+    private int slotsFor(long windowMs) {
+        return (int) ((windowMs + slotMillis - 1) / slotMillis);
+    }
+}
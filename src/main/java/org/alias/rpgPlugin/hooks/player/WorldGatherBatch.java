@@ -0,0 +1,153 @@
+package org.alias.rpgPlugin.hooks.player;
+
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * All players of one world for one gather tick, collected by a single task on that world's thread.
+ * Instances are reused across ticks. While a batch is in flight the gather loop leaves it alone,
+ * so a slow world thread gets skipped for a tick instead of accumulating queued tasks; the frames of
+ * the skipped ticks carry that world's players over. A submission that never runs (its world was
+ * unloaded with the task still queued) is cancelled by the gather loop.
+ *
+ * Each batch writes value-copied snapshots into its own range of the tick's {@link SnapshotFrame};
+ * the frame is published when the last batch of the tick completes.
+ */
+class WorldGatherBatch implements Runnable {
+
+    private final UUID worldUuid;
+    private final SnapshotStore store;
+    private final BiConsumer<PlayerRef, PlayerSnapshot> collector;
+    private final TickMetrics tickMetrics;
+
+    private PlayerRef[] players = new PlayerRef[16];
+    private int count;
+    private volatile boolean inFlight;
+    // Taken by whichever of run() and cancel() settles the current submission first
+    private final AtomicBoolean claimed = new AtomicBoolean(true);
+    // Last tick this world had players, used to prune batches of unloaded worlds
+    private long lastUsedTick;
+
+    // Target of the current submission
+    private SnapshotFrame frame;
+    private int frameOffset;
+    private long submitNanos;
+    private String worldName;
+
+    WorldGatherBatch(UUID worldUuid, SnapshotStore store, BiConsumer<PlayerRef, PlayerSnapshot> collector, TickMetrics tickMetrics) {
+        this.worldUuid = worldUuid;
+        this.store = store;
+        this.collector = collector;
+        this.tickMetrics = tickMetrics;
+    }
+
+    UUID getWorldUuid() {
+        return worldUuid;
+    }
+
+    boolean isInFlight() {
+        return inFlight;
+    }
+
+    int size() {
+        return count;
+    }
+
+    long getLastUsedTick() {
+        return lastUsedTick;
+    }
+
+    /**
+     * System.nanoTime() of the current (or last) submission
+     */
+    long getSubmitNanos() {
+        return submitNanos;
+    }
+
+    /**
+     * Name of the world at the last submission, as found in the players' snapshots
+     */
+    String getWorldName() {
+        return worldName;
+    }
+
+    /**
+     * Start a new tick; only call while the batch is not in flight
+     */
+    void reset() {
+        Arrays.fill(players, 0, count, null);
+        count = 0;
+    }
+
+    void add(PlayerRef playerRef, long tick) {
+        if (count == players.length) {
+            players = Arrays.copyOf(players, players.length * 2);
+        }
+        players[count++] = playerRef;
+        lastUsedTick = tick;
+    }
+
+    /**
+     * Assign the frame slots [offset, offset + size) to this batch and mark it as submitted
+     */
+    void prepare(SnapshotFrame frame, int offset, String worldName) {
+        this.frame = frame;
+        this.frameOffset = offset;
+        this.worldName = worldName;
+        this.submitNanos = System.nanoTime();
+        inFlight = true;
+        claimed.set(false);
+    }
+
+    /**
+     * Give up on the current submission (it could not be scheduled, or it never ran) and release the
+     * batch for the next tick. A task still queued on the world thread then does nothing.
+     * @return false if the submission is already running or finished
+     */
+    boolean cancel() {
+        if (!claimed.compareAndSet(false, true)) {
+            return false;
+        }
+        finish();
+        return true;
+    }
+
+    /**
+     * Runs on the world thread: collect every player of the batch in one pass
+     */
+    @Override
+    public void run() {
+        if (!claimed.compareAndSet(false, true)) {
+            // Cancelled before the world thread got to it
+            return;
+        }
+        long start = System.nanoTime();
+        tickMetrics.record(TickMetrics.Phase.QUEUE_DELAY, start - submitNanos);
+        try {
+            for (int i = 0; i < count; i++) {
+                PlayerSnapshot snapshot = store.acquireSnapshot();
+                try {
+                    collector.accept(players[i], snapshot);
+                    frame.set(frameOffset + i, snapshot);
+                } catch (RuntimeException e) {
+                    // Player left between grouping and collection; its slot stays empty
+                    store.recycleSnapshot(snapshot);
+                }
+            }
+        } finally {
+            tickMetrics.record(TickMetrics.Phase.COLLECT, System.nanoTime() - start);
+            finish();
+        }
+    }
+
+    private void finish() {
+        SnapshotFrame target = frame;
+        frame = null;
+        inFlight = false;
+        store.completeBatch(target);
+    }
+}
@@ -0,0 +1,27 @@
+package org.alias.rpgPlugin.hooks.player.codec;
+
+/**
+ * How each tick's payload is compressed
+ */
+public enum CompressionMode {
+    // Every payload is a self-contained zstd frame
+    BLOCK,
+    // Payloads are flushed blocks of one zstd session per stream, so later ticks can reference
+    // earlier ones; sessions restart at keyframes (see SnapshotCompressor#compressStream)
+    STREAM;
+
+    /**
+     * Parse a configuration value, falling back to BLOCK for unknown input
+     */
+    public static CompressionMode fromString(String value) {
+        if (value == null) {
+            return BLOCK;
+        }
+        for (CompressionMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value.trim())) {
+                return mode;
+            }
+        }
+        return BLOCK;
+    }
+}
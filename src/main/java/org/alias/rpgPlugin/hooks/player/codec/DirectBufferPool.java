@@ -0,0 +1,69 @@
+package org.alias.rpgPlugin.hooks.player.codec;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Small pool of direct ByteBuffers bucketed by power-of-two capacity.
+ * Direct buffers are expensive to allocate and free, so serializers keep the
+ * buffers they acquire and only go back to the pool when a frame outgrows them.
+ * Thread-safe; acquire/release are expected to be rare.
+ */
+public class DirectBufferPool {
+
+    private static final int MIN_SHIFT = 12; // 4 KB
+    private static final int MAX_SHIFT = 30; // 1 GB
+
+    private final ArrayDeque<ByteBuffer>[] buckets;
+    private final int maxPerBucket;
+
+    @SuppressWarnings("unchecked")
+    public DirectBufferPool(int maxPerBucket) {
+        this.maxPerBucket = maxPerBucket;
+        this.buckets = new ArrayDeque[MAX_SHIFT + 1];
+        for (int i = MIN_SHIFT; i <= MAX_SHIFT; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Get a cleared direct buffer with at least the requested capacity
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        int shift = shiftFor(minCapacity);
+        synchronized (buckets[shift]) {
+            ByteBuffer pooled = buckets[shift].pollFirst();
+            if (pooled != null) {
+                pooled.clear();
+                return pooled;
+            }
+        }
+        return ByteBuffer.allocateDirect(1 << shift);
+    }
+
+    /**
+     * Return a buffer obtained from {@link #acquire} to the pool
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        int shift = Integer.numberOfTrailingZeros(buffer.capacity());
+        if (shift < MIN_SHIFT || shift > MAX_SHIFT || buffer.capacity() != 1 << shift) {
+            return;
+        }
+        synchronized (buckets[shift]) {
+            if (buckets[shift].size() < maxPerBucket) {
+                buckets[shift].addFirst(buffer);
+            }
+        }
+    }
+
+    private static int shiftFor(int capacity) {
+        if (capacity > 1 << MAX_SHIFT) {
+            throw new IllegalArgumentException("Requested buffer too large: " + capacity);
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, 1) - 1);
+        return Math.max(shift, MIN_SHIFT);
+    }
+}
@@ -0,0 +1,623 @@
+package org.alias.rpgPlugin.hooks.player.codec;
+
+import org.alias.rpgPlugin.hooks.player.PlayerSnapshot;
+import org.alias.rpgPlugin.hooks.player.PlayerStateTable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of player snapshots.
+ *
+ * Frame layout:
+ * <pre>
+ *   u16 magic | u8 version | u8 flags | varlong frame number | varint player count
+ *   per player:
+ *     i64 uuid msb | i64 uuid lsb | u8 section mask | [partial] u8 mask of the sections written
+ *     [info]      utf8 world name, utf8 game mode (only when changed)
+ *     [transform] 6 x zigzag varlong (x, y, z, pitch, yaw, roll)
+ *     [velocity]  3 x zigzag varlong (x, y, z)
+ *     [movement]  varint (22 MovementStates flags XOR previous flags)
+ *     [stats]     12 x zigzag varlong (6 values, 6 maximums)
+ *     [damage]    3 x zigzag varlong (epoch millis)
+ *   varint removed count | per removed player: i64 uuid msb | i64 uuid lsb
+ * </pre>
+ * Floats are quantized to fixed point and every numeric field is written as the
+ * difference against the value last emitted for the same player. Sections whose values did not
+ * change since they were last emitted are left out (the partial bit lists the ones written) and
+ * decoded from the baseline, so decoded snapshots are always complete. Keyframes reset
+ * the baselines to zero and carry every player, replacing the consumer's player set, so a
+ * consumer can join the stream at any keyframe. Between keyframes a frame only carries the players that are due (see
+ * {@link org.alias.rpgPlugin.hooks.player.UpdateTiers}); players left out keep their last
+ * values until they show up again or are listed as removed.
+ *
+ * An instance is stateful and belongs to one stream: use one instance to encode
+ * and a separate instance to decode. The encoder reads a {@link PlayerStateTable} column by
+ * column and keeps its baselines in flat per-slot arrays, so it does not allocate once those
+ * have grown to the slot count.
+ */
+public class PlayerSnapshotCodec {
+
+    public static final int MAGIC = 0x5250; // "RP"
+    public static final int VERSION = 3;
+    public static final int FLAG_KEYFRAME = 1;
+
+    // Section mask bit for world name / game mode, the other bits match PlayerSnapshot sections
+    public static final int SECTION_INFO = 1 << 7;
+    // Section mask bit telling that only some of the player's sections follow, listed in the next byte
+    public static final int SECTION_PARTIAL = 1 << 6;
+
+    // Fixed point scales
+    public static final double POSITION_SCALE = 1024.0;  // ~1 mm
+    public static final double ROTATION_SCALE = 4096.0;  // ~0.014 degrees
+    public static final double VELOCITY_SCALE = 1024.0;
+    public static final double STAT_SCALE = 100.0;
+
+    // Baseline field offsets
+    private static final int F_POSITION = 0;
+    private static final int F_ROTATION = 3;
+    private static final int F_VELOCITY = 6;
+    private static final int F_MOVEMENT = 9;
+    private static final int F_STATS = 10;
+    private static final int F_MAX_STATS = F_STATS + PlayerSnapshot.STAT_COUNT;
+    private static final int F_DAMAGE = F_MAX_STATS + PlayerSnapshot.STAT_COUNT;
+    private static final int FIELD_COUNT = F_DAMAGE + 3;
+
+    private static final int HEADER_MAX_BYTES = 2 + 1 + 1 + 10 + 5;
+    private static final int PLAYER_FIXED_MAX_BYTES = 16 + 2 + FIELD_COUNT * 10;
+    private static final int REMOVED_MAX_BYTES = 16;
+
+    /**
+     * Last emitted (or decoded) values for one player
+     */
+    private static final class Baseline {
+        final long[] fields = new long[FIELD_COUNT];
+        String worldName;
+        String gameMode;
+    }
+
+    /**
+     * Open-addressing map from UUID bits to baseline, so lookups need no UUID instance
+     */
+    private static final class BaselineTable {
+        long[] most = new long[64];
+        long[] least = new long[64];
+        Baseline[] values = new Baseline[64];
+        int size;
+
+        Baseline get(long m, long l) {
+            int mask = values.length - 1;
+            for (int i = hash(m, l) & mask; values[i] != null; i = (i + 1) & mask) {
+                if (most[i] == m && least[i] == l) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        void put(long m, long l, Baseline baseline) {
+            if ((size + 1) * 2 > values.length) {
+                grow();
+            }
+            int mask = values.length - 1;
+            int i = hash(m, l) & mask;
+            while (values[i] != null) {
+                if (most[i] == m && least[i] == l) {
+                    values[i] = baseline;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            most[i] = m;
+            least[i] = l;
+            values[i] = baseline;
+            size++;
+        }
+
+        void remove(long m, long l) {
+            int mask = values.length - 1;
+            int i = hash(m, l) & mask;
+            while (values[i] != null && (most[i] != m || least[i] != l)) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == null) {
+                return;
+            }
+            // Backward-shift deletion keeps the probe chains intact without tombstones
+            int gap = i;
+            for (int j = (gap + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = hash(most[j], least[j]) & mask;
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    most[gap] = most[j];
+                    least[gap] = least[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            values[gap] = null;
+            size--;
+        }
+
+        void clear() {
+            if (size > 0) {
+                Arrays.fill(values, null);
+                size = 0;
+            }
+        }
+
+        private void grow() {
+            long[] oldMost = most;
+            long[] oldLeast = least;
+            Baseline[] oldValues = values;
+            most = new long[oldValues.length * 2];
+            least = new long[oldValues.length * 2];
+            values = new Baseline[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldMost[i], oldLeast[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(long m, long l) {
+            long h = (m ^ l) * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    // Decoder baselines of every player the stream has not removed
+    private final BaselineTable baselines = new BaselineTable();
+
+    // Encoder baselines, one row of FIELD_COUNT values per table slot. A row is live while the
+    // decoder holds a baseline for the player in slotMost/slotLeast; when the slot's player leaves
+    // or changes, the player is listed as removed and the row starts over.
+    private long[] slotFields = new long[0];
+    private long[] slotMost = new long[0];
+    private long[] slotLeast = new long[0];
+    private boolean[] slotLive = new boolean[0];
+    private String[] slotWorldName = new String[0];
+    private String[] slotGameMode = new String[0];
+    // Players removed in the frame being encoded
+    private long[] removedMost = new long[16];
+    private long[] removedLeast = new long[16];
+
+    // Fingerprints of the sections last emitted per slot (encoder only)
+    private final SectionChangeTracker changes = new SectionChangeTracker();
+    private boolean skipUnchangedSections = true;
+
+    private final int keyframeInterval;
+    private long frameNumber;
+    private boolean lastKeyframe;
+
+    /**
+     * @param keyframeInterval Number of frames between keyframes (1 = every frame is a keyframe)
+     */
+    public PlayerSnapshotCodec(int keyframeInterval) {
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+    }
+
+    /**
+     * Upper bound of the encoded size of a frame holding the present players of the table
+     */
+    public static int maxFrameSize(PlayerStateTable table) {
+        String[] worldNames = table.getWorldName();
+        String[] gameModes = table.getGameMode();
+        // Every slot may have to list the player it held before as removed
+        int size = HEADER_MAX_BYTES + 5 + REMOVED_MAX_BYTES * table.slotCount();
+        for (int slot = 0, slots = table.slotCount(); slot < slots; slot++) {
+            if (table.isPresent(slot)) {
+                size += PLAYER_FIXED_MAX_BYTES
+                        + 10 + 3 * worldNames[slot].length()
+                        + 3 * gameModes[slot].length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Leave sections that did not change out of encoded frames (on by default). Turned off,
+     * every section a player holds is written, for comparing frame sizes.
+     */
+    public void setSkipUnchangedSections(boolean skipUnchangedSections) {
+        this.skipUnchangedSections = skipUnchangedSections;
+    }
+
+    /**
+     * Whether the last encoded frame was a keyframe, i.e. decodable without the frames before it
+     */
+    public boolean isLastKeyframe() {
+        return lastKeyframe;
+    }
+
+    /**
+     * Force the next encoded frame to be a keyframe
+     */
+    public void requestKeyframe() {
+        frameNumber = 0;
+        baselines.clear();
+    }
+
+    /**
+     * Encode every present player of the table as one frame
+     * @return Number of bytes written
+     */
+    public int encode(PlayerStateTable table, ByteBuffer out) {
+        return encode(table, null, out);
+    }
+
+    /**
+     * Encode the present players of the table as one frame, reading the columns directly.
+     * The buffer must have at least {@link #maxFrameSize} bytes remaining.
+     * @param due Rows to emit, indexed by slot, or null for all. Keyframes and players the decoder
+     *            does not know yet are emitted regardless.
+     * @return Number of bytes written
+     */
+    public int encode(PlayerStateTable table, boolean[] due, ByteBuffer out) {
+        int start = out.position();
+        long frame = frameNumber++;
+        boolean keyframe = frame % keyframeInterval == 0;
+        lastKeyframe = keyframe;
+        int slots = table.slotCount();
+        if (slotLive.length < slots) {
+            growSlots(Math.max(slots, slotLive.length * 2));
+        }
+
+        long[] uuidMost = table.getUuidMost();
+        long[] uuidLeast = table.getUuidLeast();
+
+        // Settle which players the decoder loses and how many rows this frame carries
+        int removedCount = 0;
+        int emitCount = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            boolean present = table.isPresent(slot);
+            if (slotLive[slot] && (keyframe || !present || slotMost[slot] != uuidMost[slot] || slotLeast[slot] != uuidLeast[slot])) {
+                // A keyframe drops every baseline on the decoder side, no need to list them
+                if (!keyframe) {
+                    if (removedCount == removedMost.length) {
+                        removedMost = Arrays.copyOf(removedMost, removedCount * 2);
+                        removedLeast = Arrays.copyOf(removedLeast, removedCount * 2);
+                    }
+                    removedMost[removedCount] = slotMost[slot];
+                    removedLeast[removedCount] = slotLeast[slot];
+                    removedCount++;
+                }
+                slotLive[slot] = false;
+            }
+            if (present && (!slotLive[slot] || due == null || due[slot])) {
+                emitCount++;
+            }
+        }
+
+        out.putShort((short) MAGIC);
+        out.put((byte) VERSION);
+        out.put((byte) (keyframe ? FLAG_KEYFRAME : 0));
+        putVarLong(out, frame);
+        putVarLong(out, emitCount);
+
+        int[] sections = table.getSections();
+        String[] worldNames = table.getWorldName();
+        String[] gameModes = table.getGameMode();
+        double[] x = table.getX();
+        double[] y = table.getY();
+        double[] z = table.getZ();
+        float[] pitch = table.getPitch();
+        float[] yaw = table.getYaw();
+        float[] roll = table.getRoll();
+        double[] velocityX = table.getVelocityX();
+        double[] velocityY = table.getVelocityY();
+        double[] velocityZ = table.getVelocityZ();
+        long[] movementBits = table.getMovementBits();
+        long[] lastDamageTime = table.getLastDamageTime();
+        long[] lastChargeTime = table.getLastChargeTime();
+        long[] lastCombatAction = table.getLastCombatAction();
+
+        long[] fields = slotFields;
+        for (int slot = 0; slot < slots; slot++) {
+            if (!table.isPresent(slot) || (slotLive[slot] && due != null && !due[slot])) {
+                continue;
+            }
+            long most = uuidMost[slot];
+            long least = uuidLeast[slot];
+            int base = slot * FIELD_COUNT;
+            if (!slotLive[slot]) {
+                Arrays.fill(fields, base, base + FIELD_COUNT, 0L);
+                slotWorldName[slot] = null;
+                slotGameMode[slot] = null;
+                slotMost[slot] = most;
+                slotLeast[slot] = least;
+                slotLive[slot] = true;
+                changes.invalidate(slot);
+            }
+
+            String worldName = worldNames[slot];
+            String gameMode = gameModes[slot];
+            int mask = sections[slot];
+            int written = skipUnchangedSections ? changes.changed(table, slot, mask) : mask;
+            boolean infoChanged = !worldName.equals(slotWorldName[slot]) || !gameMode.equals(slotGameMode[slot]);
+
+            out.putLong(most);
+            out.putLong(least);
+            out.put((byte) (mask | (infoChanged ? SECTION_INFO : 0) | (written != mask ? SECTION_PARTIAL : 0)));
+            if (written != mask) {
+                out.put((byte) written);
+            }
+
+            if (infoChanged) {
+                putUtf8(out, worldName);
+                putUtf8(out, gameMode);
+                slotWorldName[slot] = worldName;
+                slotGameMode[slot] = gameMode;
+            }
+            if ((written & PlayerSnapshot.SECTION_TRANSFORM) != 0) {
+                putDelta(out, fields, base + F_POSITION, quantize(x[slot], POSITION_SCALE));
+                putDelta(out, fields, base + F_POSITION + 1, quantize(y[slot], POSITION_SCALE));
+                putDelta(out, fields, base + F_POSITION + 2, quantize(z[slot], POSITION_SCALE));
+                putDelta(out, fields, base + F_ROTATION, quantize(pitch[slot], ROTATION_SCALE));
+                putDelta(out, fields, base + F_ROTATION + 1, quantize(yaw[slot], ROTATION_SCALE));
+                putDelta(out, fields, base + F_ROTATION + 2, quantize(roll[slot], ROTATION_SCALE));
+            }
+            if ((written & PlayerSnapshot.SECTION_VELOCITY) != 0) {
+                putDelta(out, fields, base + F_VELOCITY, quantize(velocityX[slot], VELOCITY_SCALE));
+                putDelta(out, fields, base + F_VELOCITY + 1, quantize(velocityY[slot], VELOCITY_SCALE));
+                putDelta(out, fields, base + F_VELOCITY + 2, quantize(velocityZ[slot], VELOCITY_SCALE));
+            }
+            if ((written & PlayerSnapshot.SECTION_MOVEMENT) != 0) {
+                long bits = movementBits[slot];
+                putVarLong(out, bits ^ fields[base + F_MOVEMENT]);
+                fields[base + F_MOVEMENT] = bits;
+            }
+            if ((written & PlayerSnapshot.SECTION_STATS) != 0) {
+                for (int i = 0; i < PlayerSnapshot.STAT_COUNT; i++) {
+                    putDelta(out, fields, base + F_STATS + i, quantize(table.getStat(i)[slot], STAT_SCALE));
+                }
+                for (int i = 0; i < PlayerSnapshot.STAT_COUNT; i++) {
+                    putDelta(out, fields, base + F_MAX_STATS + i, quantize(table.getMaxStat(i)[slot], STAT_SCALE));
+                }
+            }
+            if ((written & PlayerSnapshot.SECTION_DAMAGE) != 0) {
+                putDelta(out, fields, base + F_DAMAGE, lastDamageTime[slot]);
+                putDelta(out, fields, base + F_DAMAGE + 1, lastChargeTime[slot]);
+                putDelta(out, fields, base + F_DAMAGE + 2, lastCombatAction[slot]);
+            }
+        }
+
+        putVarLong(out, removedCount);
+        for (int i = 0; i < removedCount; i++) {
+            out.putLong(removedMost[i]);
+            out.putLong(removedLeast[i]);
+        }
+
+        return out.position() - start;
+    }
+
+    private void growSlots(int newSlots) {
+        slotFields = Arrays.copyOf(slotFields, newSlots * FIELD_COUNT);
+        slotMost = Arrays.copyOf(slotMost, newSlots);
+        slotLeast = Arrays.copyOf(slotLeast, newSlots);
+        slotLive = Arrays.copyOf(slotLive, newSlots);
+        slotWorldName = Arrays.copyOf(slotWorldName, newSlots);
+        slotGameMode = Arrays.copyOf(slotGameMode, newSlots);
+    }
+
+    private Baseline baselineFor(long most, long least) {
+        Baseline baseline = baselines.get(most, least);
+        if (baseline == null) {
+            baseline = new Baseline();
+            baselines.put(most, least, baseline);
+        }
+        return baseline;
+    }
+
+    /**
+     * Decode one frame into freshly allocated snapshots of the players it carries.
+     * Players the frame leaves out are unchanged; the ones it removes are passed to {@code removed}
+     * if given. Intended for tooling and consumers, not for the tick thread.
+     * @return Frame number of the decoded frame
+     */
+    public long decode(ByteBuffer in, List<PlayerSnapshot> out) {
+        return decode(in, out, null);
+    }
+
+    /**
+     * @see #decode(ByteBuffer, List)
+     */
+    public long decode(ByteBuffer in, List<PlayerSnapshot> out, List<UUID> removed) {
+        int magic = in.getShort() & 0xFFFF;
+        if (magic != MAGIC) {
+            throw new IllegalArgumentException("Not a player snapshot frame (magic " + Integer.toHexString(magic) + ")");
+        }
+        int version = in.get() & 0xFF;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot frame version " + version);
+        }
+        boolean keyframe = (in.get() & FLAG_KEYFRAME) != 0;
+        long frame = getVarLong(in);
+        int count = (int) getVarLong(in);
+        if (keyframe) {
+            baselines.clear();
+        }
+
+        for (int p = 0; p < count; p++) {
+            long most = in.getLong();
+            long least = in.getLong();
+            Baseline baseline = baselineFor(most, least);
+
+            PlayerSnapshot player = new PlayerSnapshot();
+            player.setUuid(most, least);
+            decodePlayer(in, baseline, player);
+            out.add(player);
+        }
+
+        int removedCount = (int) getVarLong(in);
+        for (int i = 0; i < removedCount; i++) {
+            long most = in.getLong();
+            long least = in.getLong();
+            baselines.remove(most, least);
+            if (removed != null) {
+                removed.add(new UUID(most, least));
+            }
+        }
+        return frame;
+    }
+
+    private void decodePlayer(ByteBuffer in, Baseline baseline, PlayerSnapshot player) {
+        long[] fields = baseline.fields;
+        int mask = in.get() & 0xFF;
+        // Sections held but not written are unchanged, they come from the baseline
+        int written = (mask & SECTION_PARTIAL) != 0 ? in.get() & 0xFF : mask;
+
+        if ((mask & SECTION_INFO) != 0) {
+            baseline.worldName = getUtf8(in);
+            baseline.gameMode = getUtf8(in);
+        }
+        player.setPlayerInfo(baseline.worldName, baseline.gameMode);
+
+        if ((mask & PlayerSnapshot.SECTION_TRANSFORM) != 0) {
+            boolean changed = (written & PlayerSnapshot.SECTION_TRANSFORM) != 0;
+            player.setTransform(
+                    readField(in, fields, F_POSITION, changed) / POSITION_SCALE,
+                    readField(in, fields, F_POSITION + 1, changed) / POSITION_SCALE,
+                    readField(in, fields, F_POSITION + 2, changed) / POSITION_SCALE,
+                    (float) (readField(in, fields, F_ROTATION, changed) / ROTATION_SCALE),
+                    (float) (readField(in, fields, F_ROTATION + 1, changed) / ROTATION_SCALE),
+                    (float) (readField(in, fields, F_ROTATION + 2, changed) / ROTATION_SCALE));
+        }
+        if ((mask & PlayerSnapshot.SECTION_VELOCITY) != 0) {
+            boolean changed = (written & PlayerSnapshot.SECTION_VELOCITY) != 0;
+            player.setVelocity(
+                    readField(in, fields, F_VELOCITY, changed) / VELOCITY_SCALE,
+                    readField(in, fields, F_VELOCITY + 1, changed) / VELOCITY_SCALE,
+                    readField(in, fields, F_VELOCITY + 2, changed) / VELOCITY_SCALE);
+        }
+        if ((mask & PlayerSnapshot.SECTION_MOVEMENT) != 0) {
+            if ((written & PlayerSnapshot.SECTION_MOVEMENT) != 0) {
+                fields[F_MOVEMENT] ^= getVarLong(in);
+            }
+            player.setMovementBits((int) fields[F_MOVEMENT]);
+        }
+        if ((mask & PlayerSnapshot.SECTION_STATS) != 0) {
+            if ((written & PlayerSnapshot.SECTION_STATS) != 0) {
+                for (int i = 0; i < PlayerSnapshot.STAT_COUNT; i++) {
+                    getDelta(in, fields, F_STATS + i);
+                }
+                for (int i = 0; i < PlayerSnapshot.STAT_COUNT; i++) {
+                    getDelta(in, fields, F_MAX_STATS + i);
+                }
+            }
+            for (int i = 0; i < PlayerSnapshot.STAT_COUNT; i++) {
+                player.setStat(i,
+                        (float) (fields[F_STATS + i] / STAT_SCALE),
+                        (float) (fields[F_MAX_STATS + i] / STAT_SCALE));
+            }
+        }
+        if ((mask & PlayerSnapshot.SECTION_DAMAGE) != 0) {
+            boolean changed = (written & PlayerSnapshot.SECTION_DAMAGE) != 0;
+            player.setDamageData(
+                    readField(in, fields, F_DAMAGE, changed),
+                    readField(in, fields, F_DAMAGE + 1, changed),
+                    readField(in, fields, F_DAMAGE + 2, changed));
+        }
+    }
+
+    // --- primitives ---
+
+    static long quantize(double value, double scale) {
+        return Math.round(value * scale);
+    }
+
+    private static void putDelta(ByteBuffer out, long[] fields, int field, long value) {
+        long delta = value - fields[field];
+        putVarLong(out, (delta << 1) ^ (delta >> 63));
+        fields[field] = value;
+    }
+
+    /**
+     * Apply the next delta if the section was written, otherwise keep the baseline value
+     */
+    private static long readField(ByteBuffer in, long[] fields, int field, boolean written) {
+        return written ? getDelta(in, fields, field) : fields[field];
+    }
+
+    private static long getDelta(ByteBuffer in, long[] fields, int field) {
+        long zigzag = getVarLong(in);
+        long delta = (zigzag >>> 1) ^ -(zigzag & 1);
+        fields[field] += delta;
+        return fields[field];
+    }
+
+    static void putVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long getVarLong(ByteBuffer in) {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 63) {
+                throw new IllegalArgumentException("Malformed varint in snapshot frame");
+            }
+            b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    /**
+     * Write a varint length followed by the UTF-8 bytes, without allocating
+     */
+    static void putUtf8(ByteBuffer out, String value) {
+        int length = value.length();
+        int encoded = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                encoded += 1;
+            } else if (c < 0x800) {
+                encoded += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                encoded += 4;
+                i++;
+            } else {
+                encoded += 3;
+            }
+        }
+        putVarLong(out, encoded);
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.put((byte) (0xF0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    static String getUtf8(ByteBuffer in) {
+        int length = (int) getVarLong(in);
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,108 @@
+package org.alias.rpgPlugin.hooks.player.codec;
+
+import org.alias.rpgPlugin.hooks.player.PlayerSnapshot;
+import org.alias.rpgPlugin.hooks.player.PlayerStateTable;
+
+import java.util.Arrays;
+
+/**
+ * Per-slot, per-section fingerprints of the values an encoder last emitted, so unchanged
+ * sections can be left out of the next frame. A fingerprint mixes the raw bits of the section's
+ * primitive columns; no values are copied or boxed.
+ *
+ * Each encoder owns its tracker (the decoder side of every stream differs), on the table's thread.
+ */
+class SectionChangeTracker {
+
+    // Data sections of PlayerSnapshot, bit i of the section mask is fingerprint i
+    private static final int SECTION_COUNT = 5;
+    static final int ALL_SECTIONS = (1 << SECTION_COUNT) - 1;
+
+    private long[] fingerprints = new long[0];
+    private boolean[] valid = new boolean[0];
+
+    /**
+     * Sections of the row whose values differ from the last call for the slot (all of them after
+     * {@link #invalidate}). The new fingerprints are remembered, so call this only for rows that
+     * are emitted.
+     * @param sections Sections the row holds (PlayerSnapshot.SECTION_*)
+     * @return The changed subset of {@code sections}
+     */
+    int changed(PlayerStateTable table, int slot, int sections) {
+        if (slot >= valid.length) {
+            int size = Math.max(slot + 1, valid.length * 2);
+            fingerprints = Arrays.copyOf(fingerprints, size * SECTION_COUNT);
+            valid = Arrays.copyOf(valid, size);
+        }
+        int base = slot * SECTION_COUNT;
+        boolean known = valid[slot];
+        valid[slot] = true;
+        int changed = 0;
+        for (int section = 0; section < SECTION_COUNT; section++) {
+            int bit = 1 << section;
+            if ((sections & bit) == 0) {
+                continue;
+            }
+            long fingerprint = fingerprint(table, slot, bit);
+            if (!known || fingerprints[base + section] != fingerprint) {
+                fingerprints[base + section] = fingerprint;
+                changed |= bit;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Forget the slot, its next row counts as entirely changed
+     */
+    void invalidate(int slot) {
+        if (slot < valid.length) {
+            valid[slot] = false;
+        }
+    }
+
+    void invalidateAll() {
+        Arrays.fill(valid, false);
+    }
+
+    private static long fingerprint(PlayerStateTable table, int slot, int section) {
+        long h = section;
+        switch (section) {
+            case PlayerSnapshot.SECTION_TRANSFORM:
+                h = mix(h, Double.doubleToRawLongBits(table.getX()[slot]));
+                h = mix(h, Double.doubleToRawLongBits(table.getY()[slot]));
+                h = mix(h, Double.doubleToRawLongBits(table.getZ()[slot]));
+                h = mix(h, Float.floatToRawIntBits(table.getPitch()[slot]));
+                h = mix(h, Float.floatToRawIntBits(table.getYaw()[slot]));
+                h = mix(h, Float.floatToRawIntBits(table.getRoll()[slot]));
+                break;
+            case PlayerSnapshot.SECTION_VELOCITY:
+                h = mix(h, Double.doubleToRawLongBits(table.getVelocityX()[slot]));
+                h = mix(h, Double.doubleToRawLongBits(table.getVelocityY()[slot]));
+                h = mix(h, Double.doubleToRawLongBits(table.getVelocityZ()[slot]));
+                break;
+            case PlayerSnapshot.SECTION_MOVEMENT:
+                h = mix(h, table.getMovementBits()[slot]);
+                break;
+            case PlayerSnapshot.SECTION_STATS:
+                for (int i = 0; i < PlayerSnapshot.STAT_COUNT; i++) {
+                    h = mix(h, ((long) Float.floatToRawIntBits(table.getStat(i)[slot]) << 32)
+                            | (Float.floatToRawIntBits(table.getMaxStat(i)[slot]) & 0xFFFFFFFFL));
+                }
+                break;
+            case PlayerSnapshot.SECTION_DAMAGE:
+                h = mix(h, table.getLastDamageTime()[slot]);
+                h = mix(h, table.getLastChargeTime()[slot]);
+                h = mix(h, table.getLastCombatAction()[slot]);
+                break;
+            default:
+                break;
+        }
+        return h;
+    }
+
+    private static long mix(long h, long value) {
+        h = (h ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+}
@@ -0,0 +1,191 @@
+package org.alias.rpgPlugin.hooks.player.codec;
+
+import com.github.luben.zstd.EndDirective;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Long-lived zstd compression context for one serializer thread, optionally primed
+ * with a trained dictionary. Reusing the context avoids setting up zstd state on
+ * every tick; the dictionary lets small frames reuse the keys and values that
+ * repeat between ticks.
+ * <p>
+ * The compressor also owns the streaming session of its consumer stream ({@link #compressStream}):
+ * ticks are flushed as blocks of one long zstd frame, so each tick can reference the content of
+ * the ticks before it within the window instead of starting from scratch.
+ * Not thread-safe.
+ */
+public class SnapshotCompressor {
+
+    // Header byte in front of every streamed payload
+    public static final int STREAM_HEADER_BYTES = 1;
+    // The payload starts a new zstd session: decoders reset their context before reading it
+    public static final int STREAM_NEW_SESSION = 1;
+    // Room for block headers and the frame header of a new session on top of Zstd.compressBound
+    private static final int STREAM_OVERHEAD = 32;
+
+    private final int level;
+    private final byte[] dictionary;
+    private final ZstdCompressCtx ctx;
+    // Context without the dictionary, only created when a dictionary is used so ratios can be compared
+    private final ZstdCompressCtx plainCtx;
+    // Streaming session, created on first use with the same level and dictionary
+    private ZstdCompressCtx streamCtx;
+    private boolean streamRestart = true;
+    // Direct staging buffers for streaming heap payloads
+    private ByteBuffer streamSrc;
+    private ByteBuffer streamDst;
+    // Views of the last buffers streamed from and into, so the caller's positions stay untouched
+    // without duplicating them every tick (recreated when the caller swaps a buffer)
+    private ByteBuffer streamOut;
+    private ByteBuffer streamOutTarget;
+    private ByteBuffer streamIn;
+    private ByteBuffer streamInTarget;
+
+    /**
+     * @param level Zstd compression level
+     * @param dictionary Trained dictionary, or null to compress without one
+     */
+    public SnapshotCompressor(int level, byte[] dictionary) {
+        this.level = level;
+        this.dictionary = dictionary != null && dictionary.length > 0 ? dictionary : null;
+        this.ctx = new ZstdCompressCtx();
+        this.ctx.setLevel(level);
+        if (dictionary != null && dictionary.length > 0) {
+            this.ctx.loadDict(dictionary);
+            this.plainCtx = new ZstdCompressCtx();
+            this.plainCtx.setLevel(level);
+        } else {
+            this.plainCtx = null;
+        }
+    }
+
+    public boolean hasDictionary() {
+        return plainCtx != null;
+    }
+
+    /**
+     * Compress the first srcSize bytes of a direct buffer into a direct buffer.
+     * @return Compressed size
+     */
+    public int compress(ByteBuffer dst, ByteBuffer src, int srcSize) {
+        return ctx.compressDirectByteBuffer(dst, 0, dst.capacity(), src, 0, srcSize);
+    }
+
+    /**
+     * Same as {@link #compress(ByteBuffer, ByteBuffer, int)} but ignoring the dictionary
+     */
+    public int compressWithoutDictionary(ByteBuffer dst, ByteBuffer src, int srcSize) {
+        ZstdCompressCtx target = plainCtx != null ? plainCtx : ctx;
+        return target.compressDirectByteBuffer(dst, 0, dst.capacity(), src, 0, srcSize);
+    }
+
+    public byte[] compress(byte[] src) {
+        return ctx.compress(src);
+    }
+
+    public byte[] compressWithoutDictionary(byte[] src) {
+        return (plainCtx != null ? plainCtx : ctx).compress(src);
+    }
+
+    /**
+     * Upper bound of a streamed payload for {@code srcSize} input bytes
+     */
+    public static int streamBound(int srcSize) {
+        return (int) Zstd.compressBound(srcSize) + STREAM_HEADER_BYTES + STREAM_OVERHEAD;
+    }
+
+    /**
+     * Compress the first srcSize bytes of a direct buffer as one flushed block of the streaming session.
+     * The payload is a {@link #STREAM_HEADER_BYTES} header followed by the zstd output; it only decodes
+     * after every payload since the last one flagged {@link #STREAM_NEW_SESSION}.
+     * @param dst Direct buffer with at least {@link #streamBound} bytes of capacity
+     * @param newSession Start a new session with this payload (at keyframes, so consumers can join there)
+     * @return Payload size
+     */
+    public int compressStream(ByteBuffer dst, ByteBuffer src, int srcSize, boolean newSession) {
+        if (streamCtx == null) {
+            streamCtx = new ZstdCompressCtx();
+            configure(streamCtx);
+            newSession = true;
+        } else if (newSession || streamRestart) {
+            streamCtx.reset();
+            configure(streamCtx);
+            newSession = true;
+        }
+        streamRestart = false;
+
+        if (dst != streamOutTarget) {
+            streamOut = dst.duplicate();
+            streamOutTarget = dst;
+        }
+        if (src != streamInTarget) {
+            streamIn = src.duplicate();
+            streamInTarget = src;
+        }
+        ByteBuffer out = streamOut;
+        out.clear();
+        out.put((byte) (newSession ? STREAM_NEW_SESSION : 0));
+        ByteBuffer in = streamIn;
+        in.clear();
+        in.limit(srcSize);
+        try {
+            while (!streamCtx.compressDirectByteBufferStream(out, in, EndDirective.FLUSH)) {
+                if (!out.hasRemaining()) {
+                    throw new IllegalStateException("Stream output buffer too small (" + dst.capacity() + " bytes)");
+                }
+            }
+        } catch (RuntimeException e) {
+            // The consumer never sees this block, so the session cannot continue
+            streamRestart = true;
+            throw e;
+        }
+        return out.position();
+    }
+
+    /**
+     * {@link #compressStream(ByteBuffer, ByteBuffer, int, boolean)} for a heap payload
+     * @return The payload (position 0, limit = size), only valid until the next call
+     */
+    public ByteBuffer compressStream(byte[] src, boolean newSession) {
+        if (streamSrc == null || streamSrc.capacity() < src.length) {
+            streamSrc = ByteBuffer.allocateDirect(Math.max(src.length, streamSrc != null ? streamSrc.capacity() * 2 : 16 * 1024));
+        }
+        int bound = streamBound(src.length);
+        if (streamDst == null || streamDst.capacity() < bound) {
+            streamDst = ByteBuffer.allocateDirect(Math.max(bound, streamDst != null ? streamDst.capacity() * 2 : 16 * 1024));
+        }
+        streamSrc.clear();
+        streamSrc.put(src);
+        int size = compressStream(streamDst, streamSrc, src.length, newSession);
+        streamDst.clear();
+        streamDst.limit(size);
+        return streamDst;
+    }
+
+    /**
+     * Make the next streamed payload start a new session (e.g. after switching compression modes)
+     */
+    public void restartStream() {
+        streamRestart = true;
+    }
+
+    private void configure(ZstdCompressCtx context) {
+        context.setLevel(level);
+        if (dictionary != null) {
+            context.loadDict(dictionary);
+        }
+    }
+
+    public void close() {
+        ctx.close();
+        if (streamCtx != null) {
+            streamCtx.close();
+        }
+        if (plainCtx != null) {
+            plainCtx.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.alias.rpgPlugin.hooks.player.codec;
+
+import com.github.luben.zstd.ZstdDictTrainer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Collects uncompressed snapshot payloads and trains a zstd dictionary from them.
+ * Dictionaries are stored per format next to configuration-server.json and loaded
+ * at startup.
+ */
+public class SnapshotDictionaryTrainer {
+
+    // Total sample bytes kept for training and size of the resulting dictionary
+    private static final int SAMPLE_BUFFER_BYTES = 16 * 1024 * 1024;
+    private static final int DICTIONARY_BYTES = 112 * 1024;
+
+    private final ZstdDictTrainer trainer = new ZstdDictTrainer(SAMPLE_BUFFER_BYTES, DICTIONARY_BYTES);
+    private final int targetSamples;
+    private int samples;
+
+    /**
+     * @param targetSamples Number of payloads to collect before {@link #isReady()} returns true
+     */
+    public SnapshotDictionaryTrainer(int targetSamples) {
+        this.targetSamples = targetSamples;
+    }
+
+    /**
+     * Add one uncompressed payload
+     * @return false once enough samples are collected or the sample buffer is full
+     */
+    public boolean addSample(byte[] payload) {
+        if (isReady()) {
+            return false;
+        }
+        if (!trainer.addSample(payload)) {
+            samples = targetSamples;
+            return false;
+        }
+        samples++;
+        return true;
+    }
+
+    public boolean isReady() {
+        return samples >= targetSamples;
+    }
+
+    public int getSampleCount() {
+        return samples;
+    }
+
+    /**
+     * Train on the collected samples and write the dictionary atomically
+     * @return The dictionary bytes
+     */
+    public byte[] trainAndWrite(Path dictionaryPath) throws IOException {
+        byte[] dictionary = trainer.trainSamples();
+        Files.createDirectories(dictionaryPath.getParent());
+        Path tmp = dictionaryPath.resolveSibling(dictionaryPath.getFileName() + ".tmp");
+        Files.write(tmp, dictionary);
+        Files.move(tmp, dictionaryPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return dictionary;
+    }
+
+    /**
+     * Dictionary file for a snapshot format inside the configuration directory
+     */
+    public static Path dictionaryPath(Path configDirectory, SnapshotFormat format) {
+        return configDirectory.resolve("snapshot-" + format.name().toLowerCase() + ".zdict");
+    }
+
+    /**
+     * Load a previously trained dictionary
+     * @return The dictionary bytes, or null if none was trained yet
+     */
+    public static byte[] load(Path dictionaryPath) throws IOException {
+        if (!Files.isRegularFile(dictionaryPath)) {
+            return null;
+        }
+        return Files.readAllBytes(dictionaryPath);
+    }
+}
@@ -0,0 +1,24 @@
+package org.alias.rpgPlugin.hooks.player.codec;
+
+/**
+ * Wire formats PlayerHook can produce for a player snapshot tick
+ */
+public enum SnapshotFormat {
+    JSON,
+    BINARY;
+
+    /**
+     * Parse a configuration value, falling back to JSON for unknown input
+     */
+    public static SnapshotFormat fromString(String value) {
+        if (value == null) {
+            return JSON;
+        }
+        for (SnapshotFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value.trim())) {
+                return format;
+            }
+        }
+        return JSON;
+    }
+}
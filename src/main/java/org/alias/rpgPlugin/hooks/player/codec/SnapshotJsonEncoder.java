@@ -0,0 +1,275 @@
+package org.alias.rpgPlugin.hooks.player.codec;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import org.alias.rpgPlugin.hooks.player.PlayerSnapshot;
+import org.alias.rpgPlugin.hooks.player.PlayerStateTable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JSON encoding of player snapshots, kept for debugging and for comparing against the binary format.
+ * See PlayerSnapshotCodec for the compact encoding.
+ *
+ * When encoding from the state table, sections whose values did not change since the player's
+ * last emitted object are left out (the key is missing; an empty object still means the player
+ * has no such component). Every {@code keyframeInterval} frames all sections are written again
+ * so consumers joining late can resync.
+ */
+public class SnapshotJsonEncoder {
+
+    private final int keyframeInterval;
+    private long frameNumber;
+    private boolean lastKeyframe;
+    private final SectionChangeTracker changes = new SectionChangeTracker();
+
+    /**
+     * Encoder writing every section of every player each frame
+     */
+    public SnapshotJsonEncoder() {
+        this(1);
+    }
+
+    /**
+     * @param keyframeInterval Number of frames between frames carrying every section (1 = always)
+     */
+    public SnapshotJsonEncoder(int keyframeInterval) {
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+    }
+
+    /**
+     * Whether the last table frame carried every section of every player
+     */
+    public boolean isLastKeyframe() {
+        return lastKeyframe;
+    }
+
+    /**
+     * Force the next table frame to carry every section of every player
+     */
+    public void requestKeyframe() {
+        frameNumber = 0;
+    }
+
+    private JsonObject stringMapToJson(Map<String, String> map) {
+        JsonObject obj = new JsonObject();
+        if (map == null) return obj;
+        for (Map.Entry<String, String> e : map.entrySet()) {
+            String k = e.getKey();
+            String v = e.getValue();
+            if (v == null) obj.add(k, JsonNull.INSTANCE);
+            else obj.addProperty(k, v);
+        }
+        return obj;
+    }
+
+    private JsonObject numberMapToJson(Map<String, ? extends Number> map) {
+        JsonObject obj = new JsonObject();
+        if (map == null) return obj;
+        for (Map.Entry<String, ? extends Number> e : map.entrySet()) {
+            String k = e.getKey();
+            Number v = e.getValue();
+            if (v == null) {
+                obj.add(k, JsonNull.INSTANCE);
+            } else if (v instanceof Integer || v instanceof Long) {
+                obj.addProperty(k, v.longValue());
+            } else {
+                obj.addProperty(k, v.doubleValue());
+            }
+        }
+        return obj;
+    }
+
+    public Map<String, Integer> subSerializeMovementStates(PlayerSnapshot snapshot) {
+        Map<String, Integer> movementStates = new HashMap<>();
+        for (int bit = 0; bit < PlayerSnapshot.MOVEMENT_STATE_NAMES.length; bit++) {
+            movementStates.put(PlayerSnapshot.MOVEMENT_STATE_NAMES[bit], snapshot.getMovementState(bit) ? 1 : 0);
+        }
+        return movementStates;
+    }
+
+    public Map<String, Double> subSerializeTransformPosition(PlayerSnapshot snapshot) {
+        Map<String, Double> transformPosition = new HashMap<>();
+        transformPosition.put("x", snapshot.getX());
+        transformPosition.put("y", snapshot.getY());
+        transformPosition.put("z", snapshot.getZ());
+
+        return transformPosition;
+    }
+
+    public Map<String, Float> subSerializeRotation(PlayerSnapshot snapshot) {
+        Map<String, Float> rotationMap = new HashMap<>();
+
+        rotationMap.put("x", snapshot.getPitch());
+        rotationMap.put("y", snapshot.getYaw());
+        rotationMap.put("z", snapshot.getRoll());
+        rotationMap.put("yaw", snapshot.getYaw());
+        rotationMap.put("pitch", snapshot.getPitch());
+        rotationMap.put("roll", snapshot.getRoll());
+
+        return rotationMap;
+    }
+
+    public Map<String, Double> subSerializeVelocity(PlayerSnapshot snapshot) {
+        Map<String, Double> velocityMap = new HashMap<>();
+
+        velocityMap.put("x", snapshot.getVelocityX());
+        velocityMap.put("y", snapshot.getVelocityY());
+        velocityMap.put("z", snapshot.getVelocityZ());
+
+        return velocityMap;
+    }
+
+    public Map<String, Float> subSerializeStatMap(PlayerSnapshot snapshot) {
+        Map<String, Float> statsMap = new HashMap<>();
+        for (int i = 0; i < PlayerSnapshot.STAT_COUNT; i++) {
+            statsMap.put(PlayerSnapshot.STAT_NAMES[i], snapshot.getStat(i));
+            statsMap.put(PlayerSnapshot.MAX_STAT_NAMES[i], snapshot.getMaxStat(i));
+        }
+        return statsMap;
+    }
+
+    public Map<String, Long> subSerializeDamageData(PlayerSnapshot snapshot) {
+        Map<String, Long> damageData = new HashMap<>();
+
+        damageData.put("lastDamageTimeEpochMilli", snapshot.getLastDamageTime());
+        damageData.put("lastChargeTimeEpochMilli", snapshot.getLastChargeTime());
+        damageData.put("lastCombatActionEpochMilli", snapshot.getLastCombatAction());
+
+        return damageData;
+    }
+
+    // Row buffer for encoding from the state table (the JSON path boxes anyway)
+    private final PlayerSnapshot row = new PlayerSnapshot();
+    // Last encoded object per table slot and the player it belongs to, reused for rows that are not due
+    private JsonObject[] rowCache = new JsonObject[0];
+    private long[] rowCacheMost = new long[0];
+    private long[] rowCacheLeast = new long[0];
+    // World name and game mode last written per slot
+    private String[] rowWorldName = new String[0];
+    private String[] rowGameMode = new String[0];
+
+    /**
+     * Encode the present players of the state table as a JSON array (owner thread of the table only)
+     */
+    public String encode(PlayerStateTable table) {
+        return encode(table, null);
+    }
+
+    /**
+     * Encode the present players of the state table as a JSON array (owner thread of the table only).
+     * Every present player is listed; rows that are not due repeat the object encoded when they
+     * last were, so only due rows pay for encoding.
+     * @param due Rows to re-encode, indexed by slot, or null for all
+     */
+    public String encode(PlayerStateTable table, boolean[] due) {
+        int slots = table.slotCount();
+        if (rowCache.length < slots) {
+            int size = Math.max(slots, rowCache.length * 2);
+            rowCache = Arrays.copyOf(rowCache, size);
+            rowCacheMost = Arrays.copyOf(rowCacheMost, size);
+            rowCacheLeast = Arrays.copyOf(rowCacheLeast, size);
+            rowWorldName = Arrays.copyOf(rowWorldName, size);
+            rowGameMode = Arrays.copyOf(rowGameMode, size);
+        }
+        long[] uuidMost = table.getUuidMost();
+        long[] uuidLeast = table.getUuidLeast();
+        boolean keyframe = frameNumber++ % keyframeInterval == 0;
+        lastKeyframe = keyframe;
+
+        JsonArray playersArray = new JsonArray();
+        for (int slot = 0; slot < slots; slot++) {
+            if (!table.isPresent(slot)) {
+                rowCache[slot] = null;
+                continue;
+            }
+            JsonObject cached = rowCache[slot];
+            boolean samePlayer = cached != null
+                    && rowCacheMost[slot] == uuidMost[slot] && rowCacheLeast[slot] == uuidLeast[slot];
+            if (keyframe || !samePlayer || due == null || due[slot]) {
+                if (keyframe || !samePlayer) {
+                    changes.invalidate(slot);
+                    rowWorldName[slot] = null;
+                    rowGameMode[slot] = null;
+                }
+                table.copyRow(slot, row);
+                int written = changes.changed(table, slot, row.getSections());
+                boolean infoChanged = !row.getWorldName().equals(rowWorldName[slot])
+                        || !row.getGameMode().equals(rowGameMode[slot]);
+                rowWorldName[slot] = row.getWorldName();
+                rowGameMode[slot] = row.getGameMode();
+                cached = encodePlayer(row, written | (~row.getSections() & SectionChangeTracker.ALL_SECTIONS), infoChanged);
+                rowCache[slot] = cached;
+                rowCacheMost[slot] = uuidMost[slot];
+                rowCacheLeast[slot] = uuidLeast[slot];
+            }
+            playersArray.add(cached);
+        }
+        return playersArray.toString();
+    }
+
+    /**
+     * Encode one present row of the state table as a complete JSON object (every section),
+     * for payloads assembled from per-player segments
+     */
+    public String encodeRow(PlayerStateTable table, int slot) {
+        table.copyRow(slot, row);
+        return encodePlayer(row, SectionChangeTracker.ALL_SECTIONS, true).toString();
+    }
+
+    /**
+     * Encode the first {@code count} snapshots as a JSON array
+     */
+    public String encode(PlayerSnapshot[] players, int count) {
+        JsonArray playersArray = new JsonArray();
+
+        for (int i = 0; i < count; i++) {
+            playersArray.add(encodePlayer(players[i], SectionChangeTracker.ALL_SECTIONS, true));
+        }
+
+        // Return the JSON string for the array of players
+        return playersArray.toString();
+    }
+
+    /**
+     * @param written Sections to write (PlayerSnapshot.SECTION_*); the others are left out as unchanged
+     * @param writeInfo Whether to write the world name and game mode
+     */
+    private JsonObject encodePlayer(PlayerSnapshot snapshot, int written, boolean writeInfo) {
+        JsonObject playerJson = new JsonObject();
+        playerJson.addProperty("uuid", snapshot.getUuid().toString());
+        if (writeInfo) {
+            Map<String, String> playerInfo = new HashMap<>();
+            playerInfo.put("currentWorldName", snapshot.getWorldName());
+            playerInfo.put("currentGameMode", snapshot.getGameMode());
+            playerJson.add("playerInfo", stringMapToJson(playerInfo));
+        }
+        if ((written & PlayerSnapshot.SECTION_MOVEMENT) != 0) {
+            Map<String, Integer> movementStates = snapshot.hasSection(PlayerSnapshot.SECTION_MOVEMENT) ? subSerializeMovementStates(snapshot) : null;
+            playerJson.add("movementStates", numberMapToJson(movementStates));
+        }
+        if ((written & PlayerSnapshot.SECTION_TRANSFORM) != 0) {
+            Map<String, Double> transformPosition = snapshot.hasSection(PlayerSnapshot.SECTION_TRANSFORM) ? subSerializeTransformPosition(snapshot) : null;
+            Map<String, Float> transformRotation = snapshot.hasSection(PlayerSnapshot.SECTION_TRANSFORM) ? subSerializeRotation(snapshot) : null;
+            playerJson.add("transformPosition", numberMapToJson(transformPosition));
+            playerJson.add("transformRotation", numberMapToJson(transformRotation));
+        }
+        if ((written & PlayerSnapshot.SECTION_STATS) != 0) {
+            Map<String, Float> statMap = snapshot.hasSection(PlayerSnapshot.SECTION_STATS) ? subSerializeStatMap(snapshot) : null;
+            playerJson.add("statMap", numberMapToJson(statMap));
+        }
+        if ((written & PlayerSnapshot.SECTION_VELOCITY) != 0) {
+            Map<String, Double> velocity = snapshot.hasSection(PlayerSnapshot.SECTION_VELOCITY) ? subSerializeVelocity(snapshot) : null;
+            playerJson.add("velocity", numberMapToJson(velocity));
+        }
+        if ((written & PlayerSnapshot.SECTION_DAMAGE) != 0) {
+            Map<String, Long> damageData = snapshot.hasSection(PlayerSnapshot.SECTION_DAMAGE) ? subSerializeDamageData(snapshot) : null;
+            playerJson.add("damageData", numberMapToJson(damageData));
+        }
+
+        return playerJson;
+    }
+}
@@ -0,0 +1,191 @@
+package org.alias.rpgPlugin.hooks.player.codec;
+
+import com.github.luben.zstd.Zstd;
+import org.alias.rpgPlugin.hooks.player.PlayerStateTable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary snapshot pipeline that encodes straight into a pooled direct buffer and
+ * compresses it with a long-lived zstd context into a second pooled buffer.
+ * In steady state (buffers large enough, player set stable) a frame allocates nothing.
+ * Not thread-safe: use one instance per serializer thread.
+ */
+public class SnapshotSerializer {
+
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+
+    private final DirectBufferPool bufferPool;
+    private final PlayerSnapshotCodec codec;
+    private final SnapshotCompressor compressor;
+
+    private ByteBuffer encodeBuffer;
+    private ByteBuffer compressBuffer;
+    // Only acquired when comparison sizes (without the dictionary, other compression mode) are requested
+    private ByteBuffer comparisonBuffer;
+    private CompressionMode compressionMode = CompressionMode.BLOCK;
+    private int lastUncompressedSize;
+    private long lastEncodeNanos;
+    private long lastCompressNanos;
+
+    public SnapshotSerializer(DirectBufferPool bufferPool, int keyframeInterval, SnapshotCompressor compressor) {
+        this.bufferPool = bufferPool;
+        this.codec = new PlayerSnapshotCodec(keyframeInterval);
+        this.compressor = compressor;
+        this.encodeBuffer = bufferPool.acquire(INITIAL_CAPACITY);
+        this.compressBuffer = bufferPool.acquire((int) Zstd.compressBound(INITIAL_CAPACITY));
+    }
+
+    /**
+     * Encode and compress the present players of the table as one frame.
+     * @return The compressed frame (position 0, limit = size). Only valid until the next call.
+     */
+    public ByteBuffer serialize(PlayerStateTable table) {
+        return serialize(table, null);
+    }
+
+    /**
+     * Encode and compress the present players of the table that are due as one frame.
+     * @param due Rows to emit, indexed by slot, or null for all (see PlayerSnapshotCodec#encode)
+     * @return The compressed frame (position 0, limit = size). Only valid until the next call.
+     */
+    public ByteBuffer serialize(PlayerStateTable table, boolean[] due) {
+        long start = System.nanoTime();
+        ensureEncodeCapacity(PlayerSnapshotCodec.maxFrameSize(table));
+        encodeBuffer.clear();
+        lastUncompressedSize = codec.encode(table, due, encodeBuffer);
+        long encoded = System.nanoTime();
+
+        int compressedSize;
+        if (compressionMode == CompressionMode.STREAM) {
+            // Sessions restart at keyframes so a consumer can join the stream there
+            ensureCompressCapacity(SnapshotCompressor.streamBound(lastUncompressedSize));
+            compressedSize = compressor.compressStream(compressBuffer, encodeBuffer, lastUncompressedSize, codec.isLastKeyframe());
+        } else {
+            ensureCompressCapacity((int) Zstd.compressBound(lastUncompressedSize));
+            compressedSize = compressor.compress(compressBuffer, encodeBuffer, lastUncompressedSize);
+        }
+        lastEncodeNanos = encoded - start;
+        lastCompressNanos = System.nanoTime() - encoded;
+
+        compressBuffer.clear();
+        compressBuffer.limit(compressedSize);
+        return compressBuffer;
+    }
+
+    /**
+     * Compress the last encoded frame again without the dictionary (for ratio comparison)
+     * @return Compressed size without the dictionary
+     */
+    public int compressLastWithoutDictionary() {
+        int required = (int) Zstd.compressBound(lastUncompressedSize);
+        if (comparisonBuffer == null || comparisonBuffer.capacity() < required) {
+            bufferPool.release(comparisonBuffer);
+            comparisonBuffer = bufferPool.acquire(required);
+        }
+        return compressor.compressWithoutDictionary(comparisonBuffer, encodeBuffer, lastUncompressedSize);
+    }
+
+    /**
+     * Compress the last encoded frame again in another mode (for size comparison). Streaming keeps
+     * a session of its own going across calls, so the comparison is only meaningful when it runs
+     * every tick.
+     * @return Compressed size in that mode
+     */
+    public int compressLastInMode(CompressionMode mode) {
+        int required = SnapshotCompressor.streamBound(lastUncompressedSize);
+        if (comparisonBuffer == null || comparisonBuffer.capacity() < required) {
+            bufferPool.release(comparisonBuffer);
+            comparisonBuffer = bufferPool.acquire(required);
+        }
+        if (mode == CompressionMode.STREAM) {
+            return compressor.compressStream(comparisonBuffer, encodeBuffer, lastUncompressedSize, codec.isLastKeyframe());
+        }
+        return compressor.compress(comparisonBuffer, encodeBuffer, lastUncompressedSize);
+    }
+
+    /**
+     * Switch how frames are compressed; switching to STREAM starts a new session
+     */
+    public void setCompressionMode(CompressionMode mode) {
+        if (mode != compressionMode && mode == CompressionMode.STREAM) {
+            compressor.restartStream();
+        }
+        compressionMode = mode;
+    }
+
+    public CompressionMode getCompressionMode() {
+        return compressionMode;
+    }
+
+    /**
+     * Copy of the last encoded (uncompressed) frame, used as a dictionary training sample
+     */
+    public byte[] copyLastEncoded() {
+        byte[] copy = new byte[lastUncompressedSize];
+        encodeBuffer.get(0, copy, 0, lastUncompressedSize);
+        return copy;
+    }
+
+    /**
+     * Size of the last frame before compression
+     */
+    public int getLastUncompressedSize() {
+        return lastUncompressedSize;
+    }
+
+    /**
+     * Time spent encoding the last frame
+     */
+    public long getLastEncodeNanos() {
+        return lastEncodeNanos;
+    }
+
+    /**
+     * Time spent compressing the last frame
+     */
+    public long getLastCompressNanos() {
+        return lastCompressNanos;
+    }
+
+    /**
+     * Whether the last frame was a keyframe
+     */
+    public boolean isLastKeyframe() {
+        return codec.isLastKeyframe();
+    }
+
+    public PlayerSnapshotCodec getCodec() {
+        return codec;
+    }
+
+    public SnapshotCompressor getCompressor() {
+        return compressor;
+    }
+
+    /**
+     * Return the pooled buffers; the serializer must not be used afterwards
+     */
+    public void close() {
+        bufferPool.release(encodeBuffer);
+        bufferPool.release(compressBuffer);
+        bufferPool.release(comparisonBuffer);
+        encodeBuffer = null;
+        compressBuffer = null;
+        comparisonBuffer = null;
+    }
+
+    private void ensureEncodeCapacity(int required) {
+        if (encodeBuffer.capacity() < required) {
+            bufferPool.release(encodeBuffer);
+            encodeBuffer = bufferPool.acquire(required);
+        }
+    }
+
+    private void ensureCompressCapacity(int required) {
+        if (compressBuffer.capacity() < required) {
+            bufferPool.release(compressBuffer);
+            compressBuffer = bufferPool.acquire(required);
+        }
+    }
+}
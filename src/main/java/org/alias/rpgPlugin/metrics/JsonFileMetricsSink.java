@@ -0,0 +1,105 @@
+package org.alias.rpgPlugin.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.hypixel.hytale.logger.HytaleLogger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically writes the registry to a JSON file for dashboards that tail files.
+ * The file is replaced atomically, so readers never see a partial document.
+ */
+public class JsonFileMetricsSink implements MetricsSink {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private final MetricsRegistry registry;
+    private final Path path;
+    private final long intervalSeconds;
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().serializeSpecialFloatingPointValues().create();
+    private ScheduledExecutorService scheduler;
+
+    public JsonFileMetricsSink(MetricsRegistry registry, Path path, long intervalSeconds) {
+        this.registry = registry;
+        this.path = path;
+        this.intervalSeconds = Math.max(1L, intervalSeconds);
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "RPG-MetricsJson");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::writeQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.atWarning().log("Failed to write metrics to " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the current values now
+     */
+    public void write() throws IOException {
+        String json = gson.toJson(toJson(registry.collect()));
+        Files.createDirectories(path.getParent());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(tmp, json, StandardCharsets.UTF_8);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static JsonObject toJson(List<MetricsRegistry.Family> families) {
+        JsonObject root = new JsonObject();
+        root.addProperty("timestamp", System.currentTimeMillis());
+        JsonArray metrics = new JsonArray();
+        for (MetricsRegistry.Family family : families) {
+            JsonObject metric = new JsonObject();
+            metric.addProperty("name", family.name);
+            metric.addProperty("type", family.type.name().toLowerCase(Locale.ROOT));
+            metric.addProperty("help", family.help);
+            JsonArray samples = new JsonArray();
+            for (MetricsRegistry.Sample sample : family.samples) {
+                JsonObject entry = new JsonObject();
+                if (sample.labels.length > 0) {
+                    JsonObject labels = new JsonObject();
+                    for (int i = 0; i + 1 < sample.labels.length; i += 2) {
+                        labels.addProperty(sample.labels[i], sample.labels[i + 1]);
+                    }
+                    entry.add("labels", labels);
+                }
+                entry.addProperty("value", sample.value);
+                samples.add(entry);
+            }
+            metric.add("samples", samples);
+            metrics.add(metric);
+        }
+        root.add("metrics", metrics);
+        return root;
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
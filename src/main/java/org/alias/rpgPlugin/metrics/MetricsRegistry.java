@@ -0,0 +1,297 @@
+package org.alias.rpgPlugin.metrics;
+
+import org.alias.rpgPlugin.hooks.player.LatencyHistogram;
+import org.alias.rpgPlugin.hooks.player.PacketMetrics;
+import org.alias.rpgPlugin.hooks.player.StageMetrics;
+import org.alias.rpgPlugin.hooks.player.TickMetrics;
+import org.alias.rpgPlugin.hooks.player.TickScheduler;
+import org.alias.rpgPlugin.hooks.player.UpdateTier;
+import org.alias.rpgPlugin.hooks.player.UpdateTiers;
+import org.alias.rpgPlugin.recorder.SnapshotRecorder;
+import org.alias.rpgPlugin.skilltable.PlayerDataCache;
+import org.alias.rpgPlugin.skilltable.SkillStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Named view over the plugin's metric sources (PacketMetrics, TickMetrics, StageMetrics, gauges).
+ * Nothing is computed on the tick path: sources are only read when an exporter
+ * calls {@link #collect()}, so the cost of formatting is paid per scrape instead of per tick.
+ */
+public class MetricsRegistry {
+
+    public enum Type {
+        COUNTER, GAUGE
+    }
+
+    /**
+     * One value with its label pairs ({@code labels[0]=labels[1]}, ...)
+     */
+    public static final class Sample {
+        public final String[] labels;
+        public final double value;
+
+        public Sample(double value, String... labels) {
+            this.labels = labels;
+            this.value = value;
+        }
+    }
+
+    /**
+     * All samples of one metric name
+     */
+    public static final class Family {
+        public final String name;
+        public final String help;
+        public final Type type;
+        public final List<Sample> samples = new ArrayList<>();
+
+        public Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        public Family add(double value, String... labels) {
+            samples.add(new Sample(value, labels));
+            return this;
+        }
+    }
+
+    /**
+     * Produces families when the registry is collected
+     */
+    public interface Collector {
+        void collect(List<Family> out);
+    }
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final String prefix;
+    private final List<Collector> collectors = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param prefix Prepended to every metric name, e.g. "rpg_"
+     */
+    public MetricsRegistry(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public void register(Collector collector) {
+        collectors.add(collector);
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value) {
+        register(out -> out.add(new Family(prefix + name, help, Type.GAUGE).add(value.getAsDouble())));
+    }
+
+    public void counter(String name, String help, DoubleSupplier value) {
+        register(out -> out.add(new Family(prefix + name, help, Type.COUNTER).add(value.getAsDouble())));
+    }
+
+    /**
+     * Lifetime totals as counters plus per-window rates as gauges labelled by window
+     */
+    public void registerPacketMetrics(String name, PacketMetrics metrics) {
+        register(out -> {
+            PacketMetrics.AllMetrics all = metrics.getAllMetrics();
+            out.add(new Family(prefix + name + "_packets_total", "Packets sent", Type.COUNTER)
+                    .add(all.lifetime.packetCount));
+            out.add(new Family(prefix + name + "_bytes_total", "Compressed bytes sent", Type.COUNTER)
+                    .add(all.lifetime.totalBytes));
+            out.add(new Family(prefix + name + "_uncompressed_bytes_total", "Bytes before compression", Type.COUNTER)
+                    .add(all.lifetime.uncompressedBytes));
+
+            Family packetRate = new Family(prefix + name + "_packets_per_second", "Packet rate over the window", Type.GAUGE);
+            Family byteRate = new Family(prefix + name + "_bytes_per_second", "Compressed byte rate over the window", Type.GAUGE);
+            Family ratio = new Family(prefix + name + "_compression_ratio", "Uncompressed / compressed bytes over the window", Type.GAUGE);
+            addWindow(packetRate, byteRate, ratio, "1m", all.oneMinute);
+            addWindow(packetRate, byteRate, ratio, "5m", all.fiveMinutes);
+            addWindow(packetRate, byteRate, ratio, "10m", all.tenMinutes);
+            out.add(packetRate);
+            out.add(byteRate);
+            out.add(ratio);
+        });
+    }
+
+    private static void addWindow(Family packetRate, Family byteRate, Family ratio, String window, PacketMetrics.MetricsSnapshot snapshot) {
+        packetRate.add(snapshot.packetsPerSecond, "window", window);
+        byteRate.add(snapshot.bytesPerSecond, "window", window);
+        ratio.add(snapshot.compressionRatio, "window", window);
+    }
+
+    /**
+     * Phase latency quantiles of the last minute (seconds, labelled by phase and quantile),
+     * lifetime sample counts and missed ticks
+     */
+    public void registerTickMetrics(String name, TickMetrics metrics) {
+        register(out -> {
+            Family latency = new Family(prefix + name + "_phase_seconds", "Tick phase latency over the last minute", Type.GAUGE);
+            Family samples = new Family(prefix + name + "_phase_samples_total", "Recorded tick phase samples", Type.COUNTER);
+            for (TickMetrics.Phase phase : TickMetrics.Phase.values()) {
+                String label = phase.name().toLowerCase(Locale.ROOT);
+                LatencyHistogram.Snapshot minute = metrics.get(phase).getOneMinute();
+                latency.add(minute.p50 / NANOS_PER_SECOND, "phase", label, "quantile", "0.5");
+                latency.add(minute.p99 / NANOS_PER_SECOND, "phase", label, "quantile", "0.99");
+                latency.add(minute.p999 / NANOS_PER_SECOND, "phase", label, "quantile", "0.999");
+                latency.add(minute.max / NANOS_PER_SECOND, "phase", label, "quantile", "1");
+                samples.add(metrics.get(phase).getLifetime().count, "phase", label);
+            }
+            out.add(latency);
+            out.add(samples);
+            out.add(new Family(prefix + name + "_missed_total", "Tick deadlines missed", Type.COUNTER)
+                    .add(metrics.getMissedTicks()));
+        });
+    }
+
+    /**
+     * Cumulative counters of pipeline stages, labelled by stage name
+     */
+    public void registerStageMetrics(String name, StageMetrics... stages) {
+        register(out -> {
+            Family frames = new Family(prefix + name + "_frames_total", "Frames handled by the stage", Type.COUNTER);
+            Family players = new Family(prefix + name + "_players_total", "Player rows in the handled frames", Type.COUNTER);
+            Family coalesced = new Family(prefix + name + "_coalesced_total", "Frames skipped because a newer one was waiting", Type.COUNTER);
+            Family dropped = new Family(prefix + name + "_dropped_total", "Frames dropped because the next stage was full", Type.COUNTER);
+            Family idle = new Family(prefix + name + "_idle_total", "Ticks without a frame to handle", Type.COUNTER);
+            for (StageMetrics stage : stages) {
+                String label = stage.getName();
+                frames.add(stage.getFrames(), "stage", label);
+                players.add(stage.getPlayers(), "stage", label);
+                coalesced.add(stage.getCoalesced(), "stage", label);
+                dropped.add(stage.getDropped(), "stage", label);
+                idle.add(stage.getIdle(), "stage", label);
+            }
+            out.add(frames);
+            out.add(players);
+            out.add(coalesced);
+            out.add(dropped);
+            out.add(idle);
+        });
+    }
+
+    /**
+     * Target and measured rate of stage loops plus their late and missed ticks, labelled by stage name
+     */
+    public void registerTickSchedulers(String name, TickScheduler... schedulers) {
+        register(out -> {
+            Family target = new Family(prefix + name + "_target_hz", "Configured tick rate", Type.GAUGE);
+            Family measured = new Family(prefix + name + "_measured_hz", "Tick rate over the last second", Type.GAUGE);
+            Family late = new Family(prefix + name + "_late_total", "Ticks started after their deadline", Type.COUNTER);
+            Family missed = new Family(prefix + name + "_missed_total", "Tick deadlines dropped", Type.COUNTER);
+            for (TickScheduler scheduler : schedulers) {
+                String label = scheduler.getName();
+                target.add(scheduler.getTargetHz(), "stage", label);
+                measured.add(scheduler.getMeasuredHz(), "stage", label);
+                late.add(scheduler.getLateTicks(), "stage", label);
+                missed.add(scheduler.getMissedTicks(), "stage", label);
+            }
+            out.add(target);
+            out.add(measured);
+            out.add(late);
+            out.add(missed);
+        });
+    }
+
+    /**
+     * Players per update tier and rows emitted by the last network tick
+     */
+    public void registerUpdateTiers(String name, UpdateTiers tiers) {
+        register(out -> {
+            Family players = new Family(prefix + name + "_players", "Players in the update tier", Type.GAUGE);
+            for (UpdateTier tier : UpdateTier.values()) {
+                players.add(tiers.getCount(tier), "tier", tier.name().toLowerCase(Locale.ROOT));
+            }
+            out.add(players);
+            out.add(new Family(prefix + name + "_due_rows", "Rows emitted by the last network tick", Type.GAUGE)
+                    .add(tiers.getLastDueCount()));
+        });
+    }
+
+    /**
+     * Frames and bytes written by the snapshot recorder, frames it dropped and segments it finished
+     */
+    public void registerRecorder(String name, SnapshotRecorder recorder) {
+        register(out -> {
+            out.add(new Family(prefix + name + "_frames_total", "Frames recorded", Type.COUNTER)
+                    .add(recorder.getFramesRecorded()));
+            out.add(new Family(prefix + name + "_bytes_total", "Compressed bytes recorded", Type.COUNTER)
+                    .add(recorder.getBytesRecorded()));
+            out.add(new Family(prefix + name + "_dropped_total", "Frames dropped without a ready segment", Type.COUNTER)
+                    .add(recorder.getFramesDropped()));
+            out.add(new Family(prefix + name + "_segments_total", "Segments finished", Type.COUNTER)
+                    .add(recorder.getSegmentsWritten()));
+        });
+    }
+
+    /**
+     * Write-behind skill persistence: flush latency quantiles and write volume
+     */
+    public void registerSkillStore(String name, SkillStore store) {
+        register(out -> {
+            LatencyHistogram.Snapshot minute = store.getFlushLatency().getOneMinute();
+            out.add(new Family(prefix + name + "_flush_seconds", "Flush latency over the last minute", Type.GAUGE)
+                    .add(minute.p50 / NANOS_PER_SECOND, "quantile", "0.5")
+                    .add(minute.p99 / NANOS_PER_SECOND, "quantile", "0.99")
+                    .add(minute.p999 / NANOS_PER_SECOND, "quantile", "0.999")
+                    .add(minute.max / NANOS_PER_SECOND, "quantile", "1"));
+            out.add(new Family(prefix + name + "_flushes_total", "Flushes that wrote records", Type.COUNTER)
+                    .add(store.getFlushes()));
+            out.add(new Family(prefix + name + "_records_total", "Player records written", Type.COUNTER)
+                    .add(store.getRecordsWritten()));
+            out.add(new Family(prefix + name + "_shards_total", "Shard files rewritten", Type.COUNTER)
+                    .add(store.getShardsWritten()));
+            out.add(new Family(prefix + name + "_bytes_total", "Bytes written to shard files", Type.COUNTER)
+                    .add(store.getBytesWritten()));
+            out.add(new Family(prefix + name + "_errors_total", "Failed shard reads and writes", Type.COUNTER)
+                    .add(store.getErrors()));
+        });
+    }
+
+    /**
+     * Player data cache: hit rate, size and load latency quantiles
+     */
+    public void registerPlayerDataCache(String name, PlayerDataCache cache) {
+        register(out -> {
+            out.add(new Family(prefix + name + "_hits_total", "Attaches restored from the cache", Type.COUNTER)
+                    .add(cache.getHits()));
+            out.add(new Family(prefix + name + "_misses_total", "Attaches that needed a load", Type.COUNTER)
+                    .add(cache.getMisses()));
+            out.add(new Family(prefix + name + "_hit_ratio", "Share of attaches restored from the cache", Type.GAUGE)
+                    .add(cache.getHitRate()));
+            out.add(new Family(prefix + name + "_entries", "Departed players in the cache", Type.GAUGE)
+                    .add(cache.size()));
+            out.add(new Family(prefix + name + "_evictions_total", "Entries evicted for capacity", Type.COUNTER)
+                    .add(cache.getEvictions()));
+            LatencyHistogram.Snapshot minute = cache.getLoadLatency().getOneMinute();
+            out.add(new Family(prefix + name + "_load_seconds", "Load latency over the last minute", Type.GAUGE)
+                    .add(minute.p50 / NANOS_PER_SECOND, "quantile", "0.5")
+                    .add(minute.p99 / NANOS_PER_SECOND, "quantile", "0.99")
+                    .add(minute.p999 / NANOS_PER_SECOND, "quantile", "0.999")
+                    .add(minute.max / NANOS_PER_SECOND, "quantile", "1"));
+            out.add(new Family(prefix + name + "_loads_total", "Loads started", Type.COUNTER)
+                    .add(cache.getLoads()));
+            out.add(new Family(prefix + name + "_load_failures_total", "Loads that failed", Type.COUNTER)
+                    .add(cache.getLoadFailures()));
+        });
+    }
+
+    /**
+     * Read every registered source. Collectors that fail are skipped so one broken source
+     * does not take the whole export down.
+     */
+    public List<Family> collect() {
+        List<Family> families = new ArrayList<>();
+        for (Collector collector : collectors) {
+            try {
+                collector.collect(families);
+            } catch (RuntimeException ignored) {
+            }
+        }
+        return families;
+    }
+}
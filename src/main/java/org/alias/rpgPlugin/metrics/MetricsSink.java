@@ -0,0 +1,18 @@
+package org.alias.rpgPlugin.metrics;
+
+/**
+ * Destination that exports a {@link MetricsRegistry} (HTTP endpoint, file, ...)
+ */
+public interface MetricsSink extends AutoCloseable {
+
+    /**
+     * Start exporting; called once
+     */
+    void start() throws Exception;
+
+    /**
+     * Stop exporting and release the sink's resources
+     */
+    @Override
+    void close();
+}
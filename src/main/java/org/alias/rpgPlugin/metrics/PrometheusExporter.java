@@ -0,0 +1,122 @@
+package org.alias.rpgPlugin.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the registry in the Prometheus text exposition format (0.0.4) on
+ * {@code http://<bind>:<port>/metrics}, using the JDK's built-in HTTP server.
+ * Requests are handled on one daemon thread, never on a tick thread.
+ */
+public class PrometheusExporter implements MetricsSink {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MetricsRegistry registry;
+    private final String bindAddress;
+    private final int port;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public PrometheusExporter(MetricsRegistry registry, String bindAddress, int port) {
+        this.registry = registry;
+        this.bindAddress = bindAddress;
+        this.port = port;
+    }
+
+    @Override
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "RPG-MetricsHttp");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+        server.start();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = format(registry.collect()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Render families in the Prometheus text format
+     */
+    public static String format(List<MetricsRegistry.Family> families) {
+        StringBuilder out = new StringBuilder(4096);
+        for (MetricsRegistry.Family family : families) {
+            out.append("# HELP ").append(family.name).append(' ').append(escapeHelp(family.help)).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ')
+                    .append(family.type == MetricsRegistry.Type.COUNTER ? "counter" : "gauge").append('\n');
+            for (MetricsRegistry.Sample sample : family.samples) {
+                out.append(family.name);
+                if (sample.labels.length > 0) {
+                    out.append('{');
+                    for (int i = 0; i + 1 < sample.labels.length; i += 2) {
+                        if (i > 0) {
+                            out.append(',');
+                        }
+                        out.append(sample.labels[i]).append("=\"").append(escapeLabel(sample.labels[i + 1])).append('"');
+                    }
+                    out.append('}');
+                }
+                out.append(' ').append(formatValue(sample.value)).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    private static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+}
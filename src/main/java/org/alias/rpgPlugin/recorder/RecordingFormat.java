@@ -0,0 +1,78 @@
+package org.alias.rpgPlugin.recorder;
+
+import java.nio.file.Path;
+
+/**
+ * Layout of the snapshot recording files, shared by {@link SnapshotRecorder} and the offline readers.
+ * <p>
+ * A segment file starts with a {@link #FILE_HEADER_SIZE} byte header followed by records, each a
+ * {@link #RECORD_HEADER_SIZE} byte header and the compressed frame exactly as it was published.
+ * The length is the first field of a record and is written last, so a record length of 0 marks
+ * the end of the data even in a segment that was never finalized (e.g. after a crash).
+ * <p>
+ * Every segment has a sparse index next to it ({@link #INDEX_SUFFIX}) listing the offset of its
+ * keyframes and of every {@link SnapshotRecorder#INDEX_STRIDE}th record, written when the segment
+ * is finalized. All values are big-endian.
+ */
+public final class RecordingFormat {
+
+    // 'RPGR'
+    public static final int FILE_MAGIC = 0x52504752;
+    // 'RPGI'
+    public static final int INDEX_MAGIC = 0x52504749;
+    public static final short VERSION = 1;
+
+    // magic(4) version(2) reserved(2) startMillis(8) dataEnd(8) records(4) reserved(4)
+    public static final int FILE_HEADER_SIZE = 32;
+    public static final int HEADER_START_MILLIS = 8;
+    // 0 until the segment is finalized
+    public static final int HEADER_DATA_END = 16;
+    public static final int HEADER_RECORDS = 24;
+
+    // length(4) tick(8) timestampMillis(8) flags(1)
+    public static final int RECORD_HEADER_SIZE = 21;
+    public static final int RECORD_TICK = 4;
+    public static final int RECORD_TIMESTAMP = 12;
+    public static final int RECORD_FLAGS = 20;
+
+    // Record flags: the frame is JSON (otherwise a binary PlayerSnapshotCodec frame)
+    public static final int FLAG_JSON = 1;
+    // The frame can be decoded without the frames before it
+    public static final int FLAG_KEYFRAME = 1 << 1;
+    // The frame was compressed with the trained dictionary of its format
+    public static final int FLAG_DICTIONARY = 1 << 2;
+    // The frame is a streamed block (SnapshotCompressor#compressStream) of the session started by the last FLAG_STREAM
+    // record carrying the new-session header
+    public static final int FLAG_STREAM = 1 << 3;
+
+    // magic(4) version(2) reserved(2) count(4), then count x (tick(8) offset(8) flags(4))
+    public static final int INDEX_HEADER_SIZE = 12;
+    public static final int INDEX_ENTRY_SIZE = 20;
+
+    public static final String SEGMENT_PREFIX = "snapshots-";
+    public static final String SEGMENT_SUFFIX = ".rec";
+    public static final String INDEX_SUFFIX = ".idx";
+
+    private RecordingFormat() {
+    }
+
+    /**
+     * File name of a segment; names sort in creation order
+     */
+    public static String segmentName(long createdMillis, int sequence) {
+        return String.format("%s%013d-%04d%s", SEGMENT_PREFIX, createdMillis, sequence % 10_000, SEGMENT_SUFFIX);
+    }
+
+    public static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Index file belonging to a segment
+     */
+    public static Path indexPath(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + INDEX_SUFFIX);
+    }
+}
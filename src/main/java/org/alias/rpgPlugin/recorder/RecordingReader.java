@@ -0,0 +1,297 @@
+package org.alias.rpgPlugin.recorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Forward cursor over the records of a recording directory, oldest segment first.
+ * <p>
+ * Segments are memory-mapped one at a time and records are handed out as views of the mapping,
+ * so hours of recordings are read at disk speed without being loaded into the heap.
+ * {@link #seek} positions the cursor on a keyframe through the segment indexes; segments that
+ * were never finalized (still recording, or after a crash) are indexed by hopping over their
+ * record headers instead. Not thread-safe.
+ */
+public class RecordingReader implements AutoCloseable {
+
+    private final List<Path> segments;
+
+    // Current segment
+    private int segmentIndex = -1;
+    private ByteBuffer segment;
+    private int position;
+
+    // Current record
+    private long tick;
+    private long timestampMillis;
+    private int flags;
+    private ByteBuffer payload;
+
+    /**
+     * Sparse index of one segment: record offsets with their tick and flags
+     */
+    public static final class SegmentIndex {
+        public final long[] ticks;
+        public final int[] offsets;
+        public final int[] flags;
+
+        SegmentIndex(long[] ticks, int[] offsets, int[] flags) {
+            this.ticks = ticks;
+            this.offsets = offsets;
+            this.flags = flags;
+        }
+
+        public int size() {
+            return ticks.length;
+        }
+    }
+
+    public RecordingReader(Path directory) throws IOException {
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                if (RecordingFormat.isSegment(path)) {
+                    found.add(path);
+                }
+            }
+        }
+        Collections.sort(found);
+        this.segments = Collections.unmodifiableList(found);
+    }
+
+    /**
+     * Segment files in recording order
+     */
+    public List<Path> getSegments() {
+        return segments;
+    }
+
+    /**
+     * Advance to the next record
+     * @return False once every segment is exhausted
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            if (segment == null && !openSegment(segmentIndex + 1)) {
+                return false;
+            }
+            int limit = segment.limit();
+            if (position + RecordingFormat.RECORD_HEADER_SIZE <= limit) {
+                int length = segment.getInt(position);
+                int end = position + RecordingFormat.RECORD_HEADER_SIZE + length;
+                // A zero length is the end marker; anything out of bounds is a torn write
+                if (length > 0 && end > position && end <= limit) {
+                    tick = segment.getLong(position + RecordingFormat.RECORD_TICK);
+                    timestampMillis = segment.getLong(position + RecordingFormat.RECORD_TIMESTAMP);
+                    flags = segment.get(position + RecordingFormat.RECORD_FLAGS) & 0xFF;
+                    payload = segment.slice(position + RecordingFormat.RECORD_HEADER_SIZE, length);
+                    position = end;
+                    return true;
+                }
+            }
+            segment = null;
+        }
+    }
+
+    /**
+     * Position the cursor so that the next record is the last keyframe at or before {@code target},
+     * or the first keyframe after it when there is none before
+     * @param byTime Compare record timestamps (epoch milliseconds) instead of ticks
+     * @return False if the recording holds no keyframe at all
+     */
+    public boolean seek(long target, boolean byTime) throws IOException {
+        // Newest segment that starts at or before the target, then walk back until one has a keyframe before it
+        int start = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            long first = firstKey(segments.get(i), byTime);
+            if (first != Long.MIN_VALUE && first <= target) {
+                start = i;
+            }
+        }
+        for (int i = start; i >= 0; i--) {
+            if (!openSegment(i)) {
+                continue;
+            }
+            SegmentIndex index = loadIndex(segments.get(i), segment);
+            int best = -1;
+            for (int e = 0; e < index.size(); e++) {
+                if ((index.flags[e] & RecordingFormat.FLAG_KEYFRAME) == 0) {
+                    continue;
+                }
+                long key = byTime ? segment.getLong(index.offsets[e] + RecordingFormat.RECORD_TIMESTAMP) : index.ticks[e];
+                if (key > target) {
+                    break;
+                }
+                best = e;
+            }
+            if (best >= 0) {
+                position = index.offsets[best];
+                return true;
+            }
+        }
+        // Nothing before the target: first keyframe anywhere after it
+        for (int i = start; i < segments.size(); i++) {
+            if (!openSegment(i)) {
+                continue;
+            }
+            SegmentIndex index = loadIndex(segments.get(i), segment);
+            for (int e = 0; e < index.size(); e++) {
+                if ((index.flags[e] & RecordingFormat.FLAG_KEYFRAME) != 0) {
+                    position = index.offsets[e];
+                    return true;
+                }
+            }
+        }
+        segment = null;
+        segmentIndex = segments.size();
+        return false;
+    }
+
+    /**
+     * Index of a segment, from its index file or, for segments that were never finalized, by scanning it
+     */
+    public static SegmentIndex loadIndex(Path segmentPath, ByteBuffer mapped) throws IOException {
+        Path indexPath = RecordingFormat.indexPath(segmentPath);
+        if (Files.isRegularFile(indexPath)) {
+            ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+            if (index.remaining() >= RecordingFormat.INDEX_HEADER_SIZE && index.getInt(0) == RecordingFormat.INDEX_MAGIC) {
+                int count = index.getInt(8);
+                if (count >= 0 && index.remaining() >= RecordingFormat.INDEX_HEADER_SIZE + (long) count * RecordingFormat.INDEX_ENTRY_SIZE) {
+                    long[] ticks = new long[count];
+                    int[] offsets = new int[count];
+                    int[] flags = new int[count];
+                    index.position(RecordingFormat.INDEX_HEADER_SIZE);
+                    for (int i = 0; i < count; i++) {
+                        ticks[i] = index.getLong();
+                        offsets[i] = (int) index.getLong();
+                        flags[i] = index.getInt();
+                    }
+                    return new SegmentIndex(ticks, offsets, flags);
+                }
+            }
+        }
+        return scanIndex(mapped);
+    }
+
+    /**
+     * Index every record of a mapped segment
+     */
+    private static SegmentIndex scanIndex(ByteBuffer mapped) {
+        List<long[]> entries = new ArrayList<>();
+        int offset = RecordingFormat.FILE_HEADER_SIZE;
+        int limit = mapped.limit();
+        while (offset + RecordingFormat.RECORD_HEADER_SIZE <= limit) {
+            int length = mapped.getInt(offset);
+            int end = offset + RecordingFormat.RECORD_HEADER_SIZE + length;
+            if (length <= 0 || end < offset || end > limit) {
+                break;
+            }
+            entries.add(new long[]{mapped.getLong(offset + RecordingFormat.RECORD_TICK), offset,
+                    mapped.get(offset + RecordingFormat.RECORD_FLAGS) & 0xFF});
+            offset = end;
+        }
+        long[] ticks = new long[entries.size()];
+        int[] offsets = new int[entries.size()];
+        int[] flags = new int[entries.size()];
+        for (int i = 0; i < ticks.length; i++) {
+            ticks[i] = entries.get(i)[0];
+            offsets[i] = (int) entries.get(i)[1];
+            flags[i] = (int) entries.get(i)[2];
+        }
+        return new SegmentIndex(ticks, offsets, flags);
+    }
+
+    /**
+     * Map a segment read-only, limited to its data
+     */
+    public static ByteBuffer map(Path segmentPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.limit() < RecordingFormat.FILE_HEADER_SIZE || mapped.getInt(0) != RecordingFormat.FILE_MAGIC) {
+                throw new IOException("Not a snapshot recording: " + segmentPath);
+            }
+            long dataEnd = mapped.getLong(RecordingFormat.HEADER_DATA_END);
+            if (dataEnd >= RecordingFormat.FILE_HEADER_SIZE && dataEnd <= mapped.limit()) {
+                mapped.limit((int) dataEnd);
+            }
+            return mapped;
+        }
+    }
+
+    /**
+     * Tick or timestamp of the first record of a segment, read without mapping it
+     * @return Long.MIN_VALUE if the segment holds no record
+     */
+    private static long firstKey(Path segmentPath, boolean byTime) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RecordingFormat.RECORD_HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+            while (header.hasRemaining()) {
+                if (channel.read(header, RecordingFormat.FILE_HEADER_SIZE + header.position()) < 0) {
+                    return Long.MIN_VALUE;
+                }
+            }
+        }
+        if (header.getInt(0) <= 0) {
+            return Long.MIN_VALUE;
+        }
+        return header.getLong(byTime ? RecordingFormat.RECORD_TIMESTAMP : RecordingFormat.RECORD_TICK);
+    }
+
+    private boolean openSegment(int index) throws IOException {
+        segment = null;
+        segmentIndex = index;
+        if (index >= segments.size()) {
+            return false;
+        }
+        segment = map(segments.get(index));
+        position = RecordingFormat.FILE_HEADER_SIZE;
+        return true;
+    }
+
+    /**
+     * Segment file of the current record
+     */
+    public Path getSegmentPath() {
+        return segmentIndex >= 0 && segmentIndex < segments.size() ? segments.get(segmentIndex) : null;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * RecordingFormat.FLAG_* of the current record
+     */
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * Compressed frame of the current record, a view of the mapped segment valid until the reader moves on
+     */
+    public ByteBuffer getPayload() {
+        return payload;
+    }
+
+    /**
+     * Drop the current mapping (released by the garbage collector)
+     */
+    @Override
+    public void close() {
+        segment = null;
+        payload = null;
+        segmentIndex = segments.size();
+    }
+}
@@ -0,0 +1,374 @@
+package org.alias.rpgPlugin.recorder;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.alias.rpgPlugin.hooks.player.PlayerSnapshot;
+import org.alias.rpgPlugin.hooks.player.codec.PlayerSnapshotCodec;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotCompressor;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotDictionaryTrainer;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Rebuilds the full player state from recorded frames: keyframes replace it, the frames after them
+ * are applied on top. Decompression reuses one zstd context per dictionary and one direct output
+ * buffer, so replaying does not allocate per frame beyond the decoded players. Streamed frames
+ * ({@link RecordingFormat#FLAG_STREAM}) keep one decompression session per format and dictionary
+ * open across records, reset wherever the recorder started a new session.
+ * <p>
+ * Frames before the first keyframe are skipped since their deltas have nothing to apply to. The same
+ * goes for the frames after a gap in the recording (a frame the recorder dropped): binary frames
+ * are numbered consecutively, and a streamed block that no longer decodes ends its session, so the
+ * decoder waits for the next keyframe instead of applying deltas to a stale state.
+ */
+public class ReplayDecoder implements AutoCloseable {
+
+    private static final int INITIAL_OUTPUT_BYTES = 64 * 1024;
+    private static final int MAX_OUTPUT_BYTES = 64 * 1024 * 1024;
+
+    // Directory holding the trained dictionaries (null when frames were compressed without one)
+    private final Path dictionaryDirectory;
+    private final ZstdDecompressCtx plainContext = new ZstdDecompressCtx();
+    private final EnumMap<SnapshotFormat, ZstdDecompressCtx> dictionaryContexts = new EnumMap<>(SnapshotFormat.class);
+    private final EnumMap<SnapshotFormat, byte[]> dictionaries = new EnumMap<>(SnapshotFormat.class);
+    // Streaming sessions indexed by format ordinal * 2 + (dictionary ? 1 : 0); null until a session starts
+    private final ZstdDecompressCtx[] streamContexts = new ZstdDecompressCtx[SnapshotFormat.values().length * 2];
+    private ByteBuffer output = ByteBuffer.allocateDirect(INITIAL_OUTPUT_BYTES);
+    private byte[] jsonBytes = new byte[0];
+
+    private final PlayerSnapshotCodec codec = new PlayerSnapshotCodec(1);
+    private final Map<UUID, PlayerSnapshot> players = new LinkedHashMap<>();
+    private final List<PlayerSnapshot> decoded = new ArrayList<>();
+    private final List<UUID> removed = new ArrayList<>();
+    private Map<String, JsonObject> jsonPlayers = new LinkedHashMap<>();
+    private final List<JsonObject> jsonDecoded = new ArrayList<>();
+
+    private boolean synced;
+    private boolean lastJson;
+    // Codec frame number of the last applied binary frame
+    private long lastFrameNumber;
+    private int lastUncompressedSize;
+
+    /**
+     * @param dictionaryDirectory Directory of the snapshot-*.zdict files the frames were compressed with
+     */
+    public ReplayDecoder(Path dictionaryDirectory) {
+        this.dictionaryDirectory = dictionaryDirectory;
+    }
+
+    /**
+     * Decompress one recorded frame and apply it to the state
+     * @param flags RecordingFormat.FLAG_* of the record
+     * @param payload Compressed frame (position to limit), left unchanged
+     * @return False if the frame was skipped because no keyframe was applied since the start or the last gap
+     */
+    public boolean apply(int flags, ByteBuffer payload) throws IOException {
+        boolean keyframe = (flags & RecordingFormat.FLAG_KEYFRAME) != 0;
+        if (!synced && !keyframe) {
+            return false;
+        }
+        boolean json = (flags & RecordingFormat.FLAG_JSON) != 0;
+        if (synced && json != lastJson) {
+            // The recorded format changed (configuration reload); only a keyframe can start the new stream
+            if (!keyframe) {
+                synced = false;
+                return false;
+            }
+        }
+        SnapshotFormat format = json ? SnapshotFormat.JSON : SnapshotFormat.BINARY;
+        boolean withDictionary = (flags & RecordingFormat.FLAG_DICTIONARY) != 0;
+        ByteBuffer frame;
+        if ((flags & RecordingFormat.FLAG_STREAM) != 0) {
+            frame = decompressStream(format, withDictionary, payload);
+            if (frame == null) {
+                // Joined a stream mid-session or missed a block of it; wait for the next session (keyframe)
+                synced = false;
+                return false;
+            }
+        } else {
+            frame = decompress(format, withDictionary, payload);
+        }
+        if (json) {
+            applyJson(frame, keyframe);
+        } else if (!applyBinary(frame, keyframe)) {
+            synced = false;
+            return false;
+        }
+        synced = true;
+        lastJson = json;
+        return true;
+    }
+
+    /**
+     * @return False if the frame is a delta that does not follow the last applied frame
+     */
+    private boolean applyBinary(ByteBuffer frame, boolean keyframe) {
+        decoded.clear();
+        removed.clear();
+        long frameNumber;
+        try {
+            frameNumber = codec.decode(frame, decoded, removed);
+        } catch (RuntimeException e) {
+            if (keyframe) {
+                throw e;
+            }
+            // A streamed block decoded against a session with blocks missing
+            frameNumber = -1L;
+        }
+        if (!keyframe && frameNumber != lastFrameNumber + 1) {
+            // Frames are missing in between; the codec's baselines are reset by the next keyframe
+            decoded.clear();
+            removed.clear();
+            return false;
+        }
+        lastFrameNumber = frameNumber;
+        if (keyframe) {
+            players.clear();
+            jsonPlayers.clear();
+        }
+        for (UUID uuid : removed) {
+            players.remove(uuid);
+        }
+        for (PlayerSnapshot snapshot : decoded) {
+            players.put(snapshot.getUuid(), snapshot);
+        }
+        return true;
+    }
+
+    /**
+     * JSON frames list every present player; sections they leave out are unchanged since the previous frame
+     */
+    private void applyJson(ByteBuffer frame, boolean keyframe) {
+        if (keyframe) {
+            players.clear();
+            jsonPlayers.clear();
+        }
+        int length = frame.remaining();
+        if (jsonBytes.length < length) {
+            jsonBytes = new byte[Math.max(length, jsonBytes.length * 2)];
+        }
+        frame.get(frame.position(), jsonBytes, 0, length);
+        JsonArray array = JsonParser.parseString(new String(jsonBytes, 0, length, StandardCharsets.UTF_8)).getAsJsonArray();
+
+        Map<String, JsonObject> next = new LinkedHashMap<>();
+        jsonDecoded.clear();
+        for (JsonElement element : array) {
+            JsonObject player = element.getAsJsonObject();
+            JsonElement uuid = player.get("uuid");
+            if (uuid == null) {
+                continue;
+            }
+            JsonObject previous = jsonPlayers.get(uuid.getAsString());
+            if (previous != null) {
+                for (Map.Entry<String, JsonElement> entry : previous.entrySet()) {
+                    if (!player.has(entry.getKey())) {
+                        player.add(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            next.put(uuid.getAsString(), player);
+            jsonDecoded.add(player);
+        }
+        jsonPlayers = next;
+    }
+
+    private ByteBuffer decompress(SnapshotFormat format, boolean withDictionary, ByteBuffer payload) throws IOException {
+        ZstdDecompressCtx context = withDictionary ? dictionaryContext(format) : plainContext;
+        ByteBuffer src = payload.isDirect() ? payload : ByteBuffer.allocateDirect(payload.remaining()).put(payload.duplicate()).flip();
+        int srcOffset = src.position();
+        int srcSize = src.remaining();
+        long contentSize = Zstd.decompressedDirectByteBufferSize(src, srcOffset, srcSize);
+        if (contentSize > MAX_OUTPUT_BYTES) {
+            throw new IOException("Frame too large to replay: " + contentSize + " bytes");
+        }
+        if (contentSize > output.capacity()) {
+            output = ByteBuffer.allocateDirect((int) Math.max(contentSize, output.capacity() * 2L));
+        }
+        while (true) {
+            try {
+                int size = context.decompressDirectByteBuffer(output, 0, output.capacity(), src, srcOffset, srcSize);
+                output.clear();
+                output.limit(size);
+                lastUncompressedSize = size;
+                return output;
+            } catch (RuntimeException e) {
+                // Content size missing from the frame header and the buffer was too small
+                if (output.capacity() >= MAX_OUTPUT_BYTES) {
+                    throw new IOException("Failed to decompress frame: " + e.getMessage(), e);
+                }
+                output = ByteBuffer.allocateDirect(Math.min(MAX_OUTPUT_BYTES, output.capacity() * 2));
+            }
+        }
+    }
+
+    /**
+     * Decompress one streamed block, resetting the session first when the payload starts a new one
+     * @return The decompressed frame, or null if the payload continues a session this decoder has not
+     *         seen or cannot continue (blocks of it are missing); the session is then dropped
+     */
+    private ByteBuffer decompressStream(SnapshotFormat format, boolean withDictionary, ByteBuffer payload) throws IOException {
+        if (!payload.hasRemaining()) {
+            throw new IOException("Empty streamed frame");
+        }
+        int slot = format.ordinal() * 2 + (withDictionary ? 1 : 0);
+        boolean newSession = (payload.get(payload.position()) & SnapshotCompressor.STREAM_NEW_SESSION) != 0;
+        ZstdDecompressCtx context = streamContexts[slot];
+        if (newSession) {
+            if (context == null) {
+                context = new ZstdDecompressCtx();
+                streamContexts[slot] = context;
+            } else {
+                context.reset();
+            }
+            if (withDictionary) {
+                context.loadDict(dictionary(format));
+            }
+        } else if (context == null) {
+            return null;
+        }
+
+        ByteBuffer src = payload.isDirect() ? payload.duplicate() : ByteBuffer.allocateDirect(payload.remaining()).put(payload.duplicate()).flip();
+        src.position(src.position() + SnapshotCompressor.STREAM_HEADER_BYTES);
+        output.clear();
+        try {
+            // A flushed block decodes completely once its input is consumed and the output has room left
+            while (true) {
+                context.decompressDirectByteBufferStream(output, src);
+                if (!output.hasRemaining()) {
+                    if (output.capacity() >= MAX_OUTPUT_BYTES) {
+                        throw new IOException("Frame too large to replay");
+                    }
+                    ByteBuffer larger = ByteBuffer.allocateDirect(Math.min(MAX_OUTPUT_BYTES, output.capacity() * 2));
+                    output.flip();
+                    larger.put(output);
+                    output = larger;
+                } else if (!src.hasRemaining()) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            // A block of the session is missing (dropped by the recorder); the next session starts clean
+            streamContexts[slot] = null;
+            context.close();
+            return null;
+        }
+        output.flip();
+        lastUncompressedSize = output.remaining();
+        return output;
+    }
+
+    private ZstdDecompressCtx dictionaryContext(SnapshotFormat format) throws IOException {
+        ZstdDecompressCtx context = dictionaryContexts.get(format);
+        if (context == null) {
+            context = new ZstdDecompressCtx();
+            context.loadDict(dictionary(format));
+            dictionaryContexts.put(format, context);
+        }
+        return context;
+    }
+
+    private byte[] dictionary(SnapshotFormat format) throws IOException {
+        byte[] dictionary = dictionaries.get(format);
+        if (dictionary == null) {
+            dictionary = dictionaryDirectory != null
+                    ? SnapshotDictionaryTrainer.load(SnapshotDictionaryTrainer.dictionaryPath(dictionaryDirectory, format))
+                    : null;
+            if (dictionary == null) {
+                throw new IOException("Frames were compressed with the " + format + " dictionary, which was not found in "
+                        + dictionaryDirectory);
+            }
+            dictionaries.put(format, dictionary);
+        }
+        return dictionary;
+    }
+
+    /**
+     * Whether a keyframe has been applied, i.e. the state is complete
+     */
+    public boolean isSynced() {
+        return synced;
+    }
+
+    /**
+     * Whether the last applied frame was JSON (state in {@link #getJsonPlayers()}) rather than binary
+     */
+    public boolean isLastJson() {
+        return lastJson;
+    }
+
+    public int getLastUncompressedSize() {
+        return lastUncompressedSize;
+    }
+
+    /**
+     * Full state of every player after the last binary frame
+     */
+    public Collection<PlayerSnapshot> getPlayers() {
+        return players.values();
+    }
+
+    /**
+     * Players carried by the last binary frame, complete (unchanged sections filled in by the codec)
+     */
+    public List<PlayerSnapshot> getDecoded() {
+        return decoded;
+    }
+
+    /**
+     * Players removed by the last binary frame
+     */
+    public List<UUID> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Full state of every player after the last JSON frame, by UUID string
+     */
+    public Map<String, JsonObject> getJsonPlayers() {
+        return jsonPlayers;
+    }
+
+    /**
+     * Players of the last JSON frame with the sections it left out filled in
+     */
+    public List<JsonObject> getJsonDecoded() {
+        return jsonDecoded;
+    }
+
+    /**
+     * Number of players in the current state
+     */
+    public int getPlayerCount() {
+        return lastJson ? jsonPlayers.size() : players.size();
+    }
+
+    @Override
+    public void close() {
+        plainContext.close();
+        for (ZstdDecompressCtx context : dictionaryContexts.values()) {
+            context.close();
+        }
+        dictionaryContexts.clear();
+        for (int i = 0; i < streamContexts.length; i++) {
+            if (streamContexts[i] != null) {
+                streamContexts[i].close();
+                streamContexts[i] = null;
+            }
+        }
+    }
+}
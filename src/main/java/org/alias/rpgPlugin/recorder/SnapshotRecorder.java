@@ -0,0 +1,377 @@
+package org.alias.rpgPlugin.recorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Flight recorder of the published snapshot frames: appends every compressed frame to rolling
+ * memory-mapped segment files (see {@link RecordingFormat} for the layout).
+ * <p>
+ * {@link #record} is called by a single thread (the publish stage) and only copies the frame into
+ * the mapped segment. Everything that touches the file system runs on the recorder's own thread:
+ * the next segment is created, mapped and pre-faulted ahead of time, and full segments are
+ * flushed, indexed and pruned after they are handed over. When no prepared segment is available
+ * at rotation time the frame is dropped and counted rather than waited for; the caller then makes
+ * its next frame a keyframe so the recording stays decodable past the gap.
+ */
+public class SnapshotRecorder implements AutoCloseable {
+
+    // Index every n-th record even without a keyframe so seeks never scan far
+    public static final int INDEX_STRIDE = 64;
+
+    private static final long MIN_SEGMENT_BYTES = 1L << 20;
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final int PAGE_SIZE = 4096;
+    private static final long IDLE_PARK_NANOS = 100_000_000L;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long segmentMillis;
+    private final int maxSegments;
+
+    // Owned by the recording thread
+    private Segment current;
+    // Segments handed between the recording thread and the worker
+    private final AtomicReference<Segment> spare = new AtomicReference<>();
+    private final ConcurrentLinkedQueue<Segment> finished = new ConcurrentLinkedQueue<>();
+    private Thread worker;
+    private int sequence;
+    private volatile boolean closed;
+    private volatile String lastError;
+
+    private final LongAdder framesRecorded = new LongAdder();
+    private final LongAdder bytesRecorded = new LongAdder();
+    private final LongAdder framesDropped = new LongAdder();
+    private final LongAdder segmentsWritten = new LongAdder();
+
+    private static final class Segment {
+        final Path path;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        long startMillis;
+        int position = RecordingFormat.FILE_HEADER_SIZE;
+        int records;
+        int sinceIndexed;
+        // tick, offset, flags per entry
+        long[] index = new long[3 * 64];
+        int indexCount;
+
+        Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        int remaining() {
+            return buffer.capacity() - position;
+        }
+
+        void addIndex(long tick, int offset, int flags) {
+            if (3 * indexCount == index.length) {
+                index = Arrays.copyOf(index, index.length * 2);
+            }
+            index[3 * indexCount] = tick;
+            index[3 * indexCount + 1] = offset;
+            index[3 * indexCount + 2] = flags;
+            indexCount++;
+            sinceIndexed = 0;
+        }
+    }
+
+    /**
+     * @param directory Directory of the segment files, created on {@link #start()}
+     * @param segmentBytes Size of a segment file (clamped to 1 MiB - 1 GiB)
+     * @param segmentMillis Age after which a segment is rotated even if it is not full
+     * @param maxSegments Number of finished segments kept; older ones are deleted
+     */
+    public SnapshotRecorder(Path directory, long segmentBytes, long segmentMillis, int maxSegments) {
+        this.directory = directory;
+        this.segmentBytes = (int) Math.min(MAX_SEGMENT_BYTES, Math.max(MIN_SEGMENT_BYTES, segmentBytes));
+        this.segmentMillis = Math.max(1_000L, segmentMillis);
+        this.maxSegments = Math.max(1, maxSegments);
+    }
+
+    /**
+     * Create the directory, map the first segment and start the worker thread
+     */
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        spare.set(openSegment());
+        worker = new Thread(this::runWorker, "RPG-SnapshotRecorder");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Append a compressed frame (recording thread only). The buffer's position is left unchanged.
+     * @param flags RecordingFormat.FLAG_*
+     * @return Whether the frame was recorded
+     */
+    public boolean record(long tick, long timestampMillis, ByteBuffer frame, int flags) {
+        int length = frame.remaining();
+        Segment segment = reserve(timestampMillis, length);
+        if (segment == null) {
+            return false;
+        }
+        segment.buffer.put(segment.position + RecordingFormat.RECORD_HEADER_SIZE, frame, frame.position(), length);
+        commit(segment, tick, timestampMillis, length, flags);
+        return true;
+    }
+
+    /**
+     * Append a compressed frame held in a heap array (recording thread only)
+     * @param flags RecordingFormat.FLAG_*
+     * @return Whether the frame was recorded
+     */
+    public boolean record(long tick, long timestampMillis, byte[] frame, int flags) {
+        Segment segment = reserve(timestampMillis, frame.length);
+        if (segment == null) {
+            return false;
+        }
+        segment.buffer.put(segment.position + RecordingFormat.RECORD_HEADER_SIZE, frame, 0, frame.length);
+        commit(segment, tick, timestampMillis, frame.length, flags);
+        return true;
+    }
+
+    /**
+     * Segment with room for a record of {@code length} bytes, rotating when the current one is full
+     * or too old; null (and the frame counted as dropped) when none is ready
+     */
+    private Segment reserve(long timestampMillis, int length) {
+        if (closed) {
+            return null;
+        }
+        long needed = (long) RecordingFormat.RECORD_HEADER_SIZE + length;
+        Segment segment = current;
+        if (segment == null || segment.remaining() < needed || timestampMillis - segment.startMillis >= segmentMillis) {
+            segment = rotate(timestampMillis);
+        }
+        if (segment == null || segment.remaining() < needed) {
+            framesDropped.increment();
+            return null;
+        }
+        return segment;
+    }
+
+    private Segment rotate(long timestampMillis) {
+        if (current != null) {
+            finished.add(current);
+        }
+        current = spare.getAndSet(null);
+        if (current != null) {
+            current.startMillis = timestampMillis;
+            current.buffer.putLong(RecordingFormat.HEADER_START_MILLIS, timestampMillis);
+        }
+        LockSupport.unpark(worker);
+        return current;
+    }
+
+    private void commit(Segment segment, long tick, long timestampMillis, int length, int flags) {
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = segment.position;
+        buffer.putLong(offset + RecordingFormat.RECORD_TICK, tick);
+        buffer.putLong(offset + RecordingFormat.RECORD_TIMESTAMP, timestampMillis);
+        buffer.put(offset + RecordingFormat.RECORD_FLAGS, (byte) flags);
+        // Length last: a reader never sees a record whose payload is still being written
+        buffer.putInt(offset, length);
+
+        if (segment.records == 0 || (flags & RecordingFormat.FLAG_KEYFRAME) != 0
+                || ++segment.sinceIndexed >= INDEX_STRIDE) {
+            segment.addIndex(tick, offset, flags);
+        }
+        segment.position = offset + RecordingFormat.RECORD_HEADER_SIZE + length;
+        segment.records++;
+        framesRecorded.increment();
+        bytesRecorded.add(length);
+    }
+
+    private void runWorker() {
+        while (!closed) {
+            finishQueued();
+            if (spare.get() == null) {
+                try {
+                    spare.set(openSegment());
+                } catch (IOException e) {
+                    lastError = "Failed to create a recording segment: " + e.getMessage();
+                }
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        // close() queues the last segment right before flagging, possibly after the drain above
+        finishQueued();
+    }
+
+    private void finishQueued() {
+        Segment done;
+        while ((done = finished.poll()) != null) {
+            finishSegment(done);
+        }
+    }
+
+    private Segment openSegment() throws IOException {
+        Path path = directory.resolve(RecordingFormat.segmentName(System.currentTimeMillis(), sequence++));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            // Fault every page in now so the recording thread never stalls on the first write to one
+            for (int i = 0; i < segmentBytes; i += PAGE_SIZE) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.putInt(0, RecordingFormat.FILE_MAGIC);
+            buffer.putShort(4, RecordingFormat.VERSION);
+            return new Segment(path, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    /**
+     * Seal a segment: header totals, flush, trim the unused tail, write the index, prune old segments
+     */
+    private void finishSegment(Segment segment) {
+        try {
+            segment.buffer.putLong(RecordingFormat.HEADER_DATA_END, segment.position);
+            segment.buffer.putInt(RecordingFormat.HEADER_RECORDS, segment.records);
+            segment.buffer.force();
+            try {
+                segment.channel.truncate(segment.position);
+            } catch (IOException ignored) {
+                // Not supported while mapped on some platforms; readers stop at the data end anyway
+            }
+            segment.channel.close();
+            writeIndex(segment);
+            segmentsWritten.increment();
+        } catch (IOException | RuntimeException e) {
+            lastError = "Failed to finish recording segment " + segment.path.getFileName() + ": " + e.getMessage();
+        }
+        pruneSegments();
+    }
+
+    private void writeIndex(Segment segment) throws IOException {
+        ByteBuffer index = ByteBuffer.allocate(RecordingFormat.INDEX_HEADER_SIZE
+                + RecordingFormat.INDEX_ENTRY_SIZE * segment.indexCount);
+        index.putInt(RecordingFormat.INDEX_MAGIC);
+        index.putShort(RecordingFormat.VERSION);
+        index.putShort((short) 0);
+        index.putInt(segment.indexCount);
+        for (int i = 0; i < segment.indexCount; i++) {
+            index.putLong(segment.index[3 * i]);
+            index.putLong(segment.index[3 * i + 1]);
+            index.putInt((int) segment.index[3 * i + 2]);
+        }
+        Path path = RecordingFormat.indexPath(segment.path);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, index.array());
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Delete the oldest finished segments (and their indexes) beyond the retention count
+     */
+    private void pruneSegments() {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                if (RecordingFormat.isSegment(path) && Files.exists(RecordingFormat.indexPath(path))) {
+                    segments.add(path);
+                }
+            }
+        } catch (IOException e) {
+            lastError = "Failed to list recordings: " + e.getMessage();
+            return;
+        }
+        Collections.sort(segments);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            try {
+                Files.deleteIfExists(RecordingFormat.indexPath(segments.get(i)));
+                Files.deleteIfExists(segments.get(i));
+            } catch (IOException e) {
+                lastError = "Failed to delete recording " + segments.get(i).getFileName() + ": " + e.getMessage();
+            }
+        }
+    }
+
+    /**
+     * Finish the current segment and stop the worker. Must be called after the recording thread
+     * stopped calling {@link #record}.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        // Hand the current segment over before flagging, so the worker finishes it before exiting
+        if (current != null) {
+            finished.add(current);
+            current = null;
+        }
+        closed = true;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+            try {
+                worker.join(5_000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Segment unused = spare.getAndSet(null);
+        if (unused != null) {
+            try {
+                unused.channel.close();
+                Files.deleteIfExists(unused.path);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getFramesRecorded() {
+        return framesRecorded.sum();
+    }
+
+    public long getBytesRecorded() {
+        return bytesRecorded.sum();
+    }
+
+    public long getFramesDropped() {
+        return framesDropped.sum();
+    }
+
+    public long getSegmentsWritten() {
+        return segmentsWritten.sum();
+    }
+
+    /**
+     * Last file system error of the worker, or null
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d frames (%.1f KiB), %d dropped, %d segments in %s",
+                getFramesRecorded(), getBytesRecorded() / 1024.0, getFramesDropped(), getSegmentsWritten(), directory);
+    }
+}
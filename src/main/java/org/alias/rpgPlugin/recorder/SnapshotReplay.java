@@ -0,0 +1,405 @@
+package org.alias.rpgPlugin.recorder;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.alias.rpgPlugin.hooks.player.PlayerSnapshot;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Command line tool over the snapshot recordings, runnable from the plugin jar without the server:
+ * <pre>
+ * java -jar RPGSkills.jar &lt;recordings-dir&gt; segments|dump|stats [options]
+ * </pre>
+ * Only the recorder, codec and snapshot classes are used, none of which touch the Hytale API.
+ */
+public final class SnapshotReplay {
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -jar RPGSkills.jar <recordings-dir> <command> [options]",
+            "Commands:",
+            "  segments   List the segment files with their tick and time ranges",
+            "  dump       Print the players carried by every frame",
+            "  stats      Aggregate frames, sizes and per-player presence and distance",
+            "Options:",
+            "  --from-tick N, --to-tick N     Tick range (inclusive)",
+            "  --from-time T, --to-time T     Time range, epoch milliseconds or ISO-8601 instant",
+            "  --player UUID                  Only this player",
+            "  --top N                        Players listed by stats (default 20)",
+            "  --dictionaries DIR             Directory of the snapshot-*.zdict files",
+            "                                 (default: the parent of the recordings directory)");
+
+    private Path directory;
+    private String command;
+    private long fromTick = Long.MIN_VALUE;
+    private long toTick = Long.MAX_VALUE;
+    private long fromTime = Long.MIN_VALUE;
+    private long toTime = Long.MAX_VALUE;
+    private UUID player;
+    private int top = 20;
+    private Path dictionaries;
+
+    private SnapshotReplay() {
+    }
+
+    public static void main(String[] args) {
+        SnapshotReplay replay = new SnapshotReplay();
+        try {
+            replay.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16));
+        try {
+            replay.run(out);
+        } catch (IOException | RuntimeException e) {
+            out.flush();
+            System.err.println("Replay failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            out.flush();
+        }
+    }
+
+    private void parse(String[] args) {
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                positional.add(arg);
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--from-tick" -> fromTick = parseLong(arg, value);
+                case "--to-tick" -> toTick = parseLong(arg, value);
+                case "--from-time" -> fromTime = parseTime(arg, value);
+                case "--to-time" -> toTime = parseTime(arg, value);
+                case "--top" -> top = (int) parseLong(arg, value);
+                case "--dictionaries" -> dictionaries = Paths.get(value);
+                case "--player" -> {
+                    try {
+                        player = UUID.fromString(value);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Invalid UUID for --player: " + value);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (positional.size() != 2) {
+            throw new IllegalArgumentException("Expected a recordings directory and a command");
+        }
+        directory = Paths.get(positional.get(0));
+        command = positional.get(1).toLowerCase(Locale.ROOT);
+        if (!command.equals("segments") && !command.equals("dump") && !command.equals("stats")) {
+            throw new IllegalArgumentException("Unknown command " + command);
+        }
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+        if (dictionaries == null) {
+            dictionaries = directory.toAbsolutePath().getParent();
+        }
+    }
+
+    private static long parseLong(String option, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + option + ": " + value);
+        }
+    }
+
+    private static long parseTime(String option, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            return Instant.parse(value).toEpochMilli();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid time for " + option + ": " + value);
+        }
+    }
+
+    private void run(PrintWriter out) throws IOException {
+        switch (command) {
+            case "segments" -> listSegments(out);
+            case "dump" -> replay(out, true);
+            case "stats" -> replay(out, false);
+            default -> throw new IllegalArgumentException("Unknown command " + command);
+        }
+    }
+
+    private void listSegments(PrintWriter out) throws IOException {
+        try (RecordingReader reader = new RecordingReader(directory)) {
+            for (Path path : reader.getSegments()) {
+                ByteBuffer mapped = RecordingReader.map(path);
+                RecordingReader.SegmentIndex index = RecordingReader.loadIndex(path, mapped);
+                int keyframes = 0;
+                for (int flags : index.flags) {
+                    if ((flags & RecordingFormat.FLAG_KEYFRAME) != 0) {
+                        keyframes++;
+                    }
+                }
+                int records = mapped.getInt(RecordingFormat.HEADER_RECORDS);
+                boolean finished = mapped.getLong(RecordingFormat.HEADER_DATA_END) != 0;
+                if (index.size() == 0) {
+                    out.printf("%s  empty%n", path.getFileName());
+                    continue;
+                }
+                // The index is sparse: hop over the record headers after its last entry
+                int offset = index.offsets[index.size() - 1];
+                int lastOffset = offset;
+                while (offset + RecordingFormat.RECORD_HEADER_SIZE <= mapped.limit()) {
+                    int length = mapped.getInt(offset);
+                    if (length <= 0 || offset + RecordingFormat.RECORD_HEADER_SIZE + length > mapped.limit()) {
+                        break;
+                    }
+                    lastOffset = offset;
+                    offset += RecordingFormat.RECORD_HEADER_SIZE + length;
+                }
+                out.printf("%s  ticks %d-%d  %s - %s  %d records  %d keyframes  %.1f KiB%s%n",
+                        path.getFileName(), index.ticks[0], mapped.getLong(lastOffset + RecordingFormat.RECORD_TICK),
+                        Instant.ofEpochMilli(mapped.getLong(index.offsets[0] + RecordingFormat.RECORD_TIMESTAMP)),
+                        Instant.ofEpochMilli(mapped.getLong(lastOffset + RecordingFormat.RECORD_TIMESTAMP)),
+                        finished ? records : index.size(), keyframes,
+                        mapped.limit() / 1024.0, finished ? "" : "  (not finalized)");
+            }
+        }
+    }
+
+    /**
+     * Per-player aggregates for stats
+     */
+    private static final class PlayerStats {
+        final String uuid;
+        long frames;
+        double distance;
+        boolean hasPosition;
+        double x;
+        double y;
+        double z;
+        String world;
+
+        PlayerStats(String uuid) {
+            this.uuid = uuid;
+        }
+
+        void observe(String world, boolean positioned, double px, double py, double pz) {
+            frames++;
+            if (!positioned) {
+                return;
+            }
+            // Teleports between worlds are not movement
+            if (hasPosition && world != null && world.equals(this.world)) {
+                double dx = px - x;
+                double dy = py - y;
+                double dz = pz - z;
+                distance += Math.sqrt(dx * dx + dy * dy + dz * dz);
+            }
+            hasPosition = true;
+            this.world = world;
+            x = px;
+            y = py;
+            z = pz;
+        }
+    }
+
+    private void replay(PrintWriter out, boolean dump) throws IOException {
+        long frames = 0;
+        long keyframes = 0;
+        long compressedBytes = 0;
+        long uncompressedBytes = 0;
+        long playerFrames = 0;
+        int peakPlayers = 0;
+        long firstTick = -1;
+        long lastTick = -1;
+        long firstTime = 0;
+        long lastTime = 0;
+        Map<String, PlayerStats> stats = new HashMap<>();
+        String playerFilter = player != null ? player.toString() : null;
+
+        try (RecordingReader reader = new RecordingReader(directory);
+             ReplayDecoder decoder = new ReplayDecoder(dictionaries)) {
+            boolean positioned = true;
+            if (fromTick != Long.MIN_VALUE) {
+                positioned = reader.seek(fromTick, false);
+            } else if (fromTime != Long.MIN_VALUE) {
+                positioned = reader.seek(fromTime, true);
+            }
+            while (positioned && reader.next()) {
+                long tick = reader.getTick();
+                long time = reader.getTimestampMillis();
+                if (tick > toTick || time > toTime) {
+                    break;
+                }
+                if (!decoder.apply(reader.getFlags(), reader.getPayload())) {
+                    continue;
+                }
+                // Frames between the seek keyframe and the start of the range only rebuild state
+                if (tick < fromTick || time < fromTime) {
+                    continue;
+                }
+
+                frames++;
+                if ((reader.getFlags() & RecordingFormat.FLAG_KEYFRAME) != 0) {
+                    keyframes++;
+                }
+                compressedBytes += reader.getPayload().remaining();
+                uncompressedBytes += decoder.getLastUncompressedSize();
+                if (firstTick < 0) {
+                    firstTick = tick;
+                    firstTime = time;
+                }
+                lastTick = tick;
+                lastTime = time;
+                peakPlayers = Math.max(peakPlayers, decoder.getPlayerCount());
+
+                if (dump) {
+                    dumpFrame(out, decoder, tick, time, playerFilter);
+                } else {
+                    playerFrames += collectFrame(decoder, stats, playerFilter);
+                }
+            }
+        }
+
+        if (dump) {
+            return;
+        }
+        out.printf("Frames:        %d (%d keyframes)%n", frames, keyframes);
+        if (frames == 0) {
+            return;
+        }
+        double seconds = Math.max(1, lastTime - firstTime) / 1000.0;
+        out.printf("Ticks:         %d-%d%n", firstTick, lastTick);
+        out.printf("Time:          %s - %s (%.1f s)%n", Instant.ofEpochMilli(firstTime), Instant.ofEpochMilli(lastTime), seconds);
+        out.printf("Size:          %.1f KiB compressed, %.1f KiB decoded (%.2fx), %.1f bytes/s%n",
+                compressedBytes / 1024.0, uncompressedBytes / 1024.0,
+                compressedBytes > 0 ? (double) uncompressedBytes / compressedBytes : 0.0, compressedBytes / seconds);
+        out.printf("Players:       %d distinct, %.1f per frame, peak %d%n",
+                stats.size(), (double) playerFrames / frames, peakPlayers);
+
+        List<PlayerStats> sorted = new ArrayList<>(stats.values());
+        sorted.sort(Comparator.comparingLong((PlayerStats s) -> s.frames).reversed());
+        for (int i = 0; i < Math.min(top, sorted.size()); i++) {
+            PlayerStats s = sorted.get(i);
+            out.printf("  %s  %d frames (%.1f%%)  %.1f blocks travelled%n",
+                    s.uuid, s.frames, 100.0 * s.frames / frames, s.distance);
+        }
+    }
+
+    /**
+     * Print the players carried by the current frame, one line each
+     */
+    private static void dumpFrame(PrintWriter out, ReplayDecoder decoder, long tick, long time, String playerFilter) {
+        String prefix = tick + " " + Instant.ofEpochMilli(time) + " ";
+        if (decoder.isLastJson()) {
+            for (JsonObject json : decoder.getJsonDecoded()) {
+                if (playerFilter == null || playerFilter.equals(json.get("uuid").getAsString())) {
+                    out.println(prefix + json);
+                }
+            }
+            return;
+        }
+        for (PlayerSnapshot snapshot : decoder.getDecoded()) {
+            if (playerFilter == null || playerFilter.equals(snapshot.getUuid().toString())) {
+                out.println(prefix + describe(snapshot));
+            }
+        }
+        for (UUID uuid : decoder.getRemoved()) {
+            if (playerFilter == null || playerFilter.equals(uuid.toString())) {
+                out.println(prefix + uuid + " removed");
+            }
+        }
+    }
+
+    /**
+     * Add the full state of the current frame to the per-player aggregates
+     * @return Number of players counted
+     */
+    private static int collectFrame(ReplayDecoder decoder, Map<String, PlayerStats> stats, String playerFilter) {
+        int count = 0;
+        if (decoder.isLastJson()) {
+            for (Map.Entry<String, JsonObject> entry : decoder.getJsonPlayers().entrySet()) {
+                if (playerFilter != null && !playerFilter.equals(entry.getKey())) {
+                    continue;
+                }
+                JsonObject json = entry.getValue();
+                JsonElement position = json.get("transformPosition");
+                JsonElement info = json.get("playerInfo");
+                String world = info != null && info.isJsonObject() && info.getAsJsonObject().has("currentWorldName")
+                        ? info.getAsJsonObject().get("currentWorldName").getAsString() : null;
+                boolean positioned = position != null && position.isJsonObject() && position.getAsJsonObject().has("x");
+                stats.computeIfAbsent(entry.getKey(), PlayerStats::new).observe(world, positioned,
+                        positioned ? position.getAsJsonObject().get("x").getAsDouble() : 0.0,
+                        positioned ? position.getAsJsonObject().get("y").getAsDouble() : 0.0,
+                        positioned ? position.getAsJsonObject().get("z").getAsDouble() : 0.0);
+                count++;
+            }
+            return count;
+        }
+        for (PlayerSnapshot snapshot : decoder.getPlayers()) {
+            String uuid = snapshot.getUuid().toString();
+            if (playerFilter != null && !playerFilter.equals(uuid)) {
+                continue;
+            }
+            stats.computeIfAbsent(uuid, PlayerStats::new).observe(snapshot.getWorldName(),
+                    snapshot.hasSection(PlayerSnapshot.SECTION_TRANSFORM), snapshot.getX(), snapshot.getY(), snapshot.getZ());
+            count++;
+        }
+        return count;
+    }
+
+    private static String describe(PlayerSnapshot snapshot) {
+        StringBuilder line = new StringBuilder(160);
+        line.append(snapshot.getUuid()).append(" world=").append(snapshot.getWorldName())
+                .append(" mode=").append(snapshot.getGameMode());
+        if (snapshot.hasSection(PlayerSnapshot.SECTION_TRANSFORM)) {
+            line.append(String.format(Locale.ROOT, " pos=%.3f,%.3f,%.3f rot=%.2f,%.2f,%.2f",
+                    snapshot.getX(), snapshot.getY(), snapshot.getZ(),
+                    snapshot.getPitch(), snapshot.getYaw(), snapshot.getRoll()));
+        }
+        if (snapshot.hasSection(PlayerSnapshot.SECTION_VELOCITY)) {
+            line.append(String.format(Locale.ROOT, " vel=%.3f,%.3f,%.3f",
+                    snapshot.getVelocityX(), snapshot.getVelocityY(), snapshot.getVelocityZ()));
+        }
+        if (snapshot.hasSection(PlayerSnapshot.SECTION_MOVEMENT)) {
+            line.append(" movement=").append(Integer.toBinaryString(snapshot.getMovementBits()));
+        }
+        if (snapshot.hasSection(PlayerSnapshot.SECTION_STATS)) {
+            for (int i = 0; i < PlayerSnapshot.STAT_COUNT; i++) {
+                line.append(' ').append(PlayerSnapshot.STAT_NAMES[i]).append('=')
+                        .append(String.format(Locale.ROOT, "%.1f/%.1f", snapshot.getStat(i), snapshot.getMaxStat(i)));
+            }
+        }
+        if (snapshot.hasSection(PlayerSnapshot.SECTION_DAMAGE)) {
+            line.append(" lastDamage=").append(snapshot.getLastDamageTime())
+                    .append(" lastCombat=").append(snapshot.getLastCombatAction());
+        }
+        return line.toString();
+    }
+}
@@ -22,7 +22,10 @@ public class EventHooks {
 
     public static void createPlayerHooks(RPGPluginEntry plugin) {
         // Fix the lambda syntax and method name
-        new PlayerHook(plugin);
+        PlayerHook hook = new PlayerHook(plugin);
+        // Load saved skill progress while the player finishes joining, before the first gather sees them
+        plugin.getEventRegistry().registerGlobal(PlayerReadyEvent.class,
+                event -> hook.onPlayerReady(event.getPlayer().getUuid()));
     }
 
 
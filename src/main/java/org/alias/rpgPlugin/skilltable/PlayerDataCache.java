@@ -0,0 +1,321 @@
+package org.alias.rpgPlugin.skilltable;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import org.alias.rpgPlugin.hooks.player.WindowedLatency;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads players' saved skill progress off the tick thread and keeps the progress of recently
+ * departed players in memory, so a quick reconnect restores without touching the disk.
+ * <p>
+ * Loads run on virtual threads: reading a shard blocks on disk, and a burst of joins should not
+ * queue up behind one platform thread. A join event ({@link #prefetch}) starts the load before the
+ * player shows up in the gathered telemetry; the first sighting ({@link #attach}) then either finds
+ * the progress in the cache or joins the load in flight, and the engine is restored when it
+ * completes. XP earned meanwhile is kept on top of it (see {@link SkillXpEngine#restore}).
+ * <p>
+ * Departed players stay in an access-ordered LRU of {@code capacity} entries. Entries whose progress
+ * has not been written yet are collected by every store flush, and handed to the store before they
+ * are evicted.
+ */
+public class PlayerDataCache implements AutoCloseable {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 5L;
+
+    private final SkillXpEngine engine;
+    private final SkillStore store;
+    private final int capacity;
+    private final ExecutorService loader;
+
+    // Loads in flight by player, removed as they complete
+    private final ConcurrentHashMap<UUID, CompletableFuture<long[]>> loads = new ConcurrentHashMap<>();
+    // Prefetches not cached yet, dropped when the player attaches or is released first
+    private final ConcurrentHashMap<UUID, Object> prefetches = new ConcurrentHashMap<>();
+    // Progress of departed and prefetched players, least recently used first (guarded by itself)
+    private final LinkedHashMap<UUID, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final WindowedLatency loadLatency = new WindowedLatency();
+    private volatile String lastError;
+
+    private static final class Entry {
+        // Saved XP per Types ordinal, null for a player with no saved progress
+        final long[] xp;
+        // Loaded ahead of the player's first sighting rather than kept from a previous session
+        final boolean prefetched;
+        // Not handed to the store yet
+        boolean dirty;
+
+        Entry(long[] xp, boolean prefetched, boolean dirty) {
+            this.xp = xp;
+            this.prefetched = prefetched;
+            this.dirty = dirty;
+        }
+    }
+
+    /**
+     * @param capacity Departed players kept in memory; 0 disables caching but keeps loads asynchronous
+     */
+    public PlayerDataCache(SkillXpEngine engine, SkillStore store, int capacity) {
+        this.engine = engine;
+        this.store = store;
+        this.capacity = Math.max(0, capacity);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                if (size() <= PlayerDataCache.this.capacity) {
+                    return false;
+                }
+                evict(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+        this.loader = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("RPG-PlayerLoad-", 0).factory());
+    }
+
+    /**
+     * Start loading a player who is joining (any thread, e.g. the PlayerReadyEvent handler)
+     */
+    public void prefetch(UUID uuid) {
+        // Registered before the checks, so an attach or release from here on cancels it
+        Object prefetch = new Object();
+        prefetches.put(uuid, prefetch);
+        if (engine.slotOf(uuid) >= 0) {
+            prefetches.remove(uuid, prefetch);
+            return;
+        }
+        synchronized (entries) {
+            if (entries.get(uuid) != null) {
+                prefetches.remove(uuid, prefetch);
+                return;
+            }
+        }
+        load(uuid).whenComplete((xp, error) -> {
+            synchronized (entries) {
+                // A player attached or released meanwhile was restored by their own attach, and their
+                // released record (possibly a delta on top of this load) supersedes it
+                if (prefetches.remove(uuid, prefetch) && error == null) {
+                    entries.putIfAbsent(uuid, new Entry(xp, true, false));
+                }
+            }
+        });
+    }
+
+    /**
+     * Attach a player to the engine on their first sighting and restore their saved progress, right
+     * away from the cache or when the load completes
+     * @return The player's engine slot
+     */
+    public int attach(UUID uuid) {
+        prefetches.remove(uuid);
+        int slot = engine.attach(uuid);
+        if (engine.isLoaded(slot)) {
+            return slot;
+        }
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.remove(uuid);
+        }
+        if (entry != null) {
+            if (entry.prefetched) {
+                misses.increment();
+            } else {
+                hits.increment();
+            }
+            if (entry.dirty) {
+                // Leaving the cache: the store keeps it until the next flush
+                store.queue(new SkillRecord(uuid, entry.xp.clone(), false, true));
+            }
+            engine.restore(slot, uuid, entry.xp);
+            return slot;
+        }
+        misses.increment();
+        load(uuid).whenComplete((xp, error) -> {
+            // On failure the slot stays unrestored and its XP is saved as a delta when the player leaves
+            if (error == null) {
+                engine.restore(slot, uuid, xp);
+            }
+        });
+        return slot;
+    }
+
+    /**
+     * Detach a departed player, keeping their progress in the cache
+     */
+    public void release(UUID uuid) {
+        prefetches.remove(uuid);
+        SkillRecord record = engine.detach(uuid);
+        if (record == null || record.isDelta()) {
+            // Nothing restored to cache; a delta only means something on top of the saved record
+            synchronized (entries) {
+                entries.remove(uuid);
+            }
+            if (record != null) {
+                store.queue(record);
+            }
+            return;
+        }
+        synchronized (entries) {
+            entries.put(uuid, new Entry(record.getXp(), false, record.isDirty()));
+        }
+    }
+
+    /**
+     * Hand the dirty entries to a store flush (store thread)
+     */
+    void collectDirty(List<SkillRecord> out) {
+        synchronized (entries) {
+            for (Map.Entry<UUID, Entry> entry : entries.entrySet()) {
+                Entry value = entry.getValue();
+                if (value.dirty) {
+                    out.add(new SkillRecord(entry.getKey(), value.xp.clone(), false, true));
+                    value.dirty = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Called under the entries' lock while an entry is dropped for capacity
+     */
+    private void evict(UUID uuid, Entry entry) {
+        evictions.increment();
+        if (entry.dirty) {
+            // The cache holds the only copy: queue it and have it written soon
+            store.queue(new SkillRecord(uuid, entry.xp.clone(), false, true));
+            store.requestFlush();
+        }
+    }
+
+    /**
+     * The player's load in flight, or a new one
+     */
+    private CompletableFuture<long[]> load(UUID uuid) {
+        CompletableFuture<long[]> existing = loads.get(uuid);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<long[]> created = new CompletableFuture<>();
+        existing = loads.putIfAbsent(uuid, created);
+        if (existing != null) {
+            return existing;
+        }
+        loadCount.increment();
+        try {
+            loader.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    long[] xp = store.load(uuid);
+                    loadLatency.record(System.nanoTime() - start);
+                    created.complete(xp);
+                } catch (IOException | RuntimeException e) {
+                    loadFailures.increment();
+                    lastError = "Failed to load skills of " + uuid + ": " + e.getMessage();
+                    LOGGER.atWarning().log(lastError);
+                    created.completeExceptionally(e);
+                } finally {
+                    loads.remove(uuid, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closing
+            loads.remove(uuid, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+
+    /**
+     * Stop accepting loads and wait for those in flight. Dirty entries stay for the store's last flush.
+     */
+    @Override
+    public void close() {
+        loader.shutdown();
+        try {
+            loader.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Players in the cache
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Attaches restored from a departed player's entry, without a load
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Attaches that needed a load (possibly prefetched)
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Share of attaches served from the cache, 0 before the first attach
+     */
+    public double getHitRate() {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        return total == 0L ? 0.0 : (double) hitCount / total;
+    }
+
+    public long getLoads() {
+        return loadCount.sum();
+    }
+
+    public long getLoadFailures() {
+        return loadFailures.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public WindowedLatency getLoadLatency() {
+        return loadLatency;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d cached, %.1f%% hits (%d/%d), %d evicted | %d loads (%s), %d in flight, %d failed",
+                size(), capacity, getHitRate() * 100.0, getHits(), getHits() + getMisses(), getEvictions(),
+                getLoads(), loadLatency.getOneMinute(), loads.size(), getLoadFailures());
+    }
+}
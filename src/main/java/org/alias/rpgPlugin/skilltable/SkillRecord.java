@@ -0,0 +1,40 @@
+package org.alias.rpgPlugin.skilltable;
+
+import java.util.UUID;
+
+/**
+ * A player's XP per skill as handed from the {@link SkillXpEngine} to the {@link SkillStore}
+ */
+public final class SkillRecord {
+
+    private final UUID uuid;
+    // XP per Types ordinal
+    private final long[] xp;
+    // The values are XP earned on top of the saved record (its restore had not completed), not totals
+    private final boolean delta;
+    // Changed since it was last collected; clean records are only kept for caching
+    private final boolean dirty;
+
+    public SkillRecord(UUID uuid, long[] xp, boolean delta, boolean dirty) {
+        this.uuid = uuid;
+        this.xp = xp;
+        this.delta = delta;
+        this.dirty = dirty;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public long[] getXp() {
+        return xp;
+    }
+
+    public boolean isDelta() {
+        return delta;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+}
@@ -0,0 +1,482 @@
+package org.alias.rpgPlugin.skilltable;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import org.alias.rpgPlugin.hooks.player.WindowedLatency;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind persistence of skill progress. Grants only flag players dirty in the
+ * {@link SkillXpEngine}; every flush interval, or as soon as {@code maxDirty} players are dirty,
+ * the store thread collects the dirty players and rewrites the shard files they belong to.
+ * Many grants to one player between two flushes cost one record write.
+ * <p>
+ * Players are spread over {@link #SHARD_COUNT} shard files by UUID. A shard is written to a
+ * temporary file, forced to disk and renamed over the old one, so a crash leaves either the old
+ * or the new shard, never a torn one. Shards are read once and then kept in memory.
+ * <p>
+ * Shard layout (big-endian): magic(4) version(2) skillCount(2) records(4), then skillCount skill
+ * names (length(2) + UTF-8), then per record uuidMost(8) uuidLeast(8) and one unsigned varint of
+ * XP per skill. Skills are matched by name on load, so Types can be reordered or extended.
+ * <p>
+ * Shards are only written on the store thread. {@link #load} may be called from any thread (the
+ * {@link PlayerDataCache} loads on virtual threads) and takes the shard's lock, which flushes also
+ * hold while applying records, so a load sees a queued record either queued or applied.
+ */
+public class SkillStore implements AutoCloseable {
+
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
+    public static final int SHARD_COUNT = 16;
+    // 'RPGS'
+    private static final int MAGIC = 0x52504753;
+    private static final short VERSION = 1;
+    private static final String SHARD_PREFIX = "skills-";
+    private static final String SHARD_SUFFIX = ".bin";
+    private static final long CLOSE_TIMEOUT_SECONDS = 10L;
+
+    private static final Types[] SKILLS = Types.values();
+
+    private final Path directory;
+    private final SkillXpEngine engine;
+    private final long flushIntervalMillis;
+    private final int maxDirty;
+
+    // Saved XP per player of every shard, loaded on first use (guarded by the shard's lock)
+    private final List<Map<UUID, long[]>> shards = new ArrayList<>();
+    private final Object[] shardLocks = new Object[SHARD_COUNT];
+    // Shards changed in memory but not written yet, e.g. after a failed write (store thread only)
+    private final boolean[] unsaved = new boolean[SHARD_COUNT];
+    // Records waiting for the next flush, one per player
+    private final ConcurrentHashMap<UUID, SkillRecord> queued = new ConcurrentHashMap<>();
+    // Departed players' progress, collected on each flush
+    private volatile PlayerDataCache cache;
+
+    private ScheduledExecutorService executor;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder recordsWritten = new LongAdder();
+    private final LongAdder shardsWritten = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final WindowedLatency flushLatency = new WindowedLatency();
+    private volatile String lastError;
+
+    /**
+     * @param flushIntervalMillis Longest time a grant stays unsaved
+     * @param maxDirty Flush early once this many players are dirty
+     */
+    public SkillStore(Path directory, SkillXpEngine engine, long flushIntervalMillis, int maxDirty) {
+        this.directory = directory;
+        this.engine = engine;
+        this.flushIntervalMillis = Math.max(100L, flushIntervalMillis);
+        this.maxDirty = Math.max(1, maxDirty);
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shards.add(null);
+            shardLocks[i] = new Object();
+        }
+    }
+
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "RPG-SkillStore");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> flushQuietly(false), flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        engine.setDirtyThreshold(maxDirty, this::requestFlush);
+    }
+
+    /**
+     * Collect the dirty entries of this cache on every flush (null to stop)
+     */
+    public void setCache(PlayerDataCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Saved XP of a player, including progress queued but not flushed yet. Blocks on disk the first
+     * time a shard is read; callable from any thread.
+     * @return XP per Types ordinal, or null if nothing was saved
+     */
+    public long[] load(UUID uuid) throws IOException {
+        int shard = shardOf(uuid);
+        synchronized (shardLocks[shard]) {
+            long[] saved = shard(shard).get(uuid);
+            SkillRecord pending = queued.get(uuid);
+            if (pending == null) {
+                return saved != null ? saved.clone() : null;
+            }
+            return pending.isDelta() ? add(saved, pending.getXp()) : pending.getXp().clone();
+        }
+    }
+
+    /**
+     * Write a record with the next flush, merged with one already queued for the player
+     */
+    public void queue(SkillRecord record) {
+        queued.merge(record.getUuid(), record, SkillStore::combine);
+    }
+
+    /**
+     * Flush as soon as possible (called when the engine reaches the dirty threshold)
+     */
+    public void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            submit(() -> flushQuietly(false));
+        }
+    }
+
+    private void submit(Runnable task) {
+        ScheduledExecutorService current = executor;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.execute(task);
+        } catch (RejectedExecutionException ignored) {
+            // Closing
+        }
+    }
+
+    private void flushQuietly(boolean shuttingDown) {
+        try {
+            flush(shuttingDown);
+        } catch (RuntimeException e) {
+            fail("Skill flush failed: " + e);
+        }
+    }
+
+    /**
+     * Write the dirty players, the cache's dirty entries and the queued records (store thread)
+     */
+    private void flush(boolean shuttingDown) {
+        flushRequested.set(false);
+        long start = System.nanoTime();
+        List<SkillRecord> collected = new ArrayList<>();
+        engine.collectDirty(collected, shuttingDown);
+        PlayerDataCache currentCache = cache;
+        if (currentCache != null) {
+            currentCache.collectDirty(collected);
+        }
+        for (SkillRecord record : collected) {
+            queue(record);
+        }
+
+        int records = 0;
+        for (SkillRecord record : queued.values()) {
+            int shard = shardOf(record.getUuid());
+            synchronized (shardLocks[shard]) {
+                Map<UUID, long[]> saved;
+                try {
+                    saved = shard(shard);
+                } catch (IOException e) {
+                    // Shard unreadable even after moving it aside; the record stays queued
+                    fail("Failed to load skill shard " + shard + ": " + e.getMessage());
+                    continue;
+                }
+                if (!queued.remove(record.getUuid(), record)) {
+                    // Merged with a newer record meanwhile, which the next flush takes
+                    continue;
+                }
+                if (record.isDelta()) {
+                    saved.put(record.getUuid(), add(saved.get(record.getUuid()), record.getXp()));
+                } else {
+                    saved.put(record.getUuid(), record.getXp().clone());
+                }
+            }
+            unsaved[shard] = true;
+            records++;
+        }
+
+        int written = 0;
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            if (!unsaved[shard]) {
+                continue;
+            }
+            try {
+                byte[] encoded;
+                synchronized (shardLocks[shard]) {
+                    encoded = encodeShard(shards.get(shard));
+                }
+                writeShard(shard, encoded);
+                bytesWritten.add(encoded.length);
+                unsaved[shard] = false;
+                shardsWritten.increment();
+                written++;
+            } catch (IOException e) {
+                fail("Failed to write skill shard " + shard + ": " + e.getMessage());
+            }
+        }
+        if (written > 0 || records > 0) {
+            recordsWritten.add(records);
+            flushes.increment();
+            flushLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Saved XP of a shard, read on first use (caller holds the shard's lock)
+     */
+    private Map<UUID, long[]> shard(int shard) throws IOException {
+        Map<UUID, long[]> saved = shards.get(shard);
+        if (saved == null) {
+            Path path = shardPath(shard);
+            try {
+                saved = readShard(path);
+            } catch (IOException e) {
+                if (!Files.exists(path)) {
+                    throw e;
+                }
+                // Keep the unreadable file for inspection and start the shard over
+                Path aside = path.resolveSibling(path.getFileName() + ".corrupt-" + System.currentTimeMillis());
+                Files.move(path, aside);
+                fail("Skill shard " + path.getFileName() + " is unreadable (" + e.getMessage() + "), moved to " + aside.getFileName());
+                saved = new HashMap<>();
+            }
+            shards.set(shard, saved);
+        }
+        return saved;
+    }
+
+    private Map<UUID, long[]> readShard(Path path) throws IOException {
+        Map<UUID, long[]> saved = new HashMap<>();
+        if (!Files.exists(path)) {
+            return saved;
+        }
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("bad magic");
+            }
+            short version = in.getShort();
+            if (version != VERSION) {
+                throw new IOException("unsupported version " + version);
+            }
+            int skillCount = in.getShort() & 0xFFFF;
+            int records = in.getInt();
+            // Types ordinal of each stored skill, -1 for skills that no longer exist
+            int[] ordinals = new int[skillCount];
+            for (int i = 0; i < skillCount; i++) {
+                byte[] name = new byte[in.getShort() & 0xFFFF];
+                in.get(name);
+                ordinals[i] = ordinalOf(new String(name, StandardCharsets.UTF_8));
+            }
+            for (int r = 0; r < records; r++) {
+                UUID uuid = new UUID(in.getLong(), in.getLong());
+                long[] xp = new long[SKILLS.length];
+                for (int i = 0; i < skillCount; i++) {
+                    long value = readVarLong(in);
+                    if (ordinals[i] >= 0) {
+                        xp[ordinals[i]] = value;
+                    }
+                }
+                saved.put(uuid, xp);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("truncated or malformed shard: " + e, e);
+        }
+        return saved;
+    }
+
+    private static byte[] encodeShard(Map<UUID, long[]> saved) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + saved.size() * 40);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(SKILLS.length);
+        out.writeInt(saved.size());
+        for (Types skill : SKILLS) {
+            byte[] name = skill.name().getBytes(StandardCharsets.UTF_8);
+            out.writeShort(name.length);
+            out.write(name);
+        }
+        for (Map.Entry<UUID, long[]> entry : saved.entrySet()) {
+            out.writeLong(entry.getKey().getMostSignificantBits());
+            out.writeLong(entry.getKey().getLeastSignificantBits());
+            for (int i = 0; i < SKILLS.length; i++) {
+                writeVarLong(out, entry.getValue()[i]);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Replace a shard file: temporary file, fsync, atomic rename
+     */
+    private void writeShard(int shard, byte[] encoded) throws IOException {
+        Path path = shardPath(shard);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path shardPath(int shard) {
+        return directory.resolve(String.format("%s%02d%s", SHARD_PREFIX, shard, SHARD_SUFFIX));
+    }
+
+    private static int shardOf(UUID uuid) {
+        return Math.floorMod(uuid.hashCode(), SHARD_COUNT);
+    }
+
+    private static int ordinalOf(String name) {
+        for (Types skill : SKILLS) {
+            if (skill.name().equals(name)) {
+                return skill.ordinal();
+            }
+        }
+        return -1;
+    }
+
+    private static long[] add(long[] saved, long[] delta) {
+        long[] sum = saved != null ? saved.clone() : new long[SKILLS.length];
+        for (int i = 0; i < sum.length && i < delta.length; i++) {
+            sum[i] += delta[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Merge two queued records of the same player; the newer one wins unless it is a delta
+     */
+    private static SkillRecord combine(SkillRecord older, SkillRecord newer) {
+        if (!newer.isDelta()) {
+            return newer;
+        }
+        return new SkillRecord(newer.getUuid(), add(older.getXp(), newer.getXp()), older.isDelta(), true);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long v = Math.max(0L, value);
+        while ((v & ~0x7FL) != 0L) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(ByteBuffer in) throws IOException {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint too long");
+    }
+
+    private void fail(String message) {
+        errors.increment();
+        lastError = message;
+        LOGGER.atWarning().log(message);
+    }
+
+    /**
+     * Stop the store thread after a last flush of everything still in memory
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService current = executor;
+        if (current == null) {
+            return;
+        }
+        engine.setDirtyThreshold(Integer.MAX_VALUE, null);
+        try {
+            current.execute(() -> flushQuietly(true));
+        } catch (RejectedExecutionException ignored) {
+        }
+        current.shutdown();
+        try {
+            if (!current.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                fail("Skill store did not finish its last flush in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    public long getRecordsWritten() {
+        return recordsWritten.sum();
+    }
+
+    public long getShardsWritten() {
+        return shardsWritten.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * Records waiting for the next flush
+     */
+    public int getQueued() {
+        return queued.size();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public WindowedLatency getFlushLatency() {
+        return flushLatency;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d flushes (%s), %d records, %d shards, %d bytes | %d dirty, %d queued, %d errors",
+                getFlushes(), flushLatency.getOneMinute(), getRecordsWritten(), getShardsWritten(), getBytesWritten(),
+                engine.getDirtyCount(), getQueued(), getErrors());
+    }
+}
@@ -0,0 +1,400 @@
+package org.alias.rpgPlugin.skilltable;
+
+import org.alias.rpgPlugin.hooks.player.PlayerSlotIndex;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Skill XP and levels of every attached player, stored column-wise: one XP column ({@code long}) and
+ * one cached-level column ({@code int}) per {@link Types} ordinal, indexed by the player's dense slot.
+ * Columns are split into chunks of {@link #CHUNK_SIZE} slots that are never reallocated, so growing
+ * the table only copies the small chunk directory and grants in flight keep hitting the same arrays.
+ * <p>
+ * {@link #grant} is lock-free and allocation-free and can be called from any thread (world threads
+ * at combat rates): XP is added with an atomic getAndAdd and the cached level only moves up through
+ * a compare-and-set, so concurrent grants for the same player never lose XP or a level-up.
+ * Attaching and detaching players is synchronized and may allocate.
+ * <p>
+ * For persistence every slot carries two flags: DIRTY (granted since it was last collected, set by
+ * the first grant after a collection) and LOADED (the saved progress was restored). Only loaded
+ * slots are handed out by {@link #collectDirty}, so XP earned before the restore completes is
+ * never written over the saved record; {@link #restore} adds the saved XP on top of it instead.
+ * <p>
+ * Slots are reused after {@link #detach}; a caller that resolved a slot before the player left may
+ * credit the next player of that slot, so resolve the slot right before granting.
+ */
+public class SkillXpEngine {
+
+    public static final int CHUNK_SHIFT = 10;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final Types[] SKILLS = Types.values();
+    private static final int SKILL_COUNT = SKILLS.length;
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    // Slot flags
+    private static final int DIRTY = 1;
+    private static final int LOADED = 1 << 1;
+
+    private final XpCurve curve;
+    // Assigned and released under the engine's lock only
+    private final PlayerSlotIndex slots = new PlayerSlotIndex();
+
+    // Chunk directories: xp[skill][chunk][slot & CHUNK_MASK]; replaced (never modified) when growing
+    private volatile long[][][] xp;
+    private volatile int[][][] levels;
+    // flags[chunk][slot & CHUNK_MASK], DIRTY | LOADED
+    private volatile int[][] flags;
+    // Owner of each slot, only touched under the engine's lock
+    private long[] slotMost = new long[0];
+    private long[] slotLeast = new long[0];
+
+    private final AtomicInteger dirtyCount = new AtomicInteger();
+    // Called once each time the dirty count reaches the threshold (from the granting thread)
+    private volatile int dirtyThreshold = Integer.MAX_VALUE;
+    private volatile Runnable dirtyThresholdListener;
+
+    private final LongAdder grants = new LongAdder();
+    private final LongAdder levelUps = new LongAdder();
+    private final LongAdder missedGrants = new LongAdder();
+
+    public SkillXpEngine(XpCurve curve) {
+        this.curve = curve;
+        this.xp = new long[SKILL_COUNT][0][];
+        this.levels = new int[SKILL_COUNT][0][];
+        this.flags = new int[0][];
+    }
+
+    /**
+     * Give a player a slot with every skill at 0 XP (level 1); a player already attached keeps theirs
+     * @return The player's slot
+     */
+    public synchronized int attach(UUID uuid) {
+        int existing = slots.slotOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        if (existing >= 0) {
+            return existing;
+        }
+        int slot = slots.acquire(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        ensureChunk(slot >>> CHUNK_SHIFT);
+        clearSlot(slot);
+        slotMost[slot] = uuid.getMostSignificantBits();
+        slotLeast[slot] = uuid.getLeastSignificantBits();
+        return slot;
+    }
+
+    /**
+     * Free a player's slot
+     * @return The player's final progress, dirty if it changed since the last collection; a delta
+     * record if the restore had not completed; null when the player was not attached, or was never
+     * restored and earned nothing
+     */
+    public synchronized SkillRecord detach(UUID uuid) {
+        int slot = slots.slotOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        if (slot < 0) {
+            return null;
+        }
+        int slotFlags = takeFlags(slot);
+        SkillRecord record = (slotFlags & (DIRTY | LOADED)) != 0
+                ? capture(slot, (slotFlags & LOADED) == 0, (slotFlags & DIRTY) != 0) : null;
+        slots.release(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        clearSlot(slot);
+        return record;
+    }
+
+    /**
+     * Add a player's saved progress, typically loaded in the background after {@link #attach}.
+     * XP granted in the meantime is kept on top of it. Ignored if the player left the slot.
+     * @param saved Saved XP per Types ordinal, null when the player has no saved progress
+     * @return False if the slot no longer belongs to the player
+     */
+    public synchronized boolean restore(int slot, UUID uuid, long[] saved) {
+        if (slot < 0 || slot >= slotMost.length || slots.slotOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()) != slot) {
+            return false;
+        }
+        int chunk = slot >>> CHUNK_SHIFT;
+        int offset = slot & CHUNK_MASK;
+        if (saved != null) {
+            for (int skill = 0; skill < SKILL_COUNT && skill < saved.length; skill++) {
+                if (saved[skill] > 0L) {
+                    long total = (long) LONGS.getAndAdd(xp[skill][chunk], offset, saved[skill]) + saved[skill];
+                    raiseLevel(levels[skill][chunk], offset, curve.levelFor(total));
+                }
+            }
+        }
+        INTS.getAndBitwiseOr(flags[chunk], offset, LOADED);
+        return true;
+    }
+
+    /**
+     * Whether the saved progress of a slot has been restored
+     */
+    public boolean isLoaded(int slot) {
+        return ((int) INTS.getVolatile(flags[slot >>> CHUNK_SHIFT], slot & CHUNK_MASK) & LOADED) != 0;
+    }
+
+    /**
+     * Take the progress of every restored player granted XP since the last collection. Their dirty
+     * flags are cleared first, so grants racing with the copy mark them dirty again.
+     * @param shuttingDown Also take players whose restore has not completed, as delta records. Only for the
+     *                     last collection before shutting down: a later restore would count their XP twice.
+     * @return Number of records added
+     */
+    public synchronized int collectDirty(List<SkillRecord> out, boolean shuttingDown) {
+        if (dirtyCount.get() == 0) {
+            return 0;
+        }
+        int[][] currentFlags = flags;
+        int added = 0;
+        for (int slot = 0; slot < slots.capacity(); slot++) {
+            int[] flagChunk = currentFlags[slot >>> CHUNK_SHIFT];
+            int offset = slot & CHUNK_MASK;
+            int slotFlags = (int) INTS.getVolatile(flagChunk, offset);
+            if ((slotFlags & DIRTY) == 0 || ((slotFlags & LOADED) == 0 && !shuttingDown)) {
+                continue;
+            }
+            INTS.getAndBitwiseAnd(flagChunk, offset, ~DIRTY);
+            dirtyCount.decrementAndGet();
+            out.add(capture(slot, (slotFlags & LOADED) == 0, true));
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * Players granted XP since their progress was last collected
+     */
+    public int getDirtyCount() {
+        return dirtyCount.get();
+    }
+
+    /**
+     * Have {@code listener} called (on the granting thread) whenever the dirty count reaches {@code threshold}
+     */
+    public void setDirtyThreshold(int threshold, Runnable listener) {
+        this.dirtyThresholdListener = listener;
+        this.dirtyThreshold = Math.max(1, threshold);
+    }
+
+    /**
+     * Slot of an attached player from any thread
+     * @return The slot, or -1 if the player is not attached
+     */
+    public int slotOf(UUID uuid) {
+        return slots.slotOf(uuid);
+    }
+
+    /**
+     * Add XP to one skill of a player
+     * @param slot Slot from {@link #attach} or {@link #slotOf}
+     * @param amount XP to add; zero or negative amounts are ignored
+     * @return The level after the grant, higher than before if the player levelled up; -1 for an invalid slot
+     */
+    public int grant(int slot, Types skill, long amount) {
+        long[][] xpChunks = xp[skill.ordinal()];
+        int chunk = slot >>> CHUNK_SHIFT;
+        if (slot < 0 || chunk >= xpChunks.length) {
+            missedGrants.increment();
+            return -1;
+        }
+        int offset = slot & CHUNK_MASK;
+        int[] levelChunk = levels[skill.ordinal()][chunk];
+        if (amount <= 0L) {
+            return (int) INTS.getVolatile(levelChunk, offset);
+        }
+        grants.increment();
+
+        long total = (long) LONGS.getAndAdd(xpChunks[chunk], offset, amount) + amount;
+        markDirty(chunk, offset);
+        int level = (int) INTS.getVolatile(levelChunk, offset);
+        // Common case: still below the next level, no search needed
+        if (total < curve.xpForLevel(level + 1)) {
+            return level;
+        }
+        return raiseLevel(levelChunk, offset, curve.levelFor(total));
+    }
+
+    /**
+     * Move a cached level up to {@code reached} unless another thread already moved it further
+     * @return The level now cached
+     */
+    private int raiseLevel(int[] levelChunk, int offset, int reached) {
+        int level = (int) INTS.getVolatile(levelChunk, offset);
+        while (reached > level) {
+            int witness = (int) INTS.compareAndExchange(levelChunk, offset, level, reached);
+            if (witness == level) {
+                levelUps.increment();
+                return reached;
+            }
+            // Another grant moved the level meanwhile; keep whichever is higher
+            level = witness;
+        }
+        return level;
+    }
+
+    private void markDirty(int chunk, int offset) {
+        int[] flagChunk = flags[chunk];
+        // Plain read first so repeated grants to a dirty player do not contend on the flag
+        if (((int) INTS.getOpaque(flagChunk, offset) & DIRTY) != 0) {
+            return;
+        }
+        int previous = (int) INTS.getAndBitwiseOr(flagChunk, offset, DIRTY);
+        if ((previous & DIRTY) == 0 && dirtyCount.incrementAndGet() == dirtyThreshold) {
+            Runnable listener = dirtyThresholdListener;
+            if (listener != null) {
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * Add XP to a player by UUID (one concurrent map lookup on top of {@link #grant(int, Types, long)})
+     * @return The level after the grant, or -1 if the player is not attached
+     */
+    public int grant(UUID uuid, Types skill, long amount) {
+        int slot = slots.slotOf(uuid);
+        if (slot < 0) {
+            missedGrants.increment();
+            return -1;
+        }
+        return grant(slot, skill, amount);
+    }
+
+    /**
+     * Replace a player's XP in one skill; the level follows the XP. Does not mark the player dirty.
+     */
+    public void set(int slot, Types skill, long total) {
+        int chunk = slot >>> CHUNK_SHIFT;
+        int offset = slot & CHUNK_MASK;
+        long value = Math.max(0L, total);
+        LONGS.setVolatile(xp[skill.ordinal()][chunk], offset, value);
+        INTS.setVolatile(levels[skill.ordinal()][chunk], offset, curve.levelFor(value));
+    }
+
+    public long getXp(int slot, Types skill) {
+        return (long) LONGS.getVolatile(xp[skill.ordinal()][slot >>> CHUNK_SHIFT], slot & CHUNK_MASK);
+    }
+
+    /**
+     * Cached level of a skill, a single array read
+     */
+    public int getLevel(int slot, Types skill) {
+        return (int) INTS.getVolatile(levels[skill.ordinal()][slot >>> CHUNK_SHIFT], slot & CHUNK_MASK);
+    }
+
+    /**
+     * Sum of a player's levels over every skill
+     */
+    public int getTotalLevel(int slot) {
+        int total = 0;
+        for (Types skill : SKILLS) {
+            total += getLevel(slot, skill);
+        }
+        return total;
+    }
+
+    private void ensureChunk(int chunk) {
+        long[][][] currentXp = xp;
+        if (chunk < currentXp[0].length) {
+            return;
+        }
+        int chunks = Math.max(chunk + 1, currentXp[0].length * 2);
+        long[][][] grownXp = new long[SKILL_COUNT][][];
+        int[][][] grownLevels = new int[SKILL_COUNT][][];
+        for (int skill = 0; skill < SKILL_COUNT; skill++) {
+            grownXp[skill] = Arrays.copyOf(currentXp[skill], chunks);
+            grownLevels[skill] = Arrays.copyOf(levels[skill], chunks);
+            for (int i = currentXp[skill].length; i < chunks; i++) {
+                grownXp[skill][i] = new long[CHUNK_SIZE];
+                grownLevels[skill][i] = new int[CHUNK_SIZE];
+            }
+        }
+        int[][] grownFlags = Arrays.copyOf(flags, chunks);
+        for (int i = flags.length; i < chunks; i++) {
+            grownFlags[i] = new int[CHUNK_SIZE];
+        }
+        slotMost = Arrays.copyOf(slotMost, chunks * CHUNK_SIZE);
+        slotLeast = Arrays.copyOf(slotLeast, chunks * CHUNK_SIZE);
+        // Levels and flags first: a reader that sees the new XP directory also sees the matching chunks
+        levels = grownLevels;
+        flags = grownFlags;
+        xp = grownXp;
+    }
+
+    private void clearSlot(int slot) {
+        int chunk = slot >>> CHUNK_SHIFT;
+        int offset = slot & CHUNK_MASK;
+        for (int skill = 0; skill < SKILL_COUNT; skill++) {
+            LONGS.setVolatile(xp[skill][chunk], offset, 0L);
+            INTS.setVolatile(levels[skill][chunk], offset, 1);
+        }
+        takeFlags(slot);
+    }
+
+    /**
+     * Clear a slot's flags, keeping the dirty count in step
+     * @return The flags it had
+     */
+    private int takeFlags(int slot) {
+        int previous = (int) INTS.getAndSet(flags[slot >>> CHUNK_SHIFT], slot & CHUNK_MASK, 0);
+        if ((previous & DIRTY) != 0) {
+            dirtyCount.decrementAndGet();
+        }
+        return previous;
+    }
+
+    private SkillRecord capture(int slot, boolean delta, boolean dirty) {
+        long[] values = new long[SKILL_COUNT];
+        for (int skill = 0; skill < SKILL_COUNT; skill++) {
+            values[skill] = getXp(slot, SKILLS[skill]);
+        }
+        return new SkillRecord(new UUID(slotMost[slot], slotLeast[slot]), values, delta, dirty);
+    }
+
+    public XpCurve getCurve() {
+        return curve;
+    }
+
+    /**
+     * Number of attached players
+     */
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * One past the highest slot ever assigned
+     */
+    public int capacity() {
+        return slots.capacity();
+    }
+
+    public long getGrants() {
+        return grants.sum();
+    }
+
+    public long getLevelUps() {
+        return levelUps.sum();
+    }
+
+    /**
+     * Grants dropped because the player was not attached
+     */
+    public long getMissedGrants() {
+        return missedGrants.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d players | %d grants, %d level-ups, %d missed",
+                size(), getGrants(), getLevelUps(), getMissedGrants());
+    }
+}
@@ -0,0 +1,232 @@
+package org.alias.rpgPlugin.skilltable;
+
+import org.alias.rpgPlugin.hooks.player.PlayerStateTable;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns consecutive player states into skill XP. Only the rows the state table reports as changed
+ * are visited ({@link PlayerStateTable#getChangedSlots()}), each against the values it had the last
+ * time it changed, so a tick costs O(changed players). The XP earned in a tick is queued and handed
+ * to the {@link SkillXpEngine} in one batch at the end of the tick.
+ * <p>
+ * Rules (heuristics on the gathered telemetry):
+ * <ul>
+ *     <li>SAILING: distance travelled while swimming, or while mounted in a fluid (boats)</li>
+ *     <li>A new {@code lastCombatAction}: ARCHERY when a charge started shortly before it, MAGIC when
+ *     mana dropped in the same tick, MELEE otherwise</li>
+ * </ul>
+ * Moves longer than {@link #MAX_STEP_BLOCKS} in one tick are teleports and earn nothing.
+ * <p>
+ * With a {@link PlayerDataCache} set, players are attached through it (restoring their saved
+ * progress) and released when the state table evicts them.
+ * <p>
+ * Owned by the state table's thread (the network tick).
+ */
+public class XpAttribution {
+
+    public static final double BLOCKS_PER_SAILING_XP = 4.0;
+    public static final long COMBAT_ACTION_XP = 4L;
+    public static final double MAX_STEP_BLOCKS = 16.0;
+    // A charge this close before a combat action makes it a ranged one
+    public static final long CHARGE_WINDOW_MILLIS = 2_000L;
+
+    // MovementStates bits (PlayerSnapshot.MOVEMENT_STATE_NAMES)
+    private static final long SWIMMING = 1L << 3;
+    private static final long IN_FLUID = 1L << 11;
+    private static final long MOUNTING = 1L << 14;
+    private static final long MOUNTED_IN_FLUID = MOUNTING | IN_FLUID;
+    // Stat column holding mana (see PlayerHook.captureSnapshot)
+    private static final int MANA_STAT = 2;
+
+    private static final Types[] SKILLS = Types.values();
+
+    private final SkillXpEngine engine;
+    private volatile PlayerDataCache cache;
+
+    // Baseline per state-table slot: the row's values when it was last visited
+    private boolean[] known = new boolean[0];
+    private long[] uuidMost = new long[0];
+    private long[] uuidLeast = new long[0];
+    private int[] engineSlot = new int[0];
+    private double[] lastX = new double[0];
+    private double[] lastY = new double[0];
+    private double[] lastZ = new double[0];
+    private long[] lastCombatAction = new long[0];
+    private float[] lastMana = new float[0];
+    // Sailing distance not yet converted into XP
+    private double[] sailingRemainder = new double[0];
+
+    // Grants queued during the current tick
+    private int[] pendingSlot = new int[64];
+    private byte[] pendingSkill = new byte[64];
+    private long[] pendingAmount = new long[64];
+    private int pendingCount;
+
+    private final LongAdder visited = new LongAdder();
+    private final LongAdder xpAwarded = new LongAdder();
+    private final long[] xpBySkill = new long[SKILLS.length];
+
+    public XpAttribution(SkillXpEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Attribute the XP of the rows changed in the table's last ingested frame, then apply it
+     */
+    public void update(PlayerStateTable table) {
+        if (known.length < table.slotCount()) {
+            grow(Math.max(table.slotCount(), known.length * 2));
+        }
+        int[] changed = table.getChangedSlots();
+        int count = table.getChangedCount();
+        for (int i = 0; i < count; i++) {
+            attribute(table, changed[i]);
+        }
+        visited.add(count);
+        applyPending();
+
+        // Departed players: forget the slot's baseline and hand their progress to the cache
+        PlayerDataCache currentCache = cache;
+        for (int i = 0; i < table.getEvictedCount(); i++) {
+            known[table.getEvictedSlots()[i]] = false;
+            if (currentCache != null) {
+                currentCache.release(new UUID(table.getEvictedUuidMost()[i], table.getEvictedUuidLeast()[i]));
+            }
+        }
+    }
+
+    private void attribute(PlayerStateTable table, int slot) {
+        long most = table.getUuidMost()[slot];
+        long least = table.getUuidLeast()[slot];
+        double x = table.getX()[slot];
+        double y = table.getY()[slot];
+        double z = table.getZ()[slot];
+        long combatAction = table.getLastCombatAction()[slot];
+        float mana = table.getStat(MANA_STAT)[slot];
+
+        if (!known[slot] || uuidMost[slot] != most || uuidLeast[slot] != least) {
+            // New player in this slot: start from the current values, nothing to attribute yet
+            known[slot] = true;
+            uuidMost[slot] = most;
+            uuidLeast[slot] = least;
+            UUID uuid = new UUID(most, least);
+            PlayerDataCache currentCache = cache;
+            engineSlot[slot] = currentCache != null ? currentCache.attach(uuid) : engine.attach(uuid);
+            sailingRemainder[slot] = 0.0;
+        } else {
+            long movement = table.getMovementBits()[slot];
+            if ((movement & SWIMMING) != 0 || (movement & MOUNTED_IN_FLUID) == MOUNTED_IN_FLUID) {
+                double dx = x - lastX[slot];
+                double dy = y - lastY[slot];
+                double dz = z - lastZ[slot];
+                double step = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                if (step <= MAX_STEP_BLOCKS) {
+                    double distance = sailingRemainder[slot] + step;
+                    long xp = (long) (distance / BLOCKS_PER_SAILING_XP);
+                    sailingRemainder[slot] = distance - xp * BLOCKS_PER_SAILING_XP;
+                    queue(slot, Types.SAILING, xp);
+                }
+            }
+
+            if (combatAction > lastCombatAction[slot]) {
+                long chargeTime = table.getLastChargeTime()[slot];
+                Types skill;
+                if (chargeTime >= 0L && combatAction - chargeTime <= CHARGE_WINDOW_MILLIS) {
+                    skill = Types.ARCHERY;
+                } else if (mana < lastMana[slot]) {
+                    skill = Types.MAGIC;
+                } else {
+                    skill = Types.MELEE;
+                }
+                queue(slot, skill, COMBAT_ACTION_XP);
+            }
+        }
+
+        lastX[slot] = x;
+        lastY[slot] = y;
+        lastZ[slot] = z;
+        lastCombatAction[slot] = combatAction;
+        lastMana[slot] = mana;
+    }
+
+    private void queue(int slot, Types skill, long amount) {
+        if (amount <= 0L) {
+            return;
+        }
+        if (pendingCount == pendingSlot.length) {
+            int size = pendingCount * 2;
+            pendingSlot = Arrays.copyOf(pendingSlot, size);
+            pendingSkill = Arrays.copyOf(pendingSkill, size);
+            pendingAmount = Arrays.copyOf(pendingAmount, size);
+        }
+        pendingSlot[pendingCount] = engineSlot[slot];
+        pendingSkill[pendingCount] = (byte) skill.ordinal();
+        pendingAmount[pendingCount] = amount;
+        pendingCount++;
+    }
+
+    /**
+     * Hand the tick's grants to the engine
+     */
+    private void applyPending() {
+        long total = 0L;
+        for (int i = 0; i < pendingCount; i++) {
+            Types skill = SKILLS[pendingSkill[i]];
+            engine.grant(pendingSlot[i], skill, pendingAmount[i]);
+            xpBySkill[skill.ordinal()] += pendingAmount[i];
+            total += pendingAmount[i];
+        }
+        pendingCount = 0;
+        xpAwarded.add(total);
+    }
+
+    private void grow(int size) {
+        known = Arrays.copyOf(known, size);
+        uuidMost = Arrays.copyOf(uuidMost, size);
+        uuidLeast = Arrays.copyOf(uuidLeast, size);
+        engineSlot = Arrays.copyOf(engineSlot, size);
+        lastX = Arrays.copyOf(lastX, size);
+        lastY = Arrays.copyOf(lastY, size);
+        lastZ = Arrays.copyOf(lastZ, size);
+        lastCombatAction = Arrays.copyOf(lastCombatAction, size);
+        lastMana = Arrays.copyOf(lastMana, size);
+        sailingRemainder = Arrays.copyOf(sailingRemainder, size);
+    }
+
+    /**
+     * Attach and release players through this cache from now on (null to stop)
+     */
+    public void setCache(PlayerDataCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Changed rows visited so far
+     */
+    public long getVisitedRows() {
+        return visited.sum();
+    }
+
+    /**
+     * XP handed to the engine so far
+     */
+    public long getXpAwarded() {
+        return xpAwarded.sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append(getVisitedRows()).append(" rows visited, ").append(getXpAwarded()).append(" XP");
+        for (Types skill : SKILLS) {
+            long xp = xpBySkill[skill.ordinal()];
+            if (xp > 0L) {
+                out.append(" | ").append(skill).append(' ').append(xp);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package org.alias.rpgPlugin.skilltable;
+
+/**
+ * Total XP needed for every level, computed once. Levels start at 1 (0 XP); looking up the level of
+ * an XP total is a binary search over the table, so no exponentials are evaluated per call.
+ * Immutable and thread-safe.
+ */
+public final class XpCurve {
+
+    public static final int DEFAULT_MAX_LEVEL = 99;
+    public static final XpCurve DEFAULT = standard(DEFAULT_MAX_LEVEL);
+
+    // thresholds[level - 1] = total XP at which the level is reached
+    private final long[] thresholds;
+
+    /**
+     * @param thresholds Total XP per level starting with level 1, which must be 0; strictly increasing
+     */
+    public XpCurve(long[] thresholds) {
+        if (thresholds.length == 0 || thresholds[0] != 0L) {
+            throw new IllegalArgumentException("Level 1 must start at 0 XP");
+        }
+        for (int i = 1; i < thresholds.length; i++) {
+            if (thresholds[i] <= thresholds[i - 1]) {
+                throw new IllegalArgumentException("XP thresholds must increase, level " + (i + 1) + " does not");
+            }
+        }
+        this.thresholds = thresholds.clone();
+    }
+
+    /**
+     * Exponential curve where each level costs about 10% more than the one before it:
+     * level L needs floor(sum over l < L of (l + 300 * 2^(l / 7)) / 4) XP (83 for level 2, ~13M for 99)
+     */
+    public static XpCurve standard(int maxLevel) {
+        if (maxLevel < 1) {
+            throw new IllegalArgumentException("maxLevel must be at least 1");
+        }
+        long[] thresholds = new long[maxLevel];
+        double points = 0.0;
+        for (int level = 1; level < maxLevel; level++) {
+            points += Math.floor(level + 300.0 * Math.pow(2.0, level / 7.0));
+            thresholds[level] = (long) Math.floor(points / 4.0);
+        }
+        return new XpCurve(thresholds);
+    }
+
+    /**
+     * Level reached with a total XP; values above the last threshold stay at the maximum level
+     */
+    public int levelFor(long xp) {
+        if (xp <= 0L) {
+            return 1;
+        }
+        // Last index whose threshold is <= xp
+        int low = 0;
+        int high = thresholds.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (thresholds[mid] <= xp) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low + 1;
+    }
+
+    /**
+     * Total XP at which a level is reached
+     * @return Long.MAX_VALUE above the maximum level
+     */
+    public long xpForLevel(int level) {
+        if (level <= 1) {
+            return 0L;
+        }
+        return level <= thresholds.length ? thresholds[level - 1] : Long.MAX_VALUE;
+    }
+
+    public int getMaxLevel() {
+        return thresholds.length;
+    }
+
+    @Override
+    public String toString() {
+        return "XpCurve{maxLevel=" + thresholds.length + ", maxXp=" + thresholds[thresholds.length - 1] + "}";
+    }
+}
@@ -0,0 +1,353 @@
+package org.alias.rpgPlugin.spatial;
+
+import java.util.Arrays;
+
+/**
+ * Uniform hash grid of point entities in one world, for "who is near X" queries.
+ *
+ * The grid is two dimensional: cells are square columns over X/Z (chunk-aligned with the default
+ * 32 block cell) and Y is only checked per entity. Entities are dense int ids (player table
+ * slots); each cell is an intrusive doubly linked list threaded through per-id arrays, and cells
+ * are found through an open-addressing table keyed by the packed cell coordinates. Moving an
+ * entity within its cell only stores the new position; crossing a cell boundary is two list
+ * splices. Neither updates nor queries allocate once the arrays have grown.
+ *
+ * Not thread-safe: build and query it on one thread. Visitors may run further queries but must
+ * not update or remove entities.
+ */
+public class SpatialGrid {
+
+    public static final double DEFAULT_CELL_SIZE = 32.0;
+
+    private static final int NONE = -1;
+
+    private final double cellSize;
+    private final double inverseCellSize;
+
+    // Per entity id
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] z = new double[0];
+    private long[] cellOf = new long[0];
+    private int[] next = new int[0];
+    private int[] previous = new int[0];
+    private boolean[] indexed = new boolean[0];
+    private int size;
+
+    // Cell table: packed cell key -> first entity of the cell
+    private long[] cellKeys = new long[64];
+    private int[] cellHeads = new int[64];
+    private boolean[] cellUsed = new boolean[64];
+    private int cellCount;
+    // Matches of the running query
+    private int visited;
+
+    public SpatialGrid() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * @param cellSize Edge of a cell in blocks; around the typical query radius works best
+     */
+    public SpatialGrid(double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("Cell size must be positive, got " + cellSize);
+        }
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1.0 / cellSize;
+    }
+
+    /**
+     * Insert an entity or move it to a new position
+     */
+    public void update(int id, double px, double py, double pz) {
+        if (id >= indexed.length) {
+            grow(Math.max(id + 1, indexed.length * 2));
+        }
+        long cell = cellKey(cellCoordinate(px), cellCoordinate(pz));
+        if (indexed[id]) {
+            if (cellOf[id] != cell) {
+                unlink(id);
+                link(id, cell);
+            }
+        } else {
+            indexed[id] = true;
+            size++;
+            link(id, cell);
+        }
+        x[id] = px;
+        y[id] = py;
+        z[id] = pz;
+    }
+
+    public void remove(int id) {
+        if (id < indexed.length && indexed[id]) {
+            unlink(id);
+            indexed[id] = false;
+            size--;
+        }
+    }
+
+    public boolean contains(int id) {
+        return id < indexed.length && indexed[id];
+    }
+
+    public void clear() {
+        Arrays.fill(indexed, false);
+        Arrays.fill(cellUsed, false);
+        size = 0;
+        cellCount = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getX(int id) {
+        return x[id];
+    }
+
+    public double getY(int id) {
+        return y[id];
+    }
+
+    public double getZ(int id) {
+        return z[id];
+    }
+
+    /**
+     * Visit every entity within {@code radius} of the point (spherical distance)
+     * @return Number of entities visited
+     */
+    public int forEachInRadius(double cx, double cy, double cz, double radius, SpatialVisitor visitor) {
+        return query(true, cx - radius, cy - radius, cz - radius, cx + radius, cy + radius, cz + radius,
+                cx, cy, cz, radius * radius, visitor);
+    }
+
+    /**
+     * Visit every entity inside the axis-aligned box (bounds inclusive)
+     * @return Number of entities visited
+     */
+    public int forEachInBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                            SpatialVisitor visitor) {
+        return query(false, minX, minY, minZ, maxX, maxY, maxZ, 0, 0, 0, 0, visitor);
+    }
+
+    private int query(boolean sphere, double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                      double cx, double cy, double cz, double radiusSquared, SpatialVisitor visitor) {
+        // Visitors may run queries of their own
+        int outer = visited;
+        try {
+            scan(sphere, minX, minY, minZ, maxX, maxY, maxZ, cx, cy, cz, radiusSquared, visitor);
+            return visited;
+        } finally {
+            visited = outer;
+        }
+    }
+
+    private void scan(boolean sphere, double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+                      double cx, double cy, double cz, double radiusSquared, SpatialVisitor visitor) {
+        int minCellX = cellCoordinate(minX);
+        int maxCellX = cellCoordinate(maxX);
+        int minCellZ = cellCoordinate(minZ);
+        int maxCellZ = cellCoordinate(maxZ);
+        visited = 0;
+        long rangeCells = ((long) maxCellX - minCellX + 1) * ((long) maxCellZ - minCellZ + 1);
+        if (rangeCells <= cellCount) {
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                    int index = findCell(cellKey(cellX, cellZ));
+                    if (index != NONE && !visitCell(cellHeads[index], sphere, minX, minY, minZ, maxX, maxY, maxZ,
+                            cx, cy, cz, radiusSquared, visitor)) {
+                        return;
+                    }
+                }
+            }
+        } else {
+            // Range spans more cells than are occupied: walk the occupied ones instead
+            for (int index = 0; index < cellKeys.length; index++) {
+                if (!cellUsed[index]) {
+                    continue;
+                }
+                long key = cellKeys[index];
+                int cellX = (int) (key >> 32);
+                int cellZ = (int) key;
+                if (cellX >= minCellX && cellX <= maxCellX && cellZ >= minCellZ && cellZ <= maxCellZ
+                        && !visitCell(cellHeads[index], sphere, minX, minY, minZ, maxX, maxY, maxZ,
+                        cx, cy, cz, radiusSquared, visitor)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Visit the matching entities of one cell's list
+     * @return false when the visitor stopped the query
+     */
+    private boolean visitCell(int first, boolean sphere, double minX, double minY, double minZ,
+                              double maxX, double maxY, double maxZ, double cx, double cy, double cz,
+                              double radiusSquared, SpatialVisitor visitor) {
+        for (int id = first; id != NONE; id = next[id]) {
+            double px = x[id];
+            double py = y[id];
+            double pz = z[id];
+            boolean inside;
+            if (sphere) {
+                double dx = px - cx;
+                double dy = py - cy;
+                double dz = pz - cz;
+                inside = dx * dx + dy * dy + dz * dz <= radiusSquared;
+            } else {
+                inside = px >= minX && px <= maxX && py >= minY && py <= maxY && pz >= minZ && pz <= maxZ;
+            }
+            if (inside) {
+                visited++;
+                if (!visitor.visit(id, px, py, pz)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Number of entities within {@code radius} of the point
+     */
+    public int countInRadius(double cx, double cy, double cz, double radius) {
+        return forEachInRadius(cx, cy, cz, radius, COUNT_ALL);
+    }
+
+    private static final SpatialVisitor COUNT_ALL = (id, px, py, pz) -> true;
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Number of non-empty cells
+     */
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    // --- cells ---
+
+    private int cellCoordinate(double value) {
+        double cell = Math.floor(value * inverseCellSize);
+        // Clamp so far-away coordinates cannot wrap around the packed key
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, cell));
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int findCell(long key) {
+        int mask = cellKeys.length - 1;
+        for (int i = hash(key) & mask; cellUsed[i]; i = (i + 1) & mask) {
+            if (cellKeys[i] == key) {
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    private void link(int id, long key) {
+        int index = findCell(key);
+        if (index == NONE) {
+            if ((cellCount + 1) * 2 > cellKeys.length) {
+                rehash(cellKeys.length * 2);
+            }
+            int mask = cellKeys.length - 1;
+            index = hash(key) & mask;
+            while (cellUsed[index]) {
+                index = (index + 1) & mask;
+            }
+            cellUsed[index] = true;
+            cellKeys[index] = key;
+            cellHeads[index] = NONE;
+            cellCount++;
+        }
+        int first = cellHeads[index];
+        next[id] = first;
+        previous[id] = NONE;
+        if (first != NONE) {
+            previous[first] = id;
+        }
+        cellHeads[index] = id;
+        cellOf[id] = key;
+    }
+
+    private void unlink(int id) {
+        int before = previous[id];
+        int after = next[id];
+        if (after != NONE) {
+            previous[after] = before;
+        }
+        if (before != NONE) {
+            next[before] = after;
+            return;
+        }
+        int index = findCell(cellOf[id]);
+        if (after != NONE) {
+            cellHeads[index] = after;
+        } else {
+            removeCell(index);
+        }
+    }
+
+    /**
+     * Backward-shift deletion, so lookups never need tombstones
+     */
+    private void removeCell(int index) {
+        int mask = cellKeys.length - 1;
+        int gap = index;
+        for (int i = (gap + 1) & mask; cellUsed[i]; i = (i + 1) & mask) {
+            int home = hash(cellKeys[i]) & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                cellKeys[gap] = cellKeys[i];
+                cellHeads[gap] = cellHeads[i];
+                gap = i;
+            }
+        }
+        cellUsed[gap] = false;
+        cellCount--;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = cellKeys;
+        int[] oldHeads = cellHeads;
+        boolean[] oldUsed = cellUsed;
+        cellKeys = new long[capacity];
+        cellHeads = new int[capacity];
+        cellUsed = new boolean[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int index = hash(oldKeys[i]) & mask;
+                while (cellUsed[index]) {
+                    index = (index + 1) & mask;
+                }
+                cellUsed[index] = true;
+                cellKeys[index] = oldKeys[i];
+                cellHeads[index] = oldHeads[i];
+            }
+        }
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+        cellOf = Arrays.copyOf(cellOf, capacity);
+        next = Arrays.copyOf(next, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        indexed = Arrays.copyOf(indexed, capacity);
+    }
+}
@@ -0,0 +1,15 @@
+package org.alias.rpgPlugin.spatial;
+
+/**
+ * Callback of {@link SpatialGrid} queries. Keep one instance around (a field or a non-capturing
+ * lambda) so queries stay allocation-free.
+ */
+@FunctionalInterface
+public interface SpatialVisitor {
+
+    /**
+     * @param id Entity id passed to {@link SpatialGrid#update}
+     * @return false to stop the query early
+     */
+    boolean visit(int id, double x, double y, double z);
+}
@@ -0,0 +1,302 @@
+package org.alias.rpgPlugin.hooks.player.codec;
+
+import org.alias.rpgPlugin.hooks.player.PlayerSnapshot;
+import org.alias.rpgPlugin.hooks.player.PlayerStateTable;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round trips of the binary frame format: every decoded player must match the table row it was
+ * encoded from, within the quantization step, across keyframes, delta frames, partial sections,
+ * departures and reused slots.
+ */
+public class PlayerSnapshotCodecTest {
+
+    private static final int KEYFRAME_INTERVAL = 4;
+    private static final long EPOCH_MILLIS = 1_700_000_000_000L;
+
+    // Half a quantization step is the worst rounding error
+    private static final double POSITION_TOLERANCE = 0.5 / PlayerSnapshotCodec.POSITION_SCALE;
+    private static final double ROTATION_TOLERANCE = 0.5 / PlayerSnapshotCodec.ROTATION_SCALE;
+    private static final double VELOCITY_TOLERANCE = 0.5 / PlayerSnapshotCodec.VELOCITY_SCALE;
+    // Stats are floats, so allow for their own rounding on top of the fixed-point step
+    private static final double STAT_TOLERANCE = 0.5 / PlayerSnapshotCodec.STAT_SCALE + 1e-4;
+
+    private final PlayerStateTable table = new PlayerStateTable();
+    private final PlayerSnapshotCodec encoder = new PlayerSnapshotCodec(KEYFRAME_INTERVAL);
+    private final PlayerSnapshotCodec decoder = new PlayerSnapshotCodec(KEYFRAME_INTERVAL);
+    // Decoder-side player set, as a consumer would keep it
+    private final Map<UUID, PlayerSnapshot> decoded = new HashMap<>();
+    private final List<UUID> removed = new ArrayList<>();
+    private long tick;
+
+    @Test
+    public void keyframesAndDeltasRoundTrip() {
+        PlayerSnapshot[] players = new PlayerSnapshot[3];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = fullPlayer(i + 1, 100.0 * i, 64.0, -50.0 * i);
+        }
+        for (int frame = 0; frame < KEYFRAME_INTERVAL * 3; frame++) {
+            for (int i = 0; i < players.length; i++) {
+                PlayerSnapshot player = players[i];
+                player.setTransform(player.getX() + 0.137 * (i + 1), player.getY() - 0.02, player.getZ() - 0.41,
+                        player.getPitch() + 1.5f, (player.getYaw() + 7.3f) % 360f, 0f);
+                player.setVelocity(0.137 * (i + 1), -0.02, -0.41);
+                player.setMovementBits(frame % 2 == 0 ? 1 | 1 << 15 : 1 << 10 | 1 << 15);
+                player.setStat(0, 100f - frame * 1.25f, 100f);
+                player.setDamageData(EPOCH_MILLIS + frame * 33L, -1L, EPOCH_MILLIS + frame * 17L);
+            }
+            boolean keyframe = roundTrip(players);
+            assertEquals(frame % KEYFRAME_INTERVAL == 0, keyframe, "frame " + frame);
+            assertDecodedMatchesTable();
+        }
+    }
+
+    @Test
+    public void decoderJoinsAtKeyframe() {
+        PlayerSnapshot[] players = {fullPlayer(1, 10.0, 70.0, 10.0), fullPlayer(2, -10.0, 70.0, -10.0)};
+        // Frames 0..KEYFRAME_INTERVAL-1 never reach the late decoder
+        for (int frame = 0; frame < KEYFRAME_INTERVAL; frame++) {
+            move(players, frame);
+            roundTrip(players);
+        }
+        PlayerSnapshotCodec late = new PlayerSnapshotCodec(KEYFRAME_INTERVAL);
+        for (int frame = KEYFRAME_INTERVAL; frame < KEYFRAME_INTERVAL * 2; frame++) {
+            move(players, frame);
+            ByteBuffer buffer = encode(players, null);
+            List<PlayerSnapshot> out = new ArrayList<>();
+            late.decode(buffer, out);
+            for (PlayerSnapshot player : out) {
+                assertRowMatches(table.getSlotIndex().slotOf(player.getUuid()), player);
+            }
+        }
+    }
+
+    @Test
+    public void sectionMasksAndPartialFrames() {
+        // Only transform and movement were gathered for this player
+        PlayerSnapshot partial = new PlayerSnapshot();
+        partial.setUuid(7L, 7L);
+        partial.setPlayerInfo("default", "Adventure");
+        partial.setTransform(1.0, 2.0, 3.0, 0f, 90f, 0f);
+        partial.setMovementBits(1 << 15);
+        PlayerSnapshot full = fullPlayer(8, 0.0, 64.0, 0.0);
+        PlayerSnapshot[] players = {partial, full};
+
+        roundTrip(players);
+        PlayerSnapshot first = decoded.get(partial.getUuid());
+        assertEquals(PlayerSnapshot.SECTION_TRANSFORM | PlayerSnapshot.SECTION_MOVEMENT, first.getSections());
+        assertFalse(first.hasSection(PlayerSnapshot.SECTION_STATS));
+        assertEquals(fullSections(), decoded.get(full.getUuid()).getSections());
+
+        // Delta frame where only the full player's position moves: its other sections are left out
+        // of the frame and must come back from the decoder's baseline
+        full.setTransform(5.0, 64.0, 5.0, full.getPitch(), full.getYaw(), 0f);
+        assertFalse(roundTrip(players));
+        PlayerSnapshot second = decoded.get(full.getUuid());
+        assertEquals(fullSections(), second.getSections());
+        assertEquals(100f, second.getStat(0), STAT_TOLERANCE);
+        assertEquals(EPOCH_MILLIS, second.getLastDamageTime());
+        assertEquals("dungeon_01", second.getWorldName());
+        assertDecodedMatchesTable();
+
+        // A new section on an existing player
+        partial.setVelocity(0.5, 0.0, -0.5);
+        roundTrip(players);
+        assertTrue(decoded.get(partial.getUuid()).hasSection(PlayerSnapshot.SECTION_VELOCITY));
+        assertDecodedMatchesTable();
+    }
+
+    @Test
+    public void playersLeaveOnlyDueRowsAndReusedSlots() {
+        PlayerSnapshot a = fullPlayer(1, 0.0, 64.0, 0.0);
+        PlayerSnapshot b = fullPlayer(2, 50.0, 64.0, 50.0);
+        roundTrip(a, b);
+        int slotOfB = table.getSlotIndex().slotOf(b.getUuid());
+
+        // Rows that are not due keep their last values on the decoder side
+        a.setTransform(1.0, 64.0, 1.0, 0f, 0f, 0f);
+        b.setTransform(99.0, 64.0, 99.0, 0f, 0f, 0f);
+        boolean[] due = new boolean[table.slotCount()];
+        due[table.getSlotIndex().slotOf(a.getUuid())] = true;
+        roundTrip(new PlayerSnapshot[]{a, b}, due);
+        assertEquals(50.0, decoded.get(b.getUuid()).getX(), POSITION_TOLERANCE);
+        assertEquals(1.0, decoded.get(a.getUuid()).getX(), POSITION_TOLERANCE);
+
+        // b leaves: listed as removed in the next delta frame
+        advanceToDeltaFrame(a);
+        roundTrip(a);
+        assertTrue(removed.contains(b.getUuid()), "departed player listed as removed");
+        assertFalse(decoded.containsKey(b.getUuid()));
+
+        // Once the table evicts b, a new player takes the slot and must not inherit b's baseline
+        for (int i = 0; i <= PlayerStateTable.EVICT_AFTER_TICKS; i++) {
+            roundTrip(a);
+        }
+        advanceToDeltaFrame(a);
+        PlayerSnapshot c = fullPlayer(3, -500.0, 10.0, 250.0);
+        c.setStat(0, 12.5f, 40f);
+        roundTrip(a, c);
+        assertEquals(slotOfB, table.getSlotIndex().slotOf(c.getUuid()), "new player reuses the freed slot");
+        assertDecodedMatchesTable();
+
+        // A different player in the same slot between two delta frames
+        PlayerSnapshot d = fullPlayer(4, 3.0, 4.0, 5.0);
+        for (int i = 0; i <= PlayerStateTable.EVICT_AFTER_TICKS + 1; i++) {
+            roundTrip(a);
+        }
+        advanceToDeltaFrame(a);
+        roundTrip(a, d);
+        assertEquals(slotOfB, table.getSlotIndex().slotOf(d.getUuid()));
+        assertDecodedMatchesTable();
+    }
+
+    @Test
+    public void quantizationStaysWithinBounds() {
+        PlayerSnapshot far = fullPlayer(1, 29_999_999.123456, -64.0009765, -29_999_999.987654);
+        far.setTransform(far.getX(), far.getY(), far.getZ(), -89.99f, 359.99f, -180f);
+        far.setVelocity(-312.0004, 0.00049, 77.7777);
+        far.setStat(2, 0.004f, 1_000_000f);
+        far.setDamageData(Long.MAX_VALUE / 2, -1L, 0L);
+        PlayerSnapshot near = fullPlayer(2, 0.00048, 0.0, -0.00048);
+        PlayerSnapshot[] players = {far, near};
+
+        for (int frame = 0; frame < KEYFRAME_INTERVAL + 2; frame++) {
+            // Alternate between large jumps and sub-step moves so both delta extremes are covered
+            double step = frame % 2 == 0 ? -59_999_998.5 : 0.0003;
+            far.setTransform(far.getX() + step, far.getY(), far.getZ() - step, far.getPitch(), far.getYaw(), far.getRoll());
+            roundTrip(players);
+            assertDecodedMatchesTable();
+        }
+        PlayerSnapshot decodedFar = decoded.get(far.getUuid());
+        assertEquals(Long.MAX_VALUE / 2, decodedFar.getLastDamageTime());
+        assertEquals(-1L, decodedFar.getLastChargeTime());
+    }
+
+    // --- helpers ---
+
+    private static int fullSections() {
+        return PlayerSnapshot.SECTION_TRANSFORM | PlayerSnapshot.SECTION_VELOCITY | PlayerSnapshot.SECTION_MOVEMENT
+                | PlayerSnapshot.SECTION_STATS | PlayerSnapshot.SECTION_DAMAGE;
+    }
+
+    private static PlayerSnapshot fullPlayer(long id, double x, double y, double z) {
+        PlayerSnapshot player = new PlayerSnapshot();
+        player.setUuid(id, ~id);
+        player.setPlayerInfo(id % 2 == 0 ? "dungeon_01" : "default", "Adventure");
+        player.setTransform(x, y, z, 12.5f, 270.25f, 0f);
+        player.setVelocity(0.0, 0.0, 0.0);
+        player.setMovementBits(1 << 15 | 1 << 10);
+        for (int stat = 0; stat < PlayerSnapshot.STAT_COUNT; stat++) {
+            player.setStat(stat, 100f, 100f);
+        }
+        player.setDamageData(EPOCH_MILLIS, -1L, EPOCH_MILLIS);
+        return player;
+    }
+
+    private static void move(PlayerSnapshot[] players, int frame) {
+        for (PlayerSnapshot player : players) {
+            player.setTransform(player.getX() + 0.25, player.getY(), player.getZ() - 0.25,
+                    player.getPitch(), player.getYaw() + frame, 0f);
+        }
+    }
+
+    /**
+     * Encode ticks carrying only {@code player} until the next frame is a delta frame
+     */
+    private void advanceToDeltaFrame(PlayerSnapshot player) {
+        while (tick % KEYFRAME_INTERVAL == 0) {
+            roundTrip(player);
+        }
+    }
+
+    private boolean roundTrip(PlayerSnapshot... players) {
+        return roundTrip(players, null);
+    }
+
+    /**
+     * Ingest one tick, encode it, decode it into the decoder-side player set
+     * @return Whether the frame was a keyframe
+     */
+    private boolean roundTrip(PlayerSnapshot[] players, boolean[] due) {
+        ByteBuffer buffer = encode(players, due);
+        boolean keyframe = encoder.isLastKeyframe();
+        List<PlayerSnapshot> out = new ArrayList<>();
+        removed.clear();
+        decoder.decode(buffer, out, removed);
+        assertFalse(buffer.hasRemaining(), "decoder consumed the whole frame");
+        if (keyframe) {
+            decoded.clear();
+        }
+        for (UUID uuid : removed) {
+            decoded.remove(uuid);
+        }
+        for (PlayerSnapshot player : out) {
+            decoded.put(player.getUuid(), player);
+        }
+        return keyframe;
+    }
+
+    private ByteBuffer encode(PlayerSnapshot[] players, boolean[] due) {
+        table.beginTick(tick++);
+        for (PlayerSnapshot player : players) {
+            table.put(player);
+        }
+        table.endTick();
+        ByteBuffer buffer = ByteBuffer.allocate(PlayerSnapshotCodec.maxFrameSize(table));
+        encoder.encode(table, due, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    private void assertDecodedMatchesTable() {
+        assertEquals(table.size(), decoded.size(), "decoded player count");
+        for (PlayerSnapshot player : decoded.values()) {
+            int slot = table.getSlotIndex().slotOf(player.getUuid());
+            assertTrue(slot >= 0 && table.isPresent(slot), "decoded player " + player.getUuid() + " is in the table");
+            assertRowMatches(slot, player);
+        }
+    }
+
+    private void assertRowMatches(int slot, PlayerSnapshot player) {
+        String who = player.getUuid().toString();
+        assertEquals(table.getSections()[slot], player.getSections(), who + " sections");
+        assertEquals(table.getWorldName()[slot], player.getWorldName(), who + " world");
+        assertEquals(table.getGameMode()[slot], player.getGameMode(), who + " game mode");
+        if (player.hasSection(PlayerSnapshot.SECTION_TRANSFORM)) {
+            assertEquals(table.getX()[slot], player.getX(), POSITION_TOLERANCE, who + " x");
+            assertEquals(table.getY()[slot], player.getY(), POSITION_TOLERANCE, who + " y");
+            assertEquals(table.getZ()[slot], player.getZ(), POSITION_TOLERANCE, who + " z");
+            assertEquals(table.getPitch()[slot], player.getPitch(), ROTATION_TOLERANCE, who + " pitch");
+            assertEquals(table.getYaw()[slot], player.getYaw(), ROTATION_TOLERANCE, who + " yaw");
+            assertEquals(table.getRoll()[slot], player.getRoll(), ROTATION_TOLERANCE, who + " roll");
+        }
+        if (player.hasSection(PlayerSnapshot.SECTION_VELOCITY)) {
+            assertEquals(table.getVelocityX()[slot], player.getVelocityX(), VELOCITY_TOLERANCE, who + " velocity x");
+            assertEquals(table.getVelocityY()[slot], player.getVelocityY(), VELOCITY_TOLERANCE, who + " velocity y");
+            assertEquals(table.getVelocityZ()[slot], player.getVelocityZ(), VELOCITY_TOLERANCE, who + " velocity z");
+        }
+        if (player.hasSection(PlayerSnapshot.SECTION_MOVEMENT)) {
+            assertEquals((int) table.getMovementBits()[slot], player.getMovementBits(), who + " movement");
+        }
+        if (player.hasSection(PlayerSnapshot.SECTION_STATS)) {
+            for (int i = 0; i < PlayerSnapshot.STAT_COUNT; i++) {
+                assertEquals(table.getStat(i)[slot], player.getStat(i), STAT_TOLERANCE, who + " " + PlayerSnapshot.STAT_NAMES[i]);
+                assertEquals(table.getMaxStat(i)[slot], player.getMaxStat(i), STAT_TOLERANCE, who + " " + PlayerSnapshot.MAX_STAT_NAMES[i]);
+            }
+        }
+        if (player.hasSection(PlayerSnapshot.SECTION_DAMAGE)) {
+            assertEquals(table.getLastDamageTime()[slot], player.getLastDamageTime(), who + " last damage");
+            assertEquals(table.getLastChargeTime()[slot], player.getLastChargeTime(), who + " last charge");
+            assertEquals(table.getLastCombatAction()[slot], player.getLastCombatAction(), who + " last combat action");
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.alias.rpgPlugin.hooks.player.codec;
+
+import org.alias.rpgPlugin.hooks.player.PlayerSnapshot;
+import org.alias.rpgPlugin.hooks.player.PlayerStateTable;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Guards the zero-garbage steady state of {@link SnapshotSerializer}: once its buffers have grown
+ * to the frame size, encoding and compressing a frame must not allocate on the calling thread.
+ * Allocation is read from the thread's allocation counter around a few thousand frames, so a
+ * regression fails the build instead of waiting for the next manual {@code jmh -prof gc} run.
+ */
+public class SnapshotSerializerAllocationTest {
+
+    private static final int PLAYERS = 200;
+    // Short enough that keyframes are part of the measured frames
+    private static final int KEYFRAME_INTERVAL = 60;
+    private static final int COMPRESSION_LEVEL = 3;
+    private static final int WARMUP_FRAMES = 3_000;
+    private static final int MEASURED_FRAMES = 5_000;
+    // Room for one-off allocations outside the serializer (class loading, JIT bookkeeping) while
+    // staying far below a single allocation per frame
+    private static final long ALLOWED_BYTES = 4 * 1024;
+
+    @Test
+    public void blockModeDoesNotAllocate() {
+        assertSteadyStateAllocationFree(CompressionMode.BLOCK);
+    }
+
+    @Test
+    public void streamModeDoesNotAllocate() {
+        assertSteadyStateAllocationFree(CompressionMode.STREAM);
+    }
+
+    private static void assertSteadyStateAllocationFree(CompressionMode mode) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "thread allocation counters not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        PlayerStateTable table = fixedTable();
+        SnapshotSerializer serializer = new SnapshotSerializer(new DirectBufferPool(4), KEYFRAME_INTERVAL,
+                new SnapshotCompressor(COMPRESSION_LEVEL, null));
+        serializer.setCompressionMode(mode);
+        try {
+            long checksum = 0L;
+            for (int i = 0; i < WARMUP_FRAMES; i++) {
+                checksum += serialize(serializer, table);
+            }
+
+            long threadId = Thread.currentThread().threadId();
+            long before = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < MEASURED_FRAMES; i++) {
+                checksum += serialize(serializer, table);
+            }
+            long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+            assertTrue(checksum > 0L, "frames were produced");
+            assertTrue(allocated <= ALLOWED_BYTES, mode + ": " + allocated + " bytes allocated over "
+                    + MEASURED_FRAMES + " frames (" + (double) allocated / MEASURED_FRAMES + " per frame)");
+        } finally {
+            serializer.close();
+            serializer.getCompressor().close();
+        }
+    }
+
+    private static int serialize(SnapshotSerializer serializer, PlayerStateTable table) {
+        ByteBuffer frame = serializer.serialize(table, null);
+        return frame.remaining();
+    }
+
+    /**
+     * A table holding {@link #PLAYERS} players with every section set
+     */
+    private static PlayerStateTable fixedTable() {
+        PlayerStateTable table = new PlayerStateTable();
+        table.beginTick(1L);
+        PlayerSnapshot snapshot = new PlayerSnapshot();
+        for (int i = 0; i < PLAYERS; i++) {
+            snapshot.clear();
+            snapshot.setUuid(0x5EED_0000L + i, ~(long) i);
+            snapshot.setPlayerInfo(i % 3 == 0 ? "dungeon_01" : "default", "Adventure");
+            snapshot.setTransform(i * 3.25, 64.0 + i % 7, -i * 1.5, 10f, (i * 37) % 360, 0f);
+            snapshot.setVelocity(0.1, 0.0, -0.1);
+            snapshot.setMovementBits(1 << 15 | 1);
+            for (int stat = 0; stat < PlayerSnapshot.STAT_COUNT; stat++) {
+                snapshot.setStat(stat, 50f + stat, 100f);
+            }
+            snapshot.setDamageData(1_700_000_000_000L + i, -1L, 1_700_000_000_000L);
+            table.put(snapshot);
+        }
+        table.endTick();
+        return table;
+    }
+}
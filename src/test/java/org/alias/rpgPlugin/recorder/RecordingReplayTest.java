@@ -0,0 +1,215 @@
+package org.alias.rpgPlugin.recorder;
+
+import org.alias.rpgPlugin.hooks.player.PlayerSnapshot;
+import org.alias.rpgPlugin.hooks.player.PlayerStateTable;
+import org.alias.rpgPlugin.hooks.player.codec.CompressionMode;
+import org.alias.rpgPlugin.hooks.player.codec.DirectBufferPool;
+import org.alias.rpgPlugin.hooks.player.codec.PlayerSnapshotCodec;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotCompressor;
+import org.alias.rpgPlugin.hooks.player.codec.SnapshotSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Frames written by {@link SnapshotRecorder}, read back through {@link RecordingReader} and applied
+ * by {@link ReplayDecoder} must rebuild the player state of every recorded tick, across segment
+ * rotations, after a seek, and past a frame missing from the recording.
+ */
+public class RecordingReplayTest {
+
+    private static final int KEYFRAME_INTERVAL = 8;
+    private static final int FRAMES = 40;
+    private static final long START_MILLIS = 1_700_000_000_000L;
+    // Segments rotate by age; five frames per segment
+    private static final long SEGMENT_MILLIS = 1_000L;
+    private static final long FRAME_MILLIS = 200L;
+    private static final long RETRY_NANOS = 5_000_000_000L;
+    private static final double POSITION_TOLERANCE = 0.5 / PlayerSnapshotCodec.POSITION_SCALE;
+
+    private Path directory;
+    // Expected x coordinate of every present player, by recorded tick
+    private final Map<Long, Map<UUID, Double>> expected = new HashMap<>();
+
+    @BeforeEach
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("rpg-recording-test");
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    public void blockFramesReplayAcrossSegments() throws IOException {
+        assertReplaysAcrossSegments(CompressionMode.BLOCK);
+    }
+
+    @Test
+    public void streamedFramesReplayAcrossSegments() throws IOException {
+        assertReplaysAcrossSegments(CompressionMode.STREAM);
+    }
+
+    @Test
+    public void seekStartsAtPrecedingKeyframe() throws IOException {
+        record(CompressionMode.BLOCK, -1);
+        long target = 29L;
+        try (RecordingReader reader = new RecordingReader(directory);
+             ReplayDecoder decoder = new ReplayDecoder(null)) {
+            assertTrue(reader.seek(target, false), "recording has keyframes");
+            assertTrue(reader.next());
+            assertTrue((reader.getFlags() & RecordingFormat.FLAG_KEYFRAME) != 0, "seek lands on a keyframe");
+            assertTrue(reader.getTick() <= target && reader.getTick() > target - KEYFRAME_INTERVAL,
+                    "keyframe at " + reader.getTick() + " is the last one before " + target);
+            do {
+                assertTrue(decoder.apply(reader.getFlags(), reader.getPayload()), "tick " + reader.getTick());
+                assertStateMatches(reader.getTick(), decoder);
+            } while (reader.next());
+        }
+
+        try (RecordingReader reader = new RecordingReader(directory)) {
+            long timeTarget = START_MILLIS + target * FRAME_MILLIS;
+            assertTrue(reader.seek(timeTarget, true));
+            assertTrue(reader.next());
+            assertTrue((reader.getFlags() & RecordingFormat.FLAG_KEYFRAME) != 0);
+            assertTrue(reader.getTimestampMillis() <= timeTarget);
+        }
+    }
+
+    @Test
+    public void blockReplayWaitsForKeyframeAfterDroppedFrame() throws IOException {
+        assertResyncsAfterDroppedFrame(CompressionMode.BLOCK);
+    }
+
+    @Test
+    public void streamReplayWaitsForKeyframeAfterDroppedFrame() throws IOException {
+        assertResyncsAfterDroppedFrame(CompressionMode.STREAM);
+    }
+
+    private void assertReplaysAcrossSegments(CompressionMode mode) throws IOException {
+        record(mode, -1);
+        try (RecordingReader reader = new RecordingReader(directory);
+             ReplayDecoder decoder = new ReplayDecoder(null)) {
+            List<Path> segments = reader.getSegments();
+            assertTrue(segments.size() >= FRAMES * FRAME_MILLIS / SEGMENT_MILLIS - 1, segments.size() + " segments");
+            for (Path segment : segments) {
+                assertTrue(Files.exists(RecordingFormat.indexPath(segment)), segment.getFileName() + " was finished");
+            }
+            long frames = 0;
+            while (reader.next()) {
+                assertEquals(frames, reader.getTick(), "records are in tick order");
+                assertTrue(decoder.apply(reader.getFlags(), reader.getPayload()), "tick " + reader.getTick());
+                assertStateMatches(reader.getTick(), decoder);
+                frames++;
+            }
+            assertEquals(FRAMES, frames);
+        }
+    }
+
+    private void assertResyncsAfterDroppedFrame(CompressionMode mode) throws IOException {
+        // A delta frame, so the frames after it up to the next keyframe cannot be decoded
+        long dropped = KEYFRAME_INTERVAL + 2;
+        long resync = 2 * KEYFRAME_INTERVAL;
+        record(mode, dropped);
+        try (RecordingReader reader = new RecordingReader(directory);
+             ReplayDecoder decoder = new ReplayDecoder(null)) {
+            while (reader.next()) {
+                long tick = reader.getTick();
+                assertNotEquals(dropped, tick);
+                boolean applied = decoder.apply(reader.getFlags(), reader.getPayload());
+                boolean decodable = tick < dropped || tick >= resync;
+                assertEquals(decodable, applied, "tick " + tick);
+                assertEquals(decodable, decoder.isSynced(), "tick " + tick);
+                if (applied) {
+                    assertStateMatches(tick, decoder);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record {@link #FRAMES} ticks of moving players (one joining, one leaving), leaving out the
+     * frame of {@code skipTick} as the recorder does when no segment is ready
+     */
+    private void record(CompressionMode mode, long skipTick) throws IOException {
+        SnapshotSerializer serializer = new SnapshotSerializer(new DirectBufferPool(4), KEYFRAME_INTERVAL,
+                new SnapshotCompressor(3, null));
+        serializer.setCompressionMode(mode);
+        SnapshotRecorder recorder = new SnapshotRecorder(directory, 1L << 20, SEGMENT_MILLIS, 100);
+        PlayerStateTable table = new PlayerStateTable();
+        PlayerSnapshot snapshot = new PlayerSnapshot();
+        try {
+            recorder.start();
+            for (long tick = 0; tick < FRAMES; tick++) {
+                Map<UUID, Double> present = new HashMap<>();
+                table.beginTick(tick);
+                for (int id = 1; id <= 4; id++) {
+                    // Player 3 joins at tick 13, player 4 leaves at tick 25
+                    if ((id == 3 && tick < 13) || (id == 4 && tick >= 25)) {
+                        continue;
+                    }
+                    double x = 10.0 * id + 0.37 * tick;
+                    snapshot.clear();
+                    snapshot.setUuid(id, ~(long) id);
+                    snapshot.setPlayerInfo("default", "Adventure");
+                    snapshot.setTransform(x, 64.0, -0.25 * tick, 0f, (tick * 7) % 360, 0f);
+                    table.put(snapshot);
+                    present.put(new UUID(id, ~(long) id), x);
+                }
+                table.endTick();
+                expected.put(tick, present);
+
+                ByteBuffer frame = serializer.serialize(table);
+                if (tick == skipTick) {
+                    continue;
+                }
+                int flags = (serializer.isLastKeyframe() ? RecordingFormat.FLAG_KEYFRAME : 0)
+                        | (mode == CompressionMode.STREAM ? RecordingFormat.FLAG_STREAM : 0);
+                recordRetrying(recorder, tick, START_MILLIS + tick * FRAME_MILLIS, frame, flags);
+            }
+        } finally {
+            recorder.close();
+            serializer.close();
+            serializer.getCompressor().close();
+        }
+    }
+
+    /**
+     * The next segment is prepared in the background; retry a rotation until it is ready
+     */
+    private static void recordRetrying(SnapshotRecorder recorder, long tick, long millis, ByteBuffer frame, int flags) {
+        long deadline = System.nanoTime() + RETRY_NANOS;
+        while (!recorder.record(tick, millis, frame, flags)) {
+            assertTrue(System.nanoTime() < deadline, "no segment became ready for tick " + tick);
+            Thread.onSpinWait();
+        }
+    }
+
+    private void assertStateMatches(long tick, ReplayDecoder decoder) {
+        Map<UUID, Double> present = expected.get(tick);
+        assertEquals(present.size(), decoder.getPlayerCount(), "players at tick " + tick);
+        for (PlayerSnapshot player : decoder.getPlayers()) {
+            Double x = present.get(player.getUuid());
+            assertNotNull(x, player.getUuid() + " present at tick " + tick);
+            assertEquals(x, player.getX(), POSITION_TOLERANCE, "x of " + player.getUuid() + " at tick " + tick);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.alias.rpgPlugin.skilltable;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Shard files written by {@link SkillStore} must read back the same progress, skills must be matched
+ * by name rather than position, unreadable shards must be set aside, and queued records of one
+ * player must merge the way the engine and the cache rely on (full records replace, deltas add).
+ */
+public class SkillStoreTest {
+
+    private static final int SKILLS = Types.values().length;
+    // Long enough that only close() flushes
+    private static final long FLUSH_INTERVAL_MILLIS = 60_000L;
+    // 'RPGS', as written by SkillStore
+    private static final int MAGIC = 0x52504753;
+    private static final short VERSION = 1;
+
+    private Path directory;
+
+    @BeforeEach
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("rpg-skill-store-test");
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Test
+    public void shardsReadBackWhatWasWritten() throws IOException {
+        // Enough players to touch every shard
+        UUID[] players = new UUID[200];
+        Random random = new Random(0x5EEDL);
+        SkillStore store = start();
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new UUID(random.nextLong(), random.nextLong());
+            store.queue(new SkillRecord(players[i], xp(i), false, true));
+        }
+        store.close();
+        assertEquals(0, store.getQueued());
+        assertEquals(SkillStore.SHARD_COUNT, store.getShardsWritten(), "every shard written once");
+
+        SkillStore reopened = start();
+        try {
+            for (int i = 0; i < players.length; i++) {
+                assertArrayEquals(xp(i), reopened.load(players[i]), "player " + i);
+            }
+            assertNull(reopened.load(new UUID(1L, 2L)), "unknown player");
+            assertEquals(0, reopened.getErrors());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void skillsAreMatchedByName() throws IOException {
+        UUID player = new UUID(42L, 4242L);
+        // Stored in another order, with a skill that no longer exists and without FARMING
+        String[] names = {"MINING", "SMITHING", "MELEE", "FISHING", "ARCHERY", "MAGIC", "WOODCUTTING", "SAILING"};
+        long[] values = {500L, 77L, 100L, 600L, 200L, 300L, 400L, 700L};
+        Files.write(shardPath(player), shard(names, player, values));
+
+        SkillStore store = start();
+        try {
+            long[] loaded = store.load(player);
+            assertNotNull(loaded);
+            assertEquals(SKILLS, loaded.length);
+            assertEquals(100L, loaded[Types.MELEE.ordinal()]);
+            assertEquals(200L, loaded[Types.ARCHERY.ordinal()]);
+            assertEquals(300L, loaded[Types.MAGIC.ordinal()]);
+            assertEquals(400L, loaded[Types.WOODCUTTING.ordinal()]);
+            assertEquals(500L, loaded[Types.MINING.ordinal()]);
+            assertEquals(600L, loaded[Types.FISHING.ordinal()]);
+            assertEquals(700L, loaded[Types.SAILING.ordinal()]);
+            assertEquals(0L, loaded[Types.FARMING.ordinal()], "skill missing from the shard starts at 0");
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void truncatedShardIsMovedAside() throws IOException {
+        UUID player = new UUID(7L, 77L);
+        SkillStore store = start();
+        store.queue(new SkillRecord(player, xp(7), false, true));
+        store.close();
+
+        Path path = shardPath(player);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 3));
+
+        SkillStore reopened = start();
+        try {
+            assertNull(reopened.load(player), "an unreadable shard starts over");
+            assertEquals(1, reopened.getErrors());
+            assertNotNull(reopened.getLastError());
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(1, files.filter(file -> file.getFileName().toString().contains(".corrupt-")).count(),
+                        "the truncated file is kept for inspection");
+            }
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void queuedRecordsMerge() throws IOException {
+        UUID deltaOnSaved = new UUID(1L, 1L);
+        UUID deltaOnDelta = new UUID(2L, 2L);
+        UUID fullAfterDelta = new UUID(3L, 3L);
+        UUID deltaAfterFull = new UUID(4L, 4L);
+
+        SkillStore store = start();
+        store.queue(new SkillRecord(deltaOnSaved, filled(1_000L), false, true));
+        store.close();
+
+        store = start();
+        store.queue(new SkillRecord(deltaOnSaved, filled(5L), true, true));
+        store.queue(new SkillRecord(deltaOnDelta, filled(5L), true, true));
+        store.queue(new SkillRecord(deltaOnDelta, filled(7L), true, true));
+        store.queue(new SkillRecord(fullAfterDelta, filled(5L), true, true));
+        store.queue(new SkillRecord(fullAfterDelta, filled(300L), false, true));
+        store.queue(new SkillRecord(deltaAfterFull, filled(300L), false, true));
+        store.queue(new SkillRecord(deltaAfterFull, filled(5L), true, true));
+        assertEquals(4, store.getQueued(), "one queued record per player");
+
+        // Loads see queued records before they are flushed
+        assertArrayEquals(filled(1_005L), store.load(deltaOnSaved));
+        assertArrayEquals(filled(12L), store.load(deltaOnDelta));
+        assertArrayEquals(filled(300L), store.load(fullAfterDelta));
+        assertArrayEquals(filled(305L), store.load(deltaAfterFull));
+        store.close();
+
+        SkillStore reopened = start();
+        try {
+            assertArrayEquals(filled(1_005L), reopened.load(deltaOnSaved), "delta added to the saved record");
+            assertArrayEquals(filled(12L), reopened.load(deltaOnDelta), "deltas add up");
+            assertArrayEquals(filled(300L), reopened.load(fullAfterDelta), "a full record replaces a delta");
+            assertArrayEquals(filled(305L), reopened.load(deltaAfterFull), "a delta adds to a queued full record");
+        } finally {
+            reopened.close();
+        }
+    }
+
+    private SkillStore start() throws IOException {
+        SkillStore store = new SkillStore(directory, new SkillXpEngine(XpCurve.DEFAULT), FLUSH_INTERVAL_MILLIS, Integer.MAX_VALUE);
+        store.start();
+        return store;
+    }
+
+    private static long[] xp(int player) {
+        long[] xp = new long[SKILLS];
+        for (int skill = 0; skill < SKILLS; skill++) {
+            // Spans one- to five-byte varints
+            xp[skill] = (long) player * 1_000_003L + skill * (1L << (4 * skill));
+        }
+        return xp;
+    }
+
+    private static long[] filled(long value) {
+        long[] xp = new long[SKILLS];
+        Arrays.fill(xp, value);
+        return xp;
+    }
+
+    private Path shardPath(UUID player) {
+        return directory.resolve(String.format("skills-%02d.bin", Math.floorMod(player.hashCode(), SkillStore.SHARD_COUNT)));
+    }
+
+    /**
+     * A one-record shard in the documented layout
+     */
+    private static byte[] shard(String[] names, UUID player, long[] values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(names.length);
+        out.writeInt(1);
+        for (String name : names) {
+            byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(encoded.length);
+            out.write(encoded);
+        }
+        out.writeLong(player.getMostSignificantBits());
+        out.writeLong(player.getLeastSignificantBits());
+        for (long value : values) {
+            long v = value;
+            while ((v & ~0x7FL) != 0L) {
+                out.writeByte((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            out.writeByte((int) v);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+}